@@ -0,0 +1,153 @@
+package mil.nga.bundler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mil.nga.bundler.archive.ArchiveFactory;
+import mil.nga.bundler.exceptions.ArchiveException;
+import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
+import mil.nga.bundler.interfaces.BundlerI;
+import mil.nga.bundler.model.FileEntry;
+import mil.nga.bundler.types.ArchiveType;
+
+/**
+ * Measures the time required to bundle a generated corpus of files with
+ * each of the archivers (ZipArchiver, TarArchiver, GZipArchiver and
+ * BZip2Archiver).  Bundlers are obtained from the ArchiveFactory, exactly as
+ * they are by the ArchiverMDB, so the host-level settings (compression
+ * workers, zero-copy TAR, adaptive ZIP, etc.) apply.  Those settings may be
+ * varied by passing system properties to the forked JVM (e.g.
+ * <code>-jvmArgs -Dbundler.compression.workers=1</code>).
+ *
+ * The corpora are written to the directory identified by the
+ * <code>bundler.benchmark.dir</code> system property (defaults to
+ * <code>java.io.tmpdir</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    /**
+     * The corpora used by the benchmark.
+     */
+    public enum Corpus {
+
+        /**
+         * Many small, compressible files (metadata, XML, etc.).
+         */
+        SMALL_FILES(10000, 4L * 1024, true),
+
+        /**
+         * A few very large, compressible files.
+         */
+        HUGE_FILES(4, 256L * 1024 * 1024, true),
+
+        /**
+         * Medium-sized files that are already compressed (imagery, nested
+         * archives, etc.).
+         */
+        INCOMPRESSIBLE(64, 4L * 1024 * 1024, false);
+
+        private final int     count;
+        private final long    size;
+        private final boolean compressible;
+
+        private Corpus(int count, long size, boolean compressible) {
+            this.count        = count;
+            this.size         = size;
+            this.compressible = compressible;
+        }
+    }
+
+    /**
+     * The output archive type.
+     */
+    @Param({ "ZIP", "TAR", "GZIP", "BZIP2" })
+    public ArchiveType archiveType;
+
+    /**
+     * The corpus to bundle.
+     */
+    @Param({ "SMALL_FILES", "HUGE_FILES", "INCOMPRESSIBLE" })
+    public Corpus corpus;
+
+    /**
+     * The files in the corpus.
+     */
+    private List<FileEntry> files = null;
+
+    /**
+     * Output archive file (without the extension).
+     */
+    private String outputFile = null;
+
+    /**
+     * Name of the archive created by the last invocation.
+     */
+    private String archiveName = null;
+
+    /**
+     * Generate the corpus.
+     *
+     * @throws IOException Thrown if the corpus cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void createCorpus() throws IOException {
+        files = BenchmarkFiles.createCorpus(
+                corpus.name().toLowerCase() + "-",
+                corpus.count,
+                corpus.size,
+                corpus.compressible);
+        outputFile = new File(
+                BenchmarkFiles.getDirectory(),
+                "bench-" + archiveType.name().toLowerCase()).getAbsolutePath();
+    }
+
+    /**
+     * Remove the corpus and the output archive (and any intermediate TAR
+     * file).
+     */
+    @TearDown(Level.Trial)
+    public void deleteCorpus() {
+        if (files != null) {
+            BenchmarkFiles.deleteCorpus(files);
+        }
+        if (archiveName != null) {
+            new File(archiveName).delete();
+        }
+        new File(outputFile + ".tar").delete();
+    }
+
+    @Benchmark
+    public long bundle()
+            throws ArchiveException, IOException, UnknownArchiveTypeException {
+        BundlerI bundler = ArchiveFactory.getFactory().getInstance(
+                archiveType);
+        bundler.bundle(files, outputFile);
+        archiveName = bundler.getArchiveName();
+        if (archiveName == null) {
+            archiveName = outputFile;
+        }
+        return new File(archiveName).length();
+    }
+}
@@ -0,0 +1,169 @@
+package mil.nga.bundler.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import mil.nga.bundler.model.FileEntry;
+
+/**
+ * Helper methods used to generate the benchmark data.
+ */
+final class BenchmarkFiles {
+
+    /**
+     * System property identifying the directory used for test data.
+     */
+    static final String BENCHMARK_DIR_PROPERTY = "bundler.benchmark.dir";
+
+    /**
+     * Words used to generate compressible (text-like) data.
+     */
+    private static final String[] WORDS = new String[] {
+        "archive", "bundle", "product", "image", "tile", "metadata",
+        "latitude", "longitude", "elevation", "sensor", "collection",
+        "2018-05-04T18:09:00Z", "0.000125", "-77.0365", "38.8977", "NITF",
+        "classification", "UNCLASSIFIED", "band", "resolution"
+    };
+
+    private BenchmarkFiles() { }
+
+    /**
+     * Get the directory in which benchmark data is written.
+     *
+     * @return The benchmark data directory.
+     */
+    static File getDirectory() {
+        File dir = new File(System.getProperty(
+                BENCHMARK_DIR_PROPERTY,
+                System.getProperty("java.io.tmpdir")));
+        dir.mkdirs();
+        return dir;
+    }
+
+    /**
+     * Create a file filled with random (incompressible) data.
+     *
+     * @param prefix Prefix of the file name.
+     * @param size Size of the file in bytes.
+     * @return The new file.
+     * @throws IOException Thrown if the file cannot be written.
+     */
+    static File createFile(String prefix, long size) throws IOException {
+        File file = File.createTempFile(prefix, ".dat", getDirectory());
+        writeFile(file, size, false, new Random(size));
+        return file;
+    }
+
+    /**
+     * Create a directory containing a corpus of generated files.
+     *
+     * @param prefix Prefix of the directory name.
+     * @param count Number of files in the corpus.
+     * @param size Size of each file in bytes.
+     * @param compressible True to generate text-like data, false to
+     * generate random (incompressible) data.
+     * @return The files in the corpus, ready to hand to a bundler.
+     * @throws IOException Thrown if the files cannot be written.
+     */
+    static List<FileEntry> createCorpus(
+            String  prefix,
+            int     count,
+            long    size,
+            boolean compressible) throws IOException {
+        File dir = File.createTempFile(prefix, "", getDirectory());
+        if (!(dir.delete() && dir.mkdir())) {
+            throw new IOException("Unable to create corpus directory [ "
+                    + dir.getAbsolutePath()
+                    + " ].");
+        }
+        Random          random = new Random(count * size);
+        List<FileEntry> files  = new ArrayList<FileEntry>(count);
+        for (int i = 0; i < count; i++) {
+            String name = String.format("file%06d.dat", i);
+            File   file = new File(dir, name);
+            writeFile(file, size, compressible, random);
+            files.add(new FileEntry(file.getAbsolutePath(), name, size));
+        }
+        return files;
+    }
+
+    /**
+     * Delete the files in a corpus along with the corpus directory.
+     *
+     * @param files The files in the corpus.
+     */
+    static void deleteCorpus(List<FileEntry> files) {
+        File dir = null;
+        for (FileEntry entry : files) {
+            File file = new File(entry.getFilePath());
+            dir = file.getParentFile();
+            file.delete();
+        }
+        if (dir != null) {
+            dir.delete();
+        }
+    }
+
+    /**
+     * Write a file of generated data.
+     *
+     * @param file The file to write.
+     * @param size Size of the file in bytes.
+     * @param compressible True to generate text-like data.
+     * @param random Source of the generated data.
+     * @throws IOException Thrown if the file cannot be written.
+     */
+    private static void writeFile(
+            File    file,
+            long    size,
+            boolean compressible,
+            Random  random) throws IOException {
+        byte[]       buffer = new byte[(int)Math.min(size, 1024 * 1024)];
+        OutputStream out    = new BufferedOutputStream(
+                new FileOutputStream(file));
+        try {
+            long written = 0L;
+            while (written < size) {
+                if (compressible) {
+                    fillText(buffer, random);
+                }
+                else {
+                    random.nextBytes(buffer);
+                }
+                int n = (int)Math.min(buffer.length, size - written);
+                out.write(buffer, 0, n);
+                written += n;
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Fill the buffer with randomly selected words.
+     *
+     * @param buffer The buffer to fill.
+     * @param random Used to select the words.
+     */
+    private static void fillText(byte[] buffer, Random random) {
+        int position = 0;
+        while (position < buffer.length) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            for (int i = 0; (i < word.length()) && (position < buffer.length);
+                    i++) {
+                buffer[position++] = (byte)word.charAt(i);
+            }
+            if (position < buffer.length) {
+                buffer[position++] = (byte)(random.nextInt(8) == 0 ?
+                        '\n' : ' ');
+            }
+        }
+    }
+}
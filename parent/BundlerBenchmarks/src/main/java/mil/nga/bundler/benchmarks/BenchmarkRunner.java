@@ -0,0 +1,92 @@
+package mil.nga.bundler.benchmarks;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmarks JAR.  Accepts the standard JMH command
+ * line options but, unless the caller specifies otherwise, writes the
+ * results in JSON format to a file named after the release being
+ * benchmarked, e.g.:
+ *
+ * <pre>
+ * benchmark-results/bundler-1.0-SNAPSHOT-20181017-093000.json
+ * </pre>
+ *
+ * Keeping the JSON output from each release allows regressions to be
+ * identified by comparing the files (e.g. with the JMH visualizer).  The
+ * output directory may be changed with the
+ * <code>bundler.benchmark.results</code> system property.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * System property identifying the directory for the JSON results.
+     */
+    public static final String RESULTS_DIR_PROPERTY =
+            "bundler.benchmark.results";
+
+    /**
+     * Default directory for the JSON results.
+     */
+    public static final String DEFAULT_RESULTS_DIR = "benchmark-results";
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args Standard JMH command line options.
+     * @throws Exception Thrown if the options are invalid or the benchmarks
+     * fail.
+     */
+    public static void main(String[] args) throws Exception {
+
+        CommandLineOptions    cmd     = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmd);
+
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()
+                || cmd.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        if (!cmd.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            File dir = new File(System.getProperty(
+                    RESULTS_DIR_PROPERTY,
+                    DEFAULT_RESULTS_DIR));
+            dir.mkdirs();
+            builder.result(new File(dir, getResultFileName())
+                    .getAbsolutePath());
+        }
+        new Runner(builder.build()).run();
+    }
+
+    /**
+     * Construct the name of the results file from the release version and
+     * the current time.
+     *
+     * @return The results file name.
+     */
+    static String getResultFileName() {
+        String version = BenchmarkRunner.class.getPackage()
+                .getImplementationVersion();
+        if (version == null) {
+            version = "dev";
+        }
+        return "bundler-"
+                + version
+                + "-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+                + ".json";
+    }
+}
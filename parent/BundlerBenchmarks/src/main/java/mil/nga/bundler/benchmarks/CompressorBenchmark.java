@@ -0,0 +1,147 @@
+package mil.nga.bundler.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.utils.CountingOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mil.nga.bundler.archive.ParallelBZip2OutputStream;
+import mil.nga.bundler.archive.ParallelGzipOutputStream;
+
+/**
+ * Compares the throughput of the block-parallel compressor streams against
+ * the single-threaded commons-compress streams they replace.  A
+ * <code>workers</code> value of 1 selects the single-threaded stream.  The
+ * input is held in memory and the compressed output is discarded, so the
+ * results measure the CPU cost of compression only.  The number of
+ * compressed bytes is returned so it can be compared across runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompressorBenchmark {
+
+    /**
+     * Block size handed to each GZIP worker.
+     */
+    private static final int GZIP_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * The compression algorithm.
+     */
+    @Param({ "GZIP", "BZIP2" })
+    public String codec;
+
+    /**
+     * Number of compression workers (1 selects the single-threaded
+     * stream).
+     */
+    @Param({ "1", "4" })
+    public int workers;
+
+    /**
+     * Amount of data to compress (in MB).
+     */
+    @Param({ "16" })
+    public int sizeMB;
+
+    /**
+     * The data to compress.
+     */
+    private byte[] data = null;
+
+    /**
+     * Thread pool used by the parallel streams.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * Generate partially compressible test data (alternating runs of
+     * repeated text and random bytes) and start the worker pool.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        data = new byte[sizeMB * 1024 * 1024];
+        Random random = new Random(data.length);
+        byte[] text = "The quick brown fox jumps over the lazy dog. "
+                .getBytes();
+        for (int i = 0; i < data.length; i++) {
+            if ((i / 1000) % 2 == 0) {
+                data[i] = text[i % text.length];
+            }
+            else {
+                data[i] = (byte)random.nextInt(256);
+            }
+        }
+        executor = Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Stop the worker pool.
+     */
+    @TearDown(Level.Trial)
+    public void teardown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public long compress() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(
+                new OutputStream() {
+                    @Override
+                    public void write(int b) { }
+                    @Override
+                    public void write(byte[] b, int off, int len) { }
+                });
+        OutputStream out = getCompressorOutputStream(counter);
+        out.write(data);
+        out.close();
+        return counter.getBytesWritten();
+    }
+
+    /**
+     * Wrap the input stream in the compressor under test.
+     *
+     * @param out The stream to which the compressed data will be written.
+     * @return The compressor output stream.
+     * @throws IOException Thrown if the stream cannot be created.
+     */
+    private OutputStream getCompressorOutputStream(OutputStream out)
+            throws IOException {
+        if ("BZIP2".equals(codec)) {
+            if (workers > 1) {
+                return new ParallelBZip2OutputStream(out, executor, workers);
+            }
+            return new BZip2CompressorOutputStream(out);
+        }
+        if (workers > 1) {
+            return new ParallelGzipOutputStream(
+                    out, executor, workers, GZIP_BLOCK_SIZE);
+        }
+        return new GzipCompressorOutputStream(out);
+    }
+}
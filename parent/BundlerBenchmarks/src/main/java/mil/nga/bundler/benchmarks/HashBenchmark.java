@@ -0,0 +1,120 @@
+package mil.nga.bundler.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mil.nga.bundler.FileHasher;
+import mil.nga.bundler.types.HashType;
+
+/**
+ * Compares the hashing strategies available to the HashGeneratorService:
+ * <ul>
+ * <li><code>digestUtils</code> - the original stream-based implementation
+ * (commons-codec <code>DigestUtils</code> over a FileInputStream).</li>
+ * <li><code>channel</code> - <code>FileHasher</code> reading the file
+ * through a direct buffer.</li>
+ * <li><code>mapped</code> - <code>FileHasher</code> hashing memory-mapped
+ * windows of the file.</li>
+ * </ul>
+ *
+ * The test file is created in the directory identified by the
+ * <code>bundler.benchmark.dir</code> system property (defaults to
+ * <code>java.io.tmpdir</code>) so the benchmark can be pointed at the disk
+ * of interest.  Files are written once per trial so, unless the page cache
+ * is dropped externally, the results compare the CPU cost of each strategy
+ * rather than the raw disk throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class HashBenchmark {
+
+    /**
+     * Size of the file to hash (in MB).
+     */
+    @Param({ "1", "16", "256", "1024", "4096" })
+    public int sizeMB;
+
+    /**
+     * Hash types calculated by each invocation.
+     */
+    private final Set<HashType> types = EnumSet.of(HashType.SHA1);
+
+    /**
+     * The file to hash.
+     */
+    private File file = null;
+
+    /**
+     * Hasher under test (re-used, as it is in the EJB).
+     */
+    private FileHasher hasher = null;
+
+    /**
+     * Create the test file.
+     *
+     * @throws IOException Thrown if the file cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file   = BenchmarkFiles.createFile(
+                "hash-" + sizeMB + "MB-",
+                sizeMB * 1024L * 1024L);
+        hasher = new FileHasher();
+    }
+
+    /**
+     * Remove the test file.
+     */
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public String digestUtils() throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return DigestUtils.sha1Hex(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public Map<HashType, String> channel() throws IOException {
+        return hasher.hashStreaming(file, types);
+    }
+
+    @Benchmark
+    public Map<HashType, String> mapped() throws IOException {
+        return hasher.hashMapped(file, types);
+    }
+}
@@ -0,0 +1,141 @@
+package mil.nga.bundler.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+import javax.jms.Session;
+import javax.naming.Context;
+import javax.naming.NamingException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mil.nga.bundler.JMSPublisher;
+import mil.nga.bundler.messages.ArchiveMessage;
+
+/**
+ * Compares the send throughput of the two ways the NotificationService has
+ * placed ArchiveMessages on the JMS queues:
+ * <ul>
+ * <li><code>perMessage</code> - the original implementation, which looked
+ * up the queue and connection factory and opened (then closed) a
+ * connection, session and sender for every message.</li>
+ * <li><code>pooled</code> - the <code>JMSPublisher</code>, which caches
+ * the lookups and re-uses the connection and sessions.</li>
+ * </ul>
+ *
+ * Both run against the <code>StubJMSProvider</code>, which charges
+ * <code>roundTripMicros</code> for every lookup, connection and session,
+ * so the results show the set-up overhead per message rather than the
+ * throughput of a real broker.  Use the JMH <code>-t</code> option to
+ * measure concurrent senders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class NotificationBenchmark {
+
+    /**
+     * JNDI name of the target queue.
+     */
+    private static final String QUEUE_NAME = "queue/ArchiverMessageQ";
+
+    /**
+     * Simulated cost (in microseconds) of a round trip to the server.
+     */
+    @Param({ "0", "100", "1000" })
+    public long roundTripMicros;
+
+    /**
+     * The stub JNDI context.
+     */
+    private Context context = null;
+
+    /**
+     * Publisher under test.
+     */
+    private JMSPublisher publisher = null;
+
+    /**
+     * The message sent by each invocation.
+     */
+    private ArchiveMessage message = null;
+
+    /**
+     * Set up the stub provider and publisher.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        context   = new StubJMSProvider(roundTripMicros).getContext();
+        publisher = new JMSPublisher(
+                context,
+                StubJMSProvider.FACTORY_NAME,
+                8);
+        message   = new ArchiveMessage.ArchiveMessageBuilder()
+                .jobId("ABCDEFGHIJKLMNOP")
+                .archiveId(1)
+                .build();
+    }
+
+    /**
+     * Close the pooled connection.
+     */
+    @TearDown(Level.Trial)
+    public void teardown() {
+        if (publisher != null) {
+            publisher.close();
+        }
+    }
+
+    @Benchmark
+    public void perMessage() throws NamingException, JMSException {
+        QueueConnection conn      = null;
+        QueueSession    session   = null;
+        QueueSender     sender    = null;
+        try {
+            Queue queue = (Queue)context.lookup(QUEUE_NAME);
+            QueueConnectionFactory factory = (QueueConnectionFactory)
+                    context.lookup(StubJMSProvider.FACTORY_NAME);
+            conn    = factory.createQueueConnection();
+            session = conn.createQueueSession(false, Session.AUTO_ACKNOWLEDGE);
+            sender  = session.createSender(queue);
+            conn.start();
+            sender.send(session.createObjectMessage(message));
+        }
+        finally {
+            if (session != null) {
+                session.close();
+            }
+            if (sender != null) {
+                sender.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public void pooled() throws NamingException, JMSException {
+        publisher.send(QUEUE_NAME, message);
+    }
+}
@@ -0,0 +1,132 @@
+package mil.nga.bundler.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+import javax.naming.Context;
+
+/**
+ * In-process stand-in for the JNDI context and JMS provider, built from
+ * dynamic proxies.  Messages are discarded.  Each JNDI lookup, connection
+ * and session created costs one simulated round trip to the server, so the
+ * benchmarks measure the client-side cost of the notification path plus
+ * the set-up work it avoids, not the throughput of a real broker.
+ */
+final class StubJMSProvider {
+
+    /**
+     * JNDI name of the stub connection factory.
+     */
+    static final String FACTORY_NAME = "/ConnectionFactory";
+
+    /**
+     * Simulated cost (in nanoseconds) of a round trip to the server.
+     */
+    private final long roundTripNanos;
+
+    /**
+     * The stub JNDI context.
+     */
+    private final Context context;
+
+    /**
+     * Construct the stub provider.
+     *
+     * @param roundTripMicros Simulated cost (in microseconds) of each
+     * lookup, connection and session created.
+     */
+    StubJMSProvider(long roundTripMicros) {
+        roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+
+        final QueueConnectionFactory factory = stub(
+                QueueConnectionFactory.class,
+                new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object[] args) {
+                if (m.getName().equals("createQueueConnection")) {
+                    roundTrip();
+                    return createConnection();
+                }
+                return null;
+            }
+        });
+        final Queue queue = stub(Queue.class, new Empty());
+        context = stub(Context.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object[] args) {
+                if (m.getName().equals("lookup")) {
+                    roundTrip();
+                    return FACTORY_NAME.equals(args[0]) ? factory : queue;
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Getter method for the stub JNDI context.
+     *
+     * @return The stub JNDI context.
+     */
+    Context getContext() {
+        return context;
+    }
+
+    private QueueConnection createConnection() {
+        return stub(QueueConnection.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object[] args) {
+                if (m.getName().equals("createQueueSession")) {
+                    roundTrip();
+                    return createSession();
+                }
+                return null;
+            }
+        });
+    }
+
+    private QueueSession createSession() {
+        final QueueSender   sender  = stub(QueueSender.class, new Empty());
+        final ObjectMessage message = stub(ObjectMessage.class, new Empty());
+        return stub(QueueSession.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object[] args) {
+                if (m.getName().equals("createSender")) {
+                    return sender;
+                }
+                if (m.getName().equals("createObjectMessage")) {
+                    return message;
+                }
+                return null;
+            }
+        });
+    }
+
+    private void roundTrip() {
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T)Proxy.newProxyInstance(
+                StubJMSProvider.class.getClassLoader(),
+                new Class<?>[] { type },
+                handler);
+    }
+
+    /**
+     * Handler for the stub objects on which every call is a no-op.
+     */
+    private static class Empty implements InvocationHandler {
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            return null;
+        }
+    }
+}
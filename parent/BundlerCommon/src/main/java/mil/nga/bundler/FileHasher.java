@@ -0,0 +1,311 @@
+package mil.nga.bundler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.bundler.types.HashType;
+
+/**
+ * Class used to calculate one or more hashes of a file in a single pass.
+ * The file is read through a <code>FileChannel</code> into a large direct
+ * <code>ByteBuffer</code> and each <code>MessageDigest</code> is updated
+ * from the same buffer.  Clients requesting (for example) both the MD5 and
+ * SHA-256 hash of a file only pay for reading the file once.
+ *
+ * Optionally, files on local disk may be hashed through 
+ * <code>MappedByteBuffer</code> windows of the file rather than read.  This
+ * avoids a system call and a copy for every buffer read, which adds up on
+ * multi-GB archives.  Mapping is not used for small files (the cost of 
+ * setting up the mapping outweighs the savings) or for files on network 
+ * file systems such as NFS, where a concurrent truncation by another host 
+ * results in a SIGBUS rather than an IOException.  Those files are 
+ * streamed.
+ *
+ * Instances re-use the read buffer and are therefore not thread safe.
+ */
+public class FileHasher {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(FileHasher.class);
+
+    /**
+     * Default size of the direct read buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Size of each window mapped into memory.
+     */
+    public static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Files smaller than this are always streamed.
+     */
+    public static final long MIN_MAPPED_SIZE = 1024L * 1024;
+
+    /**
+     * File store types (as reported by <code>FileStore.type()</code>) that
+     * identify network file systems.
+     */
+    private static final Set<String> NETWORK_FILE_SYSTEMS =
+            new HashSet<String>(Arrays.asList(
+                    "nfs", "nfs4", "cifs", "smb", "smbfs", "smb2",
+                    "fuse.sshfs", "afs", "glusterfs", "lustre"));
+
+    /**
+     * Size of the read buffer.
+     */
+    private final int bufferSize;
+
+    /**
+     * Direct buffer used to read the file (allocated on first use).
+     */
+    private ByteBuffer buffer = null;
+
+    /**
+     * Whether files on local disk are hashed via memory mapping.
+     */
+    private boolean mapped = false;
+
+    /**
+     * Default constructor.
+     */
+    public FileHasher() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor allowing clients to specify the size of the read buffer.
+     *
+     * @param bufferSize Size (in bytes) of the direct read buffer.
+     */
+    public FileHasher(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Getter method determining whether files on local disk are hashed via
+     * memory mapping.
+     *
+     * @return True if memory-mapped hashing is enabled.
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Setter method enabling/disabling memory-mapped hashing.
+     *
+     * @param value True to hash large files on local disk via memory
+     * mapping.
+     */
+    public void setMapped(boolean value) {
+        mapped = value;
+    }
+
+    /**
+     * Calculate the requested hashes of the input file in a single pass.
+     * If memory-mapped hashing is enabled, large files on local disk are
+     * mapped, otherwise the file is streamed.
+     *
+     * @param file The file on which the hashes should be calculated.
+     * @param types The hash types requested.
+     * @return Map of the requested hash types to the associated
+     * hex-encoded hash.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public Map<HashType, String> hash(File file, Set<HashType> types)
+            throws IOException {
+        if (mapped
+                && (file.length() >= MIN_MAPPED_SIZE)
+                && (!isNetworkFileSystem(file))) {
+            return hashMapped(file, types);
+        }
+        return hashStreaming(file, types);
+    }
+
+    /**
+     * Calculate the requested hashes of the input file by reading it
+     * through a direct buffer.
+     *
+     * @param file The file on which the hashes should be calculated.
+     * @param types The hash types requested.
+     * @return Map of the requested hash types to the associated
+     * hex-encoded hash.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public Map<HashType, String> hashStreaming(File file, Set<HashType> types)
+            throws IOException {
+
+        Map<HashType, MessageDigest> digests = getDigests(types);
+
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                for (MessageDigest digest : digests.values()) {
+                    buffer.position(0);
+                    digest.update(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        finally {
+            in.close();
+        }
+        return toHex(digests);
+    }
+
+    /**
+     * Calculate the requested hashes of the input file by mapping 
+     * successive windows of the file into memory.  Each window is released
+     * when it is garbage collected.
+     *
+     * @param file The file on which the hashes should be calculated.
+     * @param types The hash types requested.
+     * @return Map of the requested hash types to the associated
+     * hex-encoded hash.
+     * @throws IOException Thrown if the file cannot be mapped.
+     */
+    public Map<HashType, String> hashMapped(File file, Set<HashType> types)
+            throws IOException {
+
+        Map<HashType, MessageDigest> digests = getDigests(types);
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel  = in.getChannel();
+            long        size     = channel.size();
+            long        position = 0L;
+            while (position < size) {
+                long length = Math.min(MAPPED_WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(
+                        FileChannel.MapMode.READ_ONLY, position, length);
+                for (MessageDigest digest : digests.values()) {
+                    window.position(0);
+                    digest.update(window);
+                }
+                position += length;
+            }
+        }
+        finally {
+            in.close();
+        }
+        return toHex(digests);
+    }
+
+    /**
+     * Determine whether the input file resides on a network file system.
+     * If the file system type cannot be determined the file is treated as
+     * if it were on a network file system (i.e. it will be streamed).
+     *
+     * @param file The file to check.
+     * @return True if the file is on a network file system.
+     */
+    public static boolean isNetworkFileSystem(File file) {
+        try {
+            FileStore store = Files.getFileStore(file.toPath());
+            String    type  = store.type().toLowerCase(Locale.US);
+            return NETWORK_FILE_SYSTEMS.contains(type) 
+                    || type.startsWith("nfs");
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unable to determine the file system type for [ "
+                    + file.getAbsolutePath()
+                    + " ].  File will be streamed.  Error message [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        return true;
+    }
+
+    /**
+     * Construct a new <code>MessageDigest</code> for each requested hash
+     * type.
+     *
+     * @param types The hash types requested.
+     * @return Map of hash type to the associated digest.
+     * @throws IOException Thrown if the JVM does not support one of the
+     * requested algorithms.
+     */
+    public static Map<HashType, MessageDigest> getDigests(Set<HashType> types)
+            throws IOException {
+        Map<HashType, MessageDigest> digests =
+                new EnumMap<HashType, MessageDigest>(HashType.class);
+        for (HashType type : types) {
+            try {
+                digests.put(type, MessageDigest.getInstance(
+                        getAlgorithm(type)));
+            }
+            catch (NoSuchAlgorithmException nsae) {
+                throw new IOException("Hash algorithm [ "
+                        + type.getText()
+                        + " ] is not supported by the JVM.", nsae);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Complete each digest and convert the result to a hex string.
+     *
+     * @param digests Map of hash type to the associated digest.
+     * @return Map of hash type to the hex-encoded hash.
+     */
+    public static Map<HashType, String> toHex(
+            Map<HashType, MessageDigest> digests) {
+        Map<HashType, String> hashes =
+                new EnumMap<HashType, String>(HashType.class);
+        for (Map.Entry<HashType, MessageDigest> entry : digests.entrySet()) {
+            hashes.put(entry.getKey(),
+                    Hex.encodeHexString(entry.getValue().digest()));
+        }
+        return hashes;
+    }
+
+    /**
+     * Map the hash type to the name of the JCA algorithm.
+     *
+     * @param type The hash type.
+     * @return The JCA algorithm name.
+     */
+    public static String getAlgorithm(HashType type) {
+        switch (type) {
+            case MD5:
+                return "MD5";
+            case SHA1:
+                return "SHA-1";
+            case SHA256:
+                return "SHA-256";
+            case SHA384:
+                return "SHA-384";
+            default:
+                return "SHA-512";
+        }
+    }
+}
@@ -2,18 +2,30 @@ package mil.nga.bundler;
 
 import mil.nga.bundler.messages.FileRequest;
 import mil.nga.bundler.model.FileEntry;
-import mil.nga.util.FileFinder;
+import mil.nga.util.ParallelFileWalker;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import mil.nga.bundler.exceptions.InvalidRequestException;
 import mil.nga.bundler.exceptions.ValidationErrorCodes;
@@ -29,6 +41,36 @@ import org.slf4j.LoggerFactory;
  * requested files actually exist on the file system, and that the user did 
  * not request any duplicate files.
  * 
+ * The source files typically reside on NFS, where each file system call 
+ * costs milliseconds, so large requests are split into batches that are 
+ * validated concurrently on a bounded, shared thread pool.  The order of 
+ * the (de-duplicated, expanded) request is preserved in the output and 
+ * each invalid file is still reported individually.  The validation of a 
+ * request must complete within the configured timeout (see 
+ * <code>bundler.validation.workers</code> and 
+ * <code>bundler.validation.timeout</code>).
+ * 
+ * Each requested path is stat'ed exactly once (a single 
+ * <code>readAttributes()</code> call provides existence, type, size and 
+ * modification time).  Requested directories are expanded as they are 
+ * validated, and the attributes read by the directory walk are used for 
+ * the files found, so those files are not stat'ed a second time.  The 
+ * number of stat calls made is logged for each request.
+ * 
+ * Requested directories are walked by a <code>ParallelFileWalker</code>
+ * so the sub-directories of large product directories are expanded 
+ * concurrently on a shared fork/join pool.  The number of entries found
+ * expanding the directories of one request is limited, and requests 
+ * exceeding the limit are rejected (see 
+ * <code>bundler.expansion.parallelism</code> and 
+ * <code>bundler.expansion.max_entries</code>).
+ * 
+ * A file found more than once (e.g. requested explicitly and again as part
+ * of a requested directory, or in two overlapping directories) is only 
+ * returned the first time.  Requests that are validated a piece at a time
+ * share a <code>Session</code> across the pieces so the expansion limit 
+ * and the removal of duplicates apply to the request as a whole.
+ * 
  * @author L. Craig Carpenter
  */
 public class FileValidator {
@@ -39,6 +81,83 @@ public class FileValidator {
     private static final Logger LOGGER = LoggerFactory.getLogger(
             FileValidator.class);
     
+    /**
+     * Requests containing fewer files than this are validated on the 
+     * calling thread.
+     */
+    public static final int MIN_PARALLEL_FILES = 64;
+    
+    /**
+     * Number of batches created per validation thread.  Using several 
+     * batches per thread keeps the threads busy when some batches take 
+     * longer than others (e.g. they hit a slow mount).
+     */
+    private static final int BATCHES_PER_WORKER = 4;
+    
+    /**
+     * Thread pool on which the batches are validated.
+     */
+    private final ExecutorService executor;
+    
+    /**
+     * Number of threads available for validating a request.
+     */
+    private final int parallelism;
+    
+    /**
+     * Maximum time (in milliseconds) allowed to validate a request (0 for
+     * no limit).
+     */
+    private final long timeout;
+    
+    /**
+     * Fork/join pool in which the requested directories are walked.
+     */
+    private final ForkJoinPool expansionPool;
+    
+    /**
+     * Maximum number of entries that may be found expanding the 
+     * directories of one request.
+     */
+    private final long maxEntries;
+    
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private FileValidator() {
+        this(SharedExecutors.getInstance().getValidationExecutor(),
+                FileValidatorSettings.getInstance().getWorkers(),
+                FileValidatorSettings.getInstance().getTimeout(),
+                SharedExecutors.getInstance().getExpansionPool(),
+                FileValidatorSettings.getInstance().getExpansionMaxEntries());
+    }
+    
+    /**
+     * Constructor allowing clients to supply the thread pool and limits 
+     * (used by the tests).
+     * 
+     * @param executor Thread pool on which the batches are validated.
+     * @param parallelism Number of threads available in the pool.
+     * @param timeout Maximum time (in milliseconds) allowed to validate a 
+     * request (0 for no limit).
+     * @param expansionPool Fork/join pool in which requested directories 
+     * are walked.
+     * @param maxEntries Maximum number of entries that may be found 
+     * expanding the directories of one request.
+     */
+    public FileValidator(
+            ExecutorService executor, 
+            int parallelism, 
+            long timeout,
+            ForkJoinPool expansionPool,
+            long maxEntries) {
+        this.executor      = executor;
+        this.parallelism   = parallelism;
+        this.timeout       = timeout;
+        this.expansionPool = expansionPool;
+        this.maxEntries    = maxEntries;
+    }
+    
     /**
      * Method used to eliminate duplicate entries from the input List of 
      * String values.  This method was added for the benefit of the Nova-Tech
@@ -56,8 +175,9 @@ public class FileValidator {
         if (files != null) {
             
             // Stuff the list into a Set (which doesn't allow duplicates) then
-            // create a new List out of the Set.
-            Set<String> deDupSet = new HashSet<String>(files);
+            // create a new List out of the Set.  The Set preserves the 
+            // order in which the files were requested.
+            Set<String> deDupSet = new LinkedHashSet<String>(files);
             deDupList = new ArrayList<String>(deDupSet);
         }
         else {
@@ -79,10 +199,11 @@ public class FileValidator {
      * @param files Raw input list of FileRequest objects. 
      * @return A new list containing no duplicate entries.
      */
-    private List<FileRequest> eliminateDuplicates(List<FileRequest> files) {
+    public List<FileRequest> eliminateDuplicates(List<FileRequest> files) {
         
         List<FileRequest> deDupList = null;
-        HashMap<String, FileRequest> map = new HashMap<String, FileRequest>();
+        LinkedHashMap<String, FileRequest> map = 
+                new LinkedHashMap<String, FileRequest>();
         
         if ((files != null) && (files.size() > 0)) {
             
@@ -112,6 +233,54 @@ public class FileValidator {
         return FileValidatorHolder.getFactorySingleton();
     }
     
+    /**
+     * Read the basic attributes of the input file.  This is the only file
+     * system call made to validate a file that was requested explicitly.
+     * 
+     * @param file The file to stat.
+     * @param counter Counter of the stat calls made for the request.
+     * @return The file attributes, or null if the file does not exist or 
+     * is not accessible.
+     */
+    private BasicFileAttributes readAttributes(Path file, StatCounter counter) {
+        BasicFileAttributes attrs = null;
+        try {
+            counter.add(1L);
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        }
+        catch (NoSuchFileException nsfe) {
+            LOGGER.warn("The requested file [ "
+                    + file
+                    + " ] does not exist on the file system.");
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unexpected IOException accessing file [ "
+                    + file
+                    + " ].  Error message [ "
+                    + ioe.getMessage()
+                    + " ].  No attempt will be made to bundle the "
+                    + "target file.");
+        }
+        return attrs;
+    }
+    
+    /**
+     * Construct a FileEntry from the attributes already read for the file.
+     * 
+     * @param path The full path to the file.
+     * @param entryPath The archive entry path (may be null).
+     * @param attrs The file attributes.
+     * @return The populated FileEntry.
+     */
+    private FileEntry toFileEntry(
+            String path, 
+            String entryPath, 
+            BasicFileAttributes attrs) {
+        FileEntry entry = new FileEntry(path, entryPath, attrs.size());
+        entry.setLastModified(attrs.lastModifiedTime().toMillis());
+        return entry;
+    }
+    
     /**
      * Ensure that the file defined by the input <code>FileRequest</code> 
      * object exists on the file system and is accessible. 
@@ -125,28 +294,14 @@ public class FileValidator {
         if ((requestedFile != null) && 
                 (requestedFile.getFile() != null) && 
                 (!requestedFile.getFile().isEmpty())) {
-            Path file = Paths.get(requestedFile.getFile().trim());
-            if (Files.exists(file)) {
-                try {
-                    long size = Files.size(file);
-                    validated = new FileEntry(
-                            requestedFile.getFile(),
-                            requestedFile.getArchivePath(),
-                            size);
-                }
-                catch (IOException ioe) {
-                    LOGGER.warn("Unexpected IOException accessing file [ "
-                            + requestedFile.getFile()
-                            + " ].  Error message [ "
-                            + ioe.getMessage()
-                            + " ].  No attempt will be made to bundle the "
-                            + "target file.");
-                }
-            }
-            else {
-                LOGGER.warn("The requested file [ "
-                        + requestedFile.getFile()
-                        + " ] does not exist on the file system.");
+            BasicFileAttributes attrs = readAttributes(
+                    Paths.get(requestedFile.getFile().trim()), 
+                    new StatCounter());
+            if ((attrs != null) && (!attrs.isDirectory())) {
+                validated = toFileEntry(
+                        requestedFile.getFile(),
+                        requestedFile.getArchivePath(),
+                        attrs);
             }
         }
         return validated;
@@ -164,31 +319,87 @@ public class FileValidator {
         FileEntry validated = null;
         if ((requestedFile != null) && 
                 (!requestedFile.isEmpty())) {
-            Path file = Paths.get(requestedFile.trim());
-            if ((Files.exists(file)) && (!Files.isDirectory(file))) {
-                try {
-                    long size = Files.size(file);
-                    validated = new FileEntry(
-                            requestedFile,
-                            null,
-                            size);
-                }
-                catch (IOException ioe) {
-                    LOGGER.warn("Unexpected IOException accessing file [ "
-                            + requestedFile
-                            + " ].  Error message [ "
-                            + ioe.getMessage()
-                            + " ].  No attempt will be made to bundle the "
-                            + "target file.");
+            BasicFileAttributes attrs = readAttributes(
+                    Paths.get(requestedFile.trim()), 
+                    new StatCounter());
+            if ((attrs != null) && (!attrs.isDirectory())) {
+                validated = toFileEntry(requestedFile, null, attrs);
+            }
+        }
+        return validated;
+    }
+    
+    /**
+     * Validate a single requested file (either a <code>FileRequest</code>
+     * or a <code>String</code>).  The file is stat'ed once.  If it is a 
+     * directory, it is walked and a FileEntry is created for every regular
+     * file found, using the attributes read by the walk.
+     * 
+     * @param requested The requested file.
+     * @param counter Counter of the stat calls made for the request.
+     * @param walker Walker used to expand the directories of the request.
+     * @return The FileEntry objects for the valid files (may be empty).
+     */
+    private List<FileEntry> validateOrExpand(
+            Object requested, 
+            StatCounter counter,
+            ParallelFileWalker walker) {
+        
+        List<FileEntry> entries = new ArrayList<FileEntry>();
+        String          file;
+        String          archivePath = null;
+        
+        if (requested instanceof FileRequest) {
+            file        = ((FileRequest)requested).getFile();
+            archivePath = ((FileRequest)requested).getArchivePath();
+        }
+        else {
+            file = (String)requested;
+        }
+        if ((file == null) || (file.isEmpty())) {
+            LOGGER.warn("Client submitted an empty String filename "
+                    + "for bundling.  Skipping...");
+            return entries;
+        }
+        
+        Path                p     = Paths.get(file.trim());
+        BasicFileAttributes attrs = readAttributes(p, counter);
+        if (attrs == null) {
+            return entries;
+        }
+        
+        if (attrs.isDirectory()) {
+            String baseDir = p.toAbsolutePath().toString();
+            try {
+                for (Map.Entry<Path, BasicFileAttributes> found : 
+                        walker.walk(p.toAbsolutePath()).entrySet()) {
+                    String name = found.getKey().toAbsolutePath().toString();
+                    String entryPath = null;
+                    if (requested instanceof FileRequest) {
+                        entryPath = PathGenerator
+                                .getInstance()
+                                .getEntryPath(baseDir, archivePath, name);
+                    }
+                    entries.add(toFileEntry(
+                            name, 
+                            entryPath, 
+                            found.getValue()));
                 }
             }
-            else {
-                LOGGER.warn("The requested file [ "
-                        + requestedFile
-                        + " ] does not exist on the file system.");
+            catch (IOException ioe) {
+                LOGGER.warn("Client requested bundling of directory [ "
+                        + file
+                        + " ] but an unexpected IOException was "
+                        + "raised while walking the file system.  "
+                        + "Error message [ "
+                        + ioe.getMessage()
+                        + " ].");
             }
         }
-        return validated;
+        else {
+            entries.add(toFileEntry(file, archivePath, attrs));
+        }
+        return entries;
     }
     
     /**
@@ -202,6 +413,24 @@ public class FileValidator {
      */
     public List<FileEntry> validateStringList(List<String> filesRequested) 
             throws InvalidRequestException {
+        return validateStringList(filesRequested, new StatCounter());
+    }
+    
+    /**
+     * Public method used to validate the list of files to be bundled.  
+     * Directories are expanded as they are validated and each file is 
+     * stat'ed exactly once.
+     * 
+     * @param filesRequested The raw list of files that were requested by the 
+     * client.
+     * @param counter Counter incremented for each stat call made.
+     * @return A List of partially populated FileEntry objects.
+     * @throws InvalidRequestException Thrown if any validation exceptions are 
+     * encountered.
+     */
+    public List<FileEntry> validateStringList(
+            List<String> filesRequested, 
+            StatCounter counter) throws InvalidRequestException {
         List<FileEntry> validated = new ArrayList<FileEntry>();
         if ((filesRequested == null) || (filesRequested.size() < 1)) {
             throw new InvalidRequestException(
@@ -209,18 +438,9 @@ public class FileValidator {
         }
         
         filesRequested = eliminateStringDuplicates(filesRequested);
-        filesRequested = expandStringList(filesRequested);
         
         if ((filesRequested != null) && (!filesRequested.isEmpty())) { 
-            for (String file : filesRequested) {
-                
-                
-                FileEntry obj = validateOneFile(file);
-                if (obj != null) {
-                    PathGenerator.getInstance().setOneEntry(obj);
-                    validated.add(obj);
-                }
-            }
+            validated = validateAll(filesRequested, counter, newSession());
         }
         return validated;
         
@@ -230,26 +450,27 @@ public class FileValidator {
      * This method was added to facilitate the bundling of directories. 
      * If any directories have been included in the request this method 
      * will walk the directory tree and add all regular files that reside 
-     * in the directory to the output List.
+     * in the directory to the output List.  The directories are walked 
+     * in parallel.  If the directories contain more entries than allowed 
+     * for one request the expansion stops and an error is logged.
      * 
      * @param filesRequested Original user-submitted list of files that 
      * are to be bundled.
      * @return A list of FileEntry objects.
      */
     public List<String> expandStringList(List<String> filesRequested) {
-        List<String> expandedList = new ArrayList<String>();
+        List<String>       expandedList = new ArrayList<String>();
+        ParallelFileWalker walker       = 
+                new ParallelFileWalker(expansionPool, maxEntries);
         if ((filesRequested != null) && (!filesRequested.isEmpty())) { 
             for (String file : filesRequested) {
                 if ((file != null) && (!file.isEmpty())) {
                     Path p = Paths.get(file);
                     if (Files.isDirectory(p)) {
                         try {
-                            List<String> files = FileFinder.find(
-                                    p.toAbsolutePath().toString());
-                            if ((files != null) && (!files.isEmpty())) { 
-                                for (String name : files) {
-                                    expandedList.add(name);
-                                }
+                            for (Path found : walker.walk(
+                                    p.toAbsolutePath()).keySet()) {
+                                expandedList.add(found.toString());
                             }
                         }
                         catch (IOException ioe) {
@@ -272,6 +493,12 @@ public class FileValidator {
                 }
             }
         }
+        if (walker.isLimitExceeded()) {
+            LOGGER.error("Expansion of the requested directories exceeded "
+                    + "the limit of [ "
+                    + maxEntries
+                    + " ] entries.  The expanded list is incomplete.");
+        }
         return expandedList;
     }
     
@@ -279,14 +506,18 @@ public class FileValidator {
      * This method was added to facilitate the bundling of directories. 
      * If any directories have been included in the request this method 
      * will walk the directory tree and add all regular files that reside 
-     * in the directory to the output List.
+     * in the directory to the output List.  The directories are walked 
+     * in parallel.  If the directories contain more entries than allowed 
+     * for one request the expansion stops and an error is logged.
      * 
      * @param filesRequested Original user-submitted list of files that 
      * are to be bundled.
      * @return A list of FileEntry objects.
      */
     public List<FileRequest> expand(List<FileRequest> filesRequested) {
-        List<FileRequest> expandedList = new ArrayList<FileRequest>();
+        List<FileRequest>  expandedList = new ArrayList<FileRequest>();
+        ParallelFileWalker walker       = 
+                new ParallelFileWalker(expansionPool, maxEntries);
         if ((filesRequested != null) && (!filesRequested.isEmpty())) { 
             for (FileRequest file : filesRequested) {
                 if ((file != null) && 
@@ -296,22 +527,20 @@ public class FileValidator {
                     if (Files.isDirectory(p)) {
                         String baseDir = p.toAbsolutePath().toString();
                         try {
-                            List<String> files = FileFinder.find(
-                                    p.toAbsolutePath().toString());
-                            if ((files != null) && (!files.isEmpty())) { 
-                                for (String name : files) {
-                                    expandedList.add(
-                                            new FileRequest.FileRequestBuilder()
-                                            .file(name)
-                                            .archivePath(
-                                                    PathGenerator
-                                                    .getInstance()
-                                                    .getEntryPath(
-                                                            baseDir, 
-                                                            file.getArchivePath(), 
-                                                            name))
-                                            .build());
-                                }
+                            for (Path found : walker.walk(
+                                    p.toAbsolutePath()).keySet()) {
+                                String name = found.toString();
+                                expandedList.add(
+                                        new FileRequest.FileRequestBuilder()
+                                        .file(name)
+                                        .archivePath(
+                                                PathGenerator
+                                                .getInstance()
+                                                .getEntryPath(
+                                                        baseDir, 
+                                                        file.getArchivePath(), 
+                                                        name))
+                                        .build());
                             }
                         }
                         catch (IOException ioe) {
@@ -334,6 +563,12 @@ public class FileValidator {
                 }
             }
         }
+        if (walker.isLimitExceeded()) {
+            LOGGER.error("Expansion of the requested directories exceeded "
+                    + "the limit of [ "
+                    + maxEntries
+                    + " ] entries.  The expanded list is incomplete.");
+        }
         return expandedList;
     }
     
@@ -348,6 +583,59 @@ public class FileValidator {
      */
     public List<FileEntry> validate(List<FileRequest> filesRequested) 
             throws InvalidRequestException {
+        return validate(filesRequested, new StatCounter());
+    }
+    
+    /**
+     * Validate one piece of a request that is validated a piece at a time.
+     * The directory expansion limit and the removal of duplicate files 
+     * apply across all of the pieces validated with the input session.
+     * 
+     * @param filesRequested The piece of the request to validate.
+     * @param session Validation state shared by all pieces of the request
+     * (see <code>newSession()</code>).
+     * @return A List of partially populated FileEntry objects.
+     * @throws InvalidRequestException Thrown if any validation exceptions are 
+     * encountered.
+     */
+    public List<FileEntry> validate(
+            List<FileRequest> filesRequested, 
+            Session session) throws InvalidRequestException {
+        return validate(filesRequested, new StatCounter(), session);
+    }
+    
+    /**
+     * Public method used to validate the list of files to be bundled.  
+     * Directories are expanded as they are validated and each file is 
+     * stat'ed exactly once.
+     * 
+     * @param filesRequested The raw list of files that were requested by the 
+     * client.
+     * @param counter Counter incremented for each stat call made.
+     * @return A List of partially populated FileEntry objects.
+     * @throws InvalidRequestException Thrown if any validation exceptions are 
+     * encountered.
+     */
+    public List<FileEntry> validate(
+            List<FileRequest> filesRequested, 
+            StatCounter counter) throws InvalidRequestException {
+        return validate(filesRequested, counter, newSession());
+    }
+    
+    /**
+     * Validate the list of files to be bundled using the input session.
+     * 
+     * @param filesRequested The files to validate.
+     * @param counter Counter incremented for each stat call made.
+     * @param session Validation state shared by all pieces of the request.
+     * @return A List of partially populated FileEntry objects.
+     * @throws InvalidRequestException Thrown if any validation exceptions are 
+     * encountered.
+     */
+    private List<FileEntry> validate(
+            List<FileRequest> filesRequested, 
+            StatCounter counter,
+            Session session) throws InvalidRequestException {
         
         List<FileEntry> validated = new ArrayList<FileEntry>();
         
@@ -357,17 +645,9 @@ public class FileValidator {
         }
         
         filesRequested = eliminateDuplicates(filesRequested);
-        filesRequested = expand(filesRequested);
         
         if ((filesRequested != null) && (!filesRequested.isEmpty())) { 
-            for (FileRequest file : filesRequested) {
-                
-                FileEntry obj = validateOneFile(file);
-                if (obj != null) {
-                    PathGenerator.getInstance().setOneEntry(obj);
-                    validated.add(obj);
-                }
-            }
+            validated = validateAll(filesRequested, counter, session);
         }
         if ((validated != null) && (validated.isEmpty())) { 
             throw new InvalidRequestException(
@@ -376,6 +656,272 @@ public class FileValidator {
         return validated;
     }
     
+    /**
+     * Validate the input list of files (either <code>FileRequest</code> or
+     * <code>String</code> objects).  Large lists are split into contiguous
+     * batches that are validated concurrently.  Each batch writes its 
+     * results into its own slots of a shared array so the output is in 
+     * the same order as the input.  Requested directories are expanded in
+     * place.
+     * 
+     * @param files The files to validate.
+     * @param counter Counter of the stat calls made for the request.
+     * @param session Validation state shared by all pieces of the request.
+     * @return The FileEntry objects for the valid files, in input order.
+     * Files already returned for the session are left out.
+     * @throws InvalidRequestException Thrown if the validation does not 
+     * complete within the timeout or the requested directories contain 
+     * too many files.
+     */
+    private List<FileEntry> validateAll(
+            final List<?> files, 
+            final StatCounter counter,
+            final Session session) throws InvalidRequestException {
+        
+        final AtomicReferenceArray<List<FileEntry>> results = 
+                new AtomicReferenceArray<List<FileEntry>>(files.size());
+        final ParallelFileWalker walker = session.walker;
+        long startTime   = System.currentTimeMillis();
+        long startStat   = counter.get();
+        long startVisits = walker.getVisits();
+        
+        if ((files.size() < MIN_PARALLEL_FILES) || (parallelism < 2)) {
+            validateRange(files, results, 0, files.size(), counter, walker);
+        }
+        else {
+            
+            int batches   = parallelism * BATCHES_PER_WORKER;
+            int batchSize = (files.size() + batches - 1) / batches;
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            
+            try {
+                for (int i = 0; i < files.size(); i += batchSize) {
+                    final int from = i;
+                    final int to   = Math.min(files.size(), i + batchSize);
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            validateRange(
+                                    files, 
+                                    results, 
+                                    from, 
+                                    to, 
+                                    counter, 
+                                    walker);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    if (timeout > 0) {
+                        future.get(
+                                Math.max(0L, startTime 
+                                        + timeout 
+                                        - System.currentTimeMillis()), 
+                                TimeUnit.MILLISECONDS);
+                    }
+                    else {
+                        future.get();
+                    }
+                }
+            }
+            catch (TimeoutException te) {
+                LOGGER.error("Validation of [ "
+                        + files.size()
+                        + " ] files did not complete within [ "
+                        + timeout
+                        + " ] ms.");
+                throw new InvalidRequestException(
+                        ValidationErrorCodes.VALIDATION_TIMEOUT);
+            }
+            catch (InterruptedException ie) {
+                LOGGER.error("Interrupted while validating [ "
+                        + files.size()
+                        + " ] files.");
+                Thread.currentThread().interrupt();
+                throw new InvalidRequestException(
+                        ValidationErrorCodes.VALIDATION_TIMEOUT);
+            }
+            catch (ExecutionException ee) {
+                // validateRange() handles the exceptions associated with 
+                // individual files so only Errors end up here.
+                if (ee.getCause() instanceof Error) {
+                    throw (Error)ee.getCause();
+                }
+                throw new IllegalStateException(ee.getCause());
+            }
+            finally {
+                // Stop any batches still running after a failure.
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        
+        counter.add(walker.getVisits() - startVisits);
+        if (walker.isLimitExceeded()) {
+            LOGGER.error("Expansion of the directories in a request for [ "
+                    + files.size()
+                    + " ] paths exceeded the limit of [ "
+                    + maxEntries
+                    + " ] entries.");
+            throw new InvalidRequestException(
+                    ValidationErrorCodes.TOO_MANY_FILES);
+        }
+        
+        List<FileEntry> validated  = new ArrayList<FileEntry>(files.size());
+        long            duplicates = 0L;
+        for (int i = 0; i < results.length(); i++) {
+            if (results.get(i) != null) {
+                for (FileEntry entry : results.get(i)) {
+                    if (session.seen.add(getKey(entry))) {
+                        validated.add(entry);
+                    }
+                    else {
+                        duplicates++;
+                    }
+                }
+            }
+        }
+        if (duplicates > 0) {
+            LOGGER.warn("[ "
+                    + duplicates
+                    + " ] files were found more than once while "
+                    + "validating the request.  Only the first occurrence "
+                    + "of each will be bundled.");
+        }
+        LOGGER.info("Validated [ "
+                + validated.size()
+                + " ] files from [ "
+                + files.size()
+                + " ] requested paths using [ "
+                + (counter.get() - startStat)
+                + " ] stat calls in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.");
+        return validated;
+    }
+    
+    /**
+     * Create the validation state for a request that will be validated a
+     * piece at a time.
+     * 
+     * @return A new session.
+     */
+    public Session newSession() {
+        return new Session(new ParallelFileWalker(expansionPool, maxEntries));
+    }
+    
+    /**
+     * Key used to recognize a file found more than once in a request.
+     * 
+     * @param entry A validated file.
+     * @return The absolute, normalized path of the file.
+     */
+    private static String getKey(FileEntry entry) {
+        return Paths.get(entry.getFilePath())
+                .toAbsolutePath()
+                .normalize()
+                .toString();
+    }
+    
+    /**
+     * Validate the files between the two input indices, storing the 
+     * resulting FileEntry objects in the same positions of the output 
+     * array.
+     * 
+     * @param files The files to validate.
+     * @param results The output array.
+     * @param from Index of the first file to validate.
+     * @param to Index after the last file to validate.
+     * @param counter Counter of the stat calls made for the request.
+     * @param walker Walker used to expand the directories of the request.
+     */
+    private void validateRange(
+            List<?> files, 
+            AtomicReferenceArray<List<FileEntry>> results, 
+            int from, 
+            int to,
+            StatCounter counter,
+            ParallelFileWalker walker) {
+        for (int i = from; 
+                (i < to) 
+                        && (!Thread.currentThread().isInterrupted())
+                        && (!walker.isLimitExceeded()); 
+                i++) {
+            Object file = files.get(i);
+            try {
+                List<FileEntry> entries = validateOrExpand(
+                        file, 
+                        counter, 
+                        walker);
+                for (FileEntry obj : entries) {
+                    PathGenerator.getInstance().setOneEntry(obj);
+                }
+                results.set(i, entries);
+            }
+            catch (RuntimeException re) {
+                LOGGER.warn("Unexpected exception validating file [ "
+                        + file
+                        + " ].  Error message [ "
+                        + re.getMessage()
+                        + " ].  No attempt will be made to bundle the "
+                        + "target file.");
+            }
+        }
+    }
+    
+    /**
+     * Validation state shared by all of the pieces of a request: the 
+     * walker that enforces the directory expansion limit and the paths of 
+     * the files already returned.  The paths are held until the request 
+     * has been validated, so a session must not outlive its request.  A 
+     * session must only be used by one thread at a time.
+     */
+    public static class Session {
+        
+        /**
+         * Walker used to expand the directories of the request.
+         */
+        private final ParallelFileWalker walker;
+        
+        /**
+         * Paths of the files already returned for the request.
+         */
+        private final Set<String> seen = new HashSet<String>();
+        
+        private Session(ParallelFileWalker walker) {
+            this.walker = walker;
+        }
+    }
+    
+    /**
+     * Thread-safe counter of the file system stat calls made while 
+     * validating a request.
+     */
+    public static class StatCounter {
+        
+        /**
+         * The number of stat calls made.
+         */
+        private final AtomicLong count = new AtomicLong(0L);
+        
+        /**
+         * Add to the number of stat calls made.
+         * @param value The number of calls to add.
+         */
+        public void add(long value) {
+            count.addAndGet(value);
+        }
+        
+        /**
+         * Getter method for the number of stat calls made.
+         * @return The number of stat calls made.
+         */
+        public long get() {
+            return count.get();
+        }
+    }
+    
     /** 
      * Static inner class used to construct the factory singleton.  This
      * class exploits that fact that inner classes are not loaded until they 
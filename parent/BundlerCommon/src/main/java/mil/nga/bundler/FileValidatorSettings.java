@@ -0,0 +1,195 @@
+package mil.nga.bundler;
+
+import java.util.Properties;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class holding the settings used to validate the files in a
+ * request (see <code>FileValidator</code>), including the expansion of 
+ * requested directories.  Settings are read from the
+ * bundler properties file, but may be overridden on an individual host by
+ * supplying a JVM system property with the same name.
+ */
+public class FileValidatorSettings
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            FileValidatorSettings.class);
+
+    /**
+     * Number of threads used to validate the requested files.
+     */
+    private int workers = DEFAULT_VALIDATION_WORKERS;
+
+    /**
+     * Maximum time (in milliseconds) allowed to validate one request.
+     */
+    private int timeout = DEFAULT_VALIDATION_TIMEOUT;
+
+    /**
+     * Maximum number of threads used to walk requested directories.
+     */
+    private int expansionParallelism = DEFAULT_EXPANSION_PARALLELISM;
+
+    /**
+     * Maximum number of entries found expanding the directories in one
+     * request.
+     */
+    private int expansionMaxEntries = DEFAULT_EXPANSION_MAX_ENTRIES;
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private FileValidatorSettings() {
+        super(PROPERTY_FILE_NAME);
+        Properties props = null;
+        try {
+            props = getProperties();
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("Unable to load the bundler properties.  File "
+                    + "validation settings will be taken from JVM system "
+                    + "properties or the defaults.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+        workers = Math.max(1, getIntSetting(
+                props,
+                VALIDATION_WORKERS_PROPERTY,
+                DEFAULT_VALIDATION_WORKERS));
+        timeout = Math.max(0, getIntSetting(
+                props,
+                VALIDATION_TIMEOUT_PROPERTY,
+                DEFAULT_VALIDATION_TIMEOUT));
+        expansionParallelism = Math.max(1, getIntSetting(
+                props,
+                EXPANSION_PARALLELISM_PROPERTY,
+                DEFAULT_EXPANSION_PARALLELISM));
+        expansionMaxEntries = Math.max(1, getIntSetting(
+                props,
+                EXPANSION_MAX_ENTRIES_PROPERTY,
+                DEFAULT_EXPANSION_MAX_ENTRIES));
+    }
+
+    /**
+     * Accessor method for the Singleton instance of the FileValidatorSettings
+     * object.
+     *
+     * @return The Singleton instance.
+     */
+    public static FileValidatorSettings getInstance() {
+        return FileValidatorSettingsHolder.getSingleton();
+    }
+
+    /**
+     * Look up an integer setting.  JVM system properties take precedence
+     * over the values in the bundler properties file.
+     *
+     * @param props Properties loaded from the bundler properties file (may
+     * be null).
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined or
+     * cannot be parsed.
+     * @return The integer setting.
+     */
+    private static int getIntSetting(
+            Properties props,
+            String key,
+            int defaultValue) {
+        int    result = defaultValue;
+        String value  = System.getProperty(key);
+        if ((value == null) && (props != null)) {
+            value = props.getProperty(key);
+        }
+        if ((value != null) && (!value.trim().isEmpty())) {
+            try {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException nfe) {
+                LOGGER.warn("Invalid integer value for property [ "
+                        + key
+                        + " ].  Value [ "
+                        + value
+                        + " ].  Using default value [ "
+                        + defaultValue
+                        + " ].");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Getter method for the maximum number of entries that may be found
+     * while expanding the directories in a single request.
+     *
+     * @return The maximum number of entries.
+     */
+    public int getExpansionMaxEntries() {
+        return expansionMaxEntries;
+    }
+
+    /**
+     * Getter method for the maximum number of threads used to walk
+     * requested directories.
+     *
+     * @return The directory expansion parallelism.
+     */
+    public int getExpansionParallelism() {
+        return expansionParallelism;
+    }
+
+    /**
+     * Getter method for the maximum time allowed to validate the files in
+     * a single request.
+     *
+     * @return The validation timeout in milliseconds (0 for no limit).
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Getter method for the number of threads used to validate the
+     * requested files.
+     *
+     * @return The number of file validation threads.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class FileValidatorSettingsHolder {
+
+        /**
+         * Reference to the Singleton instance of the FileValidatorSettings.
+         */
+        private static FileValidatorSettings _instance =
+                new FileValidatorSettings();
+
+        /**
+         * Accessor method for the singleton instance of the
+         * FileValidatorSettings.
+         *
+         * @return The Singleton instance of the FileValidatorSettings.
+         */
+        public static FileValidatorSettings getSingleton() {
+            return _instance;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package mil.nga.bundler;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+import javax.jms.Session;
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class used to place messages on JMS queues without paying for the JNDI
+ * lookups and connection setup on every message.  The connection factory
+ * and destination queues are looked up once and cached.  A single
+ * <code>QueueConnection</code> (connections are thread safe) is shared by
+ * all callers and the sessions created from it (sessions are not) are
+ * handed out one per send and returned to a bounded pool of idle sessions
+ * afterwards.  Each pooled session holds an unidentified sender so it may
+ * be used for any destination.
+ *
+ * If a send fails the connection is discarded along with every session
+ * created from it, and the send is retried once on a new connection.  This
+ * covers the case where the messaging server was restarted underneath the
+ * cached connection.
+ *
+ * The maximum number of idle sessions is read from the publisher settings
+ * (see <code>bundler.jms.max_idle_sessions</code>).  Sessions borrowed
+ * while the pool is empty are created on demand, so the setting does not
+ * limit the number of concurrent senders.
+ */
+public class JMSPublisher implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(JMSPublisher.class);
+
+    /**
+     * JNDI name of the JMS connection factory.
+     */
+    private final String factoryName;
+
+    /**
+     * Idle sessions available for re-use.
+     */
+    private final LinkedBlockingQueue<PooledSession> idle;
+
+    /**
+     * Destination queues keyed by JNDI name.
+     */
+    private final ConcurrentHashMap<String, Queue> queues =
+            new ConcurrentHashMap<String, Queue>();
+
+    /**
+     * Number of messages sent.
+     */
+    private final AtomicLong messagesSent = new AtomicLong(0L);
+
+    /**
+     * Number of connections opened.
+     */
+    private final AtomicLong connectionsOpened = new AtomicLong(0L);
+
+    /**
+     * Number of sessions opened.
+     */
+    private final AtomicLong sessionsOpened = new AtomicLong(0L);
+
+    /**
+     * JNDI context used for the lookups (created on first use).
+     */
+    private Context context;
+
+    /**
+     * The cached connection factory.
+     */
+    private QueueConnectionFactory factory = null;
+
+    /**
+     * The shared connection (null until the first send or after a
+     * failure).
+     */
+    private QueueConnection connection = null;
+
+    /**
+     * Incremented each time a new connection is opened.  Sessions created
+     * from an older connection are never returned to the pool.
+     */
+    private long generation = 0L;
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private JMSPublisher() {
+        this(null,
+                CONNECTION_FACTORY,
+                JMSPublisherSettings.getInstance().getMaxIdleSessions());
+    }
+
+    /**
+     * Constructor allowing clients to supply the JNDI context and pool size
+     * (used by the tests and benchmarks).
+     *
+     * @param context JNDI context used for the lookups.  If null, a new
+     * <code>InitialContext</code> is created on first use.
+     * @param factoryName JNDI name of the JMS connection factory.
+     * @param maxIdleSessions Maximum number of idle sessions to retain.
+     */
+    public JMSPublisher(
+            Context context,
+            String factoryName,
+            int maxIdleSessions) {
+        this.context     = context;
+        this.factoryName = factoryName;
+        this.idle        = new LinkedBlockingQueue<PooledSession>(
+                Math.max(1, maxIdleSessions));
+    }
+
+    /**
+     * Accessor method for the Singleton instance of the JMSPublisher.
+     *
+     * @return The Singleton instance.
+     */
+    public static JMSPublisher getInstance() {
+        return JMSPublisherHolder.getSingleton();
+    }
+
+    /**
+     * Place the input object on the target JMS queue as an
+     * <code>ObjectMessage</code>.
+     *
+     * @param queueName JNDI name of the target queue.
+     * @param payload The object to send.
+     * @throws NamingException Thrown if the queue or connection factory
+     * cannot be looked up.
+     * @throws JMSException Thrown if the message could not be sent (after
+     * one retry on a new connection).
+     */
+    public void send(String queueName, Serializable payload)
+            throws NamingException, JMSException {
+
+        Queue        queue   = getQueue(queueName);
+        JMSException failure = null;
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            PooledSession session = null;
+            try {
+                session = borrow();
+                session.sender.send(
+                        queue,
+                        session.session.createObjectMessage(payload));
+                release(session);
+                messagesSent.incrementAndGet();
+                return;
+            }
+            catch (JMSException je) {
+                LOGGER.warn("Unexpected JMSException encountered while "
+                        + "sending to JMS queue [ "
+                        + queueName
+                        + " ] (attempt "
+                        + (attempt + 1)
+                        + ").  The connection will be re-opened.  Error "
+                        + "message [ "
+                        + je.getMessage()
+                        + " ].");
+                if (session != null) {
+                    session.close();
+                    reset(session.generation);
+                }
+                failure = je;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Close the shared connection and all idle sessions.  The next send
+     * will open a new connection.
+     */
+    public synchronized void close() {
+        reset(generation);
+    }
+
+    /**
+     * Getter method for the number of connections opened.
+     * @return The number of connections opened.
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * Getter method for the number of messages sent.
+     * @return The number of messages sent.
+     */
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    /**
+     * Getter method for the number of sessions opened.
+     * @return The number of sessions opened.
+     */
+    public long getSessionsOpened() {
+        return sessionsOpened.get();
+    }
+
+    /**
+     * Obtain an idle session from the pool, or create a new one if the
+     * pool is empty.
+     *
+     * @return A session (and sender) for the exclusive use of the caller.
+     * @throws NamingException Thrown if the connection factory cannot be
+     * looked up.
+     * @throws JMSException Thrown if the session cannot be created.
+     */
+    private PooledSession borrow() throws NamingException, JMSException {
+
+        PooledSession session = idle.poll();
+        while (session != null) {
+            if (session.generation == getGeneration()) {
+                return session;
+            }
+            session.close();
+            session = idle.poll();
+        }
+
+        QueueConnection conn;
+        long            gen;
+        synchronized (this) {
+            conn = getConnection();
+            gen  = generation;
+        }
+        try {
+            QueueSession queueSession = conn.createQueueSession(
+                    false,
+                    Session.AUTO_ACKNOWLEDGE);
+            sessionsOpened.incrementAndGet();
+            return new PooledSession(
+                    queueSession,
+                    queueSession.createSender(null),
+                    gen);
+        }
+        catch (JMSException je) {
+            reset(gen);
+            throw je;
+        }
+    }
+
+    /**
+     * Return a session to the pool.  The session is closed if it was
+     * created from a connection that has since been discarded, or if the
+     * pool is full.
+     *
+     * @param session The session to return.
+     */
+    private void release(PooledSession session) {
+        if ((session.generation != getGeneration()) ||
+                (!idle.offer(session))) {
+            session.close();
+        }
+    }
+
+    /**
+     * Discard the shared connection if it is still the one identified by
+     * the input generation.  Closing the connection closes the sessions
+     * created from it.
+     *
+     * @param failedGeneration Generation of the connection that failed.
+     */
+    private synchronized void reset(long failedGeneration) {
+        if ((connection != null) && (generation == failedGeneration)) {
+            try {
+                connection.close();
+            }
+            catch (Exception e) {}
+            connection = null;
+            PooledSession session = idle.poll();
+            while (session != null) {
+                session.close();
+                session = idle.poll();
+            }
+        }
+    }
+
+    /**
+     * Getter method for the generation of the current connection.
+     * @return The current generation.
+     */
+    private synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Obtain the shared connection, opening it if necessary.  Must be
+     * called while holding the object lock.
+     *
+     * @return The shared connection.
+     * @throws NamingException Thrown if the connection factory cannot be
+     * looked up.
+     * @throws JMSException Thrown if the connection cannot be opened.
+     */
+    private QueueConnection getConnection()
+            throws NamingException, JMSException {
+
+        if (connection == null) {
+
+            if (factory == null) {
+                factory = (QueueConnectionFactory)lookup(factoryName);
+            }
+            connection = factory.createQueueConnection();
+            generation++;
+            connectionsOpened.incrementAndGet();
+
+            final long gen = generation;
+            try {
+                connection.setExceptionListener(new ExceptionListener() {
+                    @Override
+                    public void onException(JMSException je) {
+                        LOGGER.warn("JMS connection failure reported.  "
+                                + "The connection will be re-opened.  "
+                                + "Error message [ "
+                                + je.getMessage()
+                                + " ].");
+                        reset(gen);
+                    }
+                });
+            }
+            catch (JMSException je) {
+                // Container-managed connections do not allow exception
+                // listeners.  Failures are still caught on send.
+                LOGGER.debug("Unable to register a JMS exception "
+                        + "listener.  Error message [ "
+                        + je.getMessage()
+                        + " ].");
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Opened JMS connection number [ "
+                        + connectionsOpened.get()
+                        + " ] using connection factory [ "
+                        + factoryName
+                        + " ].");
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Obtain the target queue, looking it up on first use.
+     *
+     * @param queueName JNDI name of the queue.
+     * @return The queue.
+     * @throws NamingException Thrown if the queue cannot be looked up.
+     */
+    private Queue getQueue(String queueName) throws NamingException {
+        Queue queue = queues.get(queueName);
+        if (queue == null) {
+            queue = (Queue)lookup(queueName);
+            queues.put(queueName, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Look up the input JNDI name.
+     *
+     * @param name The JNDI name.
+     * @return The object bound to the name.
+     * @throws NamingException Thrown if the name is not bound or is bound
+     * to null.
+     */
+    private Object lookup(String name) throws NamingException {
+        Context ctx;
+        synchronized (this) {
+            if (context == null) {
+                context = new InitialContext();
+            }
+            ctx = context;
+        }
+        Object obj = ctx.lookup(name);
+        if (obj == null) {
+            throw new NamingException("JNDI name [ "
+                    + name
+                    + " ] is bound to null.");
+        }
+        return obj;
+    }
+
+    /**
+     * A session and the unidentified sender created from it.
+     */
+    private static class PooledSession {
+
+        private final QueueSession session;
+        private final QueueSender  sender;
+        private final long         generation;
+
+        private PooledSession(
+                QueueSession session,
+                QueueSender sender,
+                long generation) {
+            this.session    = session;
+            this.sender     = sender;
+            this.generation = generation;
+        }
+
+        /**
+         * Close the sender and session, ignoring any errors.
+         */
+        private void close() {
+            try { sender.close(); } catch (Exception e) {}
+            try { session.close(); } catch (Exception e) {}
+        }
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are
+     * referenced therefore enforcing thread safety without the performance
+     * hit imposed by the use of the "synchronized" keyword.
+     */
+    public static class JMSPublisherHolder {
+
+        /**
+         * Reference to the Singleton instance of the JMSPublisher
+         */
+        private static JMSPublisher _instance = new JMSPublisher();
+
+        /**
+         * Accessor method for the singleton instance of the
+         * JMSPublisher.
+         *
+         * @return The Singleton instance of the JMSPublisher.
+         */
+        public static JMSPublisher getSingleton() {
+            return _instance;
+        }
+    }
+}
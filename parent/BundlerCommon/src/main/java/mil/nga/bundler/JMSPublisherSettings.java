@@ -0,0 +1,136 @@
+package mil.nga.bundler;
+
+import java.util.Properties;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class holding the settings of the notification publisher (see
+ * <code>JMSPublisher</code>).  Settings are read from the bundler
+ * properties file, but may be overridden on an individual host by
+ * supplying a JVM system property with the same name.
+ */
+public class JMSPublisherSettings
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            JMSPublisherSettings.class);
+
+    /**
+     * Maximum number of idle JMS sessions held by the publisher.
+     */
+    private int maxIdleSessions = DEFAULT_JMS_MAX_IDLE_SESSIONS;
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private JMSPublisherSettings() {
+        super(PROPERTY_FILE_NAME);
+        Properties props = null;
+        try {
+            props = getProperties();
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("Unable to load the bundler properties.  JMS publisher "
+                    + "settings will be taken from JVM system properties "
+                    + "or the defaults.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+        maxIdleSessions = Math.max(0, getIntSetting(
+                props,
+                JMS_MAX_IDLE_SESSIONS_PROPERTY,
+                DEFAULT_JMS_MAX_IDLE_SESSIONS));
+    }
+
+    /**
+     * Accessor method for the Singleton instance of the JMSPublisherSettings
+     * object.
+     *
+     * @return The Singleton instance.
+     */
+    public static JMSPublisherSettings getInstance() {
+        return JMSPublisherSettingsHolder.getSingleton();
+    }
+
+    /**
+     * Look up an integer setting.  JVM system properties take precedence
+     * over the values in the bundler properties file.
+     *
+     * @param props Properties loaded from the bundler properties file (may
+     * be null).
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined or
+     * cannot be parsed.
+     * @return The integer setting.
+     */
+    private static int getIntSetting(
+            Properties props,
+            String key,
+            int defaultValue) {
+        int    result = defaultValue;
+        String value  = System.getProperty(key);
+        if ((value == null) && (props != null)) {
+            value = props.getProperty(key);
+        }
+        if ((value != null) && (!value.trim().isEmpty())) {
+            try {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException nfe) {
+                LOGGER.warn("Invalid integer value for property [ "
+                        + key
+                        + " ].  Value [ "
+                        + value
+                        + " ].  Using default value [ "
+                        + defaultValue
+                        + " ].");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Getter method for the maximum number of idle JMS sessions held by the
+     * notification publisher.
+     *
+     * @return The maximum number of idle JMS sessions.
+     */
+    public int getMaxIdleSessions() {
+        return maxIdleSessions;
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class JMSPublisherSettingsHolder {
+
+        /**
+         * Reference to the Singleton instance of the JMSPublisherSettings.
+         */
+        private static JMSPublisherSettings _instance =
+                new JMSPublisherSettings();
+
+        /**
+         * Accessor method for the singleton instance of the
+         * JMSPublisherSettings.
+         *
+         * @return The Singleton instance of the JMSPublisherSettings.
+         */
+        public static JMSPublisherSettings getSingleton() {
+            return _instance;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package mil.nga.bundler;
+
+import java.util.Properties;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.types.PlannerType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class holding the settings used to build jobs (see
+ * <code>JobFactory</code>).  Settings are read from the bundler properties
+ * file, but may be overridden on an individual host by supplying a JVM
+ * system property with the same name.
+ */
+public class JobFactorySettings
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            JobFactorySettings.class);
+
+    /**
+     * Number of requested files validated at a time when a job is built
+     * incrementally.
+     */
+    private int chunkSize = DEFAULT_JOB_CHUNK_SIZE;
+
+    /**
+     * Strategy used to divide the files in a job up into archives.
+     */
+    private PlannerType archivePlanner = PlannerType.BALANCED;
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private JobFactorySettings() {
+        super(PROPERTY_FILE_NAME);
+        Properties props = null;
+        try {
+            props = getProperties();
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("Unable to load the bundler properties.  Job factory "
+                    + "settings will be taken from JVM system properties "
+                    + "or the defaults.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+        chunkSize = Math.max(1, getIntSetting(
+                props,
+                JOB_CHUNK_SIZE_PROPERTY,
+                DEFAULT_JOB_CHUNK_SIZE));
+        String planner = System.getProperty(ARCHIVE_PLANNER_PROPERTY);
+        if ((planner == null) && (props != null)) {
+            planner = props.getProperty(ARCHIVE_PLANNER_PROPERTY);
+        }
+        try {
+            archivePlanner = PlannerType.fromString(
+                    ((planner == null) || (planner.trim().isEmpty())) ?
+                            DEFAULT_ARCHIVE_PLANNER : planner);
+        }
+        catch (IllegalArgumentException iae) {
+            LOGGER.warn("Invalid value for property [ "
+                    + ARCHIVE_PLANNER_PROPERTY
+                    + " ].  Value [ "
+                    + planner
+                    + " ].  Using default value [ "
+                    + DEFAULT_ARCHIVE_PLANNER
+                    + " ].");
+        }
+    }
+
+    /**
+     * Accessor method for the Singleton instance of the JobFactorySettings
+     * object.
+     *
+     * @return The Singleton instance.
+     */
+    public static JobFactorySettings getInstance() {
+        return JobFactorySettingsHolder.getSingleton();
+    }
+
+    /**
+     * Look up an integer setting.  JVM system properties take precedence
+     * over the values in the bundler properties file.
+     *
+     * @param props Properties loaded from the bundler properties file (may
+     * be null).
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined or
+     * cannot be parsed.
+     * @return The integer setting.
+     */
+    private static int getIntSetting(
+            Properties props,
+            String key,
+            int defaultValue) {
+        int    result = defaultValue;
+        String value  = System.getProperty(key);
+        if ((value == null) && (props != null)) {
+            value = props.getProperty(key);
+        }
+        if ((value != null) && (!value.trim().isEmpty())) {
+            try {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException nfe) {
+                LOGGER.warn("Invalid integer value for property [ "
+                        + key
+                        + " ].  Value [ "
+                        + value
+                        + " ].  Using default value [ "
+                        + defaultValue
+                        + " ].");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Getter method for the strategy used to divide the files in a job up
+     * into archives.
+     *
+     * @return The archive planner type.
+     */
+    public PlannerType getArchivePlanner() {
+        return archivePlanner;
+    }
+
+    /**
+     * Getter method for the number of requested files validated at a time
+     * when a job is built incrementally.
+     *
+     * @return The number of files per chunk.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class JobFactorySettingsHolder {
+
+        /**
+         * Reference to the Singleton instance of the JobFactorySettings.
+         */
+        private static JobFactorySettings _instance =
+                new JobFactorySettings();
+
+        /**
+         * Accessor method for the singleton instance of the
+         * JobFactorySettings.
+         *
+         * @return The Singleton instance of the JobFactorySettings.
+         */
+        public static JobFactorySettings getSingleton() {
+            return _instance;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package mil.nga.bundler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import mil.nga.bundler.messages.JobTrackerMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, time-limited cache of the <code>JobTrackerMessage</code> objects
+ * returned by the getState() calls.  Clients poll the state of in-progress
+ * jobs every few seconds so, rather than hitting the data store on every 
+ * call, the last calculated state of each job is held in memory until it
+ * either expires or one of the MDBs changes the state of the job and 
+ * invalidates the entry.
+ * 
+ * The cache is local to the JVM.  Updates made on other hosts in the 
+ * cluster are not seen until the entry expires, so the time-to-live bounds
+ * how stale the returned state can be.  The number of entries is capped and
+ * the least-recently used job is evicted once the cap is reached so memory 
+ * stays bounded during bursts of submissions.
+ * 
+ * Entries must only be invalidated once the change to the job has been
+ * committed.  Otherwise a getState() call made between the invalidation 
+ * and the commit re-caches the old state for a full time-to-live.  Code 
+ * running inside a transaction should use 
+ * <code>invalidateAfterCompletion()</code>.
+ * 
+ * Each job also carries a generation that is bumped whenever its entry is
+ * invalidated.  Callers read the generation (<code>getGeneration()</code>)
+ * before loading the state of a job from the data store and pass it to 
+ * <code>put()</code>.  If the job was invalidated while the state was 
+ * being loaded the state is not cached, as it may pre-date the change.
+ * 
+ * The time-to-live and size cap are read from the cache settings (see 
+ * <code>JobTrackerCacheSettings</code>).
+ */
+public class JobTrackerCache {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            JobTrackerCache.class);
+    
+    /**
+     * The cache statistics are logged after this many lookups.
+     */
+    public static final long STATISTICS_LOG_INTERVAL = 10000L;
+    
+    /**
+     * Maximum number of jobs held in the cache.
+     */
+    private final int maxEntries;
+    
+    /**
+     * Time-to-live (in milliseconds) of each entry.
+     */
+    private final long ttl;
+    
+    /**
+     * The cached entries (in access order).
+     */
+    private final LinkedHashMap<String, Entry> cache;
+    
+    /**
+     * The generation of each recently invalidated job (in access order).
+     * Guarded by the <code>cache</code> lock.
+     */
+    private final LinkedHashMap<String, Long> generations;
+    
+    /**
+     * Source of the generation numbers.  Guarded by the <code>cache</code>
+     * lock.
+     */
+    private long nextGeneration = 0L;
+    
+    /**
+     * Generation reported for jobs that are not in the 
+     * <code>generations</code> map.  Raised to the generation of each 
+     * entry dropped from the map so a job whose generation was dropped 
+     * never reports a generation it had before it was invalidated.  
+     * Guarded by the <code>cache</code> lock.
+     */
+    private long baseGeneration = 0L;
+    
+    /**
+     * Number of lookups answered from the cache.
+     */
+    private final AtomicLong hits = new AtomicLong(0L);
+    
+    /**
+     * Number of lookups that had to go to the data store.
+     */
+    private final AtomicLong misses = new AtomicLong(0L);
+    
+    /**
+     * Number of entries removed because the cache was full.
+     */
+    private final AtomicLong evictions = new AtomicLong(0L);
+    
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private JobTrackerCache() {
+        this(JobTrackerCacheSettings.getInstance().getMaxEntries(),
+                JobTrackerCacheSettings.getInstance().getTtl());
+        LOGGER.info("Job status cache settings: maximum entries [ "
+                + maxEntries
+                + " ], time-to-live [ "
+                + ttl
+                + " ] ms.");
+    }
+    
+    /**
+     * Constructor allowing clients to specify the size and time-to-live of
+     * the cache.
+     * 
+     * @param maxEntries Maximum number of jobs held in the cache.
+     * @param ttl Time-to-live (in milliseconds) of each entry.  A value of 
+     * zero disables caching.
+     */
+    public JobTrackerCache(int maxEntries, long ttl) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl        = Math.max(0L, ttl);
+        this.cache      = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Entry> eldest) {
+                if (size() > JobTrackerCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.generations = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Long> eldest) {
+                if (size() > JobTrackerCache.this.maxEntries) {
+                    baseGeneration = Math.max(
+                            baseGeneration, 
+                            eldest.getValue().longValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Accessor method for the Singleton instance of the JobTrackerCache.
+     * 
+     * @return The Singleton instance.
+     */
+    public static JobTrackerCache getInstance() {
+        return JobTrackerCacheHolder.getSingleton();
+    }
+    
+    /**
+     * Retrieve the cached state of the input job.
+     * 
+     * @param jobID The job ID.
+     * @return The cached state, or null if the job is not cached or the 
+     * entry has expired.
+     */
+    public JobTrackerMessage get(String jobID) {
+        
+        JobTrackerMessage message = null;
+        
+        if ((jobID != null) && (ttl > 0)) {
+            synchronized (cache) {
+                Entry entry = cache.get(jobID);
+                if (entry != null) {
+                    if (System.currentTimeMillis() < entry.expires) {
+                        message = entry.message;
+                    }
+                    else {
+                        cache.remove(jobID);
+                    }
+                }
+            }
+        }
+        if (message != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        if (((getHits() + getMisses()) % STATISTICS_LOG_INTERVAL) == 0) {
+            LOGGER.info(toString());
+        }
+        return message;
+    }
+    
+    /**
+     * Retrieve the current generation of a job.  Must be called before the 
+     * state of the job is loaded from the data store.
+     * 
+     * @param jobID The job ID.
+     * @return The current generation of the job.
+     */
+    public long getGeneration(String jobID) {
+        synchronized (cache) {
+            return getGenerationLocked(jobID);
+        }
+    }
+    
+    /**
+     * Add (or replace) the cached state of a job.  The state is not cached
+     * if the job has been invalidated since the input generation was read.
+     * 
+     * @param message The current state of the job.
+     * @param generation The generation of the job read (via 
+     * <code>getGeneration()</code>) before the state was loaded.
+     */
+    public void put(JobTrackerMessage message, long generation) {
+        if ((message != null) && (message.getJobID() != null) && (ttl > 0)) {
+            synchronized (cache) {
+                if (getGenerationLocked(message.getJobID()) == generation) {
+                    cache.put(message.getJobID(), new Entry(
+                            message, 
+                            System.currentTimeMillis() + ttl));
+                }
+                else if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Job ID [ "
+                            + message.getJobID()
+                            + " ] was invalidated while its state was "
+                            + "loaded.  The state will not be cached.");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove the cached state of a job.  Called whenever the state of the
+     * job is changed.
+     * 
+     * @param jobID The job ID.
+     */
+    public void invalidate(String jobID) {
+        if (jobID != null) {
+            synchronized (cache) {
+                cache.remove(jobID);
+                generations.put(jobID, Long.valueOf(++nextGeneration));
+            }
+        }
+    }
+    
+    /**
+     * Remove the cached state of a job once the current transaction 
+     * completes (i.e. after the change to the job is visible to the 
+     * getState() calls).  If there is no active transaction the entry is
+     * removed immediately.
+     * 
+     * @param registry The container transaction synchronization registry
+     * (may be null, in which case the entry is removed immediately).
+     * @param jobID The job ID.
+     */
+    public void invalidateAfterCompletion(
+            TransactionSynchronizationRegistry registry, 
+            final String jobID) {
+        if ((registry != null) && 
+                (registry.getTransactionKey() != null) &&
+                (registry.getTransactionStatus() == Status.STATUS_ACTIVE)) {
+            registry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() { }
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(jobID);
+                }
+            });
+        }
+        else {
+            invalidate(jobID);
+        }
+    }
+    
+    /**
+     * Remove all of the cached entries.  The generation of every job is 
+     * bumped so state loaded before the call is not cached.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            generations.clear();
+            baseGeneration = ++nextGeneration;
+        }
+    }
+    
+    /**
+     * Getter method for the number of entries removed because the cache was
+     * full.
+     * 
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    /**
+     * Getter method for the number of lookups answered from the cache.
+     * 
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Getter method for the number of lookups that were not answered from 
+     * the cache.
+     * 
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    /**
+     * Getter method for the number of jobs currently cached.
+     * 
+     * @return The number of cached entries.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+    
+    /**
+     * Look up the generation of a job.  The caller must hold the 
+     * <code>cache</code> lock.
+     * 
+     * @param jobID The job ID.
+     * @return The current generation of the job.
+     */
+    private long getGenerationLocked(String jobID) {
+        Long generation = generations.get(jobID);
+        return (generation != null ? generation.longValue() : baseGeneration);
+    }
+    
+    /**
+     * Convert to a human-readable String.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb    = new StringBuilder();
+        long          total = getHits() + getMisses();
+        sb.append("Job status cache : Hits => [ ");
+        sb.append(getHits());
+        sb.append(" ], Misses => [ ");
+        sb.append(getMisses());
+        sb.append(" ], Hit ratio => [ ");
+        sb.append(total > 0 ? (getHits() * 100L) / total : 0L);
+        sb.append("% ], Evictions => [ ");
+        sb.append(getEvictions());
+        sb.append(" ], Size => [ ");
+        sb.append(size());
+        sb.append(" ].");
+        return sb.toString();
+    }
+    
+    /**
+     * Cached state of a single job.
+     */
+    private static class Entry {
+        
+        private final JobTrackerMessage message;
+        private final long              expires;
+        
+        private Entry(JobTrackerMessage message, long expires) {
+            this.message = message;
+            this.expires = expires;
+        }
+    }
+    
+    /** 
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are 
+     * referenced therefore enforcing thread safety without the performance 
+     * hit imposed by the <code>synchronized</code> keyword.
+     */
+    public static class JobTrackerCacheHolder {
+        
+        /**
+         * Reference to the Singleton instance of the JobTrackerCache.
+         */
+        private static JobTrackerCache _instance = new JobTrackerCache();
+    
+        /**
+         * Accessor method for the singleton instance of the 
+         * JobTrackerCache.
+         * 
+         * @return The Singleton instance of the JobTrackerCache.
+         */
+        public static JobTrackerCache getSingleton() {
+            return _instance;
+        }
+    }
+}
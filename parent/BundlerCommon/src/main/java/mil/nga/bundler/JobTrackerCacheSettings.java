@@ -0,0 +1,154 @@
+package mil.nga.bundler;
+
+import java.util.Properties;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class holding the settings of the job status cache (see 
+ * <code>JobTrackerCache</code>).  Settings are read from the bundler 
+ * properties file, but may be overridden on an individual host by 
+ * supplying a JVM system property with the same name.
+ */
+public class JobTrackerCacheSettings 
+        extends PropertyLoader 
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            JobTrackerCacheSettings.class);
+    
+    /**
+     * Time-to-live (in milliseconds) of the job status cache entries.
+     */
+    private int ttl = DEFAULT_STATUS_CACHE_TTL;
+    
+    /**
+     * Maximum number of jobs held in the job status cache.
+     */
+    private int maxEntries = DEFAULT_STATUS_CACHE_SIZE;
+    
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private JobTrackerCacheSettings() {
+        super(PROPERTY_FILE_NAME);
+        Properties props = null;
+        try {
+            props = getProperties();
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("Unable to load the bundler properties.  Job status "
+                    + "cache settings will be taken from JVM system "
+                    + "properties or the defaults.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+        ttl = Math.max(0, getIntSetting(
+                props,
+                STATUS_CACHE_TTL_PROPERTY,
+                DEFAULT_STATUS_CACHE_TTL));
+        maxEntries = Math.max(1, getIntSetting(
+                props,
+                STATUS_CACHE_SIZE_PROPERTY,
+                DEFAULT_STATUS_CACHE_SIZE));
+    }
+    
+    /**
+     * Accessor method for the Singleton instance of the 
+     * JobTrackerCacheSettings object.
+     * 
+     * @return The Singleton instance.
+     */
+    public static JobTrackerCacheSettings getInstance() {
+        return JobTrackerCacheSettingsHolder.getSingleton();
+    }
+    
+    /**
+     * Look up an integer setting.  JVM system properties take precedence 
+     * over the values in the bundler properties file.
+     * 
+     * @param props Properties loaded from the bundler properties file (may
+     * be null).
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined or
+     * cannot be parsed.
+     * @return The integer setting.
+     */
+    private static int getIntSetting(
+            Properties props, 
+            String key, 
+            int defaultValue) {
+        int    result = defaultValue;
+        String value  = System.getProperty(key);
+        if ((value == null) && (props != null)) {
+            value = props.getProperty(key);
+        }
+        if ((value != null) && (!value.trim().isEmpty())) {
+            try {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException nfe) {
+                LOGGER.warn("Invalid integer value for property [ "
+                        + key
+                        + " ].  Value [ "
+                        + value
+                        + " ].  Using default value [ "
+                        + defaultValue
+                        + " ].");
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Getter method for the maximum number of jobs held in the job status 
+     * cache.
+     * 
+     * @return The maximum number of cached jobs.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+    
+    /**
+     * Getter method for the time-to-live of the job status cache entries.
+     * 
+     * @return The time-to-live in milliseconds (0 if caching is disabled).
+     */
+    public int getTtl() {
+        return ttl;
+    }
+    
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class JobTrackerCacheSettingsHolder {
+        
+        /**
+         * Reference to the Singleton instance of the JobTrackerCacheSettings.
+         */
+        private static JobTrackerCacheSettings _instance = 
+                new JobTrackerCacheSettings();
+        
+        /**
+         * Accessor method for the singleton instance of the 
+         * JobTrackerCacheSettings.
+         * 
+         * @return The Singleton instance of the JobTrackerCacheSettings.
+         */
+        public static JobTrackerCacheSettings getSingleton() {
+            return _instance;
+        }
+    }
+}
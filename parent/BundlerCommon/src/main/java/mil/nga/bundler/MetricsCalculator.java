@@ -1,11 +1,13 @@
 package mil.nga.bundler;
 
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mil.nga.bundler.model.Archive;
+import mil.nga.bundler.model.BundlerDailyMetrics;
 import mil.nga.bundler.model.Job;
 import mil.nga.bundler.model.BundlerMetrics;
 import mil.nga.bundler.types.JobStateType;
@@ -109,75 +111,95 @@ public class MetricsCalculator {
         return elapsedTime;
     }
     
+    /**
+     * Add the statistics associated with a single job to the input 
+     * accumulator.
+     * 
+     * @param acc The accumulator.
+     * @param job The job to add.
+     */
+    private void accumulate(Accumulator acc, Job job) {
+        
+        acc.numJobs++;
+        
+        if ((job.getStartTime() != 0) && 
+                ((acc.startTime == 0) || (job.getStartTime() < acc.startTime))) {
+            acc.startTime = job.getStartTime();
+        }
+        if (job.getEndTime() > acc.endTime) {
+            acc.endTime = job.getEndTime();
+        }
+        if (job.getState() != JobStateType.COMPLETE) {
+            acc.numJobsIncomplete++;
+        }
+        if (job.getArchives() != null) {
+            acc.archiveCount += job.getArchives().size();
+        }
+        acc.numFiles    += job.getNumFiles();
+        acc.numArchives += job.getNumArchives();
+        acc.totalSize   += job.getTotalSize();
+        acc.elapsedTime += getElapsedTime(job);
+        
+        long compressedSize = getCompressedSize(job.getArchives());
+        acc.compressionRatio += 
+                getCompressionRatio(job.getTotalSize(), compressedSize); 
+        acc.compressedSize   += compressedSize;
+    }
+    
+    /**
+     * Populate the calculated statistics from the input accumulator.
+     * 
+     * @param metrics The metrics object to populate.
+     * @param acc The accumulated totals.
+     */
+    private void publish(BundlerMetrics metrics, Accumulator acc) {
+        
+        metrics.setTotalNumJobs(acc.numJobs);
+        metrics.setNumJobsIncomplete(acc.numJobsIncomplete);
+        metrics.setTotalNumFiles(acc.numFiles);
+        metrics.setTotalNumArchives(acc.numArchives);
+        metrics.setTotalSize(acc.totalSize);
+        metrics.setTotalCompressedSize(acc.compressedSize);
+        metrics.setAverageCompression(
+                acc.compressionRatio / (double)acc.numJobs);
+        metrics.setAbsoluteCompression(
+                getCompressionRatio(
+                        metrics.getTotalSize(), 
+                        metrics.getTotalCompressedSize()));
+        metrics.setAverageSizePerJob(
+                metrics.getTotalSize() / acc.numJobs);
+        metrics.setAverageNumFilesPerJob(
+                metrics.getTotalNumFiles() / acc.numJobs);
+        metrics.setAverageTimePerJob(
+                acc.elapsedTime / acc.numJobs);
+        metrics.setAverageNumArchivesPerJob(
+                acc.archiveCount / acc.numJobs);
+        metrics.setStartTime(
+                acc.startTime == 0 ? System.currentTimeMillis() : acc.startTime);
+        metrics.setEndTime(acc.endTime);
+    }
+    
+    /**
+     * Calculate the metrics associated with the input list of jobs.  Any
+     * values previously held by the metrics object (other than the running
+     * totals) are discarded.
+     * 
+     * @param metrics The metrics object to populate.
+     * @param list The jobs on which the metrics will be calculated.
+     */
     public void getMetrics(BundlerMetrics metrics, List<Job> list) {
         
         if (metrics == null) {
             metrics = new BundlerMetrics();
         }
         metrics.reset();
-        double compressionRatioAccumulator = 0.0;
-        long   elapsedTimeAccumulator      = 0L;
-        long   numArchivesAccumulator      = 0L;
-        long   endTime                     = 0L;
-        long   startTime                   = System.currentTimeMillis();
         
         if ((list != null) && (list.size() > 0)) {
-            
-            metrics.setTotalNumJobs(list.size());
-            
+            Accumulator acc = new Accumulator();
             for (Job job : list) {
-                
-                if ((job.getStartTime() < startTime) && (job.getStartTime() != 0)) {
-                    startTime = job.getStartTime();
-                }
-                if (job.getEndTime() > endTime) {
-                    endTime = job.getEndTime();
-                }
-                
-                if (job.getState() != JobStateType.COMPLETE) {
-                    metrics.setNumJobsIncomplete(
-                            metrics.getNumJobsIncomplete() + 1);
-                }
-                
-                if (job.getArchives() != null) {
-                    numArchivesAccumulator += job.getArchives().size();
-                }
-                
-                metrics.setTotalNumFiles(
-                        metrics.getTotalNumFiles()+job.getNumFiles());
-                metrics.setTotalNumArchives(
-                        metrics.getTotalNumArchives()+job.getNumArchives());
-                metrics.setTotalSize(
-                        metrics.getTotalSize()+job.getTotalSize());
-                
-                elapsedTimeAccumulator += getElapsedTime(job);
-                
-                long compressedSize = getCompressedSize(job.getArchives());
-                compressionRatioAccumulator += 
-                        getCompressionRatio(job.getTotalSize(), compressedSize); 
-                
-                metrics.setTotalCompressedSize(
-                        metrics.getTotalCompressedSize() + compressedSize);
-                
+                accumulate(acc, job);
             }
-            
-            metrics.setAverageCompression(
-                    compressionRatioAccumulator / (double)list.size());
-            metrics.setAbsoluteCompression(
-                    getCompressionRatio(
-                            metrics.getTotalSize(), 
-                            metrics.getTotalCompressedSize()));
-            metrics.setAverageSizePerJob(
-                    metrics.getTotalSize() / list.size());
-            metrics.setAverageNumFilesPerJob(
-                    metrics.getTotalNumFiles() / list.size());
-            metrics.setAverageTimePerJob(
-                    elapsedTimeAccumulator / list.size());
-            metrics.setAverageNumArchivesPerJob(
-                    numArchivesAccumulator / list.size());
-            metrics.setStartTime(startTime);
-            metrics.setEndTime(endTime);
-            
+            publish(metrics, acc);
         }
         else {
             LOGGER.error("The job list retrieved from the data source " 
@@ -185,5 +207,159 @@ public class MetricsCalculator {
                     + "calculate metrics.");
         }
     }
-
+    
+    /**
+     * Fold the input list of finished jobs into the running totals held by
+     * the metrics object and advance the watermark.  Each job must only be
+     * folded once.
+     * 
+     * @param metrics The metrics object holding the running totals.
+     * @param list Jobs that finished after the current watermark.
+     * @param watermark The new watermark (i.e. the latest job end time 
+     * covered by the input list).
+     */
+    public void fold(BundlerMetrics metrics, List<Job> list, long watermark) {
+        
+        Accumulator acc = Accumulator.fromRunningTotals(metrics);
+        if (list != null) {
+            for (Job job : list) {
+                accumulate(acc, job);
+            }
+        }
+        acc.toRunningTotals(metrics);
+        metrics.setWatermark(watermark);
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Folded [ "
+                    + (list == null ? 0 : list.size())
+                    + " ] jobs into the running totals.  Watermark [ "
+                    + watermark
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Calculate the metrics from the running totals held by the metrics 
+     * object plus the input list of jobs that have not yet been folded 
+     * (i.e. jobs that are still in progress, or that finished after the 
+     * watermark).  The running totals are not modified.
+     * 
+     * @param metrics The metrics object holding the running totals.
+     * @param list Jobs that have not been folded into the running totals.
+     */
+    public void getIncrementalMetrics(BundlerMetrics metrics, List<Job> list) {
+        
+        metrics.reset();
+        
+        Accumulator acc = Accumulator.fromRunningTotals(metrics);
+        if (list != null) {
+            for (Job job : list) {
+                accumulate(acc, job);
+            }
+        }
+        if (acc.numJobs > 0) {
+            publish(metrics, acc);
+        }
+        else {
+            LOGGER.error("There are no jobs in the running totals or the "
+                    + "input job list.  Unable to calculate metrics.");
+        }
+    }
+    
+    /**
+     * Fold the input list of finished jobs into the daily rollups.  Each 
+     * job is added to the rollup for the day on which it was started.  
+     * Rollups that do not yet exist are added to the input map.  As with 
+     * <code>fold()</code>, each job must only be folded once.
+     * 
+     * @param days Map of the start of each day to the associated rollup.
+     * @param list Jobs that finished after the current watermark.
+     */
+    public void foldDaily(Map<Long, BundlerDailyMetrics> days, List<Job> list) {
+        
+        if (list != null) {
+            for (Job job : list) {
+                
+                long dayStart = BundlerDailyMetrics.getDayStart(
+                        job.getStartTime());
+                BundlerDailyMetrics day = days.get(dayStart);
+                if (day == null) {
+                    day = new BundlerDailyMetrics(dayStart);
+                    days.put(dayStart, day);
+                }
+                
+                day.setNumJobs(day.getNumJobs() + 1);
+                day.setNumArchives(day.getNumArchives() + job.getNumArchives());
+                day.setTotalSize(day.getTotalSize() + job.getTotalSize());
+                day.setTotalCompressedSize(day.getTotalCompressedSize() 
+                        + getCompressedSize(job.getArchives()));
+                if (job.getState() == JobStateType.COMPLETE) {
+                    day.setNumJobsComplete(day.getNumJobsComplete() + 1);
+                    day.setTotalElapsedTime(day.getTotalElapsedTime() 
+                            + getElapsedTime(job));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Internal class used to accumulate the per-job statistics.
+     */
+    private static class Accumulator {
+        
+        private long   numJobs           = 0L;
+        private long   numJobsIncomplete = 0L;
+        private long   numArchives       = 0L;
+        private long   archiveCount      = 0L;
+        private long   numFiles          = 0L;
+        private long   totalSize         = 0L;
+        private long   compressedSize    = 0L;
+        private long   elapsedTime       = 0L;
+        private double compressionRatio  = 0.0;
+        private long   startTime         = 0L;
+        private long   endTime           = 0L;
+        
+        /**
+         * Construct an accumulator initialized with the running totals 
+         * held by the input metrics object.
+         * 
+         * @param metrics The metrics object.
+         * @return The initialized accumulator.
+         */
+        private static Accumulator fromRunningTotals(BundlerMetrics metrics) {
+            Accumulator acc       = new Accumulator();
+            acc.numJobs           = metrics.getRunningNumJobs();
+            acc.numJobsIncomplete = metrics.getRunningNumJobsIncomplete();
+            acc.numArchives       = metrics.getRunningNumArchives();
+            acc.archiveCount      = metrics.getRunningArchiveCount();
+            acc.numFiles          = metrics.getRunningNumFiles();
+            acc.totalSize         = metrics.getRunningTotalSize();
+            acc.compressedSize    = metrics.getRunningCompressedSize();
+            acc.elapsedTime       = metrics.getRunningElapsedTime();
+            acc.compressionRatio  = metrics.getRunningCompressionRatio();
+            acc.startTime         = metrics.getRunningStartTime();
+            acc.endTime           = metrics.getRunningEndTime();
+            return acc;
+        }
+        
+        /**
+         * Store the accumulated values as the running totals of the input
+         * metrics object.
+         * 
+         * @param metrics The metrics object.
+         */
+        private void toRunningTotals(BundlerMetrics metrics) {
+            metrics.setRunningNumJobs(numJobs);
+            metrics.setRunningNumJobsIncomplete(numJobsIncomplete);
+            metrics.setRunningNumArchives(numArchives);
+            metrics.setRunningArchiveCount(archiveCount);
+            metrics.setRunningNumFiles(numFiles);
+            metrics.setRunningTotalSize(totalSize);
+            metrics.setRunningCompressedSize(compressedSize);
+            metrics.setRunningElapsedTime(elapsedTime);
+            metrics.setRunningCompressionRatio(compressionRatio);
+            metrics.setRunningStartTime(startTime);
+            metrics.setRunningEndTime(endTime);
+        }
+    }
 }
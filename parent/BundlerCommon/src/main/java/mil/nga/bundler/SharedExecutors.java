@@ -0,0 +1,188 @@
+package mil.nga.bundler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mil.nga.bundler.archive.ArchiverSettings;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class owning the thread pools shared by every caller on this
+ * host: the block-parallel compressors, the file validation and the
+ * directory expansion.  Each pool is created on first use and sized from
+ * the host settings.  The threads are daemon threads, but the pools must
+ * still be shut down (<code>shutdown()</code>) when the application is
+ * undeployed or the threads outlive the deployment.
+ */
+public class SharedExecutors {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            SharedExecutors.class);
+
+    /**
+     * Thread pool shared by all of the parallel compressors on this host.
+     */
+    private ExecutorService compressionExecutor = null;
+
+    /**
+     * Thread pool shared by the file validation.
+     */
+    private ExecutorService validationExecutor = null;
+
+    /**
+     * Fork/join pool shared by the directory expansion.
+     */
+    private ForkJoinPool expansionPool = null;
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private SharedExecutors() { }
+
+    /**
+     * Accessor method for the Singleton instance of the SharedExecutors
+     * object.
+     *
+     * @return The Singleton instance.
+     */
+    public static SharedExecutors getInstance() {
+        return SharedExecutorsHolder.getSingleton();
+    }
+
+    /**
+     * Accessor method for the thread pool shared by the parallel
+     * compressors.
+     *
+     * @return The shared compression thread pool.
+     */
+    public synchronized ExecutorService getCompressionExecutor() {
+        if (compressionExecutor == null) {
+            compressionExecutor = Executors.newFixedThreadPool(
+                    ArchiverSettings.getInstance().getCompressionWorkers(),
+                    new DaemonThreadFactory("bundler-compress-"));
+        }
+        return compressionExecutor;
+    }
+
+    /**
+     * Accessor method for the thread pool shared by the file validation.
+     *
+     * @return The shared validation thread pool.
+     */
+    public synchronized ExecutorService getValidationExecutor() {
+        if (validationExecutor == null) {
+            validationExecutor = Executors.newFixedThreadPool(
+                    FileValidatorSettings.getInstance().getWorkers(),
+                    new DaemonThreadFactory("bundler-validate-"));
+        }
+        return validationExecutor;
+    }
+
+    /**
+     * Accessor method for the fork/join pool shared by the directory
+     * expansion.
+     *
+     * @return The shared directory expansion pool.
+     */
+    public synchronized ForkJoinPool getExpansionPool() {
+        if (expansionPool == null) {
+            expansionPool = new ForkJoinPool(
+                    FileValidatorSettings.getInstance()
+                            .getExpansionParallelism(),
+                    new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        private final AtomicInteger counter =
+                                new AtomicInteger(0);
+                        @Override
+                        public ForkJoinWorkerThread newThread(
+                                ForkJoinPool pool) {
+                            ForkJoinWorkerThread thread =
+                                    ForkJoinPool
+                                    .defaultForkJoinWorkerThreadFactory
+                                    .newThread(pool);
+                            thread.setName("bundler-expand-"
+                                    + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    },
+                    null,
+                    false);
+        }
+        return expansionPool;
+    }
+
+    /**
+     * Shut down any pools that have been created.  Running tasks are
+     * interrupted.  A pool requested after this call is created again, so
+     * this should only be called once nothing on this host will use the
+     * pools (i.e. when the application is undeployed).
+     */
+    public synchronized void shutdown() {
+        if (compressionExecutor != null) {
+            compressionExecutor.shutdownNow();
+            compressionExecutor = null;
+        }
+        if (validationExecutor != null) {
+            validationExecutor.shutdownNow();
+            validationExecutor = null;
+        }
+        if (expansionPool != null) {
+            expansionPool.shutdownNow();
+            expansionPool = null;
+        }
+        LOGGER.info("Shared thread pools shut down.");
+    }
+
+    /**
+     * Thread factory creating named daemon threads.
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger(0);
+        private final String        prefix;
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class SharedExecutorsHolder {
+
+        /**
+         * Reference to the Singleton instance of the SharedExecutors.
+         */
+        private static SharedExecutors _instance = new SharedExecutors();
+
+        /**
+         * Accessor method for the singleton instance of the
+         * SharedExecutors.
+         *
+         * @return The Singleton instance of the SharedExecutors.
+         */
+        public static SharedExecutors getSingleton() {
+            return _instance;
+        }
+    }
+}
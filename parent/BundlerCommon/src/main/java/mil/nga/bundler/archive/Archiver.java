@@ -3,8 +3,14 @@ package mil.nga.bundler.archive;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.regex.Pattern;
 
+import org.apache.commons.codec.binary.Hex;
+
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
@@ -30,6 +36,17 @@ public abstract class Archiver {
      */
     protected String _archiveName = null;
     
+    /**
+     * Digest updated as the output archive is written (if the concrete 
+     * class supports it).
+     */
+    private MessageDigest _digest = null;
+    
+    /**
+     * Hex-encoded SHA-1 hash of the output archive.
+     */
+    private String _hash = null;
+    
     /**
      * Default constructor.
      */
@@ -235,6 +252,59 @@ public abstract class Archiver {
         return this._archiveName;
     }
     
+    /**
+     * Getter method for the SHA-1 hash of the output archive file.  The hash
+     * is calculated as the archive is written, which saves re-reading the 
+     * entire archive after it is created.  The hash will not be available 
+     * until after one of the <code>bundle</code> methods completes and the
+     * output stream has been closed.
+     * 
+     * @return The hex-encoded SHA-1 hash of the output archive, or null if 
+     * the hash was not calculated during the write.
+     */
+    public String getHash() {
+        if ((_hash == null) && (_digest != null)) {
+            _hash   = Hex.encodeHexString(_digest.digest());
+            _digest = null;
+        }
+        return _hash;
+    }
+    
+    /**
+     * Wrap the stream that writes the output archive file such that the 
+     * SHA-1 hash of the archive is calculated as the data is written.  Any
+     * previously calculated hash is discarded.  Callers should place the 
+     * returned stream directly above the <code>FileOutputStream</code> 
+     * (i.e. below any buffering) so the digest is updated in large blocks.
+     * 
+     * @param out The stream writing the output archive file.
+     * @return The wrapped stream (or the input stream if the digest is not
+     * available).
+     */
+    protected OutputStream getDigestOutputStream(OutputStream out) {
+        resetHash();
+        try {
+            _digest = MessageDigest.getInstance("SHA-1");
+            return new DigestOutputStream(out, _digest);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            LOGGER.warn("SHA-1 digest is not available.  The hash of the "
+                    + "output archive will be calculated after the archive "
+                    + "is written.");
+        }
+        return out;
+    }
+    
+    /**
+     * Discard any hash calculated during a previous write.  Called by 
+     * concrete classes when the output archive is created by a path that 
+     * does not calculate the hash.
+     */
+    protected void resetHash() {
+        _digest = null;
+        _hash   = null;
+    }
+    
     /**
      * Subclasses must provide a mechanism for creating the appropriate 
      * object of type ArchiveEntry.
@@ -0,0 +1,362 @@
+package mil.nga.bundler.archive;
+
+import java.util.Properties;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class holding the host-level settings used by the archiver
+ * classes (e.g. the number of compression worker threads).  Settings are
+ * read from the bundler properties file, but any setting may be overridden
+ * on an individual host by supplying a JVM system property with the same
+ * name.  This allows the shared properties file to define sensible defaults
+ * while larger archive hosts are tuned individually.
+ */
+public class ArchiverSettings
+        extends PropertyLoader implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            ArchiverSettings.class);
+
+    /**
+     * Properties loaded from the bundler properties file (may be null).
+     */
+    private Properties props = null;
+
+    /**
+     * Number of threads used for block-parallel compression.
+     */
+    private int compressionWorkers = 1;
+
+    /**
+     * Size (in bytes) of the blocks handed to the compression workers.
+     */
+    private int compressionBlockSize = DEFAULT_GZIP_BLOCK_SIZE;
+
+    /**
+     * Whether plain TAR archives are written with FileChannel.transferTo.
+     */
+    private boolean zeroCopyTar = true;
+    
+    /**
+     * Whether the ZIP archiver stores files that are already compressed.
+     */
+    private boolean adaptiveZip = true;
+    
+    /**
+     * Whether large files on local disk are hashed via memory mapping.
+     */
+    private boolean mappedHashing = false;
+
+    /**
+     * Number of compression-heavy archives built concurrently.
+     */
+    private int archiveCpuWorkers = 1;
+    
+    /**
+     * Number of I/O-heavy archives built concurrently (0 if it should be 
+     * determined by probing the disk).
+     */
+    private int archiveIoWorkers = 0;
+    
+    /**
+     * Number of archives that may wait for a worker in each resource class.
+     */
+    private int archiveQueueSize = DEFAULT_ARCHIVE_QUEUE_SIZE;
+    
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private ArchiverSettings() {
+        super(PROPERTY_FILE_NAME);
+        try {
+            props = getProperties();
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("Unable to load the bundler properties.  Archiver "
+                    + "settings will be taken from JVM system properties "
+                    + "or the defaults.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+        setCompressionWorkers(getIntSetting(
+                COMPRESSION_WORKERS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+        setCompressionBlockSize(getIntSetting(
+                COMPRESSION_BLOCK_SIZE_PROPERTY,
+                DEFAULT_GZIP_BLOCK_SIZE));
+        setZeroCopyTar(getBooleanSetting(
+                TAR_ZERO_COPY_PROPERTY,
+                true));
+        setAdaptiveZip(getBooleanSetting(
+                ZIP_ADAPTIVE_PROPERTY,
+                true));
+        setMappedHashing(getBooleanSetting(
+                HASH_MAPPED_PROPERTY,
+                false));
+        archiveCpuWorkers = Math.max(1, getIntSetting(
+                ARCHIVE_CPU_WORKERS_PROPERTY,
+                Runtime.getRuntime().availableProcessors() / 2));
+        archiveIoWorkers = Math.max(0, getIntSetting(
+                ARCHIVE_IO_WORKERS_PROPERTY,
+                0));
+        archiveQueueSize = Math.max(0, getIntSetting(
+                ARCHIVE_QUEUE_SIZE_PROPERTY,
+                DEFAULT_ARCHIVE_QUEUE_SIZE));
+        LOGGER.info("Archiver settings: compression workers [ "
+                + getCompressionWorkers()
+                + " ], compression block size [ "
+                + getCompressionBlockSize()
+                + " ], zero-copy TAR [ "
+                + isZeroCopyTar()
+                + " ], adaptive ZIP [ "
+                + isAdaptiveZip()
+                + " ], memory-mapped hashing [ "
+                + isMappedHashing()
+                + " ].");
+    }
+
+    /**
+     * Accessor method for the Singleton instance of the ArchiverSettings
+     * object.
+     *
+     * @return The Singleton instance.
+     */
+    public static ArchiverSettings getInstance() {
+        return ArchiverSettingsHolder.getSingleton();
+    }
+
+    /**
+     * Look up a setting.  JVM system properties take precedence over the
+     * values in the bundler properties file.
+     *
+     * @param key The property name.
+     * @return The property value, or null if it is not defined.
+     */
+    protected String getSetting(String key) {
+        String value = System.getProperty(key);
+        if ((value == null) && (props != null)) {
+            value = props.getProperty(key);
+        }
+        return value;
+    }
+
+    /**
+     * Look up an integer setting.
+     *
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined or
+     * cannot be parsed.
+     * @return The integer setting.
+     */
+    protected int getIntSetting(String key, int defaultValue) {
+        int    result = defaultValue;
+        String value  = getSetting(key);
+        if ((value != null) && (!value.trim().isEmpty())) {
+            try {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException nfe) {
+                LOGGER.warn("Invalid integer value for property [ "
+                        + key
+                        + " ].  Value [ "
+                        + value
+                        + " ].  Using default value [ "
+                        + defaultValue
+                        + " ].");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Look up a boolean setting.
+     * 
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined.
+     * @return The boolean setting.
+     */
+    protected boolean getBooleanSetting(String key, boolean defaultValue) {
+        String value = getSetting(key);
+        if ((value == null) || (value.trim().isEmpty())) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+    
+    /**
+     * Getter method for the number of compression-heavy archives built 
+     * concurrently on this host.
+     * 
+     * @return The number of compression-heavy archive workers.
+     */
+    public int getArchiveCpuWorkers() {
+        return archiveCpuWorkers;
+    }
+    
+    /**
+     * Getter method for the number of I/O-heavy archives built 
+     * concurrently on this host.
+     * 
+     * @return The number of I/O-heavy archive workers, or 0 if the value 
+     * should be determined by probing the disk.
+     */
+    public int getArchiveIoWorkers() {
+        return archiveIoWorkers;
+    }
+    
+    /**
+     * Getter method for the number of archives that may wait for a worker
+     * in each resource class.
+     * 
+     * @return The archive queue size.
+     */
+    public int getArchiveQueueSize() {
+        return archiveQueueSize;
+    }
+    
+    /**
+     * Getter method for the size of the blocks handed to the compression
+     * workers.
+     *
+     * @return The compression block size in bytes.
+     */
+    public int getCompressionBlockSize() {
+        return compressionBlockSize;
+    }
+
+    /**
+     * Getter method for the number of compression worker threads.
+     *
+     * @return The number of compression worker threads.
+     */
+    public int getCompressionWorkers() {
+        return compressionWorkers;
+    }
+
+    /**
+     * Getter method determining whether the ZIP archiver stores files that
+     * are already compressed rather than deflating them.
+     * 
+     * @return True if adaptive STORED/DEFLATED selection is enabled.
+     */
+    public boolean isAdaptiveZip() {
+        return adaptiveZip;
+    }
+    
+    /**
+     * Getter method determining whether large files on local disk are 
+     * hashed through memory-mapped windows.
+     * 
+     * @return True if memory-mapped hashing is enabled.
+     */
+    public boolean isMappedHashing() {
+        return mappedHashing;
+    }
+    
+    /**
+     * Getter method determining whether plain TAR archives are written 
+     * using FileChannel.transferTo.
+     * 
+     * @return True if zero-copy TAR output is enabled.
+     */
+    public boolean isZeroCopyTar() {
+        return zeroCopyTar;
+    }
+    
+    /**
+     * Setter method for the compression block size.  Values smaller than
+     * 32K (the DEFLATE window size) are ignored.
+     *
+     * @param value The compression block size in bytes.
+     */
+    public void setCompressionBlockSize(int value) {
+        if (value >= 32 * 1024) {
+            compressionBlockSize = value;
+        }
+        else {
+            LOGGER.warn("Compression block size [ "
+                    + value
+                    + " ] is too small.  Value will be ignored.");
+        }
+    }
+
+    /**
+     * Setter method for the number of compression worker threads.  This
+     * must be set before the shared thread pool (see 
+     * <code>SharedExecutors</code>) is first used.
+     *
+     * @param value The number of compression worker threads.
+     */
+    public void setCompressionWorkers(int value) {
+        if (value > 0) {
+            compressionWorkers = value;
+        }
+        else {
+            LOGGER.warn("Number of compression workers must be greater "
+                    + "than zero.  Value supplied [ "
+                    + value
+                    + " ] will be ignored.");
+        }
+    }
+
+    /**
+     * Setter method enabling/disabling adaptive STORED/DEFLATED selection
+     * in the ZIP archiver.
+     * 
+     * @param value True to store files that are already compressed.
+     */
+    public void setAdaptiveZip(boolean value) {
+        adaptiveZip = value;
+    }
+    
+    /**
+     * Setter method enabling/disabling memory-mapped hashing.
+     * 
+     * @param value True to hash large files on local disk via memory 
+     * mapping.
+     */
+    public void setMappedHashing(boolean value) {
+        mappedHashing = value;
+    }
+    
+    /**
+     * Setter method enabling/disabling zero-copy TAR output.
+     * 
+     * @param value True to write plain TAR archives using 
+     * FileChannel.transferTo.
+     */
+    public void setZeroCopyTar(boolean value) {
+        zeroCopyTar = value;
+    }
+    
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class ArchiverSettingsHolder {
+
+        /**
+         * Reference to the Singleton instance of the ArchiverSettings
+         */
+        private static ArchiverSettings _instance = new ArchiverSettings();
+
+        /**
+         * Accessor method for the singleton instance of the ArchiverSettings.
+         * @return The Singleton instance of the ArchiverSettings.
+         */
+        public static ArchiverSettings getSingleton() {
+            return _instance;
+        }
+    }
+}
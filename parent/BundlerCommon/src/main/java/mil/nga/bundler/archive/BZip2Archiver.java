@@ -1,12 +1,15 @@
 package mil.nga.bundler.archive;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
+import mil.nga.bundler.SharedExecutors;
 import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.exceptions.ArchiveException;
 import mil.nga.bundler.model.FileEntry;
@@ -58,8 +61,10 @@ public class BZip2Archiver
     public void compress(File inputFile, File outputFile) 
             throws IOException {
         
-        BufferedInputStream         bIn     = null;
-        BZip2CompressorOutputStream bzOut   = null;
+        BufferedInputStream bIn   = null;
+        OutputStream        fOut  = null;
+        OutputStream        bzOut = null;
+        boolean             done  = false;
         
         try {
             // Create the input stream
@@ -67,15 +72,30 @@ public class BZip2Archiver
                     new FileInputStream(inputFile));
             
             // Create the output stream
-            bzOut = new BZip2CompressorOutputStream(
-                    new FileOutputStream(outputFile));
+            fOut  = new FileOutputStream(outputFile);
+            bzOut = getCompressorOutputStream(
+                    new BufferedOutputStream(
+                            getDigestOutputStream(fOut), 
+                            BUFFER_SIZE));
             
             // Pipe the input stream to the output stream
             compress(bIn, bzOut);
+            
+            // Closing the stream finishes it, which is where the parallel 
+            // compressor reports the failure of a block worker, so it is 
+            // not treated as cleanup.
+            bzOut.close();
+            done = true;
         }
         finally {
-            if (bzOut != null) {
-                try { bzOut.close(); } catch (Exception e) {}
+            if (!done) {
+                // The original exception is propagating, the partial 
+                // output file is discarded.
+                OutputStream out = (bzOut != null) ? bzOut : fOut;
+                if (out != null) {
+                    try { out.close(); } catch (Exception e) {}
+                }
+                outputFile.delete();
             }
             if (bIn != null) {
                 try { bIn.close(); } catch (Exception e) {}
@@ -180,30 +200,33 @@ public class BZip2Archiver
     @Override
     public void bundle(List<FileEntry> files, String outputFile) 
             throws ArchiveException, IOException {
+        super.bundle(files, outputFile, this._type);
+    }
     
-        String method  = "bundle() - ";
-        String tarName = null;
-        File   tarFile = null;
-        
-        LOGGER.info(method + "Creating intermediate TAR file.");
-        super.bundle(files, outputFile);
-        
-        tarName = super.getArchiveName();
-        tarFile = new File(tarName);
-        
-        if (tarFile.exists()) {
-            LOGGER.info(method 
-                    + "Intermediate TAR file created successfully.  File "
-                    + "created [ " 
-                    + tarFile.getAbsolutePath()
-                    + " ].  Creating output BZip2 file.");
-            compress(tarFile, this._type);
-        }
-        else {
-            LOGGER.error(method 
-                    + "The intermediate TAR file could not be created.  "
-                    + "Unable to construct the output BZip2 file.");
+    /**
+     * Wrap the input stream in a BZip2 compressor.  If more than one 
+     * compression worker is configured for this host the block-parallel 
+     * compressor is used, otherwise the standard single-threaded 
+     * BZip2CompressorOutputStream is used.
+     * 
+     * @param out The stream to which the compressed data will be written.
+     * @return The BZip2 compressor output stream.
+     */
+    @Override
+    protected OutputStream getCompressorOutputStream(OutputStream out) 
+            throws IOException {
+        ArchiverSettings settings = ArchiverSettings.getInstance();
+        if (settings.getCompressionWorkers() > 1) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Using parallel BZip2 compression with [ "
+                        + settings.getCompressionWorkers()
+                        + " ] workers.");
+            }
+            return new ParallelBZip2OutputStream(
+                    out, 
+                    SharedExecutors.getInstance().getCompressionExecutor(), 
+                    settings.getCompressionWorkers());
         }
-        
+        return new BZip2CompressorOutputStream(out);
     }
 }
@@ -0,0 +1,210 @@
+package mil.nga.bundler.archive;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+
+/**
+ * Minimal TAR writer that transfers the file contents with
+ * <code>FileChannel.transferTo</code>.  Only the 512-byte entry headers, the
+ * record padding and the end-of-archive records are written from the JVM.
+ * The bulk file data is copied by the kernel (sendfile/copy_file_range on
+ * Linux) and never enters the Java heap.
+ *
+ * The output is byte-for-byte identical to the output of the
+ * commons-compress <code>TarArchiveOutputStream</code> using its default
+ * settings (i.e. 10240 byte blocks, no long file name or big number
+ * support).
+ *
+ * This class can only be used to write plain (uncompressed) TAR files as
+ * compression requires the data to pass through the JVM.
+ */
+public class ChannelTarWriter implements Closeable {
+
+    /**
+     * Size of a single TAR record.
+     */
+    private static final int RECORD_SIZE = 512;
+
+    /**
+     * The output archive is padded to a multiple of this size.
+     */
+    private static final int BLOCK_SIZE = 20 * RECORD_SIZE;
+
+    /**
+     * Maximum number of bytes handed to a single transferTo call.  Some
+     * platforms limit the amount of data transferred in a single call
+     * so large files are transferred in chunks.
+     */
+    private static final long MAX_TRANSFER_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Stream associated with the output archive file.
+     */
+    private final FileOutputStream outStream;
+
+    /**
+     * Channel associated with the output archive file.
+     */
+    private final FileChannel out;
+
+    /**
+     * Reusable buffer used for headers and padding.
+     */
+    private final byte[] record = new byte[RECORD_SIZE];
+
+    /**
+     * Total number of bytes written to the archive.
+     */
+    private long bytesWritten = 0L;
+
+    /**
+     * Set once the end-of-archive records have been written.
+     */
+    private boolean finished = false;
+
+    /**
+     * Constructor opening the target output file.
+     *
+     * @param outputFile The output TAR file.
+     * @throws IOException Thrown if the output file cannot be opened.
+     */
+    public ChannelTarWriter(File outputFile) throws IOException {
+        outStream = new FileOutputStream(outputFile);
+        out       = outStream.getChannel();
+    }
+
+    /**
+     * Add a single file to the archive.  The entry header is written, then
+     * the file contents are transferred directly from the source file
+     * channel to the output file channel.
+     *
+     * @param entry The TAR entry describing the file.
+     * @param file The file to add.
+     * @throws IOException Thrown if the entry cannot be written or if the
+     * size of the file does not match the size in the entry header.
+     */
+    public void putFile(TarArchiveEntry entry, File file) throws IOException {
+
+        if (finished) {
+            throw new IOException("Archive has already been finished.");
+        }
+        if (entry.getName().length() >= TarConstants.NAMELEN) {
+            throw new IOException("File name [ "
+                    + entry.getName()
+                    + " ] is too long ( > "
+                    + TarConstants.NAMELEN
+                    + " bytes).");
+        }
+
+        Arrays.fill(record, (byte)0);
+        entry.writeEntryHeader(record);
+        writeRecord(record, RECORD_SIZE);
+
+        long size = entry.getSize();
+        if (size > 0) {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel src      = in.getChannel();
+                long        position = 0L;
+                while (position < size) {
+                    long count = src.transferTo(
+                            position,
+                            Math.min(size - position, MAX_TRANSFER_SIZE),
+                            out);
+                    if (count <= 0) {
+                        throw new IOException("File [ "
+                                + file.getAbsolutePath()
+                                + " ] was truncated while being archived.  "
+                                + "Expected [ "
+                                + size
+                                + " ] bytes, transferred [ "
+                                + position
+                                + " ] bytes.");
+                    }
+                    position += count;
+                }
+            }
+            finally {
+                in.close();
+            }
+            bytesWritten += size;
+
+            int remainder = (int)(size % RECORD_SIZE);
+            if (remainder > 0) {
+                Arrays.fill(record, (byte)0);
+                writeRecord(record, RECORD_SIZE - remainder);
+            }
+        }
+    }
+
+    /**
+     * Write the two end-of-archive records and pad the archive to a full
+     * block.  The output file is not closed.
+     *
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            Arrays.fill(record, (byte)0);
+            writeRecord(record, RECORD_SIZE);
+            writeRecord(record, RECORD_SIZE);
+            int remainder = (int)(bytesWritten % BLOCK_SIZE);
+            if (remainder > 0) {
+                int padding = BLOCK_SIZE - remainder;
+                while (padding > 0) {
+                    int n = Math.min(padding, RECORD_SIZE);
+                    writeRecord(record, n);
+                    padding -= n;
+                }
+            }
+            finished = true;
+        }
+    }
+
+    /**
+     * Finish the archive and close the output file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        }
+        finally {
+            outStream.close();
+        }
+    }
+
+    /**
+     * Getter method for the total number of bytes written to the archive.
+     *
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Write the first <code>len</code> bytes of the buffer to the output
+     * channel.
+     *
+     * @param data The data to write.
+     * @param len The number of bytes to write.
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    private void writeRecord(byte[] data, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, len);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        bytesWritten += len;
+    }
+}
@@ -0,0 +1,351 @@
+package mil.nga.bundler.archive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class used to decide whether a file is worth compressing when it is added
+ * to a ZIP archive.  Most of the data we bundle (JPEG2000, NITF with
+ * compressed imagery, nested ZIPs, etc.) is already compressed so deflating
+ * it burns CPU for almost no reduction in size.  A file is considered to be
+ * already compressed if:
+ * <ul>
+ * <li>its extension identifies a known compressed format,</li>
+ * <li>its leading bytes match the magic number of a known compressed
+ * format,</li>
+ * <li>it is a NITF 2.1 (or NSIF 1.0) file and most of it is made up of 
+ * image segments whose image compression (IC) field identifies a 
+ * compressed format, or</li>
+ * <li>a fast deflate of the first few KB of the file does not achieve a
+ * meaningful reduction in size.</li>
+ * </ul>
+ * 
+ * NITF files are checked separately because the text file and image 
+ * subheaders fill the leading bytes, so the sample of a NITF wrapping 
+ * JPEG2000 imagery deflates well even though the rest of the file does 
+ * not.
+ */
+public class CompressionClassifier {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            CompressionClassifier.class);
+
+    /**
+     * Number of bytes sampled from the start of each file.
+     */
+    public static final int SAMPLE_SIZE = 16 * 1024;
+
+    /**
+     * Files whose sample does not deflate to less than this fraction of
+     * its original size are stored rather than deflated.
+     */
+    public static final double STORE_RATIO = 0.95;
+
+    /**
+     * Files smaller than this are always deflated (the decision makes no
+     * measurable difference).
+     */
+    private static final int MIN_CLASSIFY_SIZE = 1024;
+
+    /**
+     * Extensions of formats that are already compressed.
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS =
+            new HashSet<String>(Arrays.asList(
+                    "7z", "bz2", "docx", "gif", "gz", "j2k", "jar", "jp2",
+                    "jpeg", "jpg", "jpx", "mov", "mp3", "mp4", "mpeg",
+                    "mpg", "png", "pptx", "rar", "tbz", "tgz", "xlsx",
+                    "xz", "zip"));
+
+    /**
+     * Magic numbers of formats that are already compressed.
+     */
+    private static final byte[][] COMPRESSED_MAGIC = new byte[][] {
+        { (byte)0xff, (byte)0xd8, (byte)0xff },                 // JPEG
+        { 0x00, 0x00, 0x00, 0x0c, 0x6a, 0x50, 0x20, 0x20 },     // JPEG2000
+        { (byte)0xff, 0x4f, (byte)0xff, 0x51 },                 // J2K stream
+        { (byte)0x89, 0x50, 0x4e, 0x47 },                       // PNG
+        { 0x47, 0x49, 0x46, 0x38 },                             // GIF
+        { 0x50, 0x4b, 0x03, 0x04 },                             // ZIP
+        { 0x1f, (byte)0x8b },                                   // GZIP
+        { 0x42, 0x5a, 0x68 },                                   // BZip2
+        { (byte)0xfd, 0x37, 0x7a, 0x58, 0x5a, 0x00 },           // XZ
+        { 0x37, 0x7a, (byte)0xbc, (byte)0xaf, 0x27, 0x1c },     // 7-Zip
+        { 0x52, 0x61, 0x72, 0x21 }                              // RAR
+    };
+
+    /**
+     * Character set of the NITF header fields.
+     */
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * File header (FHDR and FVER) of the NITF versions that are parsed.  
+     * NSIF 1.0 uses the same layout as NITF 2.1.
+     */
+    private static final String[] NITF_VERSIONS = new String[] {
+        "NITF02.10", "NSIF01.00"
+    };
+
+    /**
+     * Offsets of the fixed-position NITF 2.1 file header fields: the header
+     * length (HL), the number of image segments (NUMI) and the first 
+     * image segment's subheader and data lengths (LISH001, LI001).
+     */
+    private static final int NITF_HL_OFFSET   = 354;
+    private static final int NITF_NUMI_OFFSET = 360;
+    private static final int NITF_LISH_OFFSET = 363;
+
+    /**
+     * Offset of the image coordinate representation (ICORDS) field in a 
+     * NITF 2.1 image subheader.  It is followed by the optional 60-byte 
+     * IGEOLO field, the number of comments (NICOM), NICOM 80-byte 
+     * comments and the image compression (IC) field.
+     */
+    private static final int NITF_ICORDS_OFFSET = 371;
+
+    /**
+     * Image compression (IC) codes for uncompressed NITF images.
+     */
+    private static final Set<String> NITF_UNCOMPRESSED =
+            new HashSet<String>(Arrays.asList("NC", "NM"));
+
+    /**
+     * Determine whether the target file should be STORED (i.e. it is
+     * already compressed) rather than DEFLATED.  Any problem reading the
+     * file results in the file being deflated as before.
+     *
+     * @param file The file to classify.
+     * @return True if the file should be stored without compression.
+     */
+    public boolean shouldStore(File file) {
+
+        long length = file.length();
+        if (length < MIN_CLASSIFY_SIZE) {
+            return false;
+        }
+        if (COMPRESSED_EXTENSIONS.contains(getExtension(file.getName()))) {
+            return true;
+        }
+
+        byte[] sample = new byte[(int)Math.min(length, SAMPLE_SIZE)];
+        int    count  = 0;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int n = 0;
+            while ((count < sample.length)
+                    && ((n = in.read(sample, count, sample.length - count))
+                            != -1)) {
+                count += n;
+            }
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unable to sample file [ "
+                    + file.getAbsolutePath()
+                    + " ].  File will be deflated.  Error message [ "
+                    + ioe.getMessage()
+                    + " ].");
+            return false;
+        }
+        finally {
+            if (in != null) {
+                try { in.close(); } catch (Exception e) {}
+            }
+        }
+        if (isNitf(sample, count)) {
+            Boolean compressed = isCompressedNitf(file);
+            if (compressed != null) {
+                return compressed.booleanValue();
+            }
+        }
+        return hasCompressedMagic(sample, count)
+                || isIncompressible(sample, count);
+    }
+
+    /**
+     * Check whether the sample starts with the header of a NITF version 
+     * that can be parsed.
+     *
+     * @param sample The leading bytes of the file.
+     * @param count The number of valid bytes in the sample.
+     * @return True if the file is a NITF 2.1 or NSIF 1.0 file.
+     */
+    private static boolean isNitf(byte[] sample, int count) {
+        for (String version : NITF_VERSIONS) {
+            if ((count >= version.length()) && version.equals(
+                    new String(sample, 0, version.length(), ASCII))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walk the image segments of a NITF file and determine whether most of
+     * the file is made up of compressed imagery.
+     *
+     * @param file The NITF file.
+     * @return True if the compressed image segments make up more than half
+     * of the file, false if they do not, or null if the header could not 
+     * be parsed (in which case the file is classified by sampling).
+     */
+    private static Boolean isCompressedNitf(File file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            int  numi       = Integer.parseInt(
+                    readField(raf, NITF_NUMI_OFFSET, 3));
+            long offset     = Long.parseLong(
+                    readField(raf, NITF_HL_OFFSET, 6));
+            long compressed = 0L;
+            for (int i = 0; i < numi; i++) {
+                int  lish = Integer.parseInt(readField(
+                        raf, NITF_LISH_OFFSET + (i * 16), 6));
+                long li   = Long.parseLong(readField(
+                        raf, NITF_LISH_OFFSET + (i * 16) + 6, 10));
+                if (!NITF_UNCOMPRESSED.contains(
+                        getImageCompression(raf, offset))) {
+                    compressed += li;
+                }
+                offset += lish + li;
+            }
+            return Boolean.valueOf(compressed > (file.length() / 2));
+        }
+        catch (IOException ioe) {
+            LOGGER.debug("Unable to parse NITF header of file [ "
+                    + file.getAbsolutePath()
+                    + " ].  Error message [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.debug("Invalid NITF header in file [ "
+                    + file.getAbsolutePath()
+                    + " ].  Error message [ "
+                    + nfe.getMessage()
+                    + " ].");
+        }
+        finally {
+            if (raf != null) {
+                try { raf.close(); } catch (Exception e) {}
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the image compression (IC) field of a NITF 2.1 image subheader.
+     *
+     * @param raf The NITF file.
+     * @param subheader Offset of the image subheader.
+     * @return The image compression code.
+     * @throws IOException Thrown if the subheader cannot be read.
+     */
+    private static String getImageCompression(
+            RandomAccessFile raf, 
+            long subheader) throws IOException {
+        boolean igeolo   = !readField(
+                raf, subheader + NITF_ICORDS_OFFSET, 1).isEmpty();
+        long    position = subheader + NITF_ICORDS_OFFSET + 1 
+                + (igeolo ? 60 : 0);
+        int nicom = Integer.parseInt(readField(raf, position, 1));
+        return readField(raf, position + 1 + (nicom * 80), 2);
+    }
+
+    /**
+     * Read a fixed-length ASCII field.
+     *
+     * @param raf The file.
+     * @param offset Offset of the field.
+     * @param length Length of the field.
+     * @return The trimmed field value.
+     * @throws IOException Thrown if the field cannot be read.
+     */
+    private static String readField(
+            RandomAccessFile raf, 
+            long offset, 
+            int length) throws IOException {
+        byte[] field = new byte[length];
+        raf.seek(offset);
+        raf.readFully(field);
+        return new String(field, ASCII).trim();
+    }
+
+    /**
+     * Extract the (lower case) extension from a file name.
+     *
+     * @param name The file name.
+     * @return The extension, or an empty String if there isn't one.
+     */
+    private static String getExtension(String name) {
+        int index = name.lastIndexOf('.');
+        if ((index < 0) || (index == name.length() - 1)) {
+            return "";
+        }
+        return name.substring(index + 1).toLowerCase(Locale.US);
+    }
+
+    /**
+     * Check the leading bytes of the sample against the magic numbers of
+     * known compressed formats.
+     *
+     * @param sample The leading bytes of the file.
+     * @param count The number of valid bytes in the sample.
+     * @return True if the sample matches a known compressed format.
+     */
+    private static boolean hasCompressedMagic(byte[] sample, int count) {
+        for (byte[] magic : COMPRESSED_MAGIC) {
+            if (count >= magic.length) {
+                boolean match = true;
+                for (int i = 0; (i < magic.length) && match; i++) {
+                    match = (sample[i] == magic[i]);
+                }
+                if (match) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deflate the sample at the fastest compression level and check
+     * whether the result is meaningfully smaller than the input.
+     *
+     * @param sample The leading bytes of the file.
+     * @param count The number of valid bytes in the sample.
+     * @return True if the sample does not compress.
+     */
+    private static boolean isIncompressible(byte[] sample, int count) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            byte[] buffer     = new byte[count + 64];
+            long   compressed = 0L;
+            deflater.setInput(sample, 0, count);
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            return compressed >= (count * STORE_RATIO);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package mil.nga.bundler.archive;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.List;
 
+import mil.nga.bundler.exceptions.ArchiveException;
+import mil.nga.bundler.model.FileEntry;
 import mil.nga.bundler.types.ArchiveType;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.utils.CountingOutputStream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Abstract class containing the logic shared by the TAR-based compressors 
+ * (GZip and BZip2).  The TAR entries are streamed directly into the 
+ * compressor output stream so each byte of source data is read once and
+ * written once.  The two-pass behavior (build an intermediate TAR file, 
+ * then compress it) is only used by the deprecated directory and 
+ * String-list bundle methods.
+ */
 public abstract class Compressor extends TarArchiver {
 
     /**
@@ -23,11 +39,140 @@ public abstract class Compressor extends TarArchiver {
      */
     protected static final int BUFFER_SIZE = 8192;
     
+    /**
+     * The number of uncompressed TAR bytes that were streamed directly into
+     * the compressor during the last bundle operation.  This is the size of 
+     * the intermediate TAR file that did not have to be written (and then 
+     * read back in).
+     */
+    private long _bytesSaved = 0L;
+    
     /**
      * Default constructor
      */
     public Compressor() { }
     
+    /**
+     * Getter method for the number of intermediate TAR bytes that were not 
+     * written to (and re-read from) disk during the last streaming bundle 
+     * operation.
+     * 
+     * @return The size of the intermediate TAR data that was avoided.
+     */
+    public long getBytesSaved() {
+        return _bytesSaved;
+    }
+    
+    /**
+     * Bundle each file in the input list into a single compressed TAR 
+     * archive.  The TAR output stream writes directly into the compressor 
+     * output stream.
+     * 
+     * @param files List of files to be added to the archive.
+     * @param outputFile Full path of the output archive file (may or may not
+     * include the extension)
+     * @param type The compressed archive type to create.
+     * @throws ArchiveException Raised if the input file list is empty.
+     * @throws IOException Raised if there are issues constructing the output
+     * archive.
+     */
+    protected void bundle(
+            List<FileEntry> files, 
+            String          outputFile, 
+            ArchiveType     type) throws ArchiveException, IOException {
+        
+        String                 method = "bundle() - ";
+        TarArchiveOutputStream taos   = null;
+        CountingOutputStream   counter = null;
+        
+        _bytesSaved = 0L;
+        
+        if ((files == null) || (files.size() == 0)) {
+            String msg = "No files were identified for archiving.  "
+                + "The output archive file will not be created.";
+            LOGGER.error(method + msg);
+            throw new ArchiveException(msg);
+        }
+        
+        long         startTime = System.currentTimeMillis();
+        IOException  failure   = null;
+        OutputStream out       = null;
+        
+        // Get the actual name of the archive file            
+        setArchiveName(outputFile, type.getText());
+        out = new FileOutputStream(getArchiveName());
+        
+        try {
+            
+            // Create the output stream zoo.  The counting stream sits 
+            // between the TAR and compressor streams so that it records the 
+            // uncompressed size of the TAR data.
+            counter = new CountingOutputStream(
+                    getCompressorOutputStream(
+                        new BufferedOutputStream(
+                            getDigestOutputStream(out),
+                            BUFFER_SIZE)));
+            out  = counter;
+            taos = new TarArchiveOutputStream(counter);
+            out  = taos;
+            
+            addFiles(taos, files);
+            
+            // The parallel compressors report the failure of a block 
+            // worker from finish(), so it must not be treated as cleanup.
+            taos.finish();
+        }
+        catch (IOException ioe) {
+            failure = ioe;
+        }
+        finally {
+            // Closes every stream in the chain created so far (or the 
+            // file stream if the compressor stream could not be created).
+            try {
+                out.close();
+            }
+            catch (IOException ioe) { 
+                if (failure == null) {
+                    failure = ioe;
+                }
+                else {
+                    failure.addSuppressed(ioe);
+                }
+            }
+        }
+        
+        if (failure != null) {
+            LOGGER.error(method 
+                    + "Unable to create compressed archive [ "
+                    + getArchiveName()
+                    + " ].  The partial output file will be deleted.", 
+                    failure);
+            new File(getArchiveName()).delete();
+            throw failure;
+        }
+        
+        _bytesSaved = counter.getBytesWritten();
+        LOGGER.info(method 
+                + "Compressed archive [ "
+                + getArchiveName()
+                + " ] created in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.  Streaming avoided writing and re-reading [ "
+                + _bytesSaved
+                + " ] bytes of intermediate TAR data.");
+    }
+    
+    /**
+     * Wrap the input output stream in the compressor output stream 
+     * associated with the concrete subclass.
+     * 
+     * @param out The stream to which the compressed data will be written.
+     * @return The compressor output stream.
+     * @throws IOException Thrown if the compressor stream cannot be created.
+     */
+    protected abstract OutputStream getCompressorOutputStream(OutputStream out)
+            throws IOException;
+    
     /**
      * This method takes an InputStream and pipes it through a compressor 
      * algorithm.  The specific algorithm used is determined by subclasses.
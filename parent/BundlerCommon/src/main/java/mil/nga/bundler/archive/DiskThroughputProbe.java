@@ -0,0 +1,200 @@
+package mil.nga.bundler.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simple probe used to decide how many I/O-heavy archive jobs a host can
+ * run concurrently.  The probe writes (and syncs) a fixed amount of data
+ * to the target directory using 1, 2, 4, ... concurrent streams and
+ * records the aggregate throughput of each run.  The recommended
+ * concurrency is the point after which adding streams no longer improves
+ * the aggregate throughput by a meaningful amount.
+ */
+public class DiskThroughputProbe {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            DiskThroughputProbe.class);
+
+    /**
+     * Amount of data written by each stream.
+     */
+    public static final int DEFAULT_PROBE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Adding streams must improve the aggregate throughput by at least
+     * this fraction to be worthwhile.
+     */
+    private static final double MIN_IMPROVEMENT = 0.10;
+
+    /**
+     * Size of each write issued by the probe.
+     */
+    private static final int WRITE_SIZE = 1024 * 1024;
+
+    /**
+     * Directory in which the probe files are written.
+     */
+    private final File directory;
+
+    /**
+     * Factory used to create the probe threads.
+     */
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Amount of data written by each stream.
+     */
+    private final int probeSize;
+
+    /**
+     * Constructor.
+     *
+     * @param directory Directory in which the probe files are written.  This
+     * should be on the same file system as the output archives.
+     * @param threadFactory Factory used to create the probe threads.
+     * @param probeSize Amount of data (in bytes) written by each stream.
+     */
+    public DiskThroughputProbe(
+            File          directory,
+            ThreadFactory threadFactory,
+            int           probeSize) {
+        this.directory     = directory;
+        this.threadFactory = threadFactory;
+        this.probeSize     = probeSize;
+    }
+
+    /**
+     * Determine the recommended number of concurrent I/O streams.
+     *
+     * @param maxStreams Upper bound on the value returned.
+     * @return The recommended number of concurrent streams (at least 1).
+     * @throws IOException Thrown if the probe files cannot be written.
+     */
+    public int recommendStreams(int maxStreams) throws IOException {
+
+        int    best           = 1;
+        double bestThroughput = measure(1);
+
+        for (int streams = 2; streams <= maxStreams; streams *= 2) {
+            double throughput = measure(streams);
+            if (throughput < bestThroughput * (1.0 + MIN_IMPROVEMENT)) {
+                break;
+            }
+            best           = streams;
+            bestThroughput = throughput;
+        }
+        LOGGER.info("Disk throughput probe of [ "
+                + directory.getAbsolutePath()
+                + " ] recommends [ "
+                + best
+                + " ] concurrent streams (aggregate throughput [ "
+                + String.format("%.1f", bestThroughput)
+                + " ] MB/s).");
+        return best;
+    }
+
+    /**
+     * Measure the aggregate write throughput achieved by the given number of
+     * concurrent streams.
+     *
+     * @param streams The number of concurrent streams.
+     * @return The aggregate throughput in MB/s.
+     * @throws IOException Thrown if the probe files cannot be written.
+     */
+    public double measure(int streams) throws IOException {
+
+        List<ProbeWriter> writers = new ArrayList<ProbeWriter>();
+        List<Thread>      threads = new ArrayList<Thread>();
+        for (int i = 0; i < streams; i++) {
+            ProbeWriter writer = new ProbeWriter(
+                    File.createTempFile("bundler-probe-", ".tmp", directory),
+                    probeSize);
+            writers.add(writer);
+            threads.add(threadFactory.newThread(writer));
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while probing disk "
+                    + "throughput.", ie);
+        }
+        long elapsed = Math.max(System.nanoTime() - start, 1L);
+
+        for (ProbeWriter writer : writers) {
+            if (writer.error != null) {
+                throw writer.error;
+            }
+        }
+        double mb = ((double)streams * probeSize) / (1024.0 * 1024.0);
+        return mb / (elapsed / 1e9);
+    }
+
+    /**
+     * Task writing and syncing a single probe file.  The file is always
+     * deleted.
+     */
+    private static class ProbeWriter implements Runnable {
+
+        private final File  file;
+        private final int   size;
+        private IOException error = null;
+
+        ProbeWriter(File file, int size) {
+            this.file = file;
+            this.size = size;
+        }
+
+        @Override
+        public void run() {
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel();
+                ByteBuffer  buffer  = ByteBuffer.allocateDirect(WRITE_SIZE);
+                for (int i = 0; i < WRITE_SIZE; i++) {
+                    buffer.put((byte)i);
+                }
+                int written = 0;
+                while (written < size) {
+                    buffer.clear();
+                    buffer.limit(Math.min(WRITE_SIZE, size - written));
+                    while (buffer.hasRemaining()) {
+                        written += channel.write(buffer);
+                    }
+                }
+                channel.force(true);
+            }
+            catch (IOException ioe) {
+                error = ioe;
+            }
+            finally {
+                if (raf != null) {
+                    try { raf.close(); } catch (Exception e) {}
+                }
+                file.delete();
+            }
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package mil.nga.bundler.archive;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
+import mil.nga.bundler.SharedExecutors;
 import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.exceptions.ArchiveException;
@@ -56,8 +59,10 @@ public class GZipArchiver extends Compressor implements BundlerI {
     public void compress(File inputFile, File outputFile) 
             throws IOException {
         
-        BufferedInputStream        bIn     = null;
-        GzipCompressorOutputStream gzOut   = null;
+        BufferedInputStream bIn   = null;
+        OutputStream        fOut  = null;
+        OutputStream        gzOut = null;
+        boolean             done  = false;
         
         try {
             // Create the input stream
@@ -65,15 +70,30 @@ public class GZipArchiver extends Compressor implements BundlerI {
                     new FileInputStream(inputFile));
             
             // Create the output stream
-            gzOut = new GzipCompressorOutputStream(
-                    new FileOutputStream(outputFile));
+            fOut  = new FileOutputStream(outputFile);
+            gzOut = getCompressorOutputStream(
+                    new BufferedOutputStream(
+                            getDigestOutputStream(fOut), 
+                            BUFFER_SIZE));
             
             // Pipe the input stream to the output stream
             compress(bIn, gzOut);
+            
+            // Closing the stream finishes it, which is where the parallel 
+            // compressor reports the failure of a block worker, so it is 
+            // not treated as cleanup.
+            gzOut.close();
+            done = true;
         }
         finally {
-            if (gzOut != null) {
-                try { gzOut.close(); } catch (Exception e) {}
+            if (!done) {
+                // The original exception is propagating, the partial 
+                // output file is discarded.
+                OutputStream out = (gzOut != null) ? gzOut : fOut;
+                if (out != null) {
+                    try { out.close(); } catch (Exception e) {}
+                }
+                outputFile.delete();
             }
             if (bIn != null) {
                 try { bIn.close(); } catch (Exception e) {}
@@ -164,33 +184,49 @@ public class GZipArchiver extends Compressor implements BundlerI {
         }
     }
     
+    /**
+     * Bundle each file in the input list.  The files will be written to a 
+     * TAR stream that feeds directly into the GZIP compressor.
+     * 
+     * @param files List of files to be added to the archive.
+     * @param outputFile Full path of the output archive file (may or may not
+     * include the extension)
+     * @throws IOException Raised if there are issues constructing the output
+     * archive.
+     */
     @Override
     public void bundle(List<FileEntry> files, String outputFile) 
             throws ArchiveException, IOException {
-        
-        String method  = "bundle() - ";
-        String tarName = null;
-        File   tarFile = null;
-
-        LOGGER.info(method + "Creating intermediate TAR file.");
-        super.bundle(files, outputFile);
-        
-        tarName = super.getArchiveName();
-        tarFile = new File(tarName);
-        
-        if (tarFile.exists()) {
-            LOGGER.info(method 
-                    + "Intermediate TAR file created successfully.  File "
-                    + "created [  " 
-                    + tarFile.getAbsolutePath()
-                    + " ].  Creating output GZip file.");
-            compress(tarFile, this._type);
-        }
-        else {
-            LOGGER.error(method 
-                    + "The intermediate TAR file could not be created.  "
-                    + "Unable to construct the output GZip file.");
-        }
+        super.bundle(files, outputFile, this._type);
     }
     
+    /**
+     * Wrap the input stream in a GZIP compressor.  If more than one 
+     * compression worker is configured for this host, the block-parallel
+     * compressor is used.  Otherwise, the single-threaded 
+     * GzipCompressorOutputStream is used.
+     * 
+     * @param out The stream to which the compressed data will be written.
+     * @return The GZip compressor output stream.
+     */
+    @Override
+    protected OutputStream getCompressorOutputStream(OutputStream out) 
+            throws IOException {
+        ArchiverSettings settings = ArchiverSettings.getInstance();
+        if (settings.getCompressionWorkers() > 1) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Using parallel GZIP compression with [ "
+                        + settings.getCompressionWorkers()
+                        + " ] workers and block size [ "
+                        + settings.getCompressionBlockSize()
+                        + " ].");
+            }
+            return new ParallelGzipOutputStream(
+                    out, 
+                    SharedExecutors.getInstance().getCompressionExecutor(), 
+                    settings.getCompressionWorkers(), 
+                    settings.getCompressionBlockSize());
+        }
+        return new GzipCompressorOutputStream(out);
+    }
 }
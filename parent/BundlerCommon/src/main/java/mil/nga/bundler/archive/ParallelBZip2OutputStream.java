@@ -0,0 +1,517 @@
+package mil.nga.bundler.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+/**
+ * Block-parallel BZip2 output stream.  BZip2 already compresses its input
+ * in independent blocks (900K at the maximum block size) so the input is
+ * split into blocks that are compressed on a worker pool.  Each worker
+ * produces a complete single-block BZip2 stream.  This class then strips
+ * the per-stream header and trailer, splices the compressed block bits
+ * together in order and writes a single stream header and end-of-stream
+ * trailer (with the combined CRC).  The result is a single, standard BZip2
+ * stream that is indistinguishable (to bunzip2) from the output of the
+ * single-threaded compressor.
+ *
+ * The BZip2 initial run-length encoding stage may expand some inputs.  If
+ * a worker finds that its input did not fit into a single BZip2 block, the
+ * input is split in half and each half is compressed separately.
+ *
+ * The spliced bits are assembled in a byte array that is written to the
+ * underlying stream in large chunks rather than one byte at a time.
+ */
+public class ParallelBZip2OutputStream extends OutputStream {
+
+    /**
+     * BZip2 block size (in units of 100K) used for all blocks.
+     */
+    private static final int BLOCK_SIZE_100K =
+            BZip2CompressorOutputStream.MAX_BLOCKSIZE;
+
+    /**
+     * The amount of input data handed to each worker.  This is slightly
+     * less than the 900K block size to leave room for the run-length
+     * encoding stage on typical data.
+     */
+    public static final int DEFAULT_INPUT_BLOCK_SIZE =
+            (BLOCK_SIZE_100K * 100000) - 1000;
+
+    /**
+     * Magic number marking the start of a compressed block.
+     */
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+
+    /**
+     * Magic number marking the end of the stream.
+     */
+    private static final long EOS_MAGIC = 0x177245385090L;
+
+    /**
+     * Length (in bits) of the stream header ("BZh" plus the block size).
+     */
+    private static final int HEADER_BITS = 32;
+
+    /**
+     * Size of the buffer in which the spliced output is assembled.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The stream to which the compressed data is written.
+     */
+    private final OutputStream out;
+
+    /**
+     * Thread pool used to compress the blocks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Amount of input data handed to each worker.
+     */
+    private final int inputBlockSize;
+
+    /**
+     * Maximum number of blocks that may be in flight at any one time.
+     */
+    private final int maxPending;
+
+    /**
+     * Blocks that have been submitted but not yet written.  Blocks are
+     * written in submission order.
+     */
+    private final Deque<Future<List<Block>>> pending =
+            new ArrayDeque<Future<List<Block>>>();
+
+    /**
+     * Buffer holding the current (not yet submitted) block.
+     */
+    private byte[] buffer;
+
+    /**
+     * Number of bytes held in the current block.
+     */
+    private int count = 0;
+
+    /**
+     * Combined CRC of all blocks written so far.
+     */
+    private int combinedCRC = 0;
+
+    /**
+     * Bits waiting to be written to the output stream.
+     */
+    private long bitBuffer = 0L;
+
+    /**
+     * Number of valid bits in the bit buffer.
+     */
+    private int bitCount = 0;
+
+    /**
+     * Whole bytes waiting to be written to the output stream.
+     */
+    private final byte[] outBuffer = new byte[OUTPUT_BUFFER_SIZE];
+
+    /**
+     * Number of bytes held in the output buffer.
+     */
+    private int outCount = 0;
+
+    /**
+     * Set once the end-of-stream trailer has been written.
+     */
+    private boolean finished = false;
+
+    /**
+     * Constructor using the default input block size.
+     *
+     * @param out The stream to which the compressed data will be written.
+     * @param executor Thread pool used to compress the blocks.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of blocks in flight.
+     * @throws IOException Thrown if the stream header cannot be written.
+     */
+    public ParallelBZip2OutputStream(
+            OutputStream    out,
+            ExecutorService executor,
+            int             workers) throws IOException {
+        this(out, executor, workers, DEFAULT_INPUT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructor allowing clients to supply all parameters.
+     *
+     * @param out The stream to which the compressed data will be written.
+     * @param executor Thread pool used to compress the blocks.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of blocks in flight.
+     * @param inputBlockSize Amount of input data handed to each worker.
+     * Values larger than the BZip2 block size are reduced to
+     * <code>DEFAULT_INPUT_BLOCK_SIZE</code>.
+     * @throws IOException Thrown if the stream header cannot be written.
+     */
+    public ParallelBZip2OutputStream(
+            OutputStream    out,
+            ExecutorService executor,
+            int             workers,
+            int             inputBlockSize) throws IOException {
+        this.out            = out;
+        this.executor       = executor;
+        this.inputBlockSize = Math.max(1,
+                Math.min(inputBlockSize, DEFAULT_INPUT_BLOCK_SIZE));
+        this.maxPending     = Math.max(workers, 1) * 2;
+        this.buffer         = new byte[this.inputBlockSize];
+        writeBits(8, 'B');
+        writeBits(8, 'Z');
+        writeBits(8, 'h');
+        writeBits(8, '0' + BLOCK_SIZE_100K);
+    }
+
+    /**
+     * Write a single byte.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    /**
+     * Copy the input data into the current block, submitting blocks for
+     * compression as they fill up.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished.");
+        }
+        while (len > 0) {
+            int n = Math.min(len, inputBlockSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off   += n;
+            len   -= n;
+            if (count == inputBlockSize) {
+                submit();
+            }
+        }
+    }
+
+    /**
+     * Submit the current block to the thread pool, then write any
+     * compressed blocks necessary to keep the number of blocks in flight
+     * bounded.
+     *
+     * @throws IOException Thrown if a compressed block cannot be written.
+     */
+    private void submit() throws IOException {
+        if (count > 0) {
+            byte[] block = (count == buffer.length) ?
+                    buffer : Arrays.copyOf(buffer, count);
+            pending.add(executor.submit(new BlockCompressor(block)));
+            buffer = new byte[inputBlockSize];
+            count  = 0;
+        }
+        while (pending.size() >= maxPending) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Wait for the oldest in-flight block and splice it into the output
+     * stream.
+     *
+     * @throws IOException Thrown if the block could not be compressed or
+     * written.
+     */
+    private void writeNext() throws IOException {
+        Future<List<Block>> future = pending.poll();
+        try {
+            for (Block block : future.get()) {
+                copyBits(block.data, block.startBit, block.endBit);
+                combinedCRC = ((combinedCRC << 1) | (combinedCRC >>> 31))
+                        ^ block.crc;
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a "
+                    + "compressed block.", ie);
+        }
+        catch (ExecutionException ee) {
+            throw new IOException("Unexpected exception raised while "
+                    + "compressing a block.  Error message [ "
+                    + ee.getCause().getMessage()
+                    + " ].", ee.getCause());
+        }
+    }
+
+    /**
+     * Compress any remaining data, write all in-flight blocks and then
+     * write the end-of-stream trailer.  The underlying stream is not
+     * closed.
+     *
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            submit();
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writeBits(24, (int)(EOS_MAGIC >>> 24));
+            writeBits(24, (int)(EOS_MAGIC & 0xffffff));
+            writeBits(16, combinedCRC >>> 16);
+            writeBits(16, combinedCRC & 0xffff);
+            if (bitCount > 0) {
+                writeBits(8 - bitCount, 0);
+            }
+            flushOutput();
+            finished = true;
+        }
+    }
+
+    /**
+     * Finish the BZip2 stream and close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        }
+        finally {
+            for (Future<List<Block>> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+
+    /**
+     * Flush the underlying stream.  Data in the current block is not
+     * submitted and partial bytes are not written.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushOutput();
+        out.flush();
+    }
+
+    /**
+     * Write the whole bytes held in the output buffer to the underlying
+     * stream.
+     *
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    private void flushOutput() throws IOException {
+        if (outCount > 0) {
+            out.write(outBuffer, 0, outCount);
+            outCount = 0;
+        }
+    }
+
+    /**
+     * Append up to 24 bits to the output.
+     *
+     * @param n The number of bits to write.
+     * @param value The bits to write (right aligned).
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    private void writeBits(int n, int value) throws IOException {
+        bitBuffer = (bitBuffer << n) | (value & ((1L << n) - 1));
+        bitCount += n;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            if (outCount == outBuffer.length) {
+                flushOutput();
+            }
+            outBuffer[outCount++] = (byte)(bitBuffer >>> bitCount);
+        }
+    }
+
+    /**
+     * Append a range of bits from the source array to the output.
+     *
+     * @param src The source data.
+     * @param startBit The first bit to copy.
+     * @param endBit The bit following the last bit to copy.
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    private void copyBits(byte[] src, long startBit, long endBit)
+            throws IOException {
+        long bit = startBit;
+        while (endBit - bit >= 24) {
+            writeBits(24, readBits(src, bit, 24));
+            bit += 24;
+        }
+        if (endBit > bit) {
+            int n = (int)(endBit - bit);
+            writeBits(n, readBits(src, bit, n));
+        }
+    }
+
+    /**
+     * Read up to 24 bits from the source array starting at an arbitrary
+     * bit offset.
+     *
+     * @param src The source data.
+     * @param bit The offset of the first bit to read.
+     * @param n The number of bits to read.
+     * @return The bits read (right aligned).
+     */
+    private static int readBits(byte[] src, long bit, int n) {
+        int  index  = (int)(bit >>> 3);
+        int  offset = (int)(bit & 7);
+        long value  = 0L;
+        int  needed = (offset + n + 7) >>> 3;
+        for (int i = 0; i < needed; i++) {
+            value = (value << 8)
+                    | ((index + i < src.length) ? (src[index + i] & 0xff) : 0);
+        }
+        value >>>= (needed * 8) - offset - n;
+        return (int)(value & ((1L << n) - 1));
+    }
+
+    /**
+     * Read a value of up to 48 bits from the source array.
+     *
+     * @param src The source data.
+     * @param bit The offset of the first bit to read.
+     * @param n The number of bits to read.
+     * @return The bits read (right aligned).
+     */
+    private static long readLong(byte[] src, long bit, int n) {
+        long value = 0L;
+        while (n > 0) {
+            int chunk = Math.min(n, 24);
+            value = (value << chunk) | readBits(src, bit, chunk);
+            bit += chunk;
+            n   -= chunk;
+        }
+        return value;
+    }
+
+    /**
+     * Simple container holding the location of a single compressed block
+     * within a complete BZip2 stream.
+     */
+    private static class Block {
+
+        private final byte[] data;
+        private final long   startBit;
+        private final long   endBit;
+        private final int    crc;
+
+        Block(byte[] data, long startBit, long endBit, int crc) {
+            this.data     = data;
+            this.startBit = startBit;
+            this.endBit   = endBit;
+            this.crc      = crc;
+        }
+    }
+
+    /**
+     * Task compressing one input block into one or more compressed BZip2
+     * blocks.
+     */
+    private static class BlockCompressor implements Callable<List<Block>> {
+
+        private final byte[] input;
+
+        /**
+         * Constructor.
+         * @param input The uncompressed data.
+         */
+        BlockCompressor(byte[] input) {
+            this.input = input;
+        }
+
+        /**
+         * Compress the input.  If the input does not fit in a single BZip2
+         * block it is split in half and each half is compressed separately.
+         */
+        @Override
+        public List<Block> call() throws IOException {
+            List<Block> blocks = new ArrayList<Block>();
+            compress(input, 0, input.length, blocks);
+            return blocks;
+        }
+
+        /**
+         * Compress a range of the input into a complete BZip2 stream and
+         * locate the single compressed block within it.
+         *
+         * @param data The uncompressed data.
+         * @param off Start of the range to compress.
+         * @param len Length of the range to compress.
+         * @param blocks List to which the compressed block(s) are added.
+         * @throws IOException Thrown if the data cannot be compressed.
+         */
+        private void compress(byte[] data, int off, int len, List<Block> blocks)
+                throws IOException {
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(len / 2);
+            BZip2CompressorOutputStream bzOut =
+                    new BZip2CompressorOutputStream(baos, BLOCK_SIZE_100K);
+            bzOut.write(data, off, len);
+            bzOut.close();
+            byte[] stream = baos.toByteArray();
+
+            Block block = locateBlock(stream);
+            if (block != null) {
+                blocks.add(block);
+            }
+            else if (len > 1) {
+                int half = len / 2;
+                compress(data, off, half, blocks);
+                compress(data, off + half, len - half, blocks);
+            }
+            else {
+                throw new IOException("Unable to locate the compressed block "
+                        + "in the BZip2 stream.");
+            }
+        }
+
+        /**
+         * Locate the compressed block in a complete single-block BZip2
+         * stream.  The stream ends with the 48-bit end-of-stream magic
+         * number, the 32-bit combined CRC and up to seven bits of padding.
+         * For a single-block stream the combined CRC is equal to the block
+         * CRC (which immediately follows the block magic number).
+         *
+         * @param stream A complete BZip2 stream.
+         * @return The location of the compressed block, or null if the
+         * stream does not contain exactly one block.
+         */
+        private Block locateBlock(byte[] stream) {
+            long totalBits = (long)stream.length * 8;
+            if (readLong(stream, HEADER_BITS, 48) != BLOCK_MAGIC) {
+                return null;
+            }
+            int blockCRC = (int)readLong(stream, HEADER_BITS + 48, 32);
+            for (int pad = 0; pad < 8; pad++) {
+                long eos = totalBits - pad - 80;
+                if ((eos > HEADER_BITS)
+                        && (readLong(stream, eos, 48) == EOS_MAGIC)
+                        && ((int)readLong(stream, eos + 48, 32) == blockCRC)) {
+                    return new Block(stream, HEADER_BITS, eos, blockCRC);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package mil.nga.bundler.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Block-parallel GZIP output stream (similar in approach to pigz).  Input
+ * data is split into fixed-size blocks and each block is deflated
+ * independently on a worker thread.  Every block other than the last is
+ * terminated with a sync flush so that the compressed blocks can simply be
+ * concatenated into a single DEFLATE stream.  The last 32K of each block is
+ * handed to the following block as a preset dictionary so the compression
+ * ratio stays close to that of the single-threaded compressor.  The output
+ * is a single, standard GZIP member that any gunzip implementation can read.
+ *
+ * The CRC and the ordering of the compressed blocks are handled on the
+ * calling thread.  The number of blocks in flight is bounded so memory use
+ * is roughly (2 x workers x block size).
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * The size of the DEFLATE sliding window.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * GZIP header: magic number, DEFLATE method, no flags, zero modification
+     * time, no extra flags, OS unknown.
+     */
+    private static final byte[] GZIP_HEADER = new byte[] {
+        (byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff
+    };
+
+    /**
+     * The stream to which the compressed data is written.
+     */
+    private final OutputStream out;
+
+    /**
+     * Thread pool used to compress the blocks.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Size of each input block.
+     */
+    private final int blockSize;
+
+    /**
+     * Compression level handed to each Deflater.
+     */
+    private final int level;
+
+    /**
+     * Maximum number of blocks that may be in flight at any one time.
+     */
+    private final int maxPending;
+
+    /**
+     * Compressed blocks that have been submitted but not yet written.
+     * Blocks are written in submission order.
+     */
+    private final Deque<Future<byte[]>> pending =
+            new ArrayDeque<Future<byte[]>>();
+
+    /**
+     * CRC of the uncompressed data.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Buffer holding the current (not yet submitted) block.
+     */
+    private byte[] buffer;
+
+    /**
+     * Number of bytes held in the current block.
+     */
+    private int count = 0;
+
+    /**
+     * Trailing 32K of the previous block, used as the preset dictionary
+     * for the current block.
+     */
+    private byte[] dictionary = null;
+
+    /**
+     * Total number of uncompressed bytes written.
+     */
+    private long totalIn = 0L;
+
+    /**
+     * Set once the GZIP trailer has been written.
+     */
+    private boolean finished = false;
+
+    /**
+     * Constructor using the default compression level.
+     *
+     * @param out The stream to which the compressed data will be written.
+     * @param executor Thread pool used to compress the blocks.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of blocks in flight.
+     * @param blockSize Size of each input block in bytes.
+     * @throws IOException Thrown if the GZIP header cannot be written.
+     */
+    public ParallelGzipOutputStream(
+            OutputStream    out,
+            ExecutorService executor,
+            int             workers,
+            int             blockSize) throws IOException {
+        this(out, executor, workers, blockSize, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor allowing clients to supply all parameters.
+     *
+     * @param out The stream to which the compressed data will be written.
+     * @param executor Thread pool used to compress the blocks.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of blocks in flight.
+     * @param blockSize Size of each input block in bytes.
+     * @param level The DEFLATE compression level.
+     * @throws IOException Thrown if the GZIP header cannot be written.
+     */
+    public ParallelGzipOutputStream(
+            OutputStream    out,
+            ExecutorService executor,
+            int             workers,
+            int             blockSize,
+            int             level) throws IOException {
+        this.out        = out;
+        this.executor   = executor;
+        this.blockSize  = Math.max(blockSize, DICTIONARY_SIZE);
+        this.level      = level;
+        this.maxPending = Math.max(workers, 1) * 2;
+        this.buffer     = new byte[this.blockSize];
+        out.write(GZIP_HEADER);
+    }
+
+    /**
+     * Write a single byte.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    /**
+     * Copy the input data into the current block, submitting blocks for
+     * compression as they fill up.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished.");
+        }
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off   += n;
+            len   -= n;
+            if (count == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    /**
+     * Submit the current block to the thread pool, then write any
+     * compressed blocks necessary to keep the number of blocks in flight
+     * bounded.
+     *
+     * @param last True if this is the final block in the stream.
+     * @throws IOException Thrown if a compressed block cannot be written.
+     */
+    private void submit(boolean last) throws IOException {
+
+        byte[] block = (count == buffer.length) ?
+                buffer : Arrays.copyOf(buffer, count);
+        crc.update(block, 0, count);
+        totalIn += count;
+
+        pending.add(executor.submit(
+                new BlockCompressor(block, dictionary, level, last)));
+
+        if (count >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(
+                    block, count - DICTIONARY_SIZE, count);
+        }
+        else if (count > 0) {
+            dictionary = block;
+        }
+
+        // The submitted block now belongs to the worker.
+        buffer = new byte[blockSize];
+        count  = 0;
+
+        while (pending.size() >= maxPending) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Wait for the oldest in-flight block and write it to the output
+     * stream.
+     *
+     * @throws IOException Thrown if the block could not be compressed or
+     * written.
+     */
+    private void writeNext() throws IOException {
+        Future<byte[]> future = pending.poll();
+        try {
+            out.write(future.get());
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a "
+                    + "compressed block.", ie);
+        }
+        catch (ExecutionException ee) {
+            throw new IOException("Unexpected exception raised while "
+                    + "compressing a block.  Error message [ "
+                    + ee.getCause().getMessage()
+                    + " ].", ee.getCause());
+        }
+    }
+
+    /**
+     * Compress any remaining data, write all in-flight blocks and then
+     * write the GZIP trailer.  The underlying stream is not closed.
+     *
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writeInt((int)crc.getValue());
+            writeInt((int)(totalIn & 0xffffffffL));
+            finished = true;
+        }
+    }
+
+    /**
+     * Finish the GZIP stream and close the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        }
+        finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+            out.close();
+        }
+    }
+
+    /**
+     * Flush the underlying stream.  Data in the current block is not
+     * submitted.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Write an integer in little-endian byte order (as required by the GZIP
+     * trailer).
+     *
+     * @param value The value to write.
+     * @throws IOException Thrown if the value cannot be written.
+     */
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    /**
+     * Task compressing a single block into a raw DEFLATE fragment.
+     */
+    private static class BlockCompressor implements Callable<byte[]> {
+
+        private final byte[]  block;
+        private final byte[]  dictionary;
+        private final int     level;
+        private final boolean last;
+
+        /**
+         * Constructor.
+         *
+         * @param block The uncompressed block.
+         * @param dictionary Trailing data of the previous block (may be null).
+         * @param level The DEFLATE compression level.
+         * @param last True if this is the final block in the stream.
+         */
+        BlockCompressor(
+                byte[]  block,
+                byte[]  dictionary,
+                int     level,
+                boolean last) {
+            this.block      = block;
+            this.dictionary = dictionary;
+            this.level      = level;
+            this.last       = last;
+        }
+
+        /**
+         * Deflate the block.  Intermediate blocks are ended with a sync
+         * flush so they end on a byte boundary.  The last block is finished
+         * normally.
+         */
+        @Override
+        public byte[] call() {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                        (block.length / 2) + 64);
+                byte[] buf = new byte[8192];
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(block);
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int n = deflater.deflate(buf);
+                        baos.write(buf, 0, n);
+                    }
+                }
+                else {
+                    int n = 0;
+                    do {
+                        n = deflater.deflate(
+                                buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                        baos.write(buf, 0, n);
+                    } while (n == buf.length);
+                }
+                return baos.toByteArray();
+            }
+            finally {
+                deflater.end();
+            }
+        }
+    }
+}
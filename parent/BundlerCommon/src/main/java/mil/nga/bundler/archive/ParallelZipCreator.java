@@ -0,0 +1,903 @@
+package mil.nga.bundler.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipUtil;
+import org.apache.commons.compress.utils.CountingOutputStream;
+
+import mil.nga.bundler.interfaces.FileCompletionListenerI;
+
+/**
+ * Scatter/gather ZIP writer.  Each ZIP entry is compressed independently so
+ * the entries are deflated concurrently on a worker pool (the scatter
+ * step).  Each worker writes the compressed data to a backing store that is
+ * held in memory for small entries and spills to a temporary file for large
+ * entries.  The calling thread then writes the entries to the output archive
+ * in the order they were added (the gather step), followed by the central
+ * directory.  Entries are written with their sizes and CRC in the local file
+ * header (no data descriptors) and ZIP64 extensions are used when required.
+ * If a <code>CompressionClassifier</code> is supplied, files that are 
+ * already compressed are written as STORED entries.  The worker only 
+ * calculates the CRC of a STORED entry, the gather step then copies the 
+ * file straight into the archive rather than through a backing store.  If a 
+ * <code>FileCompletionListenerI</code> is supplied it is notified (on the
+ * calling thread) as each entry is written by the gather step.
+ *
+ * Once an entry fails to compress or write the creator is failed: no
+ * further entries are accepted, the central directory is not written and
+ * (if the creator opened the output file) the partial output file is 
+ * deleted when the creator is closed.  Entries still in flight at that 
+ * point are abandoned; a worker that is already running releases its own
+ * backing store when it completes.
+ *
+ * This provides the same behavior as the commons-compress
+ * ParallelScatterZipCreator, which is not available in the commons-compress
+ * release provided by the application server.
+ */
+public class ParallelZipCreator implements Closeable {
+
+    /**
+     * Compressed entries larger than this (in bytes) are spilled to a
+     * temporary file rather than being held in memory.
+     */
+    public static final int DEFAULT_MEMORY_THRESHOLD = 8 * 1024 * 1024;
+
+    /**
+     * ZIP record signatures.
+     */
+    private static final int LOCAL_HEADER_SIG       = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG     = 0x02014b50;
+    private static final int EOCD_SIG               = 0x06054b50;
+    private static final int ZIP64_EOCD_SIG         = 0x06064b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIG = 0x07064b50;
+
+    /**
+     * Header ID of the ZIP64 extended information extra field.
+     */
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    /**
+     * General purpose flag indicating the entry name is UTF-8 encoded.
+     */
+    private static final int UTF8_FLAG = 1 << 11;
+
+    /**
+     * Version needed to extract (2.0 for deflate, 4.5 for ZIP64).
+     */
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64   = 45;
+
+    /**
+     * Largest value that fits in the 16 and 32 bit ZIP fields.
+     */
+    private static final int  ZIP16_MAX = 0xffff;
+    private static final long ZIP32_MAX = 0xffffffffL;
+
+    /**
+     * Character set used to encode the entry names.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The output archive (counts the bytes written so the entry offsets are
+     * known).
+     */
+    private final CountingOutputStream out;
+
+    /**
+     * Thread pool used to compress the entries.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Maximum number of entries that may be in flight at any one time.
+     */
+    private final int maxPending;
+
+    /**
+     * Compressed entries larger than this are spilled to disk.
+     */
+    private final int memoryThreshold;
+
+    /**
+     * Directory in which the temporary files are created.
+     */
+    private final File tempDir;
+
+    /**
+     * Entries that have been submitted but not yet written.
+     */
+    private final Deque<EntryCompressor> pending =
+            new ArrayDeque<EntryCompressor>();
+
+    /**
+     * Central directory information for the entries already written.
+     */
+    private final List<ScatteredEntry> written =
+            new ArrayList<ScatteredEntry>();
+
+    /**
+     * Used to select STORED entries (may be null, in which case all entries
+     * are deflated).
+     */
+    private CompressionClassifier classifier = null;
+    
+    /**
+     * Number of uncompressed bytes written as DEFLATED entries.
+     */
+    private long bytesDeflated = 0L;
+    
+    /**
+     * Number of bytes written as STORED entries.
+     */
+    private long bytesStored = 0L;
+    
+    /**
+     * Notified as each entry is written (may be null).
+     */
+    private FileCompletionListenerI listener = null;
+    
+    /**
+     * The output file, if it was opened by this creator (deleted if the 
+     * archive fails).
+     */
+    private File outputFile = null;
+    
+    /**
+     * The first failure raised while compressing or writing the entries.
+     */
+    private IOException failure = null;
+    
+    /**
+     * Set once the central directory has been written.
+     */
+    private boolean finished = false;
+
+    /**
+     * Constructor using the default memory threshold.
+     *
+     * @param outputFile The output ZIP file.
+     * @param executor Thread pool used to compress the entries.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of entries in flight.
+     * @throws IOException Thrown if the output file cannot be opened.
+     */
+    public ParallelZipCreator(
+            File            outputFile,
+            ExecutorService executor,
+            int             workers) throws IOException {
+        this(outputFile, executor, workers, DEFAULT_MEMORY_THRESHOLD);
+    }
+
+    /**
+     * Constructor allowing clients to supply all parameters.  Temporary
+     * files are created in the same directory as the output file.
+     *
+     * @param outputFile The output ZIP file.
+     * @param executor Thread pool used to compress the entries.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of entries in flight.
+     * @param memoryThreshold Compressed entries larger than this (in bytes)
+     * are spilled to a temporary file.
+     * @throws IOException Thrown if the output file cannot be opened.
+     */
+    public ParallelZipCreator(
+            File            outputFile,
+            ExecutorService executor,
+            int             workers,
+            int             memoryThreshold) throws IOException {
+        this(new FileOutputStream(outputFile),
+                outputFile.getAbsoluteFile().getParentFile(),
+                executor,
+                workers,
+                memoryThreshold);
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Constructor writing the archive to an already open stream.  Allows
+     * clients to layer additional processing (e.g. a digest) below the
+     * internal buffering.  The stream is closed when the creator is closed.
+     *
+     * @param target The stream to which the archive is written.
+     * @param tempDir Directory in which large entries are spilled.  Should
+     * be on the same file system as the output archive.
+     * @param executor Thread pool used to compress the entries.
+     * @param workers Number of worker threads available in the pool.  Used
+     * to bound the number of entries in flight.
+     * @param memoryThreshold Compressed entries larger than this (in bytes)
+     * are spilled to a temporary file.
+     */
+    public ParallelZipCreator(
+            OutputStream    target,
+            File            tempDir,
+            ExecutorService executor,
+            int             workers,
+            int             memoryThreshold) {
+        this.out = new CountingOutputStream(
+                new BufferedOutputStream(target));
+        this.executor        = executor;
+        this.maxPending      = Math.max(workers, 1) * 2;
+        this.memoryThreshold = memoryThreshold;
+        this.tempDir         = tempDir;
+    }
+
+    /**
+     * Submit a file for compression.  Entries are written to the archive
+     * in the order in which they are added.
+     *
+     * @param entry The ZIP entry describing the file (supplies the entry
+     * name and modification time).
+     * @param file The file to add.
+     * @throws IOException Thrown if a previously submitted entry could not
+     * be compressed or written, or if the creator has already failed.
+     */
+    public void addArchiveEntry(ZipArchiveEntry entry, File file)
+            throws IOException {
+        checkState();
+        EntryCompressor task = new EntryCompressor(
+                entry.getName(),
+                entry.getTime(),
+                file,
+                classifier,
+                memoryThreshold,
+                tempDir);
+        try {
+            task.future = executor.submit(task);
+            pending.add(task);
+        }
+        catch (RejectedExecutionException ree) {
+            failure = new IOException("Unable to submit entry [ "
+                    + entry.getName()
+                    + " ] for compression.", ree);
+            throw failure;
+        }
+        while (pending.size() >= maxPending) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Getter method for the number of uncompressed bytes written as 
+     * DEFLATED entries.
+     * 
+     * @return The number of bytes deflated.
+     */
+    public long getBytesDeflated() {
+        return bytesDeflated;
+    }
+    
+    /**
+     * Getter method for the number of bytes written as STORED entries.
+     * 
+     * @return The number of bytes stored.
+     */
+    public long getBytesStored() {
+        return bytesStored;
+    }
+    
+    /**
+     * Setter method for the listener notified as each entry is written to
+     * the archive.  Must be called before entries are added.
+     * 
+     * @param value The listener (null for no notifications).
+     */
+    public void setListener(FileCompletionListenerI value) {
+        listener = value;
+    }
+    
+    /**
+     * Setter method for the classifier used to select STORED entries.  
+     * Must be called before entries are added.
+     * 
+     * @param value The classifier (null to deflate all entries).
+     */
+    public void setClassifier(CompressionClassifier value) {
+        classifier = value;
+    }
+    
+    /**
+     * Write all in-flight entries followed by the central directory.  The
+     * output file is not closed.
+     *
+     * @throws IOException Thrown if the data cannot be written, or if the
+     * creator has already failed.
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            checkState();
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            try {
+                writeCentralDirectory();
+                out.flush();
+            }
+            catch (IOException ioe) {
+                failure = ioe;
+                throw ioe;
+            }
+            finished = true;
+        }
+    }
+
+    /**
+     * Finish the archive (unless the creator has failed) and close the 
+     * output file.  Any entries still in flight (i.e. after a failure) are
+     * cancelled.  The backing stores of entries that have already been 
+     * compressed are released here, workers that are still running release
+     * their own.  If the creator has failed and it opened the output file, 
+     * the partial file is deleted.
+     * 
+     * @throws IOException Thrown if the archive could not be finished or 
+     * the output file could not be closed.  A failure closing the file 
+     * after another failure is added to it as a suppressed exception.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        try {
+            if (failure == null) {
+                finish();
+            }
+        }
+        catch (IOException ioe) {
+            error = ioe;
+        }
+        finally {
+            while (!pending.isEmpty()) {
+                EntryCompressor task = pending.poll();
+                if (task.abandon()) {
+                    try {
+                        task.future.get().release();
+                    }
+                    catch (Exception e) { }
+                }
+                else {
+                    task.future.cancel(false);
+                }
+            }
+            try {
+                out.close();
+            }
+            catch (IOException ioe) {
+                if (error != null) {
+                    error.addSuppressed(ioe);
+                }
+                else {
+                    error = ioe;
+                }
+                if (failure == null) {
+                    failure = ioe;
+                }
+            }
+            if ((failure != null) && (outputFile != null)) {
+                outputFile.delete();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+    
+    /**
+     * Ensure the creator can still accept work.
+     * 
+     * @throws IOException Thrown if the archive has been finished or the 
+     * creator has failed.
+     */
+    private void checkState() throws IOException {
+        if (failure != null) {
+            throw new IOException("Archive creation has already failed.  "
+                    + "Error message [ "
+                    + failure.getMessage()
+                    + " ].", failure);
+        }
+        if (finished) {
+            throw new IOException("Archive has already been finished.");
+        }
+    }
+
+    /**
+     * Wait for the oldest in-flight entry and write it to the archive.
+     *
+     * @throws IOException Thrown if the entry could not be compressed or
+     * written.
+     */
+    private void writeNext() throws IOException {
+        Future<ScatteredEntry> future = pending.poll().future;
+        ScatteredEntry entry = null;
+        try {
+            entry = future.get();
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            failure = new IOException("Interrupted while waiting for a "
+                    + "compressed entry.", ie);
+            throw failure;
+        }
+        catch (ExecutionException ee) {
+            failure = new IOException("Unexpected exception raised while "
+                    + "compressing an entry.  Error message [ "
+                    + ee.getCause().getMessage()
+                    + " ].", ee.getCause());
+            throw failure;
+        }
+        try {
+            entry.offset = out.getBytesWritten();
+            writeLocalHeader(entry);
+            entry.writeTo(out);
+            written.add(entry);
+            if (entry.method == ZipEntry.STORED) {
+                bytesStored += entry.size;
+            }
+            else {
+                bytesDeflated += entry.size;
+            }
+        }
+        catch (IOException ioe) {
+            failure = ioe;
+            throw ioe;
+        }
+        finally {
+            entry.release();
+        }
+        if (listener != null) {
+            listener.notify(entry.path);
+        }
+    }
+
+    /**
+     * Write the local file header for an entry.
+     *
+     * @param entry The entry to write.
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    private void writeLocalHeader(ScatteredEntry entry) throws IOException {
+        boolean zip64 = (entry.size >= ZIP32_MAX)
+                || (entry.compressedSize >= ZIP32_MAX);
+        writeInt(LOCAL_HEADER_SIG);
+        writeShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        writeShort(UTF8_FLAG);
+        writeShort(entry.method);
+        out.write(ZipUtil.toDosTime(entry.time));
+        writeInt((int)entry.crc);
+        writeInt((int)(zip64 ? ZIP32_MAX : entry.compressedSize));
+        writeInt((int)(zip64 ? ZIP32_MAX : entry.size));
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 20 : 0);
+        out.write(entry.name);
+        if (zip64) {
+            writeShort(ZIP64_EXTRA_ID);
+            writeShort(16);
+            writeLong(entry.size);
+            writeLong(entry.compressedSize);
+        }
+    }
+
+    /**
+     * Write the central directory and the end of central directory
+     * record(s).
+     *
+     * @throws IOException Thrown if the data cannot be written.
+     */
+    private void writeCentralDirectory() throws IOException {
+
+        long cdOffset = out.getBytesWritten();
+        for (ScatteredEntry entry : written) {
+            boolean sizeOverflow   = entry.size >= ZIP32_MAX;
+            boolean csizeOverflow  = entry.compressedSize >= ZIP32_MAX;
+            boolean offsetOverflow = entry.offset >= ZIP32_MAX;
+            int extraLength = (sizeOverflow ? 8 : 0)
+                    + (csizeOverflow ? 8 : 0)
+                    + (offsetOverflow ? 8 : 0);
+            int version = (extraLength > 0) ? VERSION_ZIP64 : VERSION_DEFAULT;
+
+            writeInt(CENTRAL_HEADER_SIG);
+            writeShort(version);
+            writeShort(version);
+            writeShort(UTF8_FLAG);
+            writeShort(entry.method);
+            out.write(ZipUtil.toDosTime(entry.time));
+            writeInt((int)entry.crc);
+            writeInt((int)(csizeOverflow ? ZIP32_MAX : entry.compressedSize));
+            writeInt((int)(sizeOverflow ? ZIP32_MAX : entry.size));
+            writeShort(entry.name.length);
+            writeShort((extraLength > 0) ? extraLength + 4 : 0);
+            writeShort(0); // comment length
+            writeShort(0); // disk number start
+            writeShort(0); // internal attributes
+            writeInt(0);   // external attributes
+            writeInt((int)(offsetOverflow ? ZIP32_MAX : entry.offset));
+            out.write(entry.name);
+            if (extraLength > 0) {
+                writeShort(ZIP64_EXTRA_ID);
+                writeShort(extraLength);
+                if (sizeOverflow) {
+                    writeLong(entry.size);
+                }
+                if (csizeOverflow) {
+                    writeLong(entry.compressedSize);
+                }
+                if (offsetOverflow) {
+                    writeLong(entry.offset);
+                }
+            }
+        }
+        long cdSize  = out.getBytesWritten() - cdOffset;
+        long entries = written.size();
+
+        boolean zip64 = (entries >= ZIP16_MAX)
+                || (cdSize >= ZIP32_MAX)
+                || (cdOffset >= ZIP32_MAX);
+        if (zip64) {
+            long zip64Offset = out.getBytesWritten();
+            writeInt(ZIP64_EOCD_SIG);
+            writeLong(44);
+            writeShort(VERSION_ZIP64);
+            writeShort(VERSION_ZIP64);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries);
+            writeLong(entries);
+            writeLong(cdSize);
+            writeLong(cdOffset);
+
+            writeInt(ZIP64_EOCD_LOCATOR_SIG);
+            writeInt(0);
+            writeLong(zip64Offset);
+            writeInt(1);
+        }
+
+        writeInt(EOCD_SIG);
+        writeShort(0);
+        writeShort(0);
+        writeShort((int)Math.min(entries, ZIP16_MAX));
+        writeShort((int)Math.min(entries, ZIP16_MAX));
+        writeInt((int)Math.min(cdSize, ZIP32_MAX));
+        writeInt((int)Math.min(cdOffset, ZIP32_MAX));
+        writeShort(0);
+    }
+
+    /**
+     * Write a 16-bit value in little-endian byte order.
+     */
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+
+    /**
+     * Write a 32-bit value in little-endian byte order.
+     */
+    private void writeInt(int value) throws IOException {
+        writeShort(value & 0xffff);
+        writeShort((value >>> 16) & 0xffff);
+    }
+
+    /**
+     * Write a 64-bit value in little-endian byte order.
+     */
+    private void writeLong(long value) throws IOException {
+        writeInt((int)value);
+        writeInt((int)(value >>> 32));
+    }
+
+    /**
+     * A compressed entry waiting to be written, along with the information
+     * needed for its central directory record.  STORED entries have no 
+     * backing store, the data is copied from the source file.
+     */
+    private static class ScatteredEntry {
+
+        private final byte[]       name;
+        private final String       path;
+        private final long         time;
+        private final int          method;
+        private final long         crc;
+        private final long         size;
+        private final long         compressedSize;
+        private final File         file;
+        private final ScatterStore store;
+        private long               offset = 0L;
+
+        ScatteredEntry(
+                byte[]       name,
+                File         file,
+                long         time,
+                int          method,
+                long         crc,
+                long         size,
+                ScatterStore store) {
+            this.name           = name;
+            this.file           = file;
+            this.path           = file.getPath();
+            this.time           = time;
+            this.method         = method;
+            this.crc            = crc;
+            this.size           = size;
+            this.compressedSize = (store != null) ? store.getSize() : size;
+            this.store          = store;
+        }
+
+        /**
+         * Copy the entry data to the output stream.
+         * 
+         * @throws IOException Thrown if the data cannot be copied, or if the
+         * size of a STORED file changed after its CRC was calculated.
+         */
+        void writeTo(OutputStream out) throws IOException {
+            if (store != null) {
+                store.writeTo(out);
+                return;
+            }
+            long        copied = 0L;
+            InputStream in     = new FileInputStream(file);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int    n      = 0;
+                while ((copied < size) && ((n = in.read(buffer, 0, 
+                        (int)Math.min(buffer.length, size - copied))) != -1)) {
+                    out.write(buffer, 0, n);
+                    copied += n;
+                }
+                if ((copied != size) || (in.read() != -1)) {
+                    throw new IOException("File [ "
+                            + path
+                            + " ] changed while the archive was being "
+                            + "written.");
+                }
+            }
+            finally {
+                in.close();
+            }
+        }
+
+        /**
+         * Release the backing store (if any).
+         */
+        void release() {
+            if (store != null) {
+                store.release();
+            }
+        }
+    }
+
+    /**
+     * Backing store for the compressed data of a single entry.  Data is
+     * held in memory until it exceeds the threshold, at which point it is
+     * moved to a temporary file.
+     */
+    private static class ScatterStore extends OutputStream {
+
+        private final int            threshold;
+        private final File           dir;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File                 tempFile = null;
+        private OutputStream         fileOut  = null;
+        private long                 size     = 0L;
+
+        ScatterStore(int threshold, File dir) {
+            this.threshold = threshold;
+            this.dir       = dir;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if ((fileOut == null) && (size + len > threshold)) {
+                tempFile = File.createTempFile("bundler-zip-", ".tmp", dir);
+                fileOut  = new BufferedOutputStream(
+                        new FileOutputStream(tempFile));
+                memory.writeTo(fileOut);
+                memory = null;
+            }
+            if (fileOut != null) {
+                fileOut.write(b, off, len);
+            }
+            else {
+                memory.write(b, off, len);
+            }
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        /**
+         * Copy the stored data to the output stream.
+         */
+        void writeTo(OutputStream out) throws IOException {
+            if (tempFile == null) {
+                memory.writeTo(out);
+            }
+            else {
+                InputStream in = new FileInputStream(tempFile);
+                try {
+                    byte[] buffer = new byte[64 * 1024];
+                    int    n      = 0;
+                    while ((n = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                    }
+                }
+                finally {
+                    in.close();
+                }
+            }
+        }
+
+        /**
+         * Release the memory and/or temporary file held by the store.
+         */
+        void release() {
+            memory = null;
+            if (fileOut != null) {
+                try { fileOut.close(); } catch (Exception e) {}
+            }
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Task compressing a single file into a backing store (or, for STORED
+     * entries, calculating its CRC).  The hand-off of the result to the 
+     * creator is synchronized with <code>abandon()</code> so that the 
+     * backing store is released exactly once: by the creator if the result
+     * was delivered, otherwise by the task itself.
+     */
+    private static class EntryCompressor implements Callable<ScatteredEntry> {
+
+        private final String                name;
+        private final long                  time;
+        private final File                  file;
+        private final CompressionClassifier classifier;
+        private final int                   threshold;
+        private final File                  tempDir;
+        private Future<ScatteredEntry>      future    = null;
+        private boolean                     delivered = false;
+        private boolean                     abandoned = false;
+
+        EntryCompressor(
+                String                name,
+                long                  time,
+                File                  file,
+                CompressionClassifier classifier,
+                int                   threshold,
+                File                  tempDir) {
+            this.name       = name;
+            this.time       = time;
+            this.file       = file;
+            this.classifier = classifier;
+            this.threshold  = threshold;
+            this.tempDir    = tempDir;
+        }
+
+        /**
+         * Called by the creator when the entry will not be written.  
+         * 
+         * @return True if the result has already been delivered, in which 
+         * case the caller must release it.
+         */
+        synchronized boolean abandon() {
+            abandoned = true;
+            return delivered;
+        }
+
+        /**
+         * Hand the result over to the creator unless the entry has been 
+         * abandoned.
+         * 
+         * @return True if the result was delivered.
+         */
+        private synchronized boolean deliver() {
+            if (!abandoned) {
+                delivered = true;
+            }
+            return delivered;
+        }
+
+        /**
+         * Deflate the file (or, for STORED entries, read it), computing the
+         * CRC and uncompressed size as the data is read.
+         */
+        @Override
+        public ScatteredEntry call() throws IOException {
+            CRC32        crc      = new CRC32();
+            long         size     = 0L;
+            ScatterStore store    = null;
+            Deflater     deflater = null;
+            InputStream  in       = null;
+            boolean      success  = false;
+            try {
+                int method = ((classifier != null) 
+                        && classifier.shouldStore(file)) ?
+                                ZipEntry.STORED : ZipEntry.DEFLATED;
+                OutputStream os = null;
+                if (method == ZipEntry.DEFLATED) {
+                    store    = new ScatterStore(threshold, tempDir);
+                    deflater = new Deflater(
+                            Deflater.DEFAULT_COMPRESSION, true);
+                    os       = new DeflaterOutputStream(
+                            store, deflater, 64 * 1024);
+                }
+                in = new BufferedInputStream(new FileInputStream(file));
+                byte[] buffer = new byte[64 * 1024];
+                int    n      = 0;
+                while ((n = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, n);
+                    if (os != null) {
+                        os.write(buffer, 0, n);
+                    }
+                    size += n;
+                }
+                if (os != null) {
+                    ((DeflaterOutputStream)os).finish();
+                    store.close();
+                }
+                if (!deliver()) {
+                    throw new IOException("Entry [ "
+                            + name
+                            + " ] was abandoned.");
+                }
+                success = true;
+                return new ScatteredEntry(
+                        name.getBytes(UTF8),
+                        file,
+                        time,
+                        method,
+                        crc.getValue(),
+                        size,
+                        store);
+            }
+            finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+                if (in != null) {
+                    try { in.close(); } catch (Exception e) {}
+                }
+                if ((!success) && (store != null)) {
+                    store.release();
+                }
+            }
+        }
+    }
+}
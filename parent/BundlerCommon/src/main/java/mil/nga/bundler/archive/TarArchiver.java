@@ -89,7 +89,8 @@ public class TarArchiver
             // Create the output stream zoo
             taos = new TarArchiveOutputStream(
                     new BufferedOutputStream(
-                        new FileOutputStream(getArchiveName())));
+                        getDigestOutputStream(
+                            new FileOutputStream(getArchiveName()))));
             
             // Invoke superclass methods to create the output archive 
             addFile((ArchiveOutputStream)taos, baseDir, "");
@@ -150,7 +151,8 @@ public class TarArchiver
             // Create the output stream zoo
             taos = new TarArchiveOutputStream(
                     new BufferedOutputStream(
-                        new FileOutputStream(getArchiveName())));
+                        getDigestOutputStream(
+                            new FileOutputStream(getArchiveName()))));
             
             // Loop through each file in the input list
             for (String fileName : files) {
@@ -240,6 +242,96 @@ public class TarArchiver
         return new TarArchiveEntry(file, name);
     }
     
+    /**
+     * Add each file in the input list to the supplied TAR output stream.  
+     * This was split out of <code>bundle(List&lt;FileEntry&gt;, String)</code>
+     * so that the compressor subclasses can write the TAR entries straight 
+     * into a compressed output stream.
+     * 
+     * @param taos The TAR output stream to which the files will be added.
+     * @param files List of files to be added to the archive.
+     * @throws IOException Raised if there are issues writing the archive 
+     * entries.
+     */
+    protected void addFiles(TarArchiveOutputStream taos, List<FileEntry> files) 
+            throws IOException {
+        
+        String method = "addFiles() - ";
+        
+        // Loop through each file in the input list
+        for (FileEntry entry : files) {
+            
+            File file = new File(entry.getFilePath());
+            if (file.exists()) {
+                
+                taos.putArchiveEntry(
+                        getArchiveEntry(
+                                file, 
+                                entry.getEntryPath()));
+                super.addOneFile(taos, file);
+                entry.setFileState(JobStateType.COMPLETE);
+            }
+            else {
+                
+                LOGGER.warn(method 
+                        + "File identified for inclusion in the output "
+                        + "archive file does not exist.  File requested [ "
+                        + entry.getFilePath()
+                        + " ].");
+            }
+        }
+    }
+    
+    /**
+     * Add each file in the input list to the supplied channel-based TAR 
+     * writer.  The file contents are transferred by the kernel rather than
+     * being copied through the JVM heap.
+     * 
+     * @param writer The TAR writer to which the files will be added.
+     * @param files List of files to be added to the archive.
+     * @throws IOException Raised if there are issues writing the archive 
+     * entries.
+     */
+    protected void addFiles(ChannelTarWriter writer, List<FileEntry> files) 
+            throws IOException {
+        
+        String method = "addFiles() - ";
+        
+        for (FileEntry entry : files) {
+            
+            File file = new File(entry.getFilePath());
+            if (file.exists()) {
+                
+                writer.putFile(
+                        (TarArchiveEntry)getArchiveEntry(
+                                file, 
+                                entry.getEntryPath()), 
+                        file);
+                entry.setFileState(JobStateType.COMPLETE);
+            }
+            else {
+                
+                LOGGER.warn(method 
+                        + "File identified for inclusion in the output "
+                        + "archive file does not exist.  File requested [ "
+                        + entry.getFilePath()
+                        + " ].");
+            }
+        }
+    }
+    
+    /**
+     * Bundle each file in the input list into a plain TAR archive.  Unless
+     * disabled on this host (see <code>bundler.tar.zero_copy</code>) the 
+     * archive is written with <code>FileChannel.transferTo</code> so only 
+     * the TAR headers and padding are written from the JVM.
+     * 
+     * @param files List of files to be added to the archive.
+     * @param outputFile Full path of the output archive file (may or may not
+     * include the extension)
+     * @throws IOException Raised if there are issues constructing the output
+     * archive.
+     */
     public void bundle(List<FileEntry> files, String outputFile) 
             throws ArchiveException, IOException {
         
@@ -253,6 +345,25 @@ public class TarArchiver
             throw new ArchiveException(msg);
         }
         
+        if (ArchiverSettings.getInstance().isZeroCopyTar()) {
+            
+            // Get the actual name of the archive file            
+            setArchiveName(outputFile, this._type.getText());
+            
+            // The archive data does not pass through the JVM so the hash
+            // has to be calculated after the archive is written.
+            resetHash();
+            ChannelTarWriter writer = new ChannelTarWriter(
+                    new File(getArchiveName()));
+            try {
+                addFiles(writer, files);
+            }
+            finally {
+                writer.close();
+            }
+            return;
+        }
+        
         try {
             
             // Get the actual name of the archive file            
@@ -261,30 +372,10 @@ public class TarArchiver
             // Create the output stream zoo
             taos = new TarArchiveOutputStream(
                     new BufferedOutputStream(
-                        new FileOutputStream(getArchiveName())));
+                        getDigestOutputStream(
+                            new FileOutputStream(getArchiveName()))));
             
-            // Loop through each file in the input list
-            for (FileEntry entry : files) {
-                
-                File file = new File(entry.getFilePath());
-                if (file.exists()) {
-                    
-                    taos.putArchiveEntry(
-                            getArchiveEntry(
-                                    file, 
-                                    entry.getEntryPath()));
-                    super.addOneFile(taos, file);
-                    entry.setFileState(JobStateType.COMPLETE);
-                }
-                else {
-                    
-                    LOGGER.warn(method 
-                            + "File identified for inclusion in the output "
-                            + "archive file does not exist.  File requested [ "
-                            + entry.getFilePath()
-                            + " ].");
-                }
-            }
+            addFiles(taos, files);
         }
         finally {
             if (taos != null) {
@@ -4,11 +4,16 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.zip.Deflater;
 
+import mil.nga.bundler.SharedExecutors;
 import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.types.JobStateType;
 import mil.nga.bundler.interfaces.BundlerI;
+import mil.nga.bundler.interfaces.FileCompletionListenerI;
 import mil.nga.bundler.exceptions.ArchiveException;
 import mil.nga.bundler.model.FileEntry;
 
@@ -38,6 +43,19 @@ public class ZipArchiver extends Archiver implements BundlerI {
      */
     private ArchiveType _type = ArchiveType.ZIP;
     
+    /**
+     * Number of (uncompressed) bytes written as DEFLATED entries by the 
+     * last call to <code>bundle(List&lt;FileEntry&gt;, String)</code>.
+     */
+    private long _bytesDeflated = 0L;
+    
+    /**
+     * Number of bytes written without compression (STORED entries, or
+     * level 0 entries in the sequential path) by the last call to 
+     * <code>bundle(List&lt;FileEntry&gt;, String)</code>.
+     */
+    private long _bytesStored = 0L;
+    
     /**
      * Default constructor
      * @param tracker Handle to the external job tracker assigned to this 
@@ -92,8 +110,9 @@ public class ZipArchiver extends Archiver implements BundlerI {
             // Create the output stream zoo
             zaos = new ZipArchiveOutputStream(
                             new BufferedOutputStream(
-                                    new FileOutputStream(
-                                            getArchiveName())));
+                                    getDigestOutputStream(
+                                        new FileOutputStream(
+                                            getArchiveName()))));
             
             // Invoke superclass methods to create the output archive 
             addFile((ArchiveOutputStream)zaos, directory, "");
@@ -143,7 +162,8 @@ public class ZipArchiver extends Archiver implements BundlerI {
             // Create the output stream zoo
             zaos = new ZipArchiveOutputStream(
                     new BufferedOutputStream(
-                        new FileOutputStream(getArchiveName())));
+                        getDigestOutputStream(
+                            new FileOutputStream(getArchiveName()))));
             
             // Loop through each file in the input list
             for (String fileName : files) {
@@ -184,7 +204,24 @@ public class ZipArchiver extends Archiver implements BundlerI {
     }
 
     /**
+     * Bundle each file in the input list into a ZIP archive.  If more than 
+     * one compression worker is configured for this host the entries are 
+     * deflated in parallel (see <code>ParallelZipCreator</code>), otherwise 
+     * they are written one after another through a 
+     * <code>ZipArchiveOutputStream</code>.  In both cases the entries are 
+     * written in list order using the entry path of each FileEntry.
+     * 
+     * Unless disabled on this host (see <code>bundler.zip.adaptive</code>) 
+     * files that are already compressed are not compressed again.  The
+     * parallel path writes them as STORED entries.  The sequential path
+     * deflates them at level 0, because a STORED entry written to a
+     * stream needs its CRC before the data (i.e. a second read of the
+     * file).
      * 
+     * @param files List of files to be added to the archive.
+     * @param outputFile Full path of the output archive file.
+     * @throws IOException Raised if there are issues constructing the output
+     * archive.
      */
     public void bundle(List<FileEntry> files, String outputFile) 
             throws ArchiveException, IOException {
@@ -199,6 +236,18 @@ public class ZipArchiver extends Archiver implements BundlerI {
             throw new ArchiveException(msg);
         }
         
+        ArchiverSettings      settings   = ArchiverSettings.getInstance();
+        CompressionClassifier classifier = settings.isAdaptiveZip() ?
+                new CompressionClassifier() : null;
+        _bytesDeflated = 0L;
+        _bytesStored   = 0L;
+        
+        if (settings.getCompressionWorkers() > 1) {
+            bundleParallel(files, outputFile, settings, classifier);
+            logEntryMetrics(outputFile);
+            return;
+        }
+        
         try {
                     
             if (LOGGER.isDebugEnabled()) {
@@ -209,7 +258,8 @@ public class ZipArchiver extends Archiver implements BundlerI {
             // Create the output stream zoo
             zaos = new ZipArchiveOutputStream(
                     new BufferedOutputStream(
-                        new FileOutputStream(outputFile)));
+                        getDigestOutputStream(
+                            new FileOutputStream(outputFile))));
             
             // Loop through each file in the input list
             for (FileEntry entry : files) {
@@ -217,11 +267,25 @@ public class ZipArchiver extends Archiver implements BundlerI {
                 File file = new File(entry.getFilePath());
                 if (file.exists()) {
                     
-                    zaos.putArchiveEntry(
-                            getArchiveEntry(
-                                    file, 
-                                    entry.getEntryPath()));
+                    ZipArchiveEntry zipEntry = (ZipArchiveEntry)
+                            getArchiveEntry(file, entry.getEntryPath());
                     
+                    // The stream is not seekable, so a STORED entry would 
+                    // need its CRC up front (an extra read of the file).  
+                    // Files that are already compressed are instead 
+                    // deflated at level 0, which writes them as stored 
+                    // blocks in a single pass.
+                    if ((classifier != null) 
+                            && classifier.shouldStore(file)) {
+                        zaos.setLevel(Deflater.NO_COMPRESSION);
+                        _bytesStored += file.length();
+                    }
+                    else {
+                        zaos.setLevel(Deflater.DEFAULT_COMPRESSION);
+                        _bytesDeflated += file.length();
+                    }
+                    
+                    zaos.putArchiveEntry(zipEntry);
                     super.addOneFile(zaos, file);
                     entry.setFileState(JobStateType.COMPLETE);
                     
@@ -248,5 +312,151 @@ public class ZipArchiver extends Archiver implements BundlerI {
                 }
             }
         }
+        logEntryMetrics(outputFile);
+    }
+    
+    /**
+     * Getter method for the number of (uncompressed) bytes written as 
+     * DEFLATED entries by the last call to 
+     * <code>bundle(List&lt;FileEntry&gt;, String)</code>.
+     * 
+     * @return The number of bytes deflated.
+     */
+    public long getBytesDeflated() {
+        return _bytesDeflated;
+    }
+    
+    /**
+     * Getter method for the number of bytes written without compression by 
+     * the last call to <code>bundle(List&lt;FileEntry&gt;, String)</code>.
+     * 
+     * @return The number of bytes stored.
+     */
+    public long getBytesStored() {
+        return _bytesStored;
+    }
+    
+    /**
+     * Log the STORED/DEFLATED byte counts for the archive just created.
+     * 
+     * @param outputFile Full path of the output archive file.
+     */
+    private void logEntryMetrics(String outputFile) {
+        LOGGER.info("ZIP archive [ "
+                + outputFile
+                + " ] created.  Bytes stored [ "
+                + _bytesStored
+                + " ], bytes deflated [ "
+                + _bytesDeflated
+                + " ].");
+    }
+    
+    /**
+     * Create the output ZIP archive deflating the entries concurrently on 
+     * the shared compression thread pool.  Each FileEntry is marked 
+     * COMPLETE once the gather step has written it to the archive (entries
+     * are written in the order they are added).  If the archive fails the
+     * partial output file is deleted.
+     * 
+     * @param files List of files to be added to the archive.
+     * @param outputFile Full path of the output archive file.
+     * @param settings The host-level archiver settings.
+     * @param classifier Used to select STORED entries (may be null).
+     * @throws IOException Raised if there are issues constructing the output
+     * archive.
+     */
+    private void bundleParallel(
+            List<FileEntry>       files, 
+            String                outputFile, 
+            ArchiverSettings      settings,
+            CompressionClassifier classifier) throws IOException {
+        
+        String method = "bundleParallel() - ";
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(method 
+                    + "Creating ZIP output file [ "
+                    + outputFile
+                    + " ] using [ "
+                    + settings.getCompressionWorkers()
+                    + " ] compression workers.");
+        }
+        
+        File               output  = new File(outputFile);
+        ParallelZipCreator creator = new ParallelZipCreator(
+                getDigestOutputStream(new FileOutputStream(output)),
+                output.getAbsoluteFile().getParentFile(),
+                SharedExecutors.getInstance().getCompressionExecutor(),
+                settings.getCompressionWorkers(),
+                ParallelZipCreator.DEFAULT_MEMORY_THRESHOLD);
+        creator.setClassifier(classifier);
+        
+        // Entries added but not yet written by the gather step.
+        final Deque<FileEntry> added = new ArrayDeque<FileEntry>();
+        creator.setListener(new FileCompletionListenerI() {
+            @Override
+            public void notify(String filename) {
+                added.poll().setFileState(JobStateType.COMPLETE);
+            }
+        });
+        
+        IOException failure = null;
+        boolean     success = false;
+        try {
+            for (FileEntry entry : files) {
+                
+                File file = new File(entry.getFilePath());
+                if (file.exists()) {
+                    
+                    added.add(entry);
+                    creator.addArchiveEntry(
+                            (ZipArchiveEntry)getArchiveEntry(
+                                    file, 
+                                    entry.getEntryPath()), 
+                            file);
+                    
+                }
+                else {
+                    LOGGER.warn(method 
+                            + "File identified for inclusion in the output "
+                            + "archive file does not exist.  File requested [ "
+                            + file.getAbsolutePath()
+                            + " ].");
+                }
+            }
+            creator.finish();
+            success = true;
+        }
+        catch (IOException ioe) {
+            failure = ioe;
+        }
+        finally {
+            try {
+                creator.close();
+            }
+            catch (IOException ioe) {
+                success = false;
+                if (failure != null) {
+                    failure.addSuppressed(ioe);
+                }
+                else {
+                    failure = ioe;
+                }
+            }
+            _bytesDeflated = creator.getBytesDeflated();
+            _bytesStored   = creator.getBytesStored();
+            if (!success) {
+                output.delete();
+            }
+        }
+        if (failure != null) {
+            LOGGER.error(method 
+                    + "Unable to create ZIP output file [ "
+                    + outputFile
+                    + " ].  Error message [ "
+                    + failure.getMessage()
+                    + " ].", failure);
+            throw failure;
+        }
     }
 }
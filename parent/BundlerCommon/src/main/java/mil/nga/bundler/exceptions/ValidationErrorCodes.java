@@ -11,7 +11,15 @@ public enum ValidationErrorCodes {
     NO_VALID_INPUT_FILES_FOUND(
             1015,
             "A request was received that did not contain any valid input "
-            + "files.");
+            + "files."),
+    VALIDATION_TIMEOUT(
+            1020,
+            "Validation of the requested files did not complete in the "
+            + "time allowed."),
+    TOO_MANY_FILES(
+            1025,
+            "The directories requested contain more files than may be "
+            + "bundled in a single request.");
     
     /**
      * Error code ID
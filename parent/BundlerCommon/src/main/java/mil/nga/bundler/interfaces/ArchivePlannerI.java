@@ -0,0 +1,28 @@
+package mil.nga.bundler.interfaces;
+
+import java.util.List;
+
+import mil.nga.bundler.model.FileEntry;
+
+/**
+ * Interface implemented by the classes that decide how the files in a job
+ * are divided up into individual archives.
+ */
+public interface ArchivePlannerI {
+
+    /**
+     * Divide the input files into groups, each of which will become one
+     * output archive.  Every input file appears in exactly one group.  The
+     * estimated output size of each group (see
+     * <code>ArchivePlanner.getEstimatedArchiveSize()</code>) will not
+     * exceed the target archive size unless the group holds a single file
+     * that is larger than the target on its own.
+     *
+     * @param files The validated files to divide up.
+     * @param archiveSize The target size (in bytes) of the output archives.
+     * @return The groups of files, in the order the archives should be
+     * numbered.
+     */
+    public List<List<FileEntry>> plan(List<FileEntry> files, long archiveSize);
+
+}
@@ -26,6 +26,40 @@ public interface BundlerConstantsI {
      */
     public static final String APPLICATION_PERSISTENCE_CONTEXT = "BundlerJPA";
     
+    /**
+     * Property defining the number of compression-heavy archives (ZIP, 
+     * GZIP, BZIP2) a single host will build concurrently.  Defaults to half 
+     * the number of available processors.  May be overridden on a per-host 
+     * basis by supplying a JVM system property with the same name.
+     */
+    public static final String ARCHIVE_CPU_WORKERS_PROPERTY = 
+            "bundler.archive.cpu_workers";
+    
+    /**
+     * Property defining the number of I/O-heavy archives (TAR) a single 
+     * host will build concurrently.  If not set, the value is derived from 
+     * a disk throughput probe of the staging directory.  May be overridden 
+     * on a per-host basis by supplying a JVM system property with the same 
+     * name.
+     */
+    public static final String ARCHIVE_IO_WORKERS_PROPERTY = 
+            "bundler.archive.io_workers";
+    
+    /**
+     * Property defining the number of archives that may wait for a worker 
+     * (per resource class) before the archive consumer is made to wait.  
+     * May be overridden on a per-host basis by supplying a JVM system 
+     * property with the same name.
+     */
+    public static final String ARCHIVE_QUEUE_SIZE_PROPERTY = 
+            "bundler.archive.queue_size";
+    
+    /**
+     * Default number of archives that may wait for a worker (per resource 
+     * class).
+     */
+    public static final int DEFAULT_ARCHIVE_QUEUE_SIZE = 2;
+    
     /**
      * Property defining the "base" URL for the output archives (i.e. 
      * the base staging directory will be replaced with this URL allowing
@@ -33,6 +67,23 @@ public interface BundlerConstantsI {
      */
     public static final String BASE_URL_PROPERTY = "bundler.base_url";
     
+    /**
+     * Property defining the block size (in bytes) used by the parallel 
+     * compressors.  May be overridden on a per-host basis by supplying a 
+     * JVM system property with the same name.
+     */
+    public static final String COMPRESSION_BLOCK_SIZE_PROPERTY = 
+            "bundler.compression.block_size";
+    
+    /**
+     * Property defining the number of worker threads used by the parallel 
+     * compressors.  A value of 1 disables parallel compression.  May be 
+     * overridden on a per-host basis by supplying a JVM system property with 
+     * the same name.
+     */
+    public static final String COMPRESSION_WORKERS_PROPERTY = 
+            "bundler.compression.workers";
+    
     /**
      * The name of the JMS Connection factory.
      */
@@ -83,6 +134,11 @@ public interface BundlerConstantsI {
      */
     public static long MILLISECONDS_PER_30_DAYS = 1000 * 60 * 60 * 24 * 30;
     
+    /**
+     * Default block size (in bytes) used by the parallel GZIP compressor.
+     */
+    public static final int DEFAULT_GZIP_BLOCK_SIZE = 128 * 1024;
+    
     /**
      * Default minimum size for the archive if it wasn't supplied by the 
      * caller (in MB).
@@ -106,6 +162,177 @@ public interface BundlerConstantsI {
     public static final String BUNDLE_REQUEST_OUTPUT_LOCATION_PROP = 
             "bundler.request_output_location";
     
+    /**
+     * Property controlling whether plain TAR archives are written using 
+     * <code>FileChannel.transferTo</code> (zero-copy).  Defaults to true.  
+     * May be overridden on a per-host basis by supplying a JVM system 
+     * property with the same name.
+     */
+    public static final String TAR_ZERO_COPY_PROPERTY = 
+            "bundler.tar.zero_copy";
+    
+    /**
+     * Property controlling whether the ZIP archiver stores (rather than 
+     * deflates) files that are already compressed.  Defaults to true.  May 
+     * be overridden on a per-host basis by supplying a JVM system property 
+     * with the same name.
+     */
+    public static final String ZIP_ADAPTIVE_PROPERTY = 
+            "bundler.zip.adaptive";
+    
+    /**
+     * Property controlling whether large files on local disk are hashed 
+     * through memory-mapped windows rather than streamed.  Defaults to 
+     * false.  May be overridden on a per-host basis by supplying a JVM 
+     * system property with the same name.
+     */
+    public static final String HASH_MAPPED_PROPERTY = 
+            "bundler.hash.mapped";
+    
+    /**
+     * Property controlling the number of rows sent to the database in each
+     * JDBC batch.  May be overridden on a per-host basis by supplying a JVM
+     * system property with the same name.
+     */
+    public static final String JDBC_BATCH_SIZE_PROPERTY = 
+            "bundler.jdbc.batch_size";
+    
+    /**
+     * Default number of rows sent to the database in each JDBC batch.
+     */
+    public static final int DEFAULT_JDBC_BATCH_SIZE = 500;
+    
+    /**
+     * Property controlling how long (in milliseconds) job status 
+     * information is served from the in-memory status cache before it is 
+     * re-read from the data store.  A value of zero disables the cache.  May
+     * be overridden on a per-host basis by supplying a JVM system property 
+     * with the same name.
+     */
+    public static final String STATUS_CACHE_TTL_PROPERTY = 
+            "bundler.status_cache.ttl";
+    
+    /**
+     * Default time-to-live (in milliseconds) of the job status cache 
+     * entries.
+     */
+    public static final int DEFAULT_STATUS_CACHE_TTL = 5000;
+    
+    /**
+     * Property controlling the maximum number of jobs held in the 
+     * in-memory status cache.  May be overridden on a per-host basis by 
+     * supplying a JVM system property with the same name.
+     */
+    public static final String STATUS_CACHE_SIZE_PROPERTY = 
+            "bundler.status_cache.max_entries";
+    
+    /**
+     * Default maximum number of jobs held in the job status cache.
+     */
+    public static final int DEFAULT_STATUS_CACHE_SIZE = 10000;
+    
+    /**
+     * Property controlling the maximum number of idle JMS sessions the 
+     * notification publisher keeps open for re-use.  May be overridden on a 
+     * per-host basis by supplying a JVM system property with the same name.
+     */
+    public static final String JMS_MAX_IDLE_SESSIONS_PROPERTY = 
+            "bundler.jms.max_idle_sessions";
+    
+    /**
+     * Default maximum number of idle JMS sessions held by the notification
+     * publisher.
+     */
+    public static final int DEFAULT_JMS_MAX_IDLE_SESSIONS = 8;
+    
+    /**
+     * Property controlling the number of threads used to validate (i.e. 
+     * stat) the requested files.  The work is dominated by file system 
+     * latency (the source files are on NFS) rather than CPU so the default 
+     * is larger than the number of cores.  May be overridden on a per-host 
+     * basis by supplying a JVM system property with the same name.
+     */
+    public static final String VALIDATION_WORKERS_PROPERTY = 
+            "bundler.validation.workers";
+    
+    /**
+     * Default number of file validation threads.
+     */
+    public static final int DEFAULT_VALIDATION_WORKERS = 16;
+    
+    /**
+     * Property controlling the maximum amount of time (in milliseconds) 
+     * allowed for the validation of the files in a single request.  May be
+     * overridden on a per-host basis by supplying a JVM system property 
+     * with the same name.
+     */
+    public static final String VALIDATION_TIMEOUT_PROPERTY = 
+            "bundler.validation.timeout";
+    
+    /**
+     * Default maximum time (in milliseconds) allowed for the validation of
+     * a single request.
+     */
+    public static final int DEFAULT_VALIDATION_TIMEOUT = 300000;
+    
+    /**
+     * Property controlling the maximum number of threads used to walk 
+     * requested directories.  The threads belong to a single fork/join pool
+     * shared by all requests on the host, so this caps the total number of
+     * concurrent directory walkers.  May be overridden on a per-host basis 
+     * by supplying a JVM system property with the same name.
+     */
+    public static final String EXPANSION_PARALLELISM_PROPERTY = 
+            "bundler.expansion.parallelism";
+    
+    /**
+     * Default number of directory walking threads.
+     */
+    public static final int DEFAULT_EXPANSION_PARALLELISM = 8;
+    
+    /**
+     * Property controlling the maximum number of file system entries that 
+     * may be found while expanding the directories in a single request.  
+     * Requests exceeding the limit are rejected.  May be overridden on a 
+     * per-host basis by supplying a JVM system property with the same name.
+     */
+    public static final String EXPANSION_MAX_ENTRIES_PROPERTY = 
+            "bundler.expansion.max_entries";
+    
+    /**
+     * Default maximum number of entries found expanding a single request.
+     */
+    public static final int DEFAULT_EXPANSION_MAX_ENTRIES = 500000;
+    
+    /**
+     * Property controlling the number of requested files validated at a 
+     * time when a job is built incrementally.  The archives filled by each
+     * set of files are persisted and started before the next set is 
+     * validated.  May be overridden on a per-host basis by supplying a JVM
+     * system property with the same name.
+     */
+    public static final String JOB_CHUNK_SIZE_PROPERTY = 
+            "bundler.job.chunk_size";
+    
+    /**
+     * Default number of requested files validated at a time.
+     */
+    public static final int DEFAULT_JOB_CHUNK_SIZE = 10000;
+    
+    /**
+     * Property identifying the strategy used to divide the files in a job
+     * up into archives (first_fit, first_fit_decreasing or balanced).  May
+     * be overridden on a per-host basis by supplying a JVM system property
+     * with the same name.
+     */
+    public static final String ARCHIVE_PLANNER_PROPERTY = 
+            "bundler.archive.planner";
+    
+    /**
+     * Default strategy used to divide the files in a job up into archives.
+     */
+    public static final String DEFAULT_ARCHIVE_PLANNER = "balanced";
+    
     /**
      * System property identifying the target staging directory.  
      */
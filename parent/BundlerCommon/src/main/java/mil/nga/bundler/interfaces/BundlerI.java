@@ -22,6 +22,17 @@ public interface BundlerI {
      */
     public String getArchiveName();
     
+    /**
+     * Return the SHA-1 hash of the output archive file.  Where possible the
+     * hash is calculated as the archive is written so callers do not need
+     * to re-read the archive.  Only valid after one of the 
+     * <code>bundle</code> methods completes.
+     * 
+     * @return The hex-encoded SHA-1 hash of the output archive file, or 
+     * null if it was not calculated while the archive was written.
+     */
+    public String getHash();
+    
     /**
      * Bundle the files that exist in the input directory.   The files will
      * be bundled in accordance with the archive type supported by the 
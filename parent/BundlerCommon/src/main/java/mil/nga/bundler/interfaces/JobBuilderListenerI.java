@@ -0,0 +1,48 @@
+package mil.nga.bundler.interfaces;
+
+import mil.nga.bundler.model.Archive;
+import mil.nga.bundler.model.Job;
+
+/**
+ * Listener interface used by the <code>JobFactory</code> when a job is
+ * built incrementally (see
+ * <code>JobFactory.createJob(BundleRequestMessage, JobBuilderListenerI)</code>).
+ * The listener is responsible for persisting the job and its archives and
+ * for starting the processing of each archive.  This interface was added
+ * so that the first archives of very large requests can be built while
+ * the remaining files are still being validated.
+ */
+public interface JobBuilderListenerI {
+
+    /**
+     * Called once, before any archives are added to the job.  The job does
+     * not yet contain any archives.
+     * @param job The new job.
+     */
+    public void created(Job job);
+
+    /**
+     * Called when an archive has been filled.  No further files will be
+     * added to the archive, and the file list of the archive is released
+     * when this method returns.
+     * @param job The job containing the archive.
+     * @param archive The completed archive.
+     */
+    public void sealed(Job job, Archive archive);
+
+    /**
+     * Called once all of the archives in the job have been sealed.  The
+     * job totals (number of archives, files and size) are final.
+     * @param job The completed job.
+     */
+    public void finished(Job job);
+
+    /**
+     * Called if the job could not be completed after <code>created()</code>
+     * was called (e.g. the validation of a later set of files failed).
+     * Archives already sealed may still be processing.
+     * @param job The failed job.
+     */
+    public void failed(Job job);
+
+}
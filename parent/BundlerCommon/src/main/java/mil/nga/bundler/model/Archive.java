@@ -23,10 +23,17 @@ import mil.nga.util.FileUtils;
  * Also contains JAX-B annotations.  This bean holds the data associated 
  * with a single output archive file. 
  * 
+ * The list of files is loaded lazily.  Most clients (job lists, metrics, 
+ * job status) only need the archive-level data so the files are only 
+ * loaded by clients that request the <code>Archive.files</code> entity
+ * graph (see <code>JobService.getMaterializedArchive</code>).
+ * 
  * @author L. Craig Carpenter
  */
 @Entity
 @Table(name="ARCHIVE_JOBS")
+@NamedEntityGraph(name=Archive.FILES_GRAPH, 
+        attributeNodes={ @NamedAttributeNode("files") })
 @JsonRootName(value="archive")
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Archive implements BundlerConstantsI, Serializable {
@@ -35,6 +42,12 @@ public class Archive implements BundlerConstantsI, Serializable {
      * Eclipse-generated serialVersionUID
      */
     private static final long serialVersionUID = 9023436709593213577L;
+    
+    /**
+     * Name of the entity graph that loads the list of files along with the
+     * archive.
+     */
+    public static final String FILES_GRAPH = "Archive.files";
 
     /**
      * Foreign key linking the archive and JOB tables.
@@ -55,7 +68,7 @@ public class Archive implements BundlerConstantsI, Serializable {
      */
     @OneToMany(cascade={ CascadeType.ALL },
             orphanRemoval=true,
-            fetch=FetchType.EAGER)
+            fetch=FetchType.LAZY)
     @JoinColumns({
         @JoinColumn(name="ARCHIVE_ID", referencedColumnName="ARCHIVE_ID"),
         @JoinColumn(name="JOB_ID", referencedColumnName="JOB_ID")
@@ -96,6 +109,24 @@ public class Archive implements BundlerConstantsI, Serializable {
     @JsonProperty(value="archive_url")
     private String archiveURL  = null;
     
+    /**
+     * Number of (uncompressed) bytes written to the archive using 
+     * compression.  Only populated for ZIP archives.  Nullable so the 
+     * column can be added to existing tables.
+     */
+    @Column(name="BYTES_DEFLATED")
+    @JsonIgnore
+    private Long bytesDeflated = 0L;
+    
+    /**
+     * Number of bytes written to the archive without compression (i.e. 
+     * files that were already compressed).  Only populated for ZIP 
+     * archives.  Nullable so the column can be added to existing tables.
+     */
+    @Column(name="BYTES_STORED")
+    @JsonIgnore
+    private Long bytesStored = 0L;
+    
     /**
      * Time when the archive job was completed.  This value will remain zero
      */
@@ -274,6 +305,24 @@ public class Archive implements BundlerConstantsI, Serializable {
             return archiveURL;
     }
     
+    /**
+     * Getter method for the number of bytes written using compression.
+     * @return The number of bytes deflated.
+     */
+    @JsonIgnore
+    public long getBytesDeflated() {
+        return (bytesDeflated == null ? 0L : bytesDeflated.longValue());
+    }
+    
+    /**
+     * Getter method for the number of bytes written without compression.
+     * @return The number of bytes stored.
+     */
+    @JsonIgnore
+    public long getBytesStored() {
+        return (bytesStored == null ? 0L : bytesStored.longValue());
+    }
+    
     /**
      * Getter method for the time the job was completed
      * @param state The end time of the job
@@ -439,6 +488,22 @@ public class Archive implements BundlerConstantsI, Serializable {
     public void setArchiveURL(String value) {
             archiveURL = value;
     }
+    
+    /**
+     * Setter method for the number of bytes written using compression.
+     * @param value The number of bytes deflated.
+     */
+    public void setBytesDeflated(long value) {
+        bytesDeflated = value;
+    }
+    
+    /**
+     * Setter method for the number of bytes written without compression.
+     * @param value The number of bytes stored.
+     */
+    public void setBytesStored(long value) {
+        bytesStored = value;
+    }
 
     /**
      * Setter method for the time the job was completed
@@ -567,6 +632,12 @@ public class Archive implements BundlerConstantsI, Serializable {
         sb.append("  Archive URL      : ");
         sb.append(getArchiveURL());
         sb.append(newLine);
+        sb.append("  Bytes Stored     : ");
+        sb.append(getBytesStored());
+        sb.append(newLine);
+        sb.append("  Bytes Deflated   : ");
+        sb.append(getBytesDeflated());
+        sb.append(newLine);
         sb.append("  Hash             : ");
         sb.append(getHash());
         sb.append(newLine);
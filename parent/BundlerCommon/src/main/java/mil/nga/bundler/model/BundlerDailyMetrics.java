@@ -0,0 +1,271 @@
+package mil.nga.bundler.model;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * This class holds the bundler metrics rolled up for a single day.  The
+ * statistics bar charts (jobs submitted, data transferred) read these
+ * rows rather than re-selecting the raw job data on every page view.  Jobs
+ * are bucketed by the (local) day on which they were started and are
+ * folded into the rollup by the MetricsTimerBean once they reach a final
+ * state.
+ */
+@Entity
+@Table(name="BUNDLER_DAILY_METRICS")
+public class BundlerDailyMetrics implements Serializable {
+
+    /*
+      List of columns supported:
+
+      DAY_START (primary key)
+      NUM_ARCHIVES
+      NUM_JOBS
+      NUM_JOBS_COMPLETE
+      TOTAL_COMPRESSED_SIZE
+      TOTAL_ELAPSED_TIME
+      TOTAL_SIZE
+
+     */
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = -2817437000574651393L;
+
+    /**
+     * Time (in milliseconds from the epoch) of midnight at the start of
+     * the day.
+     */
+    @Id
+    @Column(name="DAY_START")
+    private long dayStart = 0L;
+
+    /**
+     * Number of archives created by jobs started on this day.
+     */
+    @Column(name="NUM_ARCHIVES")
+    private long numArchives = 0L;
+
+    /**
+     * Number of jobs started on this day.
+     */
+    @Column(name="NUM_JOBS")
+    private long numJobs = 0L;
+
+    /**
+     * Number of jobs started on this day that completed successfully.
+     */
+    @Column(name="NUM_JOBS_COMPLETE")
+    private long numJobsComplete = 0L;
+
+    /**
+     * Total compressed size of the archives created by jobs started on
+     * this day.
+     */
+    @Column(name="TOTAL_COMPRESSED_SIZE")
+    private long totalCompressedSize = 0L;
+
+    /**
+     * Total time spent processing the successful jobs started on this day.
+     */
+    @Column(name="TOTAL_ELAPSED_TIME")
+    private long totalElapsedTime = 0L;
+
+    /**
+     * Total size of the data requested by jobs started on this day.
+     */
+    @Column(name="TOTAL_SIZE")
+    private long totalSize = 0L;
+
+    /**
+     * Default no-arg constructor required by hibernate.
+     */
+    public BundlerDailyMetrics() {}
+
+    /**
+     * Construct an empty rollup for the day containing the input time.
+     * @param time Any time (in milliseconds from the epoch) on the day.
+     */
+    public BundlerDailyMetrics(long time) {
+        setDayStart(getDayStart(time));
+    }
+
+    /**
+     * Calculate the time of midnight (local time) at the start of the day
+     * containing the input time.
+     *
+     * @param time Time in milliseconds from the epoch.
+     * @return Time of the start of the day in milliseconds from the epoch.
+     */
+    public static long getDayStart(long time) {
+        Calendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(time);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Getter method for the average time spent processing a successful
+     * job started on this day.
+     * @return The average elapsed time (in milliseconds).
+     */
+    public long getAverageElapsedTime() {
+        if (numJobsComplete > 0) {
+            return totalElapsedTime / numJobsComplete;
+        }
+        return 0L;
+    }
+
+    /**
+     * Getter method for the start of the day.
+     * @return The start of the day in milliseconds from the epoch.
+     */
+    public long getDayStart() {
+        return dayStart;
+    }
+
+    /**
+     * Getter method for the number of archives.
+     * @return The number of archives.
+     */
+    public long getNumArchives() {
+        return numArchives;
+    }
+
+    /**
+     * Getter method for the number of jobs.
+     * @return The number of jobs.
+     */
+    public long getNumJobs() {
+        return numJobs;
+    }
+
+    /**
+     * Getter method for the number of successful jobs.
+     * @return The number of successful jobs.
+     */
+    public long getNumJobsComplete() {
+        return numJobsComplete;
+    }
+
+    /**
+     * Getter method for the total compressed size.
+     * @return The total compressed size.
+     */
+    public long getTotalCompressedSize() {
+        return totalCompressedSize;
+    }
+
+    /**
+     * Getter method for the total elapsed time.
+     * @return The total elapsed time.
+     */
+    public long getTotalElapsedTime() {
+        return totalElapsedTime;
+    }
+
+    /**
+     * Getter method for the total size.
+     * @return The total size.
+     */
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Setter method for the start of the day.
+     * @param value The start of the day in milliseconds from the epoch.
+     */
+    public void setDayStart(long value) {
+        dayStart = value;
+    }
+
+    /**
+     * Setter method for the number of archives.
+     * @param value The number of archives.
+     */
+    public void setNumArchives(long value) {
+        numArchives = value;
+    }
+
+    /**
+     * Setter method for the number of jobs.
+     * @param value The number of jobs.
+     */
+    public void setNumJobs(long value) {
+        numJobs = value;
+    }
+
+    /**
+     * Setter method for the number of successful jobs.
+     * @param value The number of successful jobs.
+     */
+    public void setNumJobsComplete(long value) {
+        numJobsComplete = value;
+    }
+
+    /**
+     * Setter method for the total compressed size.
+     * @param value The total compressed size.
+     */
+    public void setTotalCompressedSize(long value) {
+        totalCompressedSize = value;
+    }
+
+    /**
+     * Setter method for the total elapsed time.
+     * @param value The total elapsed time.
+     */
+    public void setTotalElapsedTime(long value) {
+        totalElapsedTime = value;
+    }
+
+    /**
+     * Setter method for the total size.
+     * @param value The total size.
+     */
+    public void setTotalSize(long value) {
+        totalSize = value;
+    }
+
+    /**
+     * Convert to a human-readable String.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        String newLine = System.getProperty("line.separator");
+        sb.append("Day Start             : ");
+        sb.append(getDayStart());
+        sb.append(newLine);
+        sb.append("Num Jobs              : ");
+        sb.append(getNumJobs());
+        sb.append(newLine);
+        sb.append("Num Jobs Complete     : ");
+        sb.append(getNumJobsComplete());
+        sb.append(newLine);
+        sb.append("Num Archives          : ");
+        sb.append(getNumArchives());
+        sb.append(newLine);
+        sb.append("Total Size            : ");
+        sb.append(getTotalSize());
+        sb.append(newLine);
+        sb.append("Total Compressed Size : ");
+        sb.append(getTotalCompressedSize());
+        sb.append(newLine);
+        sb.append("Average Elapsed Time  : ");
+        sb.append(getAverageElapsedTime());
+        sb.append(newLine);
+        return sb.toString();
+    }
+}
@@ -7,6 +7,13 @@ import javax.persistence.*;
 /**
  * JPA Entity implementation containing the overall bundler statistics.
  * 
+ * In addition to the calculated statistics, the entity holds the running 
+ * totals of all jobs that have already been folded into the statistics 
+ * along with the watermark (the latest job end time folded).  This allows
+ * the MetricsTimerBean to process only the jobs that finished since the 
+ * previous run.  The running totals are mapped as wrapper types so rows 
+ * created before the columns were added load as zero (i.e. a full rebuild).
+ * 
  * @author L. Craig Carpenter
  */
 @Entity
@@ -110,6 +117,79 @@ public class BundlerMetrics implements Serializable {
     @Column(name="TOTAL_COMPRESSED_SIZE")
     private long totalCompressedSize = 0L;
     
+    /**
+     * The latest job end time that has been folded into the running totals.
+     */
+    @Column(name="WATERMARK")
+    private Long watermark = 0L;
+    
+    /**
+     * Running total of the number of jobs folded.
+     */
+    @Column(name="RUNNING_NUM_JOBS")
+    private Long runningNumJobs = 0L;
+    
+    /**
+     * Running total of the number of folded jobs that did not complete.
+     */
+    @Column(name="RUNNING_NUM_JOBS_INCOMPLETE")
+    private Long runningNumJobsIncomplete = 0L;
+    
+    /**
+     * Running total of the number of archives in the folded jobs (as 
+     * reported by the job).
+     */
+    @Column(name="RUNNING_NUM_ARCHIVES")
+    private Long runningNumArchives = 0L;
+    
+    /**
+     * Running total of the number of archive records in the folded jobs.
+     */
+    @Column(name="RUNNING_ARCHIVE_COUNT")
+    private Long runningArchiveCount = 0L;
+    
+    /**
+     * Running total of the number of files in the folded jobs.
+     */
+    @Column(name="RUNNING_NUM_FILES")
+    private Long runningNumFiles = 0L;
+    
+    /**
+     * Running total of the uncompressed size of the folded jobs.
+     */
+    @Column(name="RUNNING_TOTAL_SIZE")
+    private Long runningTotalSize = 0L;
+    
+    /**
+     * Running total of the compressed size of the folded jobs.
+     */
+    @Column(name="RUNNING_COMPRESSED_SIZE")
+    private Long runningCompressedSize = 0L;
+    
+    /**
+     * Running total of the elapsed time of the folded jobs.
+     */
+    @Column(name="RUNNING_ELAPSED_TIME")
+    private Long runningElapsedTime = 0L;
+    
+    /**
+     * Running sum of the compression ratios of the folded jobs.
+     */
+    @Column(name="RUNNING_COMPRESSION_RATIO")
+    private Double runningCompressionRatio = 0.0;
+    
+    /**
+     * The earliest job start time of the folded jobs.
+     */
+    @Column(name="RUNNING_START_TIME")
+    private Long runningStartTime = 0L;
+    
+    /**
+     * The latest job end time of the folded jobs.
+     */
+    @Column(name="RUNNING_END_TIME")
+    private Long runningEndTime = 0L;
+    
     /**
      * Default Eclipse-generated constructor.
      */
@@ -244,6 +324,122 @@ public class BundlerMetrics implements Serializable {
         return totalCompressedSize;
     }
     
+    /**
+     * Getter method for the running sum of the compression ratios of the 
+     * folded jobs.
+     * @return The running sum of the compression ratios.
+     */
+    public double getRunningCompressionRatio() {
+        return (runningCompressionRatio == null ? 
+                0.0 : runningCompressionRatio.doubleValue());
+    }
+    
+    /**
+     * Getter method for the running total of the compressed size of the 
+     * folded jobs.
+     * @return The running compressed size.
+     */
+    public long getRunningCompressedSize() {
+        return getValue(runningCompressedSize);
+    }
+    
+    /**
+     * Getter method for the running total of the elapsed time of the folded
+     * jobs.
+     * @return The running elapsed time.
+     */
+    public long getRunningElapsedTime() {
+        return getValue(runningElapsedTime);
+    }
+    
+    /**
+     * Getter method for the latest job end time of the folded jobs.
+     * @return The latest end time of the folded jobs.
+     */
+    public long getRunningEndTime() {
+        return getValue(runningEndTime);
+    }
+    
+    /**
+     * Getter method for the running total of the number of archive records
+     * in the folded jobs.
+     * @return The running number of archive records.
+     */
+    public long getRunningArchiveCount() {
+        return getValue(runningArchiveCount);
+    }
+    
+    /**
+     * Getter method for the running total of the number of archives in the
+     * folded jobs.
+     * @return The running number of archives.
+     */
+    public long getRunningNumArchives() {
+        return getValue(runningNumArchives);
+    }
+    
+    /**
+     * Getter method for the running total of the number of files in the 
+     * folded jobs.
+     * @return The running number of files.
+     */
+    public long getRunningNumFiles() {
+        return getValue(runningNumFiles);
+    }
+    
+    /**
+     * Getter method for the running total of the number of jobs folded.
+     * @return The running number of jobs.
+     */
+    public long getRunningNumJobs() {
+        return getValue(runningNumJobs);
+    }
+    
+    /**
+     * Getter method for the running total of the folded jobs that did not 
+     * complete.
+     * @return The running number of incomplete jobs.
+     */
+    public long getRunningNumJobsIncomplete() {
+        return getValue(runningNumJobsIncomplete);
+    }
+    
+    /**
+     * Getter method for the earliest job start time of the folded jobs.
+     * @return The earliest start time of the folded jobs.
+     */
+    public long getRunningStartTime() {
+        return getValue(runningStartTime);
+    }
+    
+    /**
+     * Getter method for the running total of the uncompressed size of the 
+     * folded jobs.
+     * @return The running total size.
+     */
+    public long getRunningTotalSize() {
+        return getValue(runningTotalSize);
+    }
+    
+    /**
+     * Getter method for the latest job end time folded into the running 
+     * totals.
+     * @return The watermark (0 if no jobs have been folded).
+     */
+    public long getWatermark() {
+        return getValue(watermark);
+    }
+    
+    /**
+     * Null-safe conversion of the running total columns.
+     * @param value The column value (null for rows created before the 
+     * column existed).
+     * @return The value, or 0 if null.
+     */
+    private long getValue(Long value) {
+        return (value == null ? 0L : value.longValue());
+    }
+    
     /**
      * Reset the internal private member values to initial values.
      */
@@ -264,6 +460,130 @@ public class BundlerMetrics implements Serializable {
         setEndTime(0L);
     }
     
+    /**
+     * Reset the running totals and the watermark forcing the next metrics 
+     * calculation to process every job.
+     */
+    public void resetRunningTotals() {
+        setWatermark(0L);
+        setRunningNumJobs(0L);
+        setRunningNumJobsIncomplete(0L);
+        setRunningNumArchives(0L);
+        setRunningArchiveCount(0L);
+        setRunningNumFiles(0L);
+        setRunningTotalSize(0L);
+        setRunningCompressedSize(0L);
+        setRunningElapsedTime(0L);
+        setRunningCompressionRatio(0.0);
+        setRunningStartTime(0L);
+        setRunningEndTime(0L);
+    }
+    
+    /**
+     * Setter method for the running sum of the compression ratios of the 
+     * folded jobs.
+     * @param value The running sum of the compression ratios.
+     */
+    public void setRunningCompressionRatio(double value) {
+        runningCompressionRatio = value;
+    }
+    
+    /**
+     * Setter method for the running total of the compressed size of the 
+     * folded jobs.
+     * @param value The running compressed size.
+     */
+    public void setRunningCompressedSize(long value) {
+        runningCompressedSize = value;
+    }
+    
+    /**
+     * Setter method for the running total of the elapsed time of the folded
+     * jobs.
+     * @param value The running elapsed time.
+     */
+    public void setRunningElapsedTime(long value) {
+        runningElapsedTime = value;
+    }
+    
+    /**
+     * Setter method for the latest job end time of the folded jobs.
+     * @param value The latest end time of the folded jobs.
+     */
+    public void setRunningEndTime(long value) {
+        runningEndTime = value;
+    }
+    
+    /**
+     * Setter method for the running total of the number of archive records
+     * in the folded jobs.
+     * @param value The running number of archive records.
+     */
+    public void setRunningArchiveCount(long value) {
+        runningArchiveCount = value;
+    }
+    
+    /**
+     * Setter method for the running total of the number of archives in the
+     * folded jobs.
+     * @param value The running number of archives.
+     */
+    public void setRunningNumArchives(long value) {
+        runningNumArchives = value;
+    }
+    
+    /**
+     * Setter method for the running total of the number of files in the 
+     * folded jobs.
+     * @param value The running number of files.
+     */
+    public void setRunningNumFiles(long value) {
+        runningNumFiles = value;
+    }
+    
+    /**
+     * Setter method for the running total of the number of jobs folded.
+     * @param value The running number of jobs.
+     */
+    public void setRunningNumJobs(long value) {
+        runningNumJobs = value;
+    }
+    
+    /**
+     * Setter method for the running total of the folded jobs that did not 
+     * complete.
+     * @param value The running number of incomplete jobs.
+     */
+    public void setRunningNumJobsIncomplete(long value) {
+        runningNumJobsIncomplete = value;
+    }
+    
+    /**
+     * Setter method for the earliest job start time of the folded jobs.
+     * @param value The earliest start time of the folded jobs.
+     */
+    public void setRunningStartTime(long value) {
+        runningStartTime = value;
+    }
+    
+    /**
+     * Setter method for the running total of the uncompressed size of the 
+     * folded jobs.
+     * @param value The running total size.
+     */
+    public void setRunningTotalSize(long value) {
+        runningTotalSize = value;
+    }
+    
+    /**
+     * Setter method for the latest job end time folded into the running 
+     * totals.
+     * @param value The watermark.
+     */
+    public void setWatermark(long value) {
+        watermark = value;
+    }
+    
     /**
      * Setter method for the primary key.
      * @param value The primary key.
@@ -448,6 +768,9 @@ public class BundlerMetrics implements Serializable {
         sb.append(" End Time                 : ");
         sb.append(getEndTime());
         sb.append(newLine);
+        sb.append(" Watermark                : ");
+        sb.append(getWatermark());
+        sb.append(newLine);
         sb.append("----------------------------------------");
         sb.append("----------------------------------------");
         sb.append(newLine);
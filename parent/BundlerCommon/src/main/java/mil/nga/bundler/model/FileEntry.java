@@ -20,7 +20,8 @@ import mil.nga.bundler.types.JobStateType;
  * @author L. Craig Carpenter
  */
 @Entity
-@Table(name="FILE_ENTRY")
+@Table(name="FILE_ENTRY", indexes={
+        @Index(name="FILE_ENTRY_JOB_STATE_IDX", columnList="JOB_ID, FILE_STATE")})
 public class FileEntry implements Serializable {
     
     /**
@@ -80,6 +81,14 @@ public class FileEntry implements Serializable {
     @Column(name="FILE_SIZE")
     private long size = 0L;
     
+    /**
+     * Last modification time of the file (milliseconds from the epoch) when
+     * it was validated.  A wrapper type is used because rows created before
+     * the column was added contain null.
+     */
+    @Column(name="LAST_MODIFIED")
+    private Long lastModified = 0L;
+    
     /**
      * Default Eclipse-generated constructor.
      */
@@ -167,6 +176,16 @@ public class FileEntry implements Serializable {
         return entryPath;
     }
     
+    /**
+     * Getter method for the last modification time of the file recorded 
+     * when it was validated.
+     * 
+     * @return The last modification time (0 if unknown).
+     */
+    public long getLastModified() {
+        return (lastModified == null ? 0L : lastModified.longValue());
+    }
+    
     /**
      * Getter method for the full path to the target file.
      * 
@@ -266,6 +285,16 @@ public class FileEntry implements Serializable {
         size = value;
     }
     
+    /**
+     * Setter method for the last modification time of the file.
+     * 
+     * @param value The last modification time (milliseconds from the 
+     * epoch).
+     */
+    public void setLastModified(long value) {
+        lastModified = value;
+    }
+    
     /**
      * Convert to internal members to String format for log/display.
      */
@@ -310,6 +339,9 @@ public class FileEntry implements Serializable {
         sb.append("  Size          : ");
         sb.append(Long.toString(getSize()));
         sb.append(newLine);
+        sb.append("  Modified      : ");
+        sb.append(Long.toString(getLastModified()));
+        sb.append(newLine);
         sb.append("  File State    : ");
         sb.append(getFileState().getText());
         sb.append(newLine);
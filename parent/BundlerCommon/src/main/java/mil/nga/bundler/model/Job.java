@@ -50,6 +50,21 @@ public class Job implements Serializable {
     @Column(name="ARCHIVE_TYPE")
     private ArchiveType archiveType = ArchiveType.ZIP;
     
+    /**
+     * Set while archives are still being added to the job (i.e. the job is
+     * being built incrementally).  The job cannot complete until this flag
+     * is cleared.  Null for jobs created before the column was added.
+     */
+    @Column(name="CREATING")
+    private Boolean creating = Boolean.FALSE;
+    
+    /**
+     * The server building the job.  Only meaningful while the job is being
+     * created.  Null for jobs created before the column was added.
+     */
+    @Column(name="CREATOR_HOST_NAME")
+    private String creatorHostName = null;
+    
     /**
      * Time when the bundle job was completed.  This value will remain zero
      * until the job is complete.
@@ -95,6 +110,14 @@ public class Job implements Serializable {
     @Column(name="JOB_STATE")
     private JobStateType state = JobStateType.NOT_STARTED;
     
+    /**
+     * Time the server building the job last added an archive to it (i.e. 
+     * the heartbeat of the job creation).  Null for jobs created before the
+     * column was added.
+     */
+    @Column(name="LAST_HEARTBEAT")
+    private Long lastHeartbeat = null;
+    
     /**
      * Time when the bundle job was started.
      */
@@ -169,6 +192,35 @@ public class Job implements Serializable {
         return archive;
     }
     
+    /**
+     * Getter method for the flag indicating archives are still being added 
+     * to the job.
+     * @return True while archives are being added.
+     */
+    public boolean isCreating() {
+        return (creating != null) && creating.booleanValue();
+    }
+    
+    /**
+     * Getter method for the server building the job.
+     * @return The host name of the server building the job (may be null).
+     */
+    public String getCreatorHostName() {
+        return creatorHostName;
+    }
+    
+    /**
+     * Getter method for the time the job creation last made progress.  
+     * Jobs without a heartbeat fall back to the start time.
+     * @return The time of the last creation heartbeat.
+     */
+    public long getLastHeartbeat() {
+        if (lastHeartbeat == null) {
+            return startTime;
+        }
+        return lastHeartbeat.longValue();
+    }
+    
     /**
      * Getter method for the target size associated with each individual 
      * archive.
@@ -383,6 +435,31 @@ public class Job implements Serializable {
         state = value;
     }
     
+    /**
+     * Setter method for the flag indicating archives are still being added 
+     * to the job.
+     * @param value True while archives are being added.
+     */
+    public void setCreating(boolean value) {
+        creating = Boolean.valueOf(value);
+    }
+    
+    /**
+     * Setter method for the server building the job.
+     * @param value The host name of the server building the job.
+     */
+    public void setCreatorHostName(String value) {
+        creatorHostName = value;
+    }
+    
+    /**
+     * Setter method for the time the job creation last made progress.
+     * @param value The time of the last creation heartbeat.
+     */
+    public void setLastHeartbeat(long value) {
+        lastHeartbeat = Long.valueOf(value);
+    }
+    
     /**
      * Setter method for the time the job was started
      * @param state The start time of the job
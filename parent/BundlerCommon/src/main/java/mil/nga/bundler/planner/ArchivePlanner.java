@@ -0,0 +1,159 @@
+package mil.nga.bundler.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import mil.nga.bundler.interfaces.ArchivePlannerI;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.FileEntry;
+
+/**
+ * Base class for the archive planners containing the logic used to
+ * estimate archive sizes and to convert the bins filled by a planner back
+ * into groups of files.  The planners work with the uncompressed sizes of
+ * the input files.  The target archive size is converted to the largest
+ * uncompressed size whose estimated output size still fits (the
+ * "capacity" of an archive).
+ */
+public abstract class ArchivePlanner
+        implements ArchivePlannerI, BundlerConstantsI {
+
+    /**
+     * Calculate an estimate of the size of the output archive file created
+     * from input files with the given total size.
+     *
+     * @param size The total size of the input files.
+     * @return The estimated size of the output archive.
+     */
+    public static long getEstimatedArchiveSize(long size) {
+        double multiplier = (100.0 - AVERAGE_COMPRESSION_PERCENTAGE) / 100.0;
+        double estimatedSize = multiplier * (double)size;
+        return (long)estimatedSize;
+    }
+
+    /**
+     * Calculate the largest total size of input files whose estimated
+     * output archive size does not exceed the target archive size.
+     *
+     * @param archiveSize The target archive size.
+     * @return The capacity of an archive.
+     */
+    public static long getCapacity(long archiveSize) {
+        double multiplier = (100.0 - AVERAGE_COMPRESSION_PERCENTAGE) / 100.0;
+        long capacity = (long)((double)archiveSize / multiplier);
+        // Correct for the rounding of the floating point estimate.
+        while ((capacity > 0) &&
+                (getEstimatedArchiveSize(capacity) > archiveSize)) {
+            capacity--;
+        }
+        while (getEstimatedArchiveSize(capacity + 1) <= archiveSize) {
+            capacity++;
+        }
+        return capacity;
+    }
+
+    /**
+     * Sort the indices of the input files by decreasing file size.  Files
+     * of equal size stay in request order.
+     *
+     * @param files The input files.
+     * @return The file indices, largest file first.
+     */
+    protected static Integer[] sortDecreasing(final List<FileEntry> files) {
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                long sizeA = files.get(a).getSize();
+                long sizeB = files.get(b).getSize();
+                return (sizeA < sizeB) ? 1 : ((sizeA > sizeB) ? -1 : 0);
+            }
+        });
+        return order;
+    }
+
+    /**
+     * Convert the filled bins into groups of files.  The files in each
+     * group are kept in request order and the groups are ordered by their
+     * first file, so the archive contents follow the request as closely as
+     * the packing allows.  Empty bins are dropped.
+     *
+     * @param files The input files.
+     * @param bins The filled bins.
+     * @return The groups of files.
+     */
+    protected static List<List<FileEntry>> toGroups(
+            List<FileEntry> files,
+            List<Bin> bins) {
+
+        List<Bin> used = new ArrayList<Bin>();
+        for (Bin bin : bins) {
+            if (!bin.indices.isEmpty()) {
+                Collections.sort(bin.indices);
+                used.add(bin);
+            }
+        }
+        Collections.sort(used, new Comparator<Bin>() {
+            @Override
+            public int compare(Bin a, Bin b) {
+                return a.indices.get(0).compareTo(b.indices.get(0));
+            }
+        });
+
+        List<List<FileEntry>> groups = new ArrayList<List<FileEntry>>();
+        for (Bin bin : used) {
+            List<FileEntry> group = new ArrayList<FileEntry>(
+                    bin.indices.size());
+            for (Integer index : bin.indices) {
+                group.add(files.get(index));
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * The files assigned to one archive.
+     */
+    protected static class Bin {
+
+        /**
+         * Indices of the files in the bin.
+         */
+        protected final List<Integer> indices = new ArrayList<Integer>();
+
+        /**
+         * Total size of the files in the bin.
+         */
+        protected long size = 0L;
+
+        /**
+         * Position of the bin in the list of bins.
+         */
+        protected final int number;
+
+        /**
+         * Constructor.
+         * @param number Position of the bin in the list of bins.
+         */
+        protected Bin(int number) {
+            this.number = number;
+        }
+
+        /**
+         * Add a file to the bin.
+         * @param index Index of the file.
+         * @param fileSize Size of the file.
+         */
+        protected void add(int index, long fileSize) {
+            indices.add(index);
+            size += fileSize;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package mil.nga.bundler.planner;
+
+import mil.nga.bundler.interfaces.ArchivePlannerI;
+import mil.nga.bundler.types.PlannerType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory class designed to instantiate the concrete implementations of
+ * the archive planners.  This class is implemented using the singleton
+ * design pattern and will support the planners contained in the
+ * PlannerType enumeration.
+ */
+public class ArchivePlannerFactory {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            ArchivePlannerFactory.class);
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private ArchivePlannerFactory() {}
+
+    /**
+     * Accessor method for the Singleton instance of the
+     * ArchivePlannerFactory.
+     *
+     * @return The Singleton instance.
+     */
+    public static ArchivePlannerFactory getFactory() {
+        return ArchivePlannerFactoryHolder.getSingleton();
+    }
+
+    /**
+     * Construct a concrete instance of the requested archive planner.  If
+     * no planner type is supplied the balanced planner is returned.
+     *
+     * @param type The type of planner requested.
+     * @return A planner implementing the requested strategy.
+     */
+    public ArchivePlannerI getInstance(PlannerType type) {
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("getInstance() - Client requested archive planner [ "
+                    + type
+                    + " ].");
+        }
+        if (PlannerType.FIRST_FIT.equals(type)) {
+            return new FirstFitPlanner();
+        }
+        else if (PlannerType.FIRST_FIT_DECREASING.equals(type)) {
+            return new FirstFitDecreasingPlanner();
+        }
+        return new BalancedPartitionPlanner();
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are
+     * referenced therefore enforcing thread safety without the performance
+     * hit imposed by the use of the "synchronized" keyword.
+     */
+    public static class ArchivePlannerFactoryHolder {
+
+        /**
+         * Reference to the Singleton instance of the ArchivePlannerFactory
+         */
+        private static ArchivePlannerFactory _instance =
+                new ArchivePlannerFactory();
+
+        /**
+         * Accessor method for the singleton instance of the
+         * ArchivePlannerFactory.
+         *
+         * @return The Singleton instance of the ArchivePlannerFactory.
+         */
+        public static ArchivePlannerFactory getSingleton() {
+            return _instance;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package mil.nga.bundler.planner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import mil.nga.bundler.model.FileEntry;
+
+/**
+ * Archive planner that spreads the files evenly over as few archives as
+ * it can.  The archives of a job are built in parallel, so the job
+ * finishes when its largest archive does.  Filling every archive to the
+ * limit and leaving a small remainder in the last one (as the first-fit
+ * planners do) leaves workers idle while the large archives finish.
+ *
+ * The files are partitioned with the longest-processing-time heuristic:
+ * largest file first, each into the archive holding the least data.  The
+ * smallest archive count for which the result respects the archive size
+ * is found by a binary search between the lower bound (total size divided
+ * by the capacity of an archive) and the first-fit-decreasing count.  If
+ * no count in that range works, the first-fit-decreasing plan is used.
+ * Files larger than an archive are placed in archives of their own.
+ */
+public class BalancedPartitionPlanner extends ArchivePlanner {
+
+    /**
+     * Divide the files evenly into archives.
+     *
+     * @param files The validated files to divide up.
+     * @param archiveSize The target size (in bytes) of the output archives.
+     * @return The groups of files.
+     */
+    @Override
+    public List<List<FileEntry>> plan(
+            List<FileEntry> files,
+            long archiveSize) {
+
+        long capacity = getCapacity(archiveSize);
+
+        // Oversized files are set aside in archives of their own.
+        List<FileEntry> fitting   = new ArrayList<FileEntry>(files.size());
+        List<Integer>   positions = new ArrayList<Integer>(files.size());
+        List<Bin>       oversized = new ArrayList<Bin>();
+        long            total     = 0L;
+        for (int i = 0; i < files.size(); i++) {
+            long size = files.get(i).getSize();
+            if (size > capacity) {
+                Bin bin = new Bin(oversized.size());
+                bin.add(i, size);
+                oversized.add(bin);
+            }
+            else {
+                fitting.add(files.get(i));
+                positions.add(i);
+                total += size;
+            }
+        }
+
+        List<Bin> bins = new ArrayList<Bin>();
+        if (!fitting.isEmpty()) {
+            List<Bin> packed = FirstFitDecreasingPlanner.pack(
+                    fitting,
+                    capacity);
+            Integer[] order = sortDecreasing(fitting);
+            int low  = (int)Math.max(1L,
+                    (capacity > 0) ? (total + capacity - 1) / capacity : 1L);
+            int high = packed.size();
+            while (low <= high) {
+                int count = (low + high) >>> 1;
+                List<Bin> attempt = partition(fitting, order, count, capacity);
+                if (attempt != null) {
+                    packed = attempt;
+                    high   = count - 1;
+                }
+                else {
+                    low = count + 1;
+                }
+            }
+            // Map the indices back to the full list of files.
+            for (Bin bin : packed) {
+                Bin mapped = new Bin(bins.size());
+                for (Integer index : bin.indices) {
+                    mapped.add(positions.get(index),
+                            fitting.get(index).getSize());
+                }
+                bins.add(mapped);
+            }
+        }
+        bins.addAll(oversized);
+        return toGroups(files, bins);
+    }
+
+    /**
+     * Partition the files into the input number of bins, largest file
+     * first, each into the bin holding the least data.
+     *
+     * @param files The files to partition (none larger than the capacity).
+     * @param order The file indices, largest file first.
+     * @param count The number of bins.
+     * @param capacity The capacity of a bin.
+     * @return The filled bins, or null if a file did not fit into the
+     * emptiest bin (and therefore into any bin).
+     */
+    private static List<Bin> partition(
+            List<FileEntry> files,
+            Integer[] order,
+            int count,
+            long capacity) {
+
+        PriorityQueue<Bin> queue = new PriorityQueue<Bin>(
+                count,
+                new Comparator<Bin>() {
+                    @Override
+                    public int compare(Bin a, Bin b) {
+                        if (a.size != b.size) {
+                            return (a.size < b.size) ? -1 : 1;
+                        }
+                        return a.number - b.number;
+                    }
+                });
+        List<Bin> bins = new ArrayList<Bin>(count);
+        for (int i = 0; i < count; i++) {
+            Bin bin = new Bin(i);
+            bins.add(bin);
+            queue.add(bin);
+        }
+        for (int index : order) {
+            long size = files.get(index).getSize();
+            Bin  bin  = queue.poll();
+            if (bin.size + size > capacity) {
+                return null;
+            }
+            bin.add(index, size);
+            queue.add(bin);
+        }
+        return bins;
+    }
+}
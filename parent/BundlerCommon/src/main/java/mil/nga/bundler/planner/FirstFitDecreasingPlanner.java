@@ -0,0 +1,123 @@
+package mil.nga.bundler.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.bundler.model.FileEntry;
+
+/**
+ * Archive planner implementing the first-fit-decreasing bin packing
+ * heuristic.  The files are placed largest first, each into the first
+ * archive with enough room left, so small files fill the space left
+ * behind by the large ones.  First-fit-decreasing never uses more than
+ * 11/9 of the optimal number of archives (plus one).
+ *
+ * The first archive with enough room is found with a tree holding the
+ * maximum room left in each range of archives, so planning takes
+ * O(n log n) time rather than O(n * archives).
+ */
+public class FirstFitDecreasingPlanner extends ArchivePlanner {
+
+    /**
+     * Divide the files into archives using first-fit-decreasing.
+     *
+     * @param files The validated files to divide up.
+     * @param archiveSize The target size (in bytes) of the output archives.
+     * @return The groups of files.
+     */
+    @Override
+    public List<List<FileEntry>> plan(
+            List<FileEntry> files,
+            long archiveSize) {
+        return toGroups(files, pack(files, getCapacity(archiveSize)));
+    }
+
+    /**
+     * Pack the input files into bins of the input capacity.  Files larger
+     * than the capacity are each placed in a bin of their own.
+     *
+     * @param files The files to pack.
+     * @param capacity The capacity of a bin.
+     * @return The filled bins.
+     */
+    protected static List<Bin> pack(List<FileEntry> files, long capacity) {
+
+        List<Bin> bins = new ArrayList<Bin>();
+        if (files.isEmpty()) {
+            return bins;
+        }
+
+        // There can never be more bins than files.
+        RoomTree room = new RoomTree(files.size(), capacity);
+        for (int index : sortDecreasing(files)) {
+            long size   = files.get(index).getSize();
+            int  number = room.findFirst(size);
+            if (number < 0) {
+                // Oversized file, give it a bin of its own.
+                number = bins.size();
+            }
+            if (number == bins.size()) {
+                bins.add(new Bin(number));
+            }
+            bins.get(number).add(index, size);
+            room.set(number, Math.max(0L, capacity - bins.get(number).size));
+        }
+        return bins;
+    }
+
+    /**
+     * Tree of the room left in each bin.  Each node holds the maximum room
+     * left in the bins below it.  Bins that have not been opened yet have
+     * the full capacity, so the search opens a new bin only when none of
+     * the open bins has enough room.
+     */
+    private static class RoomTree {
+
+        private final int    leaves;
+        private final long[] tree;
+
+        private RoomTree(int count, long capacity) {
+            int size = 1;
+            while (size < count) {
+                size <<= 1;
+            }
+            leaves = size;
+            tree   = new long[2 * size];
+            for (int i = 0; i < count; i++) {
+                tree[size + i] = capacity;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        /**
+         * Find the first bin with at least the input room left.
+         * @param size The room required.
+         * @return The bin number, or -1 if no bin has enough room.
+         */
+        private int findFirst(long size) {
+            if (tree[1] < size) {
+                return -1;
+            }
+            int node = 1;
+            while (node < leaves) {
+                node = (tree[2 * node] >= size) ? 2 * node : 2 * node + 1;
+            }
+            return node - leaves;
+        }
+
+        /**
+         * Update the room left in a bin.
+         * @param number The bin number.
+         * @param value The room left.
+         */
+        private void set(int number, long value) {
+            int node = leaves + number;
+            tree[node] = value;
+            for (node >>= 1; node > 0; node >>= 1) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
+}
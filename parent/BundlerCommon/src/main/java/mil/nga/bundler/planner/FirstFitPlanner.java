@@ -0,0 +1,47 @@
+package mil.nga.bundler.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.bundler.model.FileEntry;
+
+/**
+ * The original archive planner.  Files are added to the current archive in
+ * request order and a new archive is started as soon as the next file
+ * would not fit.  The archive contents follow the request exactly, but
+ * the last archive of the job is often much smaller than the others and
+ * a file that does not fit ends the archive even if smaller files
+ * following it would have.
+ */
+public class FirstFitPlanner extends ArchivePlanner {
+
+    /**
+     * Divide the files into archives in request order.
+     *
+     * @param files The validated files to divide up.
+     * @param archiveSize The target size (in bytes) of the output archives.
+     * @return The groups of files.
+     */
+    @Override
+    public List<List<FileEntry>> plan(
+            List<FileEntry> files,
+            long archiveSize) {
+
+        long                  capacity = getCapacity(archiveSize);
+        List<List<FileEntry>> groups   = new ArrayList<List<FileEntry>>();
+        List<FileEntry>       current  = null;
+        long                  size     = 0L;
+
+        for (FileEntry file : files) {
+            if ((current == null) ||
+                    (size + file.getSize() > capacity)) {
+                current = new ArrayList<FileEntry>();
+                groups.add(current);
+                size = 0L;
+            }
+            current.add(file);
+            size += file.getSize();
+        }
+        return groups;
+    }
+}
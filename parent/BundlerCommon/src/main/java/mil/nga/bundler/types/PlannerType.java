@@ -0,0 +1,57 @@
+package mil.nga.bundler.types;
+
+/**
+ * Enumeration type identifying the strategies available for dividing the
+ * files in a job up into individual archives.
+ */
+public enum PlannerType {
+    FIRST_FIT("first_fit"),
+    FIRST_FIT_DECREASING("first_fit_decreasing"),
+    BALANCED("balanced");
+
+    /**
+     * The text field.
+     */
+    private final String text;
+
+    /**
+     * Default constructor
+     * @param text Text associated with the enumeration value.
+     */
+    private PlannerType(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Getter method for the text associated with the enumeration value.
+     *
+     * @return The text associated with the instanced enumeration type.
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * Convert an input String to it's associated enumeration type.  There
+     * is no default type, if an unknown value is supplied an exception is
+     * raised.
+     *
+     * @param text Input text information
+     * @return The appropriate PlannerType enum value.
+     * @throws IllegalArgumentException Thrown if the caller submitted a
+     * String that did not match one of the existing PlannerTypes.
+     */
+    public static PlannerType fromString(String text) {
+        if (text != null) {
+            for (PlannerType type : PlannerType.values()) {
+                if (text.trim().equalsIgnoreCase(type.getText())) {
+                    return type;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown archive planner "
+                + "requested!  Planner requested [ "
+                + text
+                + " ].");
+    }
+}
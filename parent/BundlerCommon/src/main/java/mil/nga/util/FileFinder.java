@@ -1,8 +1,10 @@
 package mil.nga.util;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -81,6 +83,25 @@ public class FileFinder {
 	    
 	}
 	
+	/**
+	 * Walk the file system starting at the input directory, recording the 
+	 * attributes of every regular file found.  The attributes are those 
+	 * read by the walk itself, so clients do not need to stat the files 
+	 * again.
+	 * 
+	 * @param path The starting location for the search.
+	 * @return The Finder holding the results of the walk.
+	 * @exception IOException Thrown during the search process.
+	 */
+	public static Finder walk(String path) throws IOException {
+	    if ((path == null) || (path.isEmpty())) { 
+	        path = "";
+	    }
+	    Finder finder = new Finder("*");
+	    Files.walkFileTree(Paths.get(path), finder);
+	    return finder;
+	}
+	
 	/**
 	 * Internal class that extends the SimpleFileVisitor class that implements
 	 * the actual search.
@@ -100,6 +121,18 @@ public class FileFinder {
 		 */
 		private List<Path> _matches = null;
 		
+		/**
+		 * Attributes of the matches found (in the order they were found).
+		 */
+		private final Map<Path, BasicFileAttributes> _attributes = 
+		        new LinkedHashMap<Path, BasicFileAttributes>();
+		
+		/**
+		 * Number of file system entries visited (i.e. stat calls made by 
+		 * the walk).
+		 */
+		private long _visits = 0L;
+		
 		/**
 		 * Constructor setting up the search.
 		 * 
@@ -132,6 +165,49 @@ public class FileFinder {
             }
         }
         
+        /** 
+         * Compares the glob pattern against the file and/or directory name
+         * using the attributes supplied by the walk rather than reading 
+         * them again.
+         * 
+         * @param file The file to perform the comparison against.
+         * @param attrs The attributes of the file.
+         */
+        public void find(Path file, BasicFileAttributes attrs) {
+            _visits++;
+            Path name = file.getFileName();
+            if ((name != null) 
+                    && (_matcher.matches(name)
+                            && (!attrs.isDirectory()))) {
+                if (_matches == null) {
+                	_matches = new ArrayList<Path>();
+                }
+            	_matches.add(file);
+            	_attributes.put(file, attrs);
+            }
+        }
+        
+        /**
+         * Accessor method for the attributes of the matches found during 
+         * the search.
+         * 
+         * @return Map of each match to its attributes (in the order they 
+         * were found).
+         */
+        public Map<Path, BasicFileAttributes> getAttributes() {
+            return _attributes;
+        }
+        
+        /**
+         * Accessor method for the number of file system entries visited 
+         * during the search (i.e. the number of stat calls made).
+         * 
+         * @return The number of entries visited.
+         */
+        public long getVisits() {
+            return _visits;
+        }
+        
         /**
          * Accessor method for the results of the search.
          * 
@@ -149,7 +225,7 @@ public class FileFinder {
         @Override
         public FileVisitResult preVisitDirectory(Path dir,
                 BasicFileAttributes attrs) {
-            find(dir);
+            find(dir, attrs);
             return FileVisitResult.CONTINUE;
         }
         
@@ -160,7 +236,7 @@ public class FileFinder {
         public FileVisitResult visitFile(
         		Path file,
                 BasicFileAttributes attrs) {
-            find(file);
+            find(file, attrs);
             return FileVisitResult.CONTINUE;
         }
         
@@ -170,6 +246,7 @@ public class FileFinder {
         @Override
         public FileVisitResult visitFileFailed(Path file,
                 IOException exc) {
+            _visits++;
             System.err.println("WARN:  Find command failed visiting file.  " 
             		+ "Error message [ " 
             		+ exc.getMessage()
@@ -0,0 +1,348 @@
+package mil.nga.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fork/join replacement for <code>FileFinder.walk()</code> used to expand
+ * requested directories.  Each directory is listed by its own task and
+ * its sub-directories are walked in parallel.  The entries of large
+ * directories are stat'ed in parallel batches.  The results are returned
+ * in the same order a serial walk of the tree would produce (each
+ * directory's entries in directory stream order, depth first), so the
+ * output does not depend on the thread scheduling.
+ *
+ * A walker is intended to be used for a single request.  The number of
+ * entries found by all of the walks made with it is limited; once the
+ * limit is exceeded the walks in progress stop, any further walks return
+ * nothing and <code>isLimitExceeded()</code> returns true.  The entries
+ * of a directory are counted as soon as it is listed, before they are
+ * stat'ed, so a runaway request is stopped before it can consume much
+ * memory.
+ *
+ * As with <code>Files.walkFileTree()</code> symbolic links are not
+ * followed.  Sub-directories that cannot be read are logged and skipped.
+ */
+public class ParallelFileWalker {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            ParallelFileWalker.class);
+
+    /**
+     * Directories with more entries than this are stat'ed in parallel
+     * batches of (at most) this size.
+     */
+    public static final int STAT_BATCH_SIZE = 64;
+
+    /**
+     * Pool in which the walk tasks execute.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Maximum number of entries that may be found.
+     */
+    private final long maxEntries;
+
+    /**
+     * Number of entries found.
+     */
+    private final AtomicLong entries = new AtomicLong(0L);
+
+    /**
+     * Number of entries stat'ed.
+     */
+    private final AtomicLong visits = new AtomicLong(0L);
+
+    /**
+     * Set when the entry limit is exceeded.
+     */
+    private volatile boolean limitExceeded = false;
+
+    /**
+     * Set when the caller is interrupted.  Tasks still running stop as
+     * soon as possible.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructor.
+     *
+     * @param pool Pool in which the walk tasks execute.  The parallelism of
+     * the pool caps the number of directories walked concurrently.
+     * @param maxEntries Maximum number of entries that may be found by all
+     * of the walks made with this object.
+     */
+    public ParallelFileWalker(ForkJoinPool pool, long maxEntries) {
+        this.pool       = pool;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Walk the file tree below the input directory, recording the
+     * attributes of every entry that is not a directory.  The directory
+     * itself is not stat'ed again.
+     *
+     * @param dir The directory to walk.
+     * @return Map of each entry found to its attributes, in the order a
+     * serial walk would have found them.  If the entry limit was exceeded
+     * the map holds the entries found before the walk stopped.
+     * @throws IOException Thrown if the input directory cannot be read or
+     * the calling thread is interrupted.
+     */
+    public Map<Path, BasicFileAttributes> walk(Path dir) throws IOException {
+
+        Map<Path, BasicFileAttributes> found =
+                new LinkedHashMap<Path, BasicFileAttributes>();
+        if (isHalted()) {
+            return found;
+        }
+
+        DirectoryTask   root = new DirectoryTask(dir);
+        ForkJoinTask<?> task = pool.submit(root);
+        try {
+            task.get();
+        }
+        catch (InterruptedException ie) {
+            stopped = true;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while walking "
+                    + "directory [ "
+                    + dir
+                    + " ].");
+        }
+        catch (ExecutionException ee) {
+            if (ee.getCause() instanceof Error) {
+                throw (Error)ee.getCause();
+            }
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)ee.getCause();
+            }
+            throw new IllegalStateException(ee.getCause());
+        }
+        if (root.failure != null) {
+            throw root.failure;
+        }
+        collect(root, found);
+        return found;
+    }
+
+    /**
+     * Getter method for the number of entries found by all walks.
+     * @return The number of entries found.
+     */
+    public long getEntries() {
+        return entries.get();
+    }
+
+    /**
+     * Getter method for the number of entries stat'ed by all walks.
+     * @return The number of stat calls made.
+     */
+    public long getVisits() {
+        return visits.get();
+    }
+
+    /**
+     * Determine whether the entry limit was exceeded.
+     * @return True if the walks were stopped because too many entries were
+     * found.
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Determine whether the walk should stop.
+     * @return True if the limit was exceeded or the caller was interrupted.
+     */
+    private boolean isHalted() {
+        return limitExceeded || stopped;
+    }
+
+    /**
+     * Copy the results of the input directory task (and, in order, those
+     * of its sub-directories) into the output map.
+     *
+     * @param task A completed directory task.
+     * @param found The output map.
+     */
+    private static void collect(
+            DirectoryTask task,
+            Map<Path, BasicFileAttributes> found) {
+        for (Object item : task.items) {
+            if (item instanceof DirectoryTask) {
+                collect((DirectoryTask)item, found);
+            }
+            else {
+                Found entry = (Found)item;
+                found.put(entry.path, entry.attrs);
+            }
+        }
+    }
+
+    /**
+     * Task that lists one directory, stats its entries and walks its
+     * sub-directories in parallel.  The results are kept in the order
+     * the entries were listed, with each sub-directory's task standing
+     * in for the entries below it.
+     */
+    private class DirectoryTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -4583710196347652287L;
+
+        private final Path dir;
+        private final List<Object> items = new ArrayList<Object>();
+        private IOException failure = null;
+
+        private DirectoryTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (isHalted()) {
+                return;
+            }
+
+            List<Path> children = new ArrayList<Path>();
+            try (DirectoryStream<Path> stream =
+                    Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    children.add(child);
+                }
+            }
+            catch (IOException ioe) {
+                LOGGER.warn("Unable to list directory [ "
+                        + dir
+                        + " ].  Error message [ "
+                        + ioe.getMessage()
+                        + " ].  The directory will be skipped.");
+                failure = ioe;
+                return;
+            }
+
+            if (entries.addAndGet(children.size()) > maxEntries) {
+                if (!limitExceeded) {
+                    LOGGER.error("Directory expansion exceeded the limit "
+                            + "of [ "
+                            + maxEntries
+                            + " ] entries while listing [ "
+                            + dir
+                            + " ].");
+                }
+                limitExceeded = true;
+                return;
+            }
+
+            BasicFileAttributes[] attrs =
+                    new BasicFileAttributes[children.size()];
+            new StatTask(children, attrs, 0, children.size()).invoke();
+
+            List<DirectoryTask> subdirs = new ArrayList<DirectoryTask>();
+            for (int i = 0; i < children.size(); i++) {
+                if (attrs[i] == null) {
+                    continue;
+                }
+                if (attrs[i].isDirectory()) {
+                    DirectoryTask subdir = new DirectoryTask(children.get(i));
+                    subdirs.add(subdir);
+                    items.add(subdir);
+                }
+                else {
+                    items.add(new Found(children.get(i), attrs[i]));
+                }
+            }
+            invokeAll(subdirs);
+        }
+    }
+
+    /**
+     * Task that stats a range of the entries of one directory, splitting
+     * the range in half until it is no larger than
+     * <code>STAT_BATCH_SIZE</code>.  Entries that cannot be stat'ed are
+     * logged and left null.
+     */
+    private class StatTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 7419946528312073511L;
+
+        private final List<Path> paths;
+        private final BasicFileAttributes[] attrs;
+        private final int from;
+        private final int to;
+
+        private StatTask(
+                List<Path> paths,
+                BasicFileAttributes[] attrs,
+                int from,
+                int to) {
+            this.paths = paths;
+            this.attrs = attrs;
+            this.from  = from;
+            this.to    = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) > STAT_BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new StatTask(paths, attrs, from, middle),
+                        new StatTask(paths, attrs, middle, to));
+                return;
+            }
+            for (int i = from; (i < to) && (!isHalted()); i++) {
+                visits.incrementAndGet();
+                try {
+                    attrs[i] = Files.readAttributes(
+                            paths.get(i),
+                            BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                }
+                catch (IOException ioe) {
+                    LOGGER.warn("Unable to read the attributes of [ "
+                            + paths.get(i)
+                            + " ].  Error message [ "
+                            + ioe.getMessage()
+                            + " ].  The file will be skipped.");
+                }
+            }
+        }
+    }
+
+    /**
+     * A file found by the walk and its attributes.
+     */
+    private static class Found {
+
+        private final Path                path;
+        private final BasicFileAttributes attrs;
+
+        private Found(Path path, BasicFileAttributes attrs) {
+            this.path  = path;
+            this.attrs = attrs;
+        }
+    }
+}
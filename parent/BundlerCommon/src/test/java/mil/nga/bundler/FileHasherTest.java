@@ -0,0 +1,102 @@
+package mil.nga.bundler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Random;
+
+import mil.nga.bundler.types.HashType;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * jUnit tests for the single-pass multi-algorithm hasher.
+ */
+public class FileHasherTest {
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private File createFile(String name, byte[] data) throws IOException {
+		File file = _folder.newFile(name);
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(data);
+		fos.close();
+		return file;
+	}
+
+	private byte[] getRandomData(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * All algorithms must match commons-codec.  The buffer size is chosen
+	 * so the file spans several (partial) buffers.
+	 */
+	@Test
+	public void testAllAlgorithms() throws IOException {
+		byte[] data = getRandomData(100000);
+		File file = createFile("hash.dat", data);
+		Map<HashType, String> hashes = new FileHasher(4096).hash(
+				file, EnumSet.allOf(HashType.class));
+		assertEquals(5, hashes.size());
+		assertEquals(DigestUtils.md5Hex(data), hashes.get(HashType.MD5));
+		assertEquals(DigestUtils.sha1Hex(data), hashes.get(HashType.SHA1));
+		assertEquals(DigestUtils.sha256Hex(data),
+				hashes.get(HashType.SHA256));
+		assertEquals(DigestUtils.sha384Hex(data),
+				hashes.get(HashType.SHA384));
+		assertEquals(DigestUtils.sha512Hex(data),
+				hashes.get(HashType.SHA512));
+	}
+
+	@Test
+	public void testSubset() throws IOException {
+		byte[] data = getRandomData(5000);
+		File file = createFile("subset.dat", data);
+		Map<HashType, String> hashes = new FileHasher().hash(
+				file, EnumSet.of(HashType.MD5, HashType.SHA256));
+		assertEquals(2, hashes.size());
+		assertEquals(DigestUtils.md5Hex(data), hashes.get(HashType.MD5));
+		assertEquals(DigestUtils.sha256Hex(data),
+				hashes.get(HashType.SHA256));
+	}
+
+	/**
+	 * The memory-mapped path must produce the same hashes as the streaming
+	 * path.
+	 */
+	@Test
+	public void testMapped() throws IOException {
+		byte[] data = getRandomData(3 * 1024 * 1024 + 17);
+		File file = createFile("mapped.dat", data);
+		FileHasher hasher = new FileHasher();
+		Map<HashType, String> mapped = hasher.hashMapped(
+				file, EnumSet.of(HashType.SHA1, HashType.SHA512));
+		assertEquals(DigestUtils.sha1Hex(data), mapped.get(HashType.SHA1));
+		assertEquals(DigestUtils.sha512Hex(data),
+				mapped.get(HashType.SHA512));
+		hasher.setMapped(true);
+		assertEquals(mapped, hasher.hash(
+				file, EnumSet.of(HashType.SHA1, HashType.SHA512)));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		File file = createFile("empty.dat", new byte[0]);
+		Map<HashType, String> hashes = new FileHasher().hash(
+				file, EnumSet.of(HashType.SHA1));
+		assertEquals(DigestUtils.sha1Hex(new byte[0]),
+				hashes.get(HashType.SHA1));
+	}
+}
@@ -1,7 +1,283 @@
 package mil.nga.bundler;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import mil.nga.bundler.exceptions.InvalidRequestException;
+import mil.nga.bundler.exceptions.ValidationErrorCodes;
+import mil.nga.bundler.messages.FileRequest;
+import mil.nga.bundler.model.FileEntry;
+import mil.nga.util.FileFinder;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * jUnit tests for the parallel file validation.
+ */
 public class FileValidatorTest {
 
-    
-    
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private final ExecutorService _executor = Executors.newFixedThreadPool(4);
+
+    private final ForkJoinPool _pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        _executor.shutdownNow();
+        _pool.shutdownNow();
+    }
+
+    private FileValidator getValidator(long timeout) {
+        return new FileValidator(_executor, 4, timeout, _pool, 100000L);
+    }
+
+    /**
+     * Build a request for 500 files where every seventh file does not
+     * exist.
+     */
+    private List<FileRequest> getRequest(List<String> expected)
+            throws IOException {
+        List<FileRequest> request = new ArrayList<FileRequest>();
+        for (int i = 0; i < 500; i++) {
+            String name = "file_" + i + ".dat";
+            File file = new File(_folder.getRoot(), name);
+            if (i % 7 != 0) {
+                _folder.newFile(name);
+                expected.add(file.getAbsolutePath());
+            }
+            request.add(new FileRequest.FileRequestBuilder()
+                    .file(file.getAbsolutePath())
+                    .build());
+        }
+        return request;
+    }
+
+    /**
+     * The parallel validation must return the valid files in request
+     * order, skipping the missing files and duplicates.
+     */
+    @Test
+    public void testParallelPreservesOrder()
+            throws IOException, InvalidRequestException {
+        List<String> expected = new ArrayList<String>();
+        List<FileRequest> request = getRequest(expected);
+        request.add(request.get(1));
+
+        List<FileEntry> validated = getValidator(60000L)
+                .validate(request);
+        assertEquals(expected.size(), validated.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), validated.get(i).getFilePath());
+        }
+    }
+
+    @Test
+    public void testStringList()
+            throws IOException, InvalidRequestException {
+        List<String> expected = new ArrayList<String>();
+        List<String> request = new ArrayList<String>();
+        for (FileRequest file : getRequest(expected)) {
+            request.add(file.getFile());
+        }
+        List<FileEntry> validated = getValidator(0L)
+                .validateStringList(request);
+        assertEquals(expected.size(), validated.size());
+        assertEquals(expected.get(0), validated.get(0).getFilePath());
+        assertEquals(expected.get(expected.size() - 1),
+                validated.get(validated.size() - 1).getFilePath());
+    }
+
+    /**
+     * Each requested file (valid or not) costs exactly one stat call and
+     * the size and modification time travel with the FileEntry.
+     */
+    @Test
+    public void testOneStatPerFile()
+            throws IOException, InvalidRequestException {
+        List<String> expected = new ArrayList<String>();
+        List<FileRequest> request = getRequest(expected);
+        FileValidator.StatCounter counter = new FileValidator.StatCounter();
+        List<FileEntry> validated = getValidator(0L)
+                .validate(request, counter);
+        assertEquals(expected.size(), validated.size());
+        assertEquals(request.size(), counter.get());
+        File first = new File(expected.get(0));
+        assertEquals(first.length(), validated.get(0).getSize());
+        assertEquals(first.lastModified(),
+                validated.get(0).getLastModified());
+    }
+
+    /**
+     * Build a product directory holding 10 files, a sub-directory holding
+     * 200 files (enough to be stat'ed in several batches) and a nested 
+     * sub-directory holding 5 files.
+     */
+    private File getProduct() throws IOException {
+        File dir = _folder.newFolder("product");
+        File sub = new File(dir, "sub");
+        File nested = new File(sub, "nested");
+        assertTrue(nested.mkdirs());
+        for (int i = 0; i < 215; i++) {
+            File parent = (i < 10) ? dir : ((i < 210) ? sub : nested);
+            assertTrue(new File(parent, "f" + i).createNewFile());
+        }
+        return dir;
+    }
+
+    /**
+     * A requested directory costs one stat for the directory plus one per
+     * entry found below it, and the files are returned in the order a 
+     * serial walk finds them.
+     */
+    @Test
+    public void testDirectoryExpansion()
+            throws IOException, InvalidRequestException {
+        File dir = getProduct();
+        List<FileRequest> request = new ArrayList<FileRequest>();
+        request.add(new FileRequest.FileRequestBuilder()
+                .file(dir.getAbsolutePath())
+                .archivePath("out")
+                .build());
+        FileValidator.StatCounter counter = new FileValidator.StatCounter();
+        List<FileEntry> validated = getValidator(0L)
+                .validate(request, counter);
+        assertEquals(215, validated.size());
+        // The directory, the two sub-directories and the 215 files.
+        assertEquals(1 + 2 + 215, counter.get());
+        List<String> serial = FileFinder.find(dir.getAbsolutePath());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i), validated.get(i).getFilePath());
+            assertTrue(validated.get(i).getEntryPath().startsWith("out/"));
+        }
+    }
+
+    /**
+     * Requests whose directories hold more entries than the limit are 
+     * rejected.
+     */
+    @Test
+    public void testTooManyFiles() throws IOException {
+        List<String> request = new ArrayList<String>();
+        request.add(getProduct().getAbsolutePath());
+        try {
+            new FileValidator(_executor, 4, 0L, _pool, 100L)
+                    .validateStringList(request);
+            fail("Expected an InvalidRequestException.");
+        }
+        catch (InvalidRequestException ire) {
+            assertEquals(ValidationErrorCodes.TOO_MANY_FILES.getID(),
+                    ire.getErrorCode());
+        }
+    }
+
+    private List<FileRequest> getRequest(File... files) {
+        List<FileRequest> request = new ArrayList<FileRequest>();
+        for (File file : files) {
+            request.add(new FileRequest.FileRequestBuilder()
+                    .file(file.getAbsolutePath())
+                    .build());
+        }
+        return request;
+    }
+
+    /**
+     * The expansion limit applies to all of the pieces validated with one
+     * session rather than to each piece.
+     */
+    @Test
+    public void testSessionSharesLimit()
+            throws IOException, InvalidRequestException {
+        File dir = getProduct();
+        FileValidator validator = 
+                new FileValidator(_executor, 4, 0L, _pool, 300L);
+        FileValidator.Session session = validator.newSession();
+        assertEquals(215, validator.validate(
+                getRequest(dir), session).size());
+        try {
+            validator.validate(getRequest(new File(dir, "sub")), session);
+            fail("Expected an InvalidRequestException.");
+        }
+        catch (InvalidRequestException ire) {
+            assertEquals(ValidationErrorCodes.TOO_MANY_FILES.getID(),
+                    ire.getErrorCode());
+        }
+    }
+
+    /**
+     * Files already returned for a session (here, by the expansion of a
+     * directory) are left out of the later pieces.
+     */
+    @Test
+    public void testSessionRemovesDuplicates()
+            throws IOException, InvalidRequestException {
+        File dir = getProduct();
+        File other = _folder.newFile("other.dat");
+        FileValidator validator = getValidator(0L);
+        FileValidator.Session session = validator.newSession();
+        assertEquals(215, validator.validate(
+                getRequest(dir), session).size());
+        List<FileEntry> validated = validator.validate(
+                getRequest(
+                        new File(dir, "f0"), 
+                        new File(new File(dir, "sub"), "f10"), 
+                        other),
+                session);
+        assertEquals(1, validated.size());
+        assertEquals(other.getAbsolutePath(), validated.get(0).getFilePath());
+        try {
+            validator.validate(getRequest(new File(dir, "sub")), session);
+            fail("Expected an InvalidRequestException.");
+        }
+        catch (InvalidRequestException ire) {
+            assertEquals(
+                    ValidationErrorCodes.NO_VALID_INPUT_FILES_FOUND.getID(),
+                    ire.getErrorCode());
+        }
+    }
+
+    /**
+     * A request that cannot be validated within the timeout is rejected.
+     */
+    @Test
+    public void testTimeout() throws IOException, InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Occupy the only thread so none of the batches can run.
+            executor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        latch.await();
+                    }
+                    catch (InterruptedException ie) { }
+                }
+            });
+            new FileValidator(executor, 2, 200L, _pool, 100000L).validate(
+                    getRequest(new ArrayList<String>()));
+            fail("Expected an InvalidRequestException.");
+        }
+        catch (InvalidRequestException ire) {
+            assertEquals(ValidationErrorCodes.VALIDATION_TIMEOUT.getID(),
+                    ire.getErrorCode());
+        }
+        finally {
+            latch.countDown();
+            executor.shutdownNow();
+        }
+    }
 }
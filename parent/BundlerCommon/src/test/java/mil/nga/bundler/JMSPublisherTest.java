@@ -0,0 +1,156 @@
+package mil.nga.bundler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.JMSException;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+import javax.naming.Context;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * jUnit tests for the pooled JMS publisher.  The JMS provider and JNDI
+ * context are stubbed with dynamic proxies.
+ */
+public class JMSPublisherTest {
+
+	private final AtomicInteger _lookups = new AtomicInteger(0);
+	private final AtomicInteger _connections = new AtomicInteger(0);
+	private final AtomicInteger _sent = new AtomicInteger(0);
+	private final AtomicInteger _failures = new AtomicInteger(0);
+
+	@SuppressWarnings("unchecked")
+	private <T> T stub(Class<T> type, InvocationHandler handler) {
+		return (T)Proxy.newProxyInstance(
+				getClass().getClassLoader(),
+				new Class<?>[] { type },
+				handler);
+	}
+
+	private Context getContext() {
+		final QueueConnectionFactory factory = stub(
+				QueueConnectionFactory.class,
+				new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				if (m.getName().equals("createQueueConnection")) {
+					_connections.incrementAndGet();
+					return getConnection();
+				}
+				return null;
+			}
+		});
+		final Queue queue = stub(Queue.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				return null;
+			}
+		});
+		return stub(Context.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				if (m.getName().equals("lookup")) {
+					_lookups.incrementAndGet();
+					return "factory".equals(args[0]) ? factory : queue;
+				}
+				return null;
+			}
+		});
+	}
+
+	private QueueConnection getConnection() {
+		return stub(QueueConnection.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				if (m.getName().equals("createQueueSession")) {
+					return getSession();
+				}
+				return null;
+			}
+		});
+	}
+
+	private QueueSession getSession() {
+		final QueueSender sender = stub(QueueSender.class,
+				new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args)
+					throws JMSException {
+				if (m.getName().equals("send")) {
+					if (_failures.get() > 0) {
+						_failures.decrementAndGet();
+						throw new JMSException("connection lost");
+					}
+					_sent.incrementAndGet();
+				}
+				return null;
+			}
+		});
+		final ObjectMessage message = stub(ObjectMessage.class,
+				new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				return null;
+			}
+		});
+		return stub(QueueSession.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				if (m.getName().equals("createSender")) {
+					return sender;
+				}
+				if (m.getName().equals("createObjectMessage")) {
+					return message;
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Sending many messages must re-use a single connection, session and
+	 * the cached JNDI lookups.
+	 */
+	@Test
+	public void testReuse() throws Exception {
+		JMSPublisher publisher = new JMSPublisher(getContext(), "factory", 4);
+		for (int i = 0; i < 150; i++) {
+			publisher.send("queue/a", Integer.valueOf(i));
+		}
+		publisher.send("queue/b", "done");
+		assertEquals(151, _sent.get());
+		assertEquals(151L, publisher.getMessagesSent());
+		assertEquals(1, _connections.get());
+		assertEquals(1L, publisher.getSessionsOpened());
+		assertEquals(3, _lookups.get());
+	}
+
+	/**
+	 * A failed send is retried once on a new connection.
+	 */
+	@Test
+	public void testRetryOnFailure() throws Exception {
+		JMSPublisher publisher = new JMSPublisher(getContext(), "factory", 4);
+		publisher.send("queue/a", "first");
+		_failures.set(1);
+		publisher.send("queue/a", "second");
+		assertEquals(2, _sent.get());
+		assertEquals(2, _connections.get());
+
+		_failures.set(2);
+		try {
+			publisher.send("queue/a", "third");
+			fail("Expected a JMSException.");
+		}
+		catch (JMSException je) {
+			assertEquals("connection lost", je.getMessage());
+		}
+		publisher.send("queue/a", "fourth");
+		assertEquals(3, _sent.get());
+		assertEquals(4, _connections.get());
+	}
+}
@@ -0,0 +1,169 @@
+package mil.nga.bundler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.bundler.exceptions.InvalidRequestException;
+import mil.nga.bundler.exceptions.ValidationErrorCodes;
+import mil.nga.bundler.interfaces.JobBuilderListenerI;
+import mil.nga.bundler.messages.BundleRequestMessage;
+import mil.nga.bundler.messages.FileRequest;
+import mil.nga.bundler.model.Archive;
+import mil.nga.bundler.model.Job;
+import mil.nga.bundler.planner.FirstFitPlanner;
+import mil.nga.bundler.types.ArchiveType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * jUnit tests for building a job incrementally.
+ */
+public class JobFactoryTest {
+
+	private static final long FILE_SIZE = 10L * 1024L * 1024L;
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	/**
+	 * Listener recording the calls made by the JobFactory.
+	 */
+	private static class Recorder implements JobBuilderListenerI {
+
+		private final List<String> events = new ArrayList<String>();
+		private final List<Integer> filesSealed = new ArrayList<Integer>();
+
+		public void created(Job job) {
+			assertTrue(job.isCreating());
+			assertTrue((job.getArchives() == null) ||
+					(job.getArchives().isEmpty()));
+			events.add("created");
+		}
+
+		public void sealed(Job job, Archive archive) {
+			assertNotNull(archive.getArchive());
+			assertNotNull(archive.getHash());
+			assertEquals(archive.getFiles().size(), archive.getNumFiles());
+			filesSealed.add(archive.getFiles().size());
+			events.add("sealed");
+		}
+
+		public void finished(Job job) {
+			assertFalse(job.isCreating());
+			events.add("finished");
+		}
+
+		public void failed(Job job) {
+			events.add("failed");
+		}
+	}
+
+	/**
+	 * Build a request for the input number of (sparse) 10MB files.  Every
+	 * file at an index in the missing list is not created.
+	 */
+	private BundleRequestMessage getRequest(int count, int... missing)
+			throws IOException {
+		List<FileRequest> files = new ArrayList<FileRequest>();
+		for (int i = 0; i < count; i++) {
+			File file = new File(_folder.getRoot(), "file_" + i + ".dat");
+			boolean create = true;
+			for (int index : missing) {
+				create = create && (index != i);
+			}
+			if (create) {
+				RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				try {
+					raf.setLength(FILE_SIZE);
+				}
+				finally {
+					raf.close();
+				}
+			}
+			files.add(new FileRequest.FileRequestBuilder()
+					.file(file.getAbsolutePath())
+					.build());
+		}
+		return new BundleRequestMessage.BundleRequestMessageBuilder()
+				.maxSize(21)
+				.type(ArchiveType.ZIP)
+				.userName("test")
+				.files(files)
+				.build();
+	}
+
+	/**
+	 * Each archive is handed to the listener as soon as it is full, and the
+	 * job totals are final when the job is finished.
+	 */
+	@Test
+	public void testStreaming() throws IOException, InvalidRequestException {
+		Recorder recorder = new Recorder();
+		Job job = new JobFactory().createJob(getRequest(11, 4), recorder);
+
+		// 21MB archives hold two 10MB files after the compression estimate.
+		assertEquals("created", recorder.events.get(0));
+		assertEquals("finished",
+				recorder.events.get(recorder.events.size() - 1));
+		assertEquals(5, recorder.filesSealed.size());
+		for (int count : recorder.filesSealed) {
+			assertEquals(2, count);
+		}
+		assertEquals(5, job.getNumArchives());
+		assertEquals(10L, job.getNumFiles());
+		assertEquals(10L * FILE_SIZE, job.getTotalSize());
+		for (Archive archive : job.getArchives()) {
+			assertTrue(archive.getFiles().isEmpty());
+			assertEquals(2L, archive.getNumFiles());
+		}
+	}
+
+	/**
+	 * The archive left open at the end of a chunk is completed with files
+	 * from the next chunk rather than sealed half full.
+	 */
+	@Test
+	public void testStreamingChunks()
+			throws IOException, InvalidRequestException {
+		Recorder recorder = new Recorder();
+		Job job = new JobFactory(new FirstFitPlanner(), 3)
+				.createJob(getRequest(11, 4), recorder);
+
+		assertEquals(5, recorder.filesSealed.size());
+		for (int count : recorder.filesSealed) {
+			assertEquals(2, count);
+		}
+		assertEquals(5, job.getNumArchives());
+		assertEquals(10L, job.getNumFiles());
+		assertEquals(10L * FILE_SIZE, job.getTotalSize());
+	}
+
+	/**
+	 * Nothing is created if none of the requested files exist.
+	 */
+	@Test
+	public void testNoValidFiles() throws IOException {
+		Recorder recorder = new Recorder();
+		try {
+			new JobFactory().createJob(getRequest(3, 0, 1, 2), recorder);
+			fail("Expected an InvalidRequestException.");
+		}
+		catch (InvalidRequestException ire) {
+			assertEquals(
+					ValidationErrorCodes.NO_VALID_INPUT_FILES_FOUND.getID(),
+					ire.getErrorCode());
+		}
+		assertTrue(recorder.events.isEmpty());
+	}
+}
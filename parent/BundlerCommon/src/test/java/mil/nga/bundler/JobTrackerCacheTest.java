@@ -0,0 +1,111 @@
+package mil.nga.bundler;
+
+import mil.nga.bundler.messages.JobTrackerMessage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * jUnit tests for the job status cache.
+ */
+public class JobTrackerCacheTest {
+
+	private JobTrackerMessage getMessage(String jobID) {
+		return new JobTrackerMessage(jobID, "user", 10L, 1000L, 1);
+	}
+
+	@Test
+	public void testHitAndMiss() {
+		JobTrackerCache cache = new JobTrackerCache(10, 60000L);
+		JobTrackerMessage message = getMessage("job1");
+		assertNull(cache.get("job1"));
+		cache.put(message, cache.getGeneration("job1"));
+		assertSame(message, cache.get("job1"));
+		assertEquals(1L, cache.getHits());
+		assertEquals(1L, cache.getMisses());
+	}
+
+	@Test
+	public void testInvalidate() {
+		JobTrackerCache cache = new JobTrackerCache(10, 60000L);
+		cache.put(getMessage("job1"), cache.getGeneration("job1"));
+		cache.invalidate("job1");
+		assertNull(cache.get("job1"));
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Without a transaction the entry is removed immediately.
+	 */
+	@Test
+	public void testInvalidateWithoutTransaction() {
+		JobTrackerCache cache = new JobTrackerCache(10, 60000L);
+		cache.put(getMessage("job1"), cache.getGeneration("job1"));
+		cache.invalidateAfterCompletion(null, "job1");
+		assertNull(cache.get("job1"));
+	}
+
+	/**
+	 * State loaded before an invalidation is not cached.
+	 */
+	@Test
+	public void testStalePut() {
+		JobTrackerCache cache = new JobTrackerCache(10, 60000L);
+		long generation = cache.getGeneration("job1");
+		cache.invalidate("job1");
+		cache.put(getMessage("job1"), generation);
+		assertNull(cache.get("job1"));
+		cache.put(getMessage("job1"), cache.getGeneration("job1"));
+		assertEquals("job1", cache.get("job1").getJobID());
+	}
+
+	/**
+	 * State loaded before an invalidation is not cached even if the 
+	 * generation of the job has since been dropped.
+	 */
+	@Test
+	public void testStalePutAfterGenerationDropped() {
+		JobTrackerCache cache = new JobTrackerCache(1, 60000L);
+		long generation = cache.getGeneration("job1");
+		cache.invalidate("job1");
+		cache.invalidate("job2");
+		cache.put(getMessage("job1"), generation);
+		assertNull(cache.get("job1"));
+	}
+
+	@Test
+	public void testExpiry() throws InterruptedException {
+		JobTrackerCache cache = new JobTrackerCache(10, 20L);
+		cache.put(getMessage("job1"), cache.getGeneration("job1"));
+		Thread.sleep(50L);
+		assertNull(cache.get("job1"));
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * The least-recently used job is evicted once the cap is reached.
+	 */
+	@Test
+	public void testSizeCap() {
+		JobTrackerCache cache = new JobTrackerCache(2, 60000L);
+		cache.put(getMessage("job1"), cache.getGeneration("job1"));
+		cache.put(getMessage("job2"), cache.getGeneration("job2"));
+		cache.get("job1");
+		cache.put(getMessage("job3"), cache.getGeneration("job3"));
+		assertEquals(2, cache.size());
+		assertEquals(1L, cache.getEvictions());
+		assertNull(cache.get("job2"));
+		assertEquals("job1", cache.get("job1").getJobID());
+	}
+
+	@Test
+	public void testDisabled() {
+		JobTrackerCache cache = new JobTrackerCache(10, 0L);
+		cache.put(getMessage("job1"), cache.getGeneration("job1"));
+		assertNull(cache.get("job1"));
+		assertEquals(0, cache.size());
+	}
+}
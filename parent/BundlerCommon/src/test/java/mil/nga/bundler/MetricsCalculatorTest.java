@@ -0,0 +1,185 @@
+package mil.nga.bundler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.bundler.model.Archive;
+import mil.nga.bundler.model.BundlerDailyMetrics;
+import mil.nga.bundler.model.BundlerMetrics;
+import mil.nga.bundler.model.Job;
+import mil.nga.bundler.types.ArchiveType;
+import mil.nga.bundler.types.JobStateType;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * jUnit tests for the incremental metrics calculations.
+ */
+public class MetricsCalculatorTest {
+
+	private Job getJob(int index, JobStateType state) {
+		Job job = new Job();
+		job.setJobID("job" + index);
+		job.setState(state);
+		job.setStartTime(1000L * index);
+		if (state == JobStateType.COMPLETE) {
+			job.setEndTime((1000L * index) + (100L * index));
+		}
+		job.setNumFiles(10L * index);
+		job.setTotalSize(10000L * index);
+		job.setNumArchives(index % 3 + 1);
+		for (int i = 0; i < job.getNumArchives(); i++) {
+			Archive archive = new Archive(job.getJobID(), i, ArchiveType.ZIP);
+			archive.setArchiveState(state);
+			archive.setSize(1000L * index);
+			job.addArchive(archive);
+		}
+		return job;
+	}
+
+	private List<Job> getJobs() {
+		List<Job> jobs = new ArrayList<Job>();
+		for (int i = 1; i <= 20; i++) {
+			jobs.add(getJob(i, (i % 5 == 0) ? 
+					JobStateType.IN_PROGRESS : JobStateType.COMPLETE));
+		}
+		return jobs;
+	}
+
+	private void assertMetricsEqual(BundlerMetrics expected, 
+			BundlerMetrics actual) {
+		assertEquals(expected.getTotalNumJobs(), actual.getTotalNumJobs());
+		assertEquals(expected.getNumJobsIncomplete(), 
+				actual.getNumJobsIncomplete());
+		assertEquals(expected.getTotalNumFiles(), actual.getTotalNumFiles());
+		assertEquals(expected.getTotalNumArchives(), 
+				actual.getTotalNumArchives());
+		assertEquals(expected.getTotalSize(), actual.getTotalSize());
+		assertEquals(expected.getTotalCompressedSize(), 
+				actual.getTotalCompressedSize());
+		assertEquals(expected.getAverageCompression(), 
+				actual.getAverageCompression(), 1e-9);
+		assertEquals(expected.getAbsoluteCompression(), 
+				actual.getAbsoluteCompression(), 1e-9);
+		assertEquals(expected.getAverageTimePerJob(), 
+				actual.getAverageTimePerJob());
+		assertEquals(expected.getAverageSizePerJob(), 
+				actual.getAverageSizePerJob());
+		assertEquals(expected.getAverageNumFilesPerJob(), 
+				actual.getAverageNumFilesPerJob());
+		assertEquals(expected.getAverageNumArchivesPerJob(), 
+				actual.getAverageNumArchivesPerJob(), 1e-9);
+		assertEquals(expected.getStartTime(), actual.getStartTime());
+		assertEquals(expected.getEndTime(), actual.getEndTime());
+	}
+
+	/**
+	 * Folding the jobs over several runs and adding the jobs that have not
+	 * been folded must give the same result as the full calculation.
+	 */
+	@Test
+	public void testIncrementalMatchesFull() {
+		List<Job> jobs = getJobs();
+		MetricsCalculator calc = new MetricsCalculator();
+
+		BundlerMetrics full = new BundlerMetrics();
+		calc.getMetrics(full, jobs);
+
+		BundlerMetrics incremental = new BundlerMetrics();
+		List<Job> unfinished = new ArrayList<Job>();
+		List<Job> first = new ArrayList<Job>();
+		List<Job> second = new ArrayList<Job>();
+		for (Job job : jobs) {
+			if (job.getState() != JobStateType.COMPLETE) {
+				unfinished.add(job);
+			}
+			else if (job.getEndTime() <= 10000L) {
+				first.add(job);
+			}
+			else {
+				second.add(job);
+			}
+		}
+		calc.fold(incremental, first, 10000L);
+		calc.getIncrementalMetrics(incremental, 
+				concat(second, unfinished));
+		assertMetricsEqual(full, incremental);
+
+		calc.fold(incremental, second, 30000L);
+		calc.getIncrementalMetrics(incremental, unfinished);
+		assertMetricsEqual(full, incremental);
+		assertEquals(30000L, incremental.getWatermark());
+		assertEquals(first.size() + second.size(), 
+				incremental.getRunningNumJobs());
+	}
+
+	@Test
+	public void testResetRunningTotals() {
+		MetricsCalculator calc = new MetricsCalculator();
+		BundlerMetrics metrics = new BundlerMetrics();
+		calc.fold(metrics, getJobs(), 50000L);
+		metrics.resetRunningTotals();
+		assertEquals(0L, metrics.getWatermark());
+		assertEquals(0L, metrics.getRunningNumJobs());
+		assertEquals(0L, metrics.getRunningTotalSize());
+	}
+
+	/**
+	 * Jobs are bucketed by the day they were started and folding over 
+	 * several runs must give the same rollup as a single fold.
+	 */
+	@Test
+	public void testFoldDaily() {
+		long day = 24L * 60L * 60L * 1000L;
+		long today = BundlerDailyMetrics.getDayStart(
+				System.currentTimeMillis());
+		MetricsCalculator calc = new MetricsCalculator();
+		List<Job> first = new ArrayList<Job>();
+		List<Job> second = new ArrayList<Job>();
+		for (int i = 1; i <= 6; i++) {
+			Job job = getJob(i, (i == 6) ? 
+					JobStateType.ERROR : JobStateType.COMPLETE);
+			job.setStartTime(today - ((i % 2) * day) + (day / 2) + (1000L * i));
+			job.setEndTime(job.getStartTime() + (100L * i));
+			if (i <= 3) {
+				first.add(job);
+			}
+			else {
+				second.add(job);
+			}
+		}
+
+		Map<Long, BundlerDailyMetrics> days = 
+				new HashMap<Long, BundlerDailyMetrics>();
+		calc.foldDaily(days, first);
+		calc.foldDaily(days, second);
+		assertEquals(2, days.size());
+
+		// Jobs 2, 4 and 6 were started today.
+		BundlerDailyMetrics rollup = days.get(today);
+		assertEquals(3L, rollup.getNumJobs());
+		assertEquals(2L, rollup.getNumJobsComplete());
+		assertEquals(120000L, rollup.getTotalSize());
+		assertEquals(300L, rollup.getAverageElapsedTime());
+		assertEquals(3L + 2L + 1L, rollup.getNumArchives());
+		assertEquals(6000L + 8000L, rollup.getTotalCompressedSize());
+
+		// Jobs 1, 3 and 5 were started yesterday.
+		rollup = days.get(BundlerDailyMetrics.getDayStart(today - (day / 2)));
+		assertEquals(3L, rollup.getNumJobs());
+		assertEquals(90000L, rollup.getTotalSize());
+		assertEquals(300L, rollup.getAverageElapsedTime());
+		assertNull(days.get(BundlerDailyMetrics.getDayStart(today + day)));
+	}
+
+	private List<Job> concat(List<Job> a, List<Job> b) {
+		List<Job> result = new ArrayList<Job>(a);
+		result.addAll(b);
+		return result;
+	}
+}
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import mil.nga.bundler.archive.Archiver;
+import mil.nga.bundler.model.FileEntry;
 
 import org.junit.Test;
 import org.junit.BeforeClass;
@@ -165,4 +166,22 @@ public class ArchiveTest {
 				"file6.txt");
 		return list;
 	}
+	
+	/**
+	 * Construct a list of FileEntry objects based on the files created 
+	 * above.  The entry path is set to the path relative to the directory
+	 * being archived.
+	 * @return Populated List
+	 */
+	protected List<FileEntry> getFileEntryList() {
+		List<FileEntry> list = new ArrayList<FileEntry>();
+		for (String path : getFileList()) {
+			File file = new File(path);
+			list.add(new FileEntry(
+					path,
+					Archiver.getEntryPath(path, ArchiveTest._dirToArchive),
+					file.length()));
+		}
+		return list;
+	}
 }
@@ -1,9 +1,15 @@
 package mil.nga.bundler.archive;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.List;
 
 import mil.nga.bundler.archive.ArchiveFactory;
@@ -11,6 +17,12 @@ import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.exceptions.ArchiveException;
 import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
+import mil.nga.bundler.model.FileEntry;
+import mil.nga.bundler.types.JobStateType;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 
 import org.junit.Test;
 
@@ -18,6 +30,7 @@ public class BZip2ArchiveTest extends ArchiveTest {
 
 	public String _archiveFilename1 = "bzip2_archive_1";
 	public String _archiveFilename2 = "bzip2_archive_2";
+	public String _archiveFilename3 = "bzip2_archive_3";
 	
 	/**
 	 * This method tests that the GZIP archiver can archive a directory 
@@ -93,4 +106,105 @@ public class BZip2ArchiveTest extends ArchiveTest {
 			uae.printStackTrace();
 		}
 	}
+	
+	/**
+	 * This method tests that the BZIP2 archiver streams a list of FileEntry 
+	 * objects directly into the compressor (i.e. without an intermediate 
+	 * TAR file) and that the output can be read back by commons-compress.
+	 * 
+	 * @throws ArchiveException Thrown if there are problems validating the
+	 * input data.  Exceptions will fail the test.
+	 * @throws IOException Exception thrown if there are problems writing
+	 * the output archive file.  Exceptions will fail the test.
+	 */
+	@Test
+	public void testBundler3() throws ArchiveException, IOException {
+	
+		// Build the path to the output file
+		StringBuilder sb = new StringBuilder();
+		sb.append(ArchiveTest._tempDir);
+		sb.append(File.separator);
+		sb.append(this._archiveFilename3);
+		sb.append(".bz2");
+		this._archiveFilename3 = sb.toString();
+		
+		List<FileEntry> list = super.getFileEntryList();
+		BZip2Archiver bundler = new BZip2Archiver();
+		bundler.bundle(list, this._archiveFilename3);
+		
+		// The archive must be created at the requested location
+		assertEquals(this._archiveFilename3, bundler.getArchiveName());
+		File archive = new File(bundler.getArchiveName());
+		assertTrue(archive.exists());
+		assertFalse(new File(this._archiveFilename3 + ".tar").exists());
+		assertTrue(bundler.getBytesSaved() > 0);
+		
+		int count = 0;
+		TarArchiveInputStream tais = new TarArchiveInputStream(
+				new BZip2CompressorInputStream(
+						new FileInputStream(archive)));
+		try {
+			TarArchiveEntry entry = null;
+			while ((entry = tais.getNextTarEntry()) != null) {
+				assertEquals(TEMP_FILE_SIZE, entry.getSize());
+				count++;
+			}
+		}
+		finally {
+			tais.close();
+		}
+		assertEquals(list.size(), count);
+		for (FileEntry entry : list) {
+			assertEquals(JobStateType.COMPLETE, entry.getFileState());
+		}
+	}
+	
+	/**
+	 * BZip2 archiver whose parallel compressor workers always fail.
+	 */
+	private static class FailingBZip2Archiver extends BZip2Archiver {
+		@Override
+		protected OutputStream getCompressorOutputStream(OutputStream out) 
+				throws IOException {
+			return new ParallelBZip2OutputStream(
+					out, new FailingExecutor(), 2);
+		}
+	}
+	
+	/**
+	 * The failure of a block worker is only reported when the stream is 
+	 * finished.  It must fail the bundle operation and the partial archive
+	 * must not be left behind.
+	 */
+	@Test
+	public void testWorkerFailure() throws ArchiveException {
+		String output = ArchiveTest._tempDir 
+				+ File.separator + "bzip2_archive_failed.bz2";
+		BZip2Archiver bundler = new FailingBZip2Archiver();
+		try {
+			bundler.bundle(super.getFileEntryList(), output);
+			fail("Expected an IOException.");
+		}
+		catch (IOException ioe) { }
+		assertFalse(new File(output).exists());
+	}
+	
+	/**
+	 * Same as above for the two-pass (intermediate TAR file) path.
+	 */
+	@Test
+	public void testWorkerFailureNotStreaming() throws IOException {
+		File input = new File(ArchiveTest._tempDir, "bzip2_failed_input.tar");
+		Files.write(input.toPath(), new byte[128 * 1024]);
+		File output = new File(ArchiveTest._tempDir, "bzip2_failed_input.tar.bz2");
+		try {
+			new FailingBZip2Archiver().compress(input, output);
+			fail("Expected an IOException.");
+		}
+		catch (IOException ioe) { }
+		finally {
+			input.delete();
+		}
+		assertFalse(output.exists());
+	}
 }
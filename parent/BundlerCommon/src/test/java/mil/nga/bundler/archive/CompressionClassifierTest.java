@@ -0,0 +1,138 @@
+package mil.nga.bundler.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jUnit tests for the STORED/DEFLATED classifier used by the ZIP archiver.
+ */
+public class CompressionClassifierTest {
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+	
+	private CompressionClassifier _classifier = new CompressionClassifier();
+	
+	private File createFile(String name, byte[] data) throws IOException {
+		File file = _folder.newFile(name);
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(data);
+		fos.close();
+		return file;
+	}
+	
+	private byte[] getRandomData(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+	
+	private byte[] getTextData(int size) {
+		byte[] data = new byte[size];
+		byte[] text = "The quick brown fox jumps over the lazy dog. ".getBytes();
+		for (int i = 0; i < size; i++) {
+			data[i] = text[i % text.length];
+		}
+		return data;
+	}
+	
+	@Test
+	public void testCompressibleData() throws IOException {
+		assertFalse(_classifier.shouldStore(
+				createFile("text.dat", getTextData(64 * 1024))));
+	}
+	
+	@Test
+	public void testIncompressibleData() throws IOException {
+		assertTrue(_classifier.shouldStore(
+				createFile("random.dat", getRandomData(64 * 1024))));
+	}
+	
+	@Test
+	public void testExtension() throws IOException {
+		assertTrue(_classifier.shouldStore(
+				createFile("image.JP2", getTextData(64 * 1024))));
+	}
+	
+	@Test
+	public void testMagicNumber() throws IOException {
+		byte[] data = getTextData(64 * 1024);
+		data[0] = 0x50;
+		data[1] = 0x4b;
+		data[2] = 0x03;
+		data[3] = 0x04;
+		assertTrue(_classifier.shouldStore(createFile("nested.dat", data)));
+	}
+	
+	@Test
+	public void testSmallFile() throws IOException {
+		assertFalse(_classifier.shouldStore(
+				createFile("small.jpg", getRandomData(100))));
+	}
+	
+	/**
+	 * Write an ASCII field into a NITF header.
+	 */
+	private void putField(byte[] header, int offset, String value) {
+		byte[] field = value.getBytes();
+		System.arraycopy(field, 0, header, offset, field.length);
+	}
+	
+	/**
+	 * Build a NITF 2.1 file containing a single image segment.  The file
+	 * and image subheaders are padded with text so that they fill the 
+	 * sampled leading bytes of the file.
+	 * 
+	 * @param ic The image compression code.
+	 * @param image The image data.
+	 */
+	private byte[] getNitf(String ic, byte[] image) throws IOException {
+		int hl   = 2000;
+		int lish = 8000;
+		byte[] header    = getTextData(hl);
+		byte[] subheader = getTextData(lish);
+		putField(header, 0, "NITF02.10");
+		putField(header, 354, String.format("%06d", hl));
+		putField(header, 360, "001");
+		putField(header, 363, String.format("%06d", lish));
+		putField(header, 369, String.format("%010d", image.length));
+		putField(subheader, 0, "IM");
+		putField(subheader, 371, "G");
+		putField(subheader, 432, "1");
+		putField(subheader, 513, ic);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		baos.write(header);
+		baos.write(subheader);
+		baos.write(image);
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * A NITF wrapping JPEG2000 imagery is stored even though its text 
+	 * headers make the leading bytes compressible.
+	 */
+	@Test
+	public void testCompressedNitf() throws IOException {
+		byte[] nitf = getNitf("C8", getRandomData(256 * 1024));
+		assertTrue(_classifier.shouldStore(createFile("image.ntf", nitf)));
+	}
+	
+	/**
+	 * A NITF holding uncompressed imagery is deflated.
+	 */
+	@Test
+	public void testUncompressedNitf() throws IOException {
+		byte[] nitf = getNitf("NC", getTextData(256 * 1024));
+		assertFalse(_classifier.shouldStore(createFile("image.ntf", nitf)));
+	}
+}
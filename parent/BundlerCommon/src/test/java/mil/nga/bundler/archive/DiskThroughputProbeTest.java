@@ -0,0 +1,40 @@
+package mil.nga.bundler.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jUnit tests for the disk throughput probe used to size the I/O archive
+ * workers.
+ */
+public class DiskThroughputProbeTest {
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+	
+	/**
+	 * Ensure the probe returns a value within the requested bounds and 
+	 * cleans up after itself.
+	 */
+	@Test
+	public void testRecommendStreams() throws IOException {
+		File dir = _folder.newFolder("probe");
+		DiskThroughputProbe probe = new DiskThroughputProbe(
+				dir, 
+				Executors.defaultThreadFactory(), 
+				1024 * 1024);
+		int streams = probe.recommendStreams(4);
+		System.out.println("Recommended I/O streams [ " + streams + " ].");
+		assertTrue(streams >= 1);
+		assertTrue(streams <= 4);
+		assertEquals(0, dir.listFiles().length);
+	}
+}
@@ -0,0 +1,48 @@
+package mil.nga.bundler.archive;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor used to simulate the failure of the block workers of the 
+ * parallel compressors.  Every task submitted fails with an IOException.
+ */
+public class FailingExecutor extends AbstractExecutorService {
+
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+		return new FutureTask<T>(new Callable<T>() {
+			public T call() throws Exception {
+				throw new IOException("Simulated block worker failure.");
+			}
+		});
+	}
+
+	public void execute(Runnable command) {
+		command.run();
+	}
+
+	public void shutdown() { }
+
+	public List<Runnable> shutdownNow() {
+		return Collections.emptyList();
+	}
+
+	public boolean isShutdown() {
+		return false;
+	}
+
+	public boolean isTerminated() {
+		return false;
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) {
+		return true;
+	}
+}
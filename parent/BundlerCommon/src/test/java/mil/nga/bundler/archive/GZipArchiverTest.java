@@ -1,9 +1,16 @@
 package mil.nga.bundler.archive;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.List;
 
 import mil.nga.bundler.archive.ArchiveFactory;
@@ -11,6 +18,13 @@ import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.exceptions.ArchiveException;
 import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
+import mil.nga.bundler.model.FileEntry;
+import mil.nga.bundler.types.JobStateType;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 
 import org.junit.Test;
 
@@ -18,6 +32,7 @@ public class GZipArchiverTest extends ArchiveTest {
 
 	public String _archiveFilename1 = "gzip_archive_1";
 	public String _archiveFilename2 = "gzip_archive_2";
+	public String _archiveFilename3 = "gzip_archive_3";
 
 	
 	/**
@@ -94,4 +109,110 @@ public class GZipArchiverTest extends ArchiveTest {
 			uae.printStackTrace();
 		}
 	}
+	
+	/**
+	 * This method tests that the GZIP archiver streams a list of FileEntry 
+	 * objects directly into the compressor (i.e. without an intermediate 
+	 * TAR file) and that the output can be read back by commons-compress.
+	 * 
+	 * @throws ArchiveException Thrown if there are problems validating the
+	 * input data.  Exceptions will fail the test.
+	 * @throws IOException Exception thrown if there are problems writing
+	 * the output archive file.  Exceptions will fail the test.
+	 */
+	@Test
+	public void testBundler3() throws ArchiveException, IOException {
+	
+		// Build the path to the output file
+		StringBuilder sb = new StringBuilder();
+		sb.append(ArchiveTest._tempDir);
+		sb.append(File.separator);
+		sb.append(this._archiveFilename3);
+		sb.append(".gz");
+		this._archiveFilename3 = sb.toString();
+		
+		List<FileEntry> list = super.getFileEntryList();
+		GZipArchiver bundler = new GZipArchiver();
+		bundler.bundle(list, this._archiveFilename3);
+		
+		// The archive must be created at the requested location
+		assertEquals(this._archiveFilename3, bundler.getArchiveName());
+		File archive = new File(bundler.getArchiveName());
+		assertTrue(archive.exists());
+		assertFalse(new File(this._archiveFilename3 + ".tar").exists());
+		assertTrue(bundler.getBytesSaved() > 0);
+		
+		// The hash calculated during the write must match the file
+		assertNotNull(bundler.getHash());
+		assertEquals(DigestUtils.sha1Hex(Files.readAllBytes(archive.toPath())), 
+				bundler.getHash());
+		
+		int count = 0;
+		TarArchiveInputStream tais = new TarArchiveInputStream(
+				new GzipCompressorInputStream(
+						new FileInputStream(archive)));
+		try {
+			TarArchiveEntry entry = null;
+			while ((entry = tais.getNextTarEntry()) != null) {
+				assertEquals(TEMP_FILE_SIZE, entry.getSize());
+				count++;
+			}
+		}
+		finally {
+			tais.close();
+		}
+		assertEquals(list.size(), count);
+		for (FileEntry entry : list) {
+			assertEquals(JobStateType.COMPLETE, entry.getFileState());
+		}
+	}
+	
+	/**
+	 * GZip archiver whose parallel compressor workers always fail.
+	 */
+	private static class FailingGZipArchiver extends GZipArchiver {
+		@Override
+		protected OutputStream getCompressorOutputStream(OutputStream out) 
+				throws IOException {
+			return new ParallelGzipOutputStream(
+					out, new FailingExecutor(), 2, 64 * 1024);
+		}
+	}
+	
+	/**
+	 * The failure of a compressor worker is only reported when the stream
+	 * is finished.  It must fail the bundle operation and the partial 
+	 * archive must not be left behind.
+	 */
+	@Test
+	public void testWorkerFailure() throws ArchiveException {
+		String output = ArchiveTest._tempDir 
+				+ File.separator + "gzip_archive_failed.gz";
+		GZipArchiver bundler = new FailingGZipArchiver();
+		try {
+			bundler.bundle(super.getFileEntryList(), output);
+			fail("Expected an IOException.");
+		}
+		catch (IOException ioe) { }
+		assertFalse(new File(output).exists());
+	}
+	
+	/**
+	 * Same as above for the two-pass (intermediate TAR file) path.
+	 */
+	@Test
+	public void testWorkerFailureNotStreaming() throws IOException {
+		File input = new File(ArchiveTest._tempDir, "gzip_failed_input.tar");
+		Files.write(input.toPath(), new byte[128 * 1024]);
+		File output = new File(ArchiveTest._tempDir, "gzip_failed_input.tar.gz");
+		try {
+			new FailingGZipArchiver().compress(input, output);
+			fail("Expected an IOException.");
+		}
+		catch (IOException ioe) { }
+		finally {
+			input.delete();
+		}
+		assertFalse(output.exists());
+	}
 }
@@ -0,0 +1,168 @@
+package mil.nga.bundler.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jUnit tests for the block-parallel BZip2 compressor.  The output is 
+ * decompressed with the commons-compress BZip2CompressorInputStream 
+ * configured to read only the first stream so the tests will fail if the 
+ * parallel compressor produces anything other than a single BZip2 stream.
+ */
+public class ParallelBZip2OutputStreamTest {
+
+	public static final int WORKERS    = 4;
+	public static final int BLOCK_SIZE = 100 * 1000;
+	
+	public static ExecutorService _executor = null;
+	
+	@BeforeClass
+	public static void init() {
+		_executor = Executors.newFixedThreadPool(WORKERS);
+	}
+	
+	@AfterClass
+	public static void cleanup() {
+		_executor.shutdownNow();
+	}
+	
+	/**
+	 * Generate test data that is partially compressible (i.e. a mix of 
+	 * random bytes and repeated text).
+	 * @param size The number of bytes to generate.
+	 * @return The test data.
+	 */
+	private byte[] getData(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		byte[] text = "The quick brown fox jumps over the lazy dog. ".getBytes();
+		for (int i = 0; i < size; i++) {
+			if ((i / 1000) % 2 == 0) {
+				data[i] = text[i % text.length];
+			}
+			else {
+				data[i] = (byte)random.nextInt(256);
+			}
+		}
+		return data;
+	}
+	
+	private byte[] compress(byte[] data, int blockSize) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		OutputStream out = new ParallelBZip2OutputStream(
+				baos, _executor, WORKERS, blockSize);
+		out.write(data);
+		out.close();
+		return baos.toByteArray();
+	}
+	
+	private byte[] decompress(byte[] data) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		InputStream in = new BZip2CompressorInputStream(
+				new ByteArrayInputStream(data), false);
+		IOUtils.copy(in, baos);
+		in.close();
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * Ensure the output of the parallel compressor can be read by the 
+	 * commons-compress BZip2 decompressor for a range of input sizes 
+	 * (including empty input and sizes that are exact multiples of the 
+	 * block size).
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		int[] sizes = new int[] { 
+				0, 1, 1000, BLOCK_SIZE - 1, BLOCK_SIZE, 
+				BLOCK_SIZE + 1, 5 * BLOCK_SIZE + 17 };
+		for (int size : sizes) {
+			byte[] data = getData(size);
+			assertArrayEquals(data, decompress(compress(data, BLOCK_SIZE)));
+		}
+	}
+	
+	/**
+	 * Ensure the default (full size) blocks work correctly.
+	 */
+	@Test
+	public void testDefaultBlockSize() throws IOException {
+		byte[] data = getData(
+				2 * ParallelBZip2OutputStream.DEFAULT_INPUT_BLOCK_SIZE + 17);
+		assertArrayEquals(data, decompress(compress(data, 
+				ParallelBZip2OutputStream.DEFAULT_INPUT_BLOCK_SIZE)));
+	}
+	
+	/**
+	 * Input containing many runs of exactly four identical bytes is 
+	 * expanded by the BZip2 run-length encoding stage so a full size input 
+	 * block will not fit into a single BZip2 block.  Ensure the compressor 
+	 * falls back to splitting the input.
+	 */
+	@Test
+	public void testRunLengthExpansion() throws IOException {
+		byte[] data = new byte[
+				ParallelBZip2OutputStream.DEFAULT_INPUT_BLOCK_SIZE + 500];
+		byte[] pattern = "aaaab".getBytes();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = pattern[i % pattern.length];
+		}
+		assertArrayEquals(data, decompress(compress(data, 
+				ParallelBZip2OutputStream.DEFAULT_INPUT_BLOCK_SIZE)));
+	}
+	
+	/**
+	 * Ensure that single byte writes work correctly.
+	 */
+	@Test
+	public void testSingleByteWrites() throws IOException {
+		byte[] data = getData(BLOCK_SIZE * 2 + 5);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		OutputStream out = new ParallelBZip2OutputStream(
+				baos, _executor, WORKERS, BLOCK_SIZE);
+		for (byte b : data) {
+			out.write(b);
+		}
+		out.close();
+		assertArrayEquals(data, decompress(baos.toByteArray()));
+	}
+	
+	/**
+	 * The compressed output must be of comparable size to the output of 
+	 * the single-threaded BZip2CompressorOutputStream.  Throughput is 
+	 * measured by the CompressorBenchmark in BundlerBenchmarks.
+	 */
+	@Test
+	public void testCompressedSize() throws IOException {
+		
+		byte[] data = getData(4 * 1024 * 1024);
+		
+		ByteArrayOutputStream single = new ByteArrayOutputStream();
+		OutputStream out = new BZip2CompressorOutputStream(single);
+		out.write(data);
+		out.close();
+		
+		byte[] parallel = compress(data, 
+				ParallelBZip2OutputStream.DEFAULT_INPUT_BLOCK_SIZE);
+		
+		assertArrayEquals(data, decompress(parallel));
+		assertTrue(parallel.length < single.size() * 1.01);
+	}
+}
@@ -0,0 +1,134 @@
+package mil.nga.bundler.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jUnit tests for the block-parallel GZIP compressor.
+ */
+public class ParallelGzipOutputStreamTest {
+
+	public static final int WORKERS    = 4;
+	public static final int BLOCK_SIZE = 64 * 1024;
+	
+	public static ExecutorService _executor = null;
+	
+	@BeforeClass
+	public static void init() {
+		_executor = Executors.newFixedThreadPool(WORKERS);
+	}
+	
+	@AfterClass
+	public static void cleanup() {
+		_executor.shutdownNow();
+	}
+	
+	/**
+	 * Generate test data that is partially compressible (i.e. a mix of 
+	 * random bytes and repeated text).
+	 * @param size The number of bytes to generate.
+	 * @return The test data.
+	 */
+	private byte[] getData(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		byte[] text = "The quick brown fox jumps over the lazy dog. ".getBytes();
+		for (int i = 0; i < size; i++) {
+			if ((i / 1000) % 2 == 0) {
+				data[i] = text[i % text.length];
+			}
+			else {
+				data[i] = (byte)random.nextInt(256);
+			}
+		}
+		return data;
+	}
+	
+	private byte[] compress(byte[] data) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		OutputStream out = new ParallelGzipOutputStream(
+				baos, _executor, WORKERS, BLOCK_SIZE);
+		out.write(data);
+		out.close();
+		return baos.toByteArray();
+	}
+	
+	private byte[] decompress(byte[] data) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		GZIPInputStream in = new GZIPInputStream(
+				new ByteArrayInputStream(data));
+		IOUtils.copy(in, baos);
+		in.close();
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * Ensure the output of the parallel compressor can be read by the 
+	 * standard JDK GZIP decompressor for a range of input sizes (including
+	 * empty input and sizes that are exact multiples of the block size).
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		int[] sizes = new int[] { 
+				0, 1, 1000, BLOCK_SIZE - 1, BLOCK_SIZE, 
+				BLOCK_SIZE + 1, 3 * BLOCK_SIZE, 1024 * 1024 + 17 };
+		for (int size : sizes) {
+			byte[] data = getData(size);
+			assertArrayEquals(data, decompress(compress(data)));
+		}
+	}
+	
+	/**
+	 * Ensure that single byte writes work correctly.
+	 */
+	@Test
+	public void testSingleByteWrites() throws IOException {
+		byte[] data = getData(BLOCK_SIZE * 2 + 5);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		OutputStream out = new ParallelGzipOutputStream(
+				baos, _executor, WORKERS, BLOCK_SIZE);
+		for (byte b : data) {
+			out.write(b);
+		}
+		out.close();
+		assertArrayEquals(data, decompress(baos.toByteArray()));
+	}
+	
+	/**
+	 * The compressed output must be of comparable size to the output of 
+	 * the single-threaded GzipCompressorOutputStream.  Throughput is 
+	 * measured by the CompressorBenchmark in BundlerBenchmarks.
+	 */
+	@Test
+	public void testCompressedSize() throws IOException {
+		
+		byte[] data = getData(4 * 1024 * 1024);
+		
+		ByteArrayOutputStream single = new ByteArrayOutputStream();
+		OutputStream out = new GzipCompressorOutputStream(single);
+		out.write(data);
+		out.close();
+		
+		byte[] parallel = compress(data);
+		assertArrayEquals(data, decompress(parallel));
+		
+		// Sync flushes add a few bytes per block.
+		assertTrue(parallel.length < single.size() * 1.05);
+	}
+}
@@ -0,0 +1,351 @@
+package mil.nga.bundler.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.utils.IOUtils;
+
+import mil.nga.bundler.interfaces.FileCompletionListenerI;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * jUnit tests for the scatter/gather ZIP writer.  The output is read back 
+ * using both the central directory (ZipFile) and the local file headers 
+ * (ZipInputStream).
+ */
+public class ParallelZipCreatorTest {
+
+	public static final int WORKERS   = 4;
+	public static final int THRESHOLD = 16 * 1024;
+	
+	public static ExecutorService _executor = null;
+	
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+	
+	@BeforeClass
+	public static void init() {
+		_executor = Executors.newFixedThreadPool(WORKERS);
+	}
+	
+	@AfterClass
+	public static void cleanup() {
+		_executor.shutdownNow();
+	}
+	
+	/**
+	 * Generate test data that is partially compressible.
+	 * @param size The number of bytes to generate.
+	 * @return The test data.
+	 */
+	private byte[] getData(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(size);
+		byte[] text = "The quick brown fox jumps over the lazy dog. ".getBytes();
+		for (int i = 0; i < size; i++) {
+			if ((i / 1000) % 2 == 0) {
+				data[i] = text[i % text.length];
+			}
+			else {
+				data[i] = (byte)random.nextInt(256);
+			}
+		}
+		return data;
+	}
+	
+	private byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		IOUtils.copy(in, baos);
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * Ensure entries of a range of sizes (including empty entries and 
+	 * entries that spill to a temporary file) are written in the order 
+	 * they were added and can be read back by the JDK ZIP classes.  The
+	 * listener is notified of each entry in the same order.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		
+		int[] sizes = new int[] { 0, 1, 1000, THRESHOLD, 
+				THRESHOLD * 4, 100, 256 * 1024, 5 };
+		File dir = _folder.newFolder("output");
+		List<String> names = new ArrayList<String>();
+		List<byte[]> data  = new ArrayList<byte[]>();
+		List<String> paths = new ArrayList<String>();
+		final List<String> notified = new ArrayList<String>();
+		
+		File output = new File(dir, "test.zip");
+		ParallelZipCreator creator = new ParallelZipCreator(
+				output, _executor, WORKERS, THRESHOLD);
+		creator.setListener(new FileCompletionListenerI() {
+			public void notify(String filename) {
+				notified.add(filename);
+			}
+		});
+		for (int i = 0; i < sizes.length; i++) {
+			byte[] content = getData(sizes[i]);
+			File file = _folder.newFile("file_" + i);
+			FileOutputStream fos = new FileOutputStream(file);
+			fos.write(content);
+			fos.close();
+			String name = "dir_" + (i % 3) + "/file_" + i + ".dat";
+			creator.addArchiveEntry(new ZipArchiveEntry(file, name), file);
+			names.add(name);
+			data.add(content);
+			paths.add(file.getPath());
+		}
+		creator.close();
+		assertEquals(paths, notified);
+		
+		// Only the output archive should remain (i.e. no temporary files)
+		assertEquals(1, dir.listFiles().length);
+		
+		ZipFile zip = new ZipFile(output);
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			for (int i = 0; i < names.size(); i++) {
+				ZipEntry entry = entries.nextElement();
+				assertEquals(names.get(i), entry.getName());
+				assertEquals(data.get(i).length, entry.getSize());
+				assertArrayEquals(data.get(i), read(zip.getInputStream(entry)));
+			}
+			assertFalse(entries.hasMoreElements());
+		}
+		finally {
+			zip.close();
+		}
+		
+		ZipInputStream zis = new ZipInputStream(new FileInputStream(output));
+		try {
+			for (int i = 0; i < names.size(); i++) {
+				ZipEntry entry = zis.getNextEntry();
+				assertEquals(names.get(i), entry.getName());
+				assertArrayEquals(data.get(i), read(zis));
+			}
+		}
+		finally {
+			zis.close();
+		}
+	}
+	
+	/**
+	 * Ensure incompressible entries are STORED when a classifier is 
+	 * supplied and that the stored/deflated byte counts are recorded.
+	 */
+	@Test
+	public void testAdaptive() throws IOException {
+		
+		File dir = _folder.newFolder("adaptive");
+		File output = new File(dir, "adaptive.zip");
+		
+		byte[] text = getData(64 * 1024);
+		byte[] random = new byte[48 * 1024];
+		new Random(1L).nextBytes(random);
+		File textFile = _folder.newFile("text.dat");
+		File randomFile = _folder.newFile("random.dat");
+		FileOutputStream fos = new FileOutputStream(textFile);
+		fos.write(text);
+		fos.close();
+		fos = new FileOutputStream(randomFile);
+		fos.write(random);
+		fos.close();
+		
+		ParallelZipCreator creator = new ParallelZipCreator(
+				output, _executor, WORKERS, THRESHOLD);
+		creator.setClassifier(new CompressionClassifier());
+		creator.addArchiveEntry(
+				new ZipArchiveEntry(textFile, "text.dat"), textFile);
+		creator.addArchiveEntry(
+				new ZipArchiveEntry(randomFile, "random.dat"), randomFile);
+		creator.close();
+		
+		assertEquals(text.length, creator.getBytesDeflated());
+		assertEquals(random.length, creator.getBytesStored());
+		
+		ZipFile zip = new ZipFile(output);
+		try {
+			ZipEntry entry = zip.getEntry("text.dat");
+			assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+			assertArrayEquals(text, read(zip.getInputStream(entry)));
+			entry = zip.getEntry("random.dat");
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertEquals(random.length, entry.getCompressedSize());
+			assertArrayEquals(random, read(zip.getInputStream(entry)));
+		}
+		finally {
+			zip.close();
+		}
+	}
+	
+	/**
+	 * When an entry fails to compress the central directory is not written,
+	 * the partial output file is deleted and no entry is reported written.
+	 */
+	@Test
+	public void testFailure() throws IOException {
+		
+		File dir = _folder.newFolder("failure");
+		File output = new File(dir, "failure.zip");
+		File file = _folder.newFile("failure.dat");
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(getData(1000));
+		fos.close();
+		
+		final List<String> notified = new ArrayList<String>();
+		ParallelZipCreator creator = new ParallelZipCreator(
+				output, new FailingExecutor(), WORKERS, THRESHOLD);
+		creator.setListener(new FileCompletionListenerI() {
+			public void notify(String filename) {
+				notified.add(filename);
+			}
+		});
+		creator.addArchiveEntry(new ZipArchiveEntry(file, "a.dat"), file);
+		creator.addArchiveEntry(new ZipArchiveEntry(file, "b.dat"), file);
+		try {
+			creator.close();
+			fail("Expected the close to fail.");
+		}
+		catch (IOException expected) { }
+		
+		assertFalse(output.exists());
+		assertEquals(0, dir.listFiles().length);
+		assertEquals(0, notified.size());
+		
+		// The creator no longer accepts entries.
+		try {
+			creator.addArchiveEntry(new ZipArchiveEntry(file, "c.dat"), file);
+			fail("Expected the failed creator to reject the entry.");
+		}
+		catch (IOException expected) { }
+	}
+	
+	/**
+	 * An entry that is still being compressed when the creator fails must
+	 * release its own backing store (i.e. no temporary file is left in the
+	 * output directory).
+	 */
+	@Test
+	public void testAbandonedEntry() throws Exception {
+		
+		File dir = _folder.newFolder("abandoned");
+		File output = new File(dir, "abandoned.zip");
+		File missing = new File(_folder.getRoot(), "missing.dat");
+		final File slow = _folder.newFile("slow.dat");
+		FileOutputStream fos = new FileOutputStream(slow);
+		fos.write(getData(256 * 1024));
+		fos.close();
+		
+		// Holds the worker compressing the slow file until the creator 
+		// has been closed.
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch gate    = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ParallelZipCreator creator = new ParallelZipCreator(
+				output, executor, WORKERS, THRESHOLD);
+		creator.setClassifier(new CompressionClassifier() {
+			@Override
+			public boolean shouldStore(File file) {
+				if (file.equals(slow)) {
+					started.countDown();
+					try {
+						gate.await();
+					}
+					catch (InterruptedException ie) { }
+				}
+				return false;
+			}
+		});
+		creator.addArchiveEntry(new ZipArchiveEntry(missing, "a.dat"), missing);
+		creator.addArchiveEntry(new ZipArchiveEntry(slow, "b.dat"), slow);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		try {
+			creator.close();
+			fail("Expected the close to fail.");
+		}
+		catch (IOException expected) { }
+		gate.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		
+		assertFalse(output.exists());
+		assertEquals(0, dir.listFiles().length);
+	}
+	
+	/**
+	 * STORED entries are copied straight from the source file, so no 
+	 * temporary file exists while they are written even when they exceed 
+	 * the memory threshold.
+	 */
+	@Test
+	public void testStoredPassThrough() throws IOException {
+		
+		final File dir = _folder.newFolder("stored");
+		byte[] random = new byte[THRESHOLD * 8];
+		new Random(2L).nextBytes(random);
+		File randomFile = _folder.newFile("random.bin");
+		FileOutputStream fos = new FileOutputStream(randomFile);
+		fos.write(random);
+		fos.close();
+		
+		final List<String> spilled = new ArrayList<String>();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream() {
+			@Override
+			public synchronized void write(byte[] b, int off, int len) {
+				for (String name : dir.list()) {
+					spilled.add(name);
+				}
+				super.write(b, off, len);
+			}
+		};
+		ParallelZipCreator creator = new ParallelZipCreator(
+				baos, dir, _executor, WORKERS, THRESHOLD);
+		creator.setClassifier(new CompressionClassifier());
+		creator.addArchiveEntry(
+				new ZipArchiveEntry(randomFile, "random.bin"), randomFile);
+		creator.close();
+		
+		assertEquals(0, spilled.size());
+		assertEquals(random.length, creator.getBytesStored());
+		ZipInputStream zis = new ZipInputStream(
+				new ByteArrayInputStream(baos.toByteArray()));
+		try {
+			ZipEntry entry = zis.getNextEntry();
+			assertEquals("random.bin", entry.getName());
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertArrayEquals(random, read(zis));
+		}
+		finally {
+			zis.close();
+		}
+	}
+}
@@ -1,9 +1,13 @@
 package mil.nga.bundler.archive;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
 
 import mil.nga.bundler.archive.ArchiveFactory;
@@ -11,6 +15,9 @@ import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.exceptions.ArchiveException;
 import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
+import mil.nga.bundler.model.FileEntry;
+
+import org.apache.commons.codec.digest.DigestUtils;
 
 import org.junit.Test;
 
@@ -18,6 +25,8 @@ public class TarArchiverTest extends ArchiveTest {
 
 	public String _archiveFilename1 = "tar_archive_1";
 	public String _archiveFilename2 = "tar_archive_2";
+	public String _archiveFilename3 = "tar_archive_3";
+	public String _archiveFilename4 = "tar_archive_4";
 
 	/**
 	 * This method tests that the TAR archiver can archive a directory 
@@ -95,4 +104,55 @@ public class TarArchiverTest extends ArchiveTest {
 		}
 		
 	}
+	
+	/**
+	 * Test that the zero-copy (FileChannel.transferTo) TAR writer produces
+	 * output identical to the TarArchiveOutputStream implementation.
+	 * 
+	 * @throws IOException Exception thrown if there are problems writing
+	 * the output archive file.  Exceptions will fail the test.
+	 * @throws ArchiveException Exception thrown if there are problems 
+	 * validating input data.  Exceptions will fail the test.
+	 */
+	@Test
+	public void testBundler3() throws ArchiveException, IOException {
+		
+		String zeroCopyFile = ArchiveTest._tempDir 
+				+ File.separator + this._archiveFilename3;
+		String streamFile   = ArchiveTest._tempDir 
+				+ File.separator + this._archiveFilename4;
+		
+		List<FileEntry> list = super.getFileEntryList();
+		ArchiverSettings settings = ArchiverSettings.getInstance();
+		boolean zeroCopy = settings.isZeroCopyTar();
+		
+		try {
+			
+			settings.setZeroCopyTar(true);
+			TarArchiver bundler = new TarArchiver();
+			bundler.bundle(list, zeroCopyFile);
+			File archive1 = new File(bundler.getArchiveName());
+			
+			// Zero-copy data never passes through the JVM so no hash
+			assertNull(bundler.getHash());
+			
+			settings.setZeroCopyTar(false);
+			bundler = new TarArchiver();
+			bundler.bundle(list, streamFile);
+			File archive2 = new File(bundler.getArchiveName());
+			assertEquals(
+					DigestUtils.sha1Hex(Files.readAllBytes(archive2.toPath())), 
+					bundler.getHash());
+			
+			assertTrue(archive1.exists());
+			assertTrue(archive2.exists());
+			assertArrayEquals(
+					Files.readAllBytes(archive2.toPath()), 
+					Files.readAllBytes(archive1.toPath()));
+			System.out.println(archive1.length());
+		}
+		finally {
+			settings.setZeroCopyTar(zeroCopy);
+		}
+	}
 }
@@ -1,14 +1,25 @@
 package mil.nga.bundler.archive;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import mil.nga.bundler.archive.ArchiveFactory;
 import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
 import mil.nga.bundler.exceptions.ArchiveException;
+import mil.nga.bundler.model.FileEntry;
+import mil.nga.bundler.types.JobStateType;
+
+import org.apache.commons.codec.digest.DigestUtils;
 
 import org.junit.Test;
 import org.junit.Before;
@@ -28,6 +39,7 @@ public class ZipArchiverTest extends ArchiveTest {
 
 	public String _archiveFilename1 = "test_archive_1";
 	public String _archiveFilename2 = "test_archive_2";
+	public String _archiveFilename3 = "test_archive_3.zip";
 
 	/**
 	 * This method tests that the ZIP archiver can archive a directory 
@@ -106,4 +118,81 @@ public class ZipArchiverTest extends ArchiveTest {
 		}
 	}
 	
+	/**
+	 * This method tests that the ZIP archiver stores files that are 
+	 * already compressed and deflates the rest, recording the number of 
+	 * bytes written each way.
+	 * 
+	 * @throws IOException Exception thrown if there are problems writing
+	 * the output archive file.  Exceptions will fail the test.
+	 */
+	@Test
+	public void testBundler3() throws ArchiveException, IOException {
+		
+		String output = ArchiveTest._tempDir 
+				+ File.separator + this._archiveFilename3;
+		
+		File randomFile = new File(ArchiveTest._tempDir, "zip_random.dat");
+		byte[] random = new byte[32 * 1024];
+		new Random(3L).nextBytes(random);
+		FileOutputStream fos = new FileOutputStream(randomFile);
+		fos.write(random);
+		fos.close();
+		
+		List<FileEntry> list = new ArrayList<FileEntry>();
+		for (String path : super.getFileList()) {
+			list.add(new FileEntry(path, new File(path).getName(), 
+					ArchiveTest.TEMP_FILE_SIZE));
+		}
+		list.add(new FileEntry(randomFile.getAbsolutePath(), 
+				"zip_random.dat", random.length));
+		
+		ArchiverSettings settings = ArchiverSettings.getInstance();
+		boolean adaptive = settings.isAdaptiveZip();
+		try {
+			settings.setAdaptiveZip(true);
+			ZipArchiver bundler = new ZipArchiver();
+			bundler.bundle(list, output);
+			assertEquals(random.length, bundler.getBytesStored());
+			assertEquals(6 * ArchiveTest.TEMP_FILE_SIZE, 
+					bundler.getBytesDeflated());
+			assertEquals(
+					DigestUtils.sha1Hex(Files.readAllBytes(
+							new File(output).toPath())), 
+					bundler.getHash());
+			for (FileEntry entry : list) {
+				assertEquals(JobStateType.COMPLETE, entry.getFileState());
+			}
+		}
+		finally {
+			settings.setAdaptiveZip(adaptive);
+			randomFile.delete();
+		}
+		
+		ZipFile zip = new ZipFile(output);
+		try {
+			ZipEntry entry = zip.getEntry("zip_random.dat");
+			// The sequential path writes incompressible files at level 0.
+			if (ArchiverSettings.getInstance().getCompressionWorkers() > 1) {
+				assertEquals(ZipEntry.STORED, entry.getMethod());
+			}
+			else {
+				assertTrue(entry.getCompressedSize() < random.length + 1024);
+			}
+			InputStream in = zip.getInputStream(entry);
+			byte[] buffer = new byte[random.length];
+			int count = 0;
+			int n = 0;
+			while ((n = in.read(buffer, count, buffer.length - count)) > 0) {
+				count += n;
+			}
+			in.close();
+			assertEquals(random.length, count);
+			assertEquals(ZipEntry.DEFLATED, 
+					zip.getEntry("file1.txt").getMethod());
+		}
+		finally {
+			zip.close();
+		}
+	}
 }
@@ -0,0 +1,182 @@
+package mil.nga.bundler.planner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import mil.nga.bundler.interfaces.ArchivePlannerI;
+import mil.nga.bundler.model.FileEntry;
+import mil.nga.bundler.types.PlannerType;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * jUnit tests for the archive planners.
+ */
+public class ArchivePlannerTest {
+
+	private static final long MB = 1024L * 1024L;
+
+	private static final long ARCHIVE_SIZE = 400L * MB;
+
+	/**
+	 * Build a list of files with the input sizes (in MB).
+	 */
+	private List<FileEntry> getFiles(long... sizes) {
+		List<FileEntry> files = new ArrayList<FileEntry>();
+		for (int i = 0; i < sizes.length; i++) {
+			files.add(new FileEntry("/data/file_" + i + ".dat", sizes[i] * MB));
+		}
+		return files;
+	}
+
+	/**
+	 * Build a list of files with a skewed mix of sizes (mostly small files
+	 * with the occasional large one).
+	 */
+	private List<FileEntry> getSkewedFiles() {
+		Random random = new Random(42L);
+		List<FileEntry> files = new ArrayList<FileEntry>();
+		for (int i = 0; i < 2000; i++) {
+			long size = (i % 10 == 0) ?
+					(100L + random.nextInt(200)) * MB :
+					(long)random.nextInt(20) * MB + random.nextInt(1024);
+			files.add(new FileEntry("/data/file_" + i + ".dat", size));
+		}
+		return files;
+	}
+
+	private long getSize(List<FileEntry> group) {
+		long size = 0L;
+		for (FileEntry file : group) {
+			size += file.getSize();
+		}
+		return size;
+	}
+
+	private long getSpread(List<List<FileEntry>> groups) {
+		long min = Long.MAX_VALUE;
+		long max = 0L;
+		for (List<FileEntry> group : groups) {
+			min = Math.min(min, getSize(group));
+			max = Math.max(max, getSize(group));
+		}
+		return max - min;
+	}
+
+	/**
+	 * Every file must be planned exactly once, in request order within
+	 * each archive, and no archive (other than one holding a single
+	 * oversized file) may exceed the archive size.
+	 */
+	private void checkPlan(List<FileEntry> files, List<List<FileEntry>> groups) {
+		Set<String> seen = new HashSet<String>();
+		for (List<FileEntry> group : groups) {
+			assertTrue(!group.isEmpty());
+			int last = -1;
+			for (FileEntry file : group) {
+				assertTrue(seen.add(file.getFilePath()));
+				int index = files.indexOf(file);
+				assertTrue(index > last);
+				last = index;
+			}
+			assertTrue((group.size() == 1) ||
+					(ArchivePlanner.getEstimatedArchiveSize(getSize(group))
+							<= ARCHIVE_SIZE));
+		}
+		assertEquals(files.size(), seen.size());
+	}
+
+	@Test
+	public void testCapacity() {
+		long capacity = ArchivePlanner.getCapacity(ARCHIVE_SIZE);
+		assertTrue(ArchivePlanner.getEstimatedArchiveSize(capacity)
+				<= ARCHIVE_SIZE);
+		assertTrue(ArchivePlanner.getEstimatedArchiveSize(capacity + 1)
+				> ARCHIVE_SIZE);
+	}
+
+	/**
+	 * The first-fit planner keeps the original behavior: request order,
+	 * new archive as soon as the next file does not fit.
+	 */
+	@Test
+	public void testFirstFit() {
+		List<FileEntry> files = getFiles(300, 300, 100, 50);
+		List<List<FileEntry>> groups = new FirstFitPlanner()
+				.plan(files, ARCHIVE_SIZE);
+		checkPlan(files, groups);
+		assertEquals(3, groups.size());
+		assertEquals(1, groups.get(0).size());
+		assertEquals(2, groups.get(1).size());
+		assertEquals(1, groups.get(2).size());
+	}
+
+	/**
+	 * Small files fill the room left behind by the large ones.
+	 */
+	@Test
+	public void testFirstFitDecreasing() {
+		List<FileEntry> files = getFiles(200, 300, 100, 236);
+		assertEquals(3, new FirstFitPlanner().plan(files, ARCHIVE_SIZE).size());
+		List<List<FileEntry>> groups = new FirstFitDecreasingPlanner()
+				.plan(files, ARCHIVE_SIZE);
+		checkPlan(files, groups);
+		assertEquals(2, groups.size());
+	}
+
+	/**
+	 * The balanced planner uses no more archives than first-fit-decreasing
+	 * and spreads the data evenly across them.
+	 */
+	@Test
+	public void testBalanced() {
+		List<FileEntry> files = getSkewedFiles();
+		List<List<FileEntry>> ffd = new FirstFitDecreasingPlanner()
+				.plan(files, ARCHIVE_SIZE);
+		List<List<FileEntry>> balanced = new BalancedPartitionPlanner()
+				.plan(files, ARCHIVE_SIZE);
+		checkPlan(files, ffd);
+		checkPlan(files, balanced);
+		assertTrue(ffd.size() <=
+				new FirstFitPlanner().plan(files, ARCHIVE_SIZE).size());
+		assertTrue(balanced.size() <= ffd.size());
+		assertTrue(getSpread(balanced) < getSpread(ffd));
+		assertTrue(getSpread(balanced) < 50L * MB);
+	}
+
+	/**
+	 * Files larger than an archive are placed in archives of their own.
+	 */
+	@Test
+	public void testOversizedFiles() {
+		List<FileEntry> files = getFiles(10, 1000, 10, 900, 10);
+		for (PlannerType type : PlannerType.values()) {
+			ArchivePlannerI planner =
+					ArchivePlannerFactory.getFactory().getInstance(type);
+			List<List<FileEntry>> groups = planner.plan(files, ARCHIVE_SIZE);
+			checkPlan(files, groups);
+			int single = 0;
+			for (List<FileEntry> group : groups) {
+				if (getSize(group) > ARCHIVE_SIZE) {
+					assertEquals(1, group.size());
+					single++;
+				}
+			}
+			assertEquals(2, single);
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		for (PlannerType type : PlannerType.values()) {
+			assertTrue(ArchivePlannerFactory.getFactory().getInstance(type)
+					.plan(new ArrayList<FileEntry>(), ARCHIVE_SIZE).isEmpty());
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package mil.nga.bundler.ejb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.bundler.FileNameGenerator;
+import mil.nga.bundler.archive.ArchiverSettings;
+import mil.nga.bundler.archive.DiskThroughputProbe;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.types.ArchiveType;
+
+/**
+ * Session Bean implementation class ArchiveExecutionService
+ *
+ * Host-local execution engine for archive jobs.  Previously the number of
+ * archives built concurrently on a host was dictated by the size of the
+ * ArchiverMDB pool, regardless of the number of cores or the disks
+ * available.  This bean maintains two bounded worker pools (lanes):
+ *
+ * <ul>
+ * <li>A CPU lane for compression-heavy archives (ZIP, GZIP, BZIP2) sized
+ * from the number of available processors.</li>
+ * <li>An I/O lane for archives that are bound by disk throughput (TAR)
+ * sized by probing the staging directory at startup.</li>
+ * </ul>
+ *
+ * Keeping the lanes separate means a burst of TAR jobs does not starve the
+ * compression jobs of CPU and vice versa.  Each lane admits a bounded
+ * number of archives.  When a lane is saturated the MDB delivering the
+ * message waits for a slot (<code>acquire()</code>), which stops the JMS
+ * consumer pulling more messages off the queue.  The wait is not bounded;
+ * the number of waiting MDBs is bounded by the MDB pool and the MDB does not
+ * run in a transaction, so a long wait never causes the message to be 
+ * redelivered.  The archive is never built on the MDB thread, so a lane 
+ * never runs more than its configured number of archives.
+ *
+ * Archives waiting in a lane when the service shuts down are handed back
+ * to the caller (<code>ArchiveTask.reject()</code>) so they can be placed 
+ * back on the queue for the rest of the cluster, rather than waiting for
+ * this node to restart.
+ *
+ * Worker counts may be overridden per host using the
+ * <code>bundler.archive.cpu_workers</code>,
+ * <code>bundler.archive.io_workers</code> and
+ * <code>bundler.archive.queue_size</code> properties.
+ *
+ * The bean depends on the SharedResourceService so the running archives
+ * are drained before the shared compression pool is shut down.
+ */
+@Startup
+@Singleton
+@LocalBean
+@DependsOn("SharedResourceService")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ArchiveExecutionService implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            ArchiveExecutionService.class);
+
+    /**
+     * Maximum amount of time (in seconds) to wait for running archives to
+     * finish when the service shuts down.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 30;
+
+    /**
+     * Upper bound on the number of I/O streams recommended by the disk
+     * probe.
+     */
+    private static final int MAX_PROBED_IO_WORKERS = 8;
+
+    /**
+     * Container-managed thread factory.  Threads created by this factory
+     * carry the application's naming/security context so the archive jobs
+     * can call the other EJBs.
+     */
+    @Resource
+    ManagedThreadFactory threadFactory;
+
+    /**
+     * Lane used for compression-heavy archives.
+     */
+    private Lane cpuLane = null;
+
+    /**
+     * Lane used for I/O-heavy archives.
+     */
+    private Lane ioLane = null;
+
+    /**
+     * Default constructor.
+     */
+    public ArchiveExecutionService() { }
+
+    /**
+     * Size and create the worker lanes.
+     */
+    @PostConstruct
+    public void initialize() {
+
+        ArchiverSettings settings  = ArchiverSettings.getInstance();
+        int              cpu       = settings.getArchiveCpuWorkers();
+        int              io        = settings.getArchiveIoWorkers();
+        int              queueSize = settings.getArchiveQueueSize();
+
+        if (io == 0) {
+            io = probeIoWorkers();
+        }
+
+        cpuLane = new Lane("cpu", cpu, queueSize, threadFactory);
+        ioLane  = new Lane("io",  io,  queueSize, threadFactory);
+
+        LOGGER.info("Archive execution service started.  CPU workers [ "
+                + cpu
+                + " ], I/O workers [ "
+                + io
+                + " ], queue size [ "
+                + queueSize
+                + " ].");
+    }
+
+    /**
+     * Shut down the worker lanes.  Archives that have not started are 
+     * rejected (see <code>ArchiveTask.reject()</code>).  Archives still 
+     * running after <code>SHUTDOWN_TIMEOUT</code> are interrupted and will
+     * be picked up by the RecoveryService.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (cpuLane != null) {
+            cpuLane.shutdown();
+        }
+        if (ioLane != null) {
+            ioLane.shutdown();
+        }
+    }
+
+    /**
+     * Determine whether archives of the given type are bound by CPU
+     * (compression) or by disk throughput.
+     *
+     * @param type The output archive type.
+     * @return True if the archive type is compression-heavy.
+     */
+    public static boolean isCompressionHeavy(ArchiveType type) {
+        return (type != ArchiveType.TAR);
+    }
+
+    /**
+     * Reserve a slot in the lane associated with the archive type.  Blocks
+     * until a slot is available while the lane is saturated.  A caller 
+     * that obtains a slot must either <code>submit()</code> an archive or 
+     * <code>release()</code> the slot.
+     *
+     * @param type The output archive type.
+     * @throws InterruptedException Thrown if the caller is interrupted
+     * while waiting for a slot.
+     */
+    public void acquire(ArchiveType type) throws InterruptedException {
+        getLane(type).acquire();
+    }
+
+    /**
+     * Release a slot reserved with <code>acquire()</code> without 
+     * submitting an archive.
+     *
+     * @param type The output archive type.
+     */
+    public void release(ArchiveType type) {
+        getLane(type).release();
+    }
+
+    /**
+     * Hand an archive job to a worker using a slot reserved with 
+     * <code>acquire()</code>.  The slot is released when the job finishes.
+     * If the lane is shutting down the job is rejected instead.
+     *
+     * @param type The output archive type.
+     * @param task The archive job.
+     */
+    public void submit(ArchiveType type, ArchiveTask task) {
+        getLane(type).submit(task);
+    }
+
+    /**
+     * Get the lane used for archives of the input type.
+     *
+     * @param type The output archive type.
+     * @return The associated lane.
+     */
+    private Lane getLane(ArchiveType type) {
+        return isCompressionHeavy(type) ? cpuLane : ioLane;
+    }
+
+    /**
+     * Run the disk throughput probe against the staging directory.  Falls
+     * back to one I/O worker per two processors if the probe fails.
+     *
+     * @return The number of I/O workers to use.
+     */
+    private int probeIoWorkers() {
+        int fallback = Math.max(1,
+                Runtime.getRuntime().availableProcessors() / 2);
+        try {
+            String dir = FileNameGenerator.getInstance().getStagingDirectory();
+            if ((dir == null) || (dir.isEmpty())) {
+                dir = System.getProperty("java.io.tmpdir");
+            }
+            DiskThroughputProbe probe = new DiskThroughputProbe(
+                    new File(dir),
+                    threadFactory,
+                    DiskThroughputProbe.DEFAULT_PROBE_SIZE);
+            return probe.recommendStreams(Math.min(
+                    MAX_PROBED_IO_WORKERS,
+                    Runtime.getRuntime().availableProcessors()));
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unable to probe the disk throughput of the staging "
+                    + "directory.  Using [ "
+                    + fallback
+                    + " ] I/O workers.  Error message [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        return fallback;
+    }
+
+    /**
+     * A bounded worker pool.  The semaphore limits the number of archives
+     * admitted (running plus waiting) so callers block once the lane is
+     * saturated.
+     */
+    private static class Lane {
+
+        private final String             name;
+        private final ThreadPoolExecutor executor;
+        private final Semaphore          permits;
+
+        Lane(String name, int workers, int queueSize, ThreadFactory factory) {
+            this.name     = name;
+            this.executor = new ThreadPoolExecutor(
+                    workers,
+                    workers,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    factory);
+            this.permits  = new Semaphore(workers + queueSize, true);
+        }
+
+        void acquire() throws InterruptedException {
+            if (!permits.tryAcquire()) {
+                LOGGER.info("Archive "
+                        + name
+                        + " lane is saturated.  Waiting for a free slot.");
+                permits.acquire();
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        void submit(ArchiveTask task) {
+            try {
+                executor.execute(new Worker(task));
+            }
+            catch (RejectedExecutionException ree) {
+                permits.release();
+                LOGGER.warn("Archive "
+                        + name
+                        + " lane is shutting down.  The archive will be "
+                        + "rejected.");
+                task.reject();
+            }
+        }
+
+        void shutdown() {
+            List<Runnable> queued = new ArrayList<Runnable>();
+            executor.getQueue().drainTo(queued);
+            executor.shutdown();
+            for (Runnable runnable : queued) {
+                permits.release();
+                try {
+                    ((Worker)runnable).task.reject();
+                }
+                catch (RuntimeException re) {
+                    LOGGER.error("Unexpected exception raised while "
+                            + "rejecting an archive queued in the "
+                            + name
+                            + " lane.  Error message [ "
+                            + re.getMessage()
+                            + " ].", re);
+                }
+            }
+            try {
+                if (!executor.awaitTermination(
+                        SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Archives still running in the "
+                            + name
+                            + " lane after [ "
+                            + SHUTDOWN_TIMEOUT
+                            + " ] seconds will be interrupted.");
+                    executor.shutdownNow();
+                }
+            }
+            catch (InterruptedException ie) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Runs an archive job and releases its slot.  Anything the job
+         * itself did not handle is logged here as a last resort.
+         */
+        private class Worker implements Runnable {
+
+            private final ArchiveTask task;
+
+            private Worker(ArchiveTask task) {
+                this.task = task;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                }
+                catch (RuntimeException re) {
+                    LOGGER.error("Unexpected exception raised while "
+                            + "building an archive in the "
+                            + name
+                            + " lane.  Error message [ "
+                            + re.getMessage()
+                            + " ].", re);
+                }
+                finally {
+                    permits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * An archive job.  The job is responsible for recording its own 
+     * failures (the worker only logs what escapes it).
+     */
+    public interface ArchiveTask extends Runnable {
+
+        /**
+         * Called instead of <code>run()</code> if the job will not be run
+         * on this node (i.e. the service is shutting down).
+         */
+        public void reject();
+    }
+}
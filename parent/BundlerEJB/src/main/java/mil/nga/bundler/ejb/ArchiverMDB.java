@@ -6,6 +6,8 @@ import java.io.IOException;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.EJB;
 import javax.ejb.MessageDriven;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -14,7 +16,9 @@ import javax.jms.ObjectMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import mil.nga.bundler.JobTrackerCache;
 import mil.nga.bundler.archive.ArchiveFactory;
+import mil.nga.bundler.archive.ZipArchiver;
 import mil.nga.bundler.exceptions.ArchiveException;
 import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
@@ -22,6 +26,7 @@ import mil.nga.bundler.interfaces.BundlerI;
 import mil.nga.bundler.messages.ArchiveMessage;
 import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.Job;
+import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.types.JobStateType;
 import mil.nga.util.FileUtils;
 
@@ -39,6 +44,11 @@ import mil.nga.util.FileUtils;
  * <code>mil.nga.bundler.ejb.ArchiverMDB</code>
  * <code>mil.nga.bundler.ejb.JobTrackerMDB</code>
  * 
+ * The bean does not run in a container transaction.  It may wait for a 
+ * worker for as long as the execution engine is saturated, and the JobService
+ * calls commit the IN_PROGRESS state before the archive is handed to the 
+ * worker.
+ * 
  * @author L. Craig Carpenter 
  */
 @MessageDriven(
@@ -62,6 +72,7 @@ import mil.nga.util.FileUtils;
                                                 propertyName = "acknowledgeMode",
                                                 propertyValue = "Auto-acknowledge")
                 })
+@TransactionAttribute(value=TransactionAttributeType.NOT_SUPPORTED)
 public class ArchiverMDB 
         extends NotificationService 
         implements MessageListener, BundlerConstantsI {
@@ -83,6 +94,13 @@ public class ArchiverMDB
     @EJB
     HashGeneratorService hashGeneratorService;
     
+    /**
+     * Container-injected reference to the host-local archive execution 
+     * engine.
+     */
+    @EJB
+    ArchiveExecutionService archiveExecutionService;
+    
     /**
      * Default constructor. 
      */
@@ -117,7 +135,7 @@ public class ArchiverMDB
      * @return Reference to the HashGeneratorService EJB.
      */
     private HashGeneratorService getHashGeneratorService() {
-        if (jobService == null) {
+        if (hashGeneratorService == null) {
             LOGGER.warn("Application container failed to inject the "
                     + "reference to HashGeneratorService.  Attempting to "
                     + "look it up via JNDI.");
@@ -128,21 +146,172 @@ public class ArchiverMDB
         return hashGeneratorService;
     }
     
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * 
+     * Method implemented because JBoss EAP 6.x was inexplicably NOT always
+     * injecting the EJB (i.e. EJB reference was null)
+     * 
+     * @return Reference to the ArchiveExecutionService EJB.
+     */
+    private ArchiveExecutionService getArchiveExecutionService() {
+        if (archiveExecutionService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to ArchiveExecutionService.  Attempting to "
+                    + "look it up via JNDI.");
+            archiveExecutionService = EJBClientUtilities
+                    .getInstance()
+                    .getArchiveExecutionService();
+        }
+        return archiveExecutionService;
+    }
+    
+    /**
+     * Build the output archive, record the results and notify the job 
+     * tracker.  Invoked on one of the ArchiveExecutionService worker 
+     * threads (or on the MDB thread if the execution service is not 
+     * available).
+     * 
+     * @param job The job containing the archive.
+     * @param archive The archive to build (with its files loaded).
+     */
+    private void processArchive(Job job, Archive archive) {
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Creating output archive file for "
+                    + "archive [ "
+                    + archive.toString()
+                    + " ].");
+        }
+        try {
+            createArchive(job, archive);
+            archive.setArchiveState(JobStateType.COMPLETE);
+        }
+        catch (IOException ioe) {
+            LOGGER.error("Unexpected IOException raised while "
+                    + "creating the output archive.  Archive "
+                    + "state will be set to ERROR for job ID [ "
+                    + job.getJobID()
+                    + " ] archive ID [ "
+                    + archive.getArchiveID()
+                    + " ].  Error message [ "
+                    + ioe.getMessage()
+                    + " ].");
+            archive.setArchiveState(JobStateType.ERROR);
+        }
+        catch (ArchiveException ae) {
+            LOGGER.error("Unexpected ArchiveException raised "
+                    + "while "
+                    + "creating the output archive.  Archive "
+                    + "state will be set to ERROR for job ID [ "
+                    + job.getJobID()
+                    + " ] archive ID [ "
+                    + archive.getArchiveID()
+                    + " ].  Error message [ "
+                    + ae.getMessage()
+                    + " ].");
+            archive.setArchiveState(JobStateType.ERROR);
+        }
+        
+        // Update the end time.
+        archive.setEndTime(System.currentTimeMillis());
+        archive.setSize(
+                getArchiveFileSize(
+                        archive.getArchive()));
+        
+        // Ensure the Archive object is persisted.  The job is not merged as
+        // this copy may be stale (archives may have been added to the job 
+        // since it was loaded).  This runs on a worker thread so the update
+        // commits before it returns and the cached status can be 
+        // invalidated immediately.
+        getJobService().update(archive);
+        JobTrackerCache.getInstance().invalidate(job.getJobID());
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Archive complete.  Sending " 
+                    + "notification message file for "
+                    + "archive [ "
+                    + archive.toString()
+                    + " ].");
+        }
+        notify(archive);
+    }
+    
+    /**
+     * Record an archive that failed with an unexpected exception as ERROR
+     * and notify the job tracker.  The archive is re-read as the failure 
+     * may have occurred part way through updating the copy held by the 
+     * task.
+     * 
+     * @param jobID The job containing the archive.
+     * @param archiveID The ID of the failed archive.
+     */
+    private void failArchive(String jobID, long archiveID) {
+        try {
+            Job job = getJobService().getJob(jobID);
+            Archive archive = (job != null) ? job.getArchive(archiveID) : null;
+            if (archive != null) {
+                archive.setArchiveState(JobStateType.ERROR);
+                archive.setEndTime(System.currentTimeMillis());
+                getJobService().update(archive);
+                JobTrackerCache.getInstance().invalidate(jobID);
+                notify(archive);
+            }
+            else {
+                LOGGER.error("Unable to find the failed archive for job ID [ "
+                        + jobID
+                        + " ] and archive ID [ "
+                        + archiveID
+                        + " ].");
+            }
+        }
+        catch (RuntimeException re) {
+            LOGGER.error("Unexpected exception raised while recording the "
+                    + "failure of job ID [ "
+                    + jobID
+                    + " ] archive ID [ "
+                    + archiveID
+                    + " ].  The RecoveryService will pick it up.  Error "
+                    + "message [ "
+                    + re.getMessage()
+                    + " ].", re);
+        }
+    }
+    
+    /**
+     * Place an archive that will not be built on this node back on the 
+     * archiver queue so another node (or this one, after a restart) can 
+     * pick it up.
+     * 
+     * @param jobID The job containing the archive.
+     * @param archiveID The ID of the archive.
+     */
+    private void requeue(String jobID, long archiveID) {
+        LOGGER.info("Returning job ID [ "
+                + jobID
+                + " ] archive ID [ "
+                + archiveID
+                + " ] to the archiver queue.");
+        super.notify(ARCHIVER_DEST_Q,
+                new ArchiveMessage.ArchiveMessageBuilder()
+                        .jobId(jobID)
+                        .archiveId(archiveID)
+                        .build());
+    }
+    
     /**
      * Method driving the creation of the output archive file.
      * 
      * @param job The managed JPA job object.
      * @param archive Archive job to run.
      */
-    private void createArchive(Job job, long archiveID) 
+    private void createArchive(Job job, Archive archive) 
             throws ArchiveException, IOException { 
         
         long startTime = System.currentTimeMillis();
         
         try {
             
-            Archive archive = job.getArchive(archiveID);
-            
             if (archive != null) {
                 
                 // Get the concrete instance of the archiver that will be
@@ -155,12 +324,30 @@ public class ArchiverMDB
               
                 // Here's where the magic happens.
                 bundler.bundle(archive.getFiles(), archive.getArchive());
+                
+                // Record how much of a ZIP archive was stored vs. deflated.
+                if (bundler instanceof ZipArchiver) {
+                    archive.setBytesStored(
+                            ((ZipArchiver)bundler).getBytesStored());
+                    archive.setBytesDeflated(
+                            ((ZipArchiver)bundler).getBytesDeflated());
+                }
                
                 // Generate the hash file associated with the output archive.
+                // If the bundler calculated the hash while writing the 
+                // archive just save it, otherwise the archive has to be 
+                // re-read.
                 if (getHashGeneratorService() != null) {
-                    getHashGeneratorService().generate(
-                            archive.getArchive(),
-                            archive.getHash());
+                    if (bundler.getHash() != null) {
+                        getHashGeneratorService().saveHash(
+                                bundler.getHash(),
+                                archive.getHash());
+                    }
+                    else {
+                        getHashGeneratorService().generate(
+                                archive.getArchive(),
+                                archive.getHash());
+                    }
                 }
                 else {
                     LOGGER.warn("Unable to obtain a reference to the "
@@ -168,7 +355,7 @@ public class ArchiverMDB
                             + "hash file associated with job ID [ "
                             + archive.getJobID()
                             + " ] and archive ID [ "
-                            + archiveID
+                            + archive.getArchiveID()
                             + " ].  Since few, if any customers actually use "
                             + "the hash for anything we just issue a warning "
                             + "and proceed with processing.");
@@ -178,7 +365,7 @@ public class ArchiverMDB
                     LOGGER.debug("Archive processing for job ID [ "
                             + archive.getJobID()
                             + " ] and archive ID [ "
-                            + archiveID
+                            + archive.getArchiveID()
                             + " ].  Completed in [ "
                             + (System.currentTimeMillis() - startTime)
                             + " ] ms.");
@@ -189,8 +376,6 @@ public class ArchiverMDB
                 LOGGER.error("Unable to find archive to process for "
                             + "job ID [ "
                             + job.getJobID()
-                            + " ] and archive ID [ "
-                            + archiveID
                             + " ].");
             }
         
@@ -250,75 +435,100 @@ public class ArchiverMDB
             
             if (getJobService() != null) {
                 
+                // The archive is built on a separate thread after the 
+                // transaction commits so its file list must be loaded up 
+                // front.  Only the target archive's files are loaded; the
+                // job's other archives are left without theirs.
                 Job job = getJobService().getJob(archiveMsg.getJobId());
                 if (job != null) {
                     
-                    Archive archive = job.getArchive(archiveMsg.getArchiveId());
+                    Archive archive = getJobService().getMaterializedArchive(
+                            job.getJobID(), 
+                            archiveMsg.getArchiveId());
                     if (archive != null) {
                         
+                        final Job     finalJob     = job;
+                        final Archive finalArchive = archive;
+                        final String  jobID        = job.getJobID();
+                        final long    archiveID    = archiveMsg.getArchiveId();
+                        final ArchiveExecutionService.ArchiveTask task = 
+                                new ArchiveExecutionService.ArchiveTask() {
+                            @Override
+                            public void run() {
+                                try {
+                                    processArchive(finalJob, finalArchive);
+                                }
+                                catch (RuntimeException re) {
+                                    LOGGER.error("Unexpected exception "
+                                            + "raised while building job ID [ "
+                                            + jobID
+                                            + " ] archive ID [ "
+                                            + archiveID
+                                            + " ].  Archive state will be set "
+                                            + "to ERROR.  Error message [ "
+                                            + re.getMessage()
+                                            + " ].", re);
+                                    failArchive(jobID, archiveID);
+                                }
+                            }
+                            @Override
+                            public void reject() {
+                                requeue(jobID, archiveID);
+                            }
+                        };
+                        
+                        // Reserve a worker before claiming the archive.  This 
+                        // call blocks while the execution engine is saturated
+                        // (back-pressure on the JMS consumer).  The number of 
+                        // waiting consumers is bounded by the MDB pool.
+                        final ArchiveExecutionService executionService = 
+                                getArchiveExecutionService();
+                        final ArchiveType type = job.getArchiveType();
+                        if (executionService != null) {
+                            try {
+                                executionService.acquire(type);
+                            }
+                            catch (InterruptedException ie) {
+                                Thread.currentThread().interrupt();
+                                LOGGER.warn("Interrupted while waiting for a "
+                                        + "worker to process [ "
+                                        + archiveMsg.toString()
+                                        + " ].  The archive will be "
+                                        + "requeued.");
+                                requeue(jobID, archiveID);
+                                return;
+                            }
+                        }
+                        
                         // Update the archive to reflect that archive processing 
-                        // has started.
+                        // has started.  The update commits in its own 
+                        // transaction so the worker is only handed an archive
+                        // whose IN_PROGRESS state is visible to the 
+                        // RecoveryService.
                         archive.setHostName(FileUtils.getHostName());
                         archive.setServerName(
                                 EJBClientUtilities.getInstance().getServerName());
                         archive.setStartTime(System.currentTimeMillis());
                         archive.setArchiveState(JobStateType.IN_PROGRESS);    
                         
-                        getJobService().update(job);
-                        
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Creating output archive file for "
-                                    + "archive [ "
-                                    + archive.toString()
-                                    + " ].");
-                        }
                         try {
-                            createArchive(job, archiveMsg.getArchiveId());
-                            archive.setArchiveState(JobStateType.COMPLETE);
+                            getJobService().update(archive);
                         }
-                        catch (IOException ioe) {
-                            LOGGER.error("Unexpected IOException raised while "
-                                    + "creating the output archive.  Archive "
-                                    + "state will be set to ERROR for job ID [ "
-                                    + job.getJobID()
-                                    + " ] archive ID [ "
-                                    + archive.getArchiveID()
-                                    + " ].  Error message [ "
-                                    + ioe.getMessage()
-                                    + " ].");
-                            archive.setArchiveState(JobStateType.ERROR);
+                        catch (RuntimeException re) {
+                            if (executionService != null) {
+                                executionService.release(type);
+                            }
+                            throw re;
                         }
-                        catch (ArchiveException ae) {
-                            LOGGER.error("Unexpected ArchiveException raised "
-                                    + "while "
-                                    + "creating the output archive.  Archive "
-                                    + "state will be set to ERROR for job ID [ "
-                                    + job.getJobID()
-                                    + " ] archive ID [ "
-                                    + archive.getArchiveID()
-                                    + " ].  Error message [ "
-                                    + ae.getMessage()
-                                    + " ].");
-                            archive.setArchiveState(JobStateType.ERROR);
-                        }
-                        
-                        // Update the end time.
-                        archive.setEndTime(System.currentTimeMillis());
-                        archive.setSize(
-                                getArchiveFileSize(
-                                        archive.getArchive()));
+                        JobTrackerCache.getInstance().invalidate(
+                                job.getJobID());
                         
-                        // Ensure the Job object is persisted.
-                        getJobService().update(job);
-                        
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Archive complete.  Sending " 
-                                    + "notification message file for "
-                                    + "archive [ "
-                                    + archive.toString()
-                                    + " ].");
+                        if (executionService != null) {
+                            executionService.submit(type, task);
+                        }
+                        else {
+                            task.run();
                         }
-                        notify(archive);
                         
                     }
                     else {
@@ -16,6 +16,7 @@ import javax.naming.NamingException;
 
 import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
 import mil.nga.bundler.ejb.jdbc.JDBCFileService;
+import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
 import mil.nga.bundler.ejb.jdbc.JDBCJobService;
 
 import org.slf4j.Logger;
@@ -167,6 +168,38 @@ public class EJBClientUtilities {
         return EJBClientUtilitiesHolder.getSingleton();
     }    
     
+    /**
+     * Utility method used to look up the ArchiveExecutionService interface.  
+     * 
+     * @return The ArchiveExecutionService interface, or null if we couldn't 
+     * look it up.
+     */
+    public ArchiveExecutionService getArchiveExecutionService() {
+        
+        ArchiveExecutionService service = null;
+        Object                  ejb     = getEJB(ArchiveExecutionService.class);
+        
+        if (ejb != null) {
+            if (ejb instanceof mil.nga.bundler.ejb.ArchiveExecutionService) {
+                service = (ArchiveExecutionService)ejb;
+            }
+            else {
+                LOGGER.error("Unable to look up EJB [ "
+                        + getJNDIName(ArchiveExecutionService.class)
+                        + " ] returned reference was the wrong type.  "
+                        + "Type returned [ "
+                        + ejb.getClass().getCanonicalName()
+                        + " ].");
+            }
+        }
+        else {
+            LOGGER.error("Unable to look up EJB [ "
+                    + getJNDIName(ArchiveExecutionService.class)
+                    + " ] returned reference was null.");
+        }
+        return service;
+    }
+    
     /**
      * Utility method used to look up the HashGeneratorService interface.  
      * This method is only called by the web tier.
@@ -332,6 +365,39 @@ public class EJBClientUtilities {
         return service;
     }
     
+    /**
+     * Utility method used to look up the JDBCJobMetricsService interface.  
+     * This method is only called by the web tier.
+     * 
+     * @return The JDBCJobMetricsService interface, or null if we couldn't 
+     * look it up.
+     */
+    public JDBCJobMetricsService getJDBCJobMetricsService() {
+        
+        JDBCJobMetricsService service = null;
+        Object                ejb     = getEJB(JDBCJobMetricsService.class);
+        
+        if (ejb != null) {
+            if (ejb instanceof mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService) {
+                service = (JDBCJobMetricsService)ejb;
+            }
+            else {
+                LOGGER.error("Unable to look up EJB [ "
+                        + getJNDIName(JDBCJobMetricsService.class)
+                        + " ] returned reference was the wrong type.  "
+                        + "Type returned [ "
+                        + ejb.getClass().getCanonicalName()
+                        + " ].");
+            }
+        }
+        else {
+            LOGGER.error("Unable to look up EJB [ "
+                    + getJNDIName(JDBCJobMetricsService.class)
+                    + " ] returned reference was null.");
+        }
+        return service;
+    }
+    
     /**
      * Utility method used to look up the JDBCFileService interface.  This 
      * method is only called by the web tier.
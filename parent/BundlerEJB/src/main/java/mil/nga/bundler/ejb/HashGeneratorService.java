@@ -5,10 +5,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 
+import mil.nga.bundler.FileHasher;
+import mil.nga.bundler.archive.ArchiverSettings;
 import mil.nga.bundler.types.HashType;
 
 import org.slf4j.Logger;
@@ -38,11 +44,73 @@ public class HashGeneratorService {
      */
     static final Logger LOGGER = LoggerFactory.getLogger(HashGeneratorService.class);
     
+    /**
+     * Single-pass hasher.  Each bean instance only services one request at
+     * a time so the hasher (and its read buffer) can be re-used.
+     */
+    private final FileHasher hasher = new FileHasher();
+    
     /**
      * Default constructor. 
      */
     public HashGeneratorService() { }
     
+    /**
+     * Construct multiple hexadecimal-based hashes of the input file while
+     * only reading the file once.  If the input file doesn't exist, or 
+     * errors are encountered during hash generation the returned map is 
+     * empty.
+     * 
+     * @param inputFile String containing the full path to a file on which
+     * the requested hashes should be applied.
+     * @param hashTypes The types of hash to create.
+     * @return Map of the requested hash types to the associated hex string.
+     */
+    public Map<HashType, String> getHashes(
+            String        inputFile, 
+            Set<HashType> hashTypes) {
+        
+        Map<HashType, String> hashes = 
+                new EnumMap<HashType, String>(HashType.class);
+        
+        if ((hashTypes == null) || (hashTypes.isEmpty())) {
+            LOGGER.warn("No hash types requested.  No hashes will be "
+                    + "generated.");
+            return hashes;
+        }
+        if ((inputFile != null) && (!inputFile.isEmpty())) { 
+            File file = new File(inputFile);
+            if (file.exists()) {
+                
+                long startTime = System.currentTimeMillis();
+                hashes = getHashes(file, hashTypes);
+                
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(
+                           "Hash types [ "
+                            + hashTypes
+                            + " ] for file [ "
+                            + file.getAbsolutePath()
+                            + " ] created in [ "
+                            + Long.toString(
+                                    System.currentTimeMillis() - startTime)
+                            + " ] ms.");
+                }
+            }
+            else {
+                LOGGER.error("Input file does not exists.  Input file "
+                        + "specified [ "
+                        + inputFile
+                        + " ].");
+            }
+        }
+        else {
+            LOGGER.error("The require input file parameter is null or empty. "
+                    + " No hashes will be generated.");
+        }
+        return hashes;
+    }
+    
     /**
      * Construct the hexadecimal-based hash of the input file.  If the input
      * file doesn't exist, or errors are encountered during hash generation the 
@@ -71,22 +139,27 @@ public class HashGeneratorService {
                 }
                 
                 long startTime = System.currentTimeMillis();
-                switch (hashType) {
-                    case MD5 : 
-                        hash = getMD5Hash(file);
-                        break;
-                    case SHA1:
-                        hash = getSHA1Hash(file);
-                        break;
-                    case SHA256:
-                        hash = getSHA256Hash(file);
-                        break;
-                    case SHA384:
-                        hash = getSHA384Hash(file);                        
-                        break;
-                    case SHA512:
-                        hash = getSHA512Hash(file);                        
-                        break;
+                if (ArchiverSettings.getInstance().isMappedHashing()) {
+                    hash = getHashes(file, EnumSet.of(hashType)).get(hashType);
+                }
+                else {
+                    switch (hashType) {
+                        case MD5 : 
+                            hash = getMD5Hash(file);
+                            break;
+                        case SHA1:
+                            hash = getSHA1Hash(file);
+                            break;
+                        case SHA256:
+                            hash = getSHA256Hash(file);
+                            break;
+                        case SHA384:
+                            hash = getSHA384Hash(file);                        
+                            break;
+                        case SHA512:
+                            hash = getSHA512Hash(file);                        
+                            break;
+                    }
                 }
                 
                 long elapsedTime = System.currentTimeMillis() - startTime;
@@ -115,6 +188,39 @@ public class HashGeneratorService {
         return hash;
     }
     
+    /**
+     * Calculate the requested hashes of the input file in a single pass.
+     * Large files on local disk are hashed via memory mapping if enabled
+     * on this host (see <code>bundler.hash.mapped</code>).
+     * 
+     * @param file The file we need the hashes for.
+     * @param hashTypes The types of hash to create.
+     * @return Map of hash type to the associated hex string (empty if the
+     * file could not be read).
+     */
+    private Map<HashType, String> getHashes(File file, Set<HashType> hashTypes) {
+        
+        Map<HashType, String> hashes = 
+                new EnumMap<HashType, String>(HashType.class);
+        
+        hasher.setMapped(ArchiverSettings.getInstance().isMappedHashing());
+        try {
+            hashes = hasher.hash(file, hashTypes);
+        }
+        catch (IOException ioe) {
+            LOGGER.error(
+                 "Unexpected IOException encountered while generating "
+                 + "the [ " 
+                 + hashTypes
+                 + " ] hashes for file [ "
+                 + file.getAbsolutePath()
+                 + " ].  Exception message [ "
+                 + ioe.getMessage()
+                 + " ].  Method will return no hashes.");
+        }
+        return hashes;
+    }
+    
     /**
      * Generate a SHA-1 hash associated with the input 
      * 
@@ -5,11 +5,18 @@ import java.util.List;
 import javax.ejb.EJB;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 
 import mil.nga.PropertyLoader;
 import mil.nga.bundler.BundleRequest;
 import mil.nga.bundler.JobFactory;
+import mil.nga.bundler.JobTrackerCache;
+import mil.nga.bundler.exceptions.InvalidRequestException;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.interfaces.JobBuilderListenerI;
+import mil.nga.bundler.messages.BundleRequestMessage;
+import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.Job;
 import mil.nga.bundler.model.ValidFile;
 
@@ -36,6 +43,12 @@ public class JobFactoryService
     @EJB
     JobService jobService;
     
+    /**
+     * Container-injected reference to the JobRunnerService EJB.
+     */
+    @EJB
+    JobRunnerService jobRunnerService;
+    
     /**
      * Default constructor.
      */
@@ -60,6 +73,93 @@ public class JobFactoryService
         return jobService;
     }
     
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * 
+     * @return Reference to the JobRunnerService EJB.
+     */
+    private JobRunnerService getJobRunnerService() {
+        if (jobRunnerService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to JobRunnerService.  Attempting to "
+                    + "look it up via JNDI.");
+            jobRunnerService = EJBClientUtilities
+                    .getInstance()
+                    .getJobRunnerService();
+        }
+        return jobRunnerService;
+    }
+    
+    /**
+     * Create, persist and start a job from the input request, building the
+     * job incrementally.  The requested files are validated in chunks and 
+     * each archive is persisted and placed on the JMS queue as soon as it 
+     * is full, so the cluster starts building the first archives of very 
+     * large requests while the rest of the request is still being 
+     * validated.  Neither the full list of files nor the full Job graph is
+     * held in memory or written in a single transaction.
+     * 
+     * The method runs outside of a transaction so that each archive is 
+     * committed (and therefore visible to the ArchiverMDB) before it is 
+     * placed on the queue.
+     * 
+     * @param request The user-supplied bundle request.
+     * @return The Job object (the file lists of its archives are not 
+     * populated).
+     * @throws InvalidRequestException Thrown if the input bundle request is
+     * invalid. 
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Job createJob(BundleRequestMessage request) 
+            throws InvalidRequestException {
+        
+        long start = System.currentTimeMillis();
+        Job  job   = new JobFactory().createJob(
+                request, 
+                new JobBuilderListenerI() {
+                    
+                    @Override
+                    public void created(Job job) {
+                        getJobService().persist(job);
+                        JobTrackerCache.getInstance().invalidate(
+                                job.getJobID());
+                    }
+                    
+                    @Override
+                    public void sealed(Job job, Archive archive) {
+                        getJobService().persistArchive(archive);
+                        JobTrackerCache.getInstance().invalidate(
+                                job.getJobID());
+                        getJobRunnerService().run(archive);
+                    }
+                    
+                    @Override
+                    public void finished(Job job) {
+                        getJobService().completeCreation(job);
+                        JobTrackerCache.getInstance().invalidate(
+                                job.getJobID());
+                    }
+                    
+                    @Override
+                    public void failed(Job job) {
+                        getJobService().completeCreation(job);
+                        JobTrackerCache.getInstance().invalidate(
+                                job.getJobID());
+                    }
+                });
+        
+        LOGGER.info("Job ID [ "
+                + job.getJobID()
+                + " ] containing [ "
+                + job.getNumFiles()
+                + " ] files in [ "
+                + job.getNumArchives()
+                + " ] archives created and started in [ "
+                + (System.currentTimeMillis() - start)
+                + " ] ms.");
+        return job;
+    }
+    
     
 
     
@@ -70,14 +170,25 @@ public class JobFactoryService
         Job job = null;
         
         if (request != null) {
+            long       start   = System.currentTimeMillis();
             JobFactory factory = new JobFactory();
             
             job = factory.createJob(request, validatedFiles);
             LOGGER.info(job.toString());
         
+            long persistStart = System.currentTimeMillis();
             if (getJobService() != null) {
                 jobService.persist(job);
             }
+            LOGGER.info("Job ID [ "
+                    + job.getJobID()
+                    + " ] containing [ "
+                    + (validatedFiles == null ? 0 : validatedFiles.size())
+                    + " ] files created in [ "
+                    + (persistStart - start)
+                    + " ] ms and persisted in [ "
+                    + (System.currentTimeMillis() - persistStart)
+                    + " ] ms.");
         }
         else {
             LOGGER.error("Input BundleRequest object is null.  Unable to "
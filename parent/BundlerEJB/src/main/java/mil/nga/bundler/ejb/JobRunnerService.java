@@ -1,12 +1,15 @@
 package mil.nga.bundler.ejb;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import mil.nga.bundler.JobTrackerCache;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
 import mil.nga.bundler.messages.ArchiveMessage;
 import mil.nga.bundler.model.Archive;
@@ -40,6 +43,13 @@ public class JobRunnerService
     @EJB
     JobService jobService;
     
+    /**
+     * Container-injected registry used to defer the status cache 
+     * invalidation until the transaction completes.
+     */
+    @Resource
+    TransactionSynchronizationRegistry registry;
+    
     /**
      * Default Eclipse-generated constructor. 
      */
@@ -115,6 +125,9 @@ public class JobRunnerService
             if (getJobService() != null) {
                 job = getJobService().update(job);
             }
+            JobTrackerCache.getInstance().invalidateAfterCompletion(
+                    registry, 
+                    job.getJobID());
             
             for (Archive archive : job.getArchives()) {
                 
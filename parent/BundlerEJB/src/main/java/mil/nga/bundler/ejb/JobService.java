@@ -1,10 +1,12 @@
 package mil.nga.bundler.ejb;
 
+import java.util.Arrays;
 import java.util.List;
 
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
@@ -18,11 +20,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.Job;
 import mil.nga.bundler.types.JobStateType;
 
 /**
  * Session Bean implementation class JobService
+ * 
+ * The Job objects returned by this class contain their list of Archives, 
+ * but the list of files associated with each Archive is loaded lazily.  
+ * Clients that need the files outside of the current transaction (e.g. the
+ * archive processing threads) must call <code>getMaterializedArchive</code>
+ * (a single archive) or <code>getMaterializedJob</code> (every archive).
+ * 
+ * Jobs built incrementally (see <code>JobFactoryService</code>) have 
+ * archives added after the job is first persisted.  Code that updates the
+ * job totals or state while that may be happening must lock the job row 
+ * (<code>getJobForUpdate</code>), and code holding a detached copy of the
+ * job must update individual archives rather than merging the job (which
+ * would remove the archives added since the copy was loaded).
  */
 @Stateless
 @LocalBean
@@ -34,6 +50,20 @@ public class JobService
      */        
     private static final Logger LOGGER = LoggerFactory.getLogger(
             JobService.class);
+    
+    /**
+     * JPA query hint used to apply an entity graph as a fetch graph.
+     */
+    private static final String FETCH_GRAPH_HINT = 
+            "javax.persistence.fetchgraph";
+    
+    /**
+     * Job states from which a job will not transition again.
+     */
+    private static final List<JobStateType> FINISHED_STATES = Arrays.asList(
+            JobStateType.COMPLETE, 
+            JobStateType.ERROR, 
+            JobStateType.INVALID_REQUEST);
 
     /**
      * Container-injected persistence context.
@@ -137,6 +167,155 @@ public class JobService
         return job;
     }
     
+    /**
+     * Retrieve a Job object from the target database, locking the job row 
+     * until the current transaction completes.  Used to serialize updates
+     * of the job totals and state.
+     * 
+     * @param jobID The job ID (primary key) of the job to retrieve.
+     * @return The target Job object.  Null if the Job could not be found.
+     */
+    public Job getJobForUpdate(String jobID) {
+        
+        Job job = null;
+        
+        if (this.em != null) {
+            if ((jobID != null) && (!jobID.isEmpty())) {
+                job = em.find(Job.class, jobID, LockModeType.PESSIMISTIC_WRITE);
+            }
+            else {
+                LOGGER.warn("The input job ID is null or empty.  Unable to "
+                        + "retrieve an associated job.");
+            }
+        }
+        else {
+            LOGGER.error("The container failed to inject the target Entity "
+                    + "Manager.  Unable to retrieve job with job ID [ "
+                    + jobID
+                    + " ].");
+        }
+        return job;
+    }
+    
+    /**
+     * Retrieve a Job object from the target database along with the full 
+     * list of files associated with each of its archives.  The files are
+     * loaded with a single query using the <code>Archive.files</code> entity
+     * graph so the returned object may be used after the transaction 
+     * completes.
+     * 
+     * @param jobID The job ID (primary key) of the job to retrieve.
+     * @return The fully materialized Job object.  Null if the Job could not
+     * be found.
+     */
+    public Job getMaterializedJob(String jobID) {
+        
+        long start = System.currentTimeMillis();
+        Job  job   = getJob(jobID);
+        
+        if ((job != null) && 
+                (job.getArchives() != null) && 
+                (job.getArchives().size() > 0)) {
+            
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Archive> cq = cb.createQuery(Archive.class);
+            Root<Archive> root = cq.from(Archive.class);
+            cq.where(
+                    cb.equal(
+                            root.get("jobID"), 
+                            cb.parameter(String.class, "jobID")));
+            TypedQuery<Archive> query = em.createQuery(cq);
+            query.setParameter("jobID", jobID);
+            query.setHint(
+                    FETCH_GRAPH_HINT, 
+                    em.getEntityGraph(Archive.FILES_GRAPH));
+            
+            // The archives are already managed so the query populates the 
+            // file lists of the existing Archive objects.
+            query.getResultList();
+            
+            // Ensure every list is initialized (no-op if the fetch graph 
+            // was honored).
+            for (Archive archive : job.getArchives()) {
+                if (archive.getFiles() != null) {
+                    archive.getFiles().size();
+                }
+            }
+            
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Job ID [ "
+                        + jobID
+                        + " ] materialized in [ "
+                        + (System.currentTimeMillis() - start)
+                        + " ] ms.");
+            }
+        }
+        return job;
+    }
+    
+    /**
+     * Retrieve a single Archive object from the target database along with
+     * its full list of files.  Only the files of the requested archive are
+     * loaded (using the <code>Archive.files</code> entity graph) so the 
+     * returned object may be used after the transaction completes.  If the 
+     * job containing the archive has already been loaded in the current 
+     * transaction the returned object is the same instance held by the job.
+     * 
+     * @param jobID The job ID of the job containing the archive.
+     * @param archiveID The ID of the archive within the job.
+     * @return The fully materialized Archive object.  Null if the Archive 
+     * could not be found.
+     */
+    public Archive getMaterializedArchive(String jobID, long archiveID) {
+        
+        Archive archive = null;
+        
+        if (this.em != null) {
+            if ((jobID != null) && (!jobID.isEmpty())) {
+                
+                CriteriaBuilder cb = em.getCriteriaBuilder();
+                CriteriaQuery<Archive> cq = cb.createQuery(Archive.class);
+                Root<Archive> root = cq.from(Archive.class);
+                cq.where(
+                        cb.equal(
+                                root.get("jobID"), 
+                                cb.parameter(String.class, "jobID")),
+                        cb.equal(
+                                root.get("archiveID"), 
+                                cb.parameter(Long.class, "archiveID")));
+                TypedQuery<Archive> query = em.createQuery(cq);
+                query.setParameter("jobID", jobID);
+                query.setParameter("archiveID", archiveID);
+                query.setHint(
+                        FETCH_GRAPH_HINT, 
+                        em.getEntityGraph(Archive.FILES_GRAPH));
+                
+                List<Archive> archives = query.getResultList();
+                if (!archives.isEmpty()) {
+                    archive = archives.get(0);
+                    // Ensure the list is initialized (no-op if the fetch 
+                    // graph was honored).
+                    if (archive.getFiles() != null) {
+                        archive.getFiles().size();
+                    }
+                }
+            }
+            else {
+                LOGGER.warn("The input job ID is null or empty.  Unable to "
+                        + "retrieve an associated archive.");
+            }
+        }
+        else {
+            LOGGER.error("The container failed to inject the target Entity "
+                    + "Manager.  Unable to retrieve archive ID [ "
+                    + archiveID
+                    + " ] of job ID [ "
+                    + jobID
+                    + " ].");
+        }
+        return archive;
+    }
+    
     /**
      * Get a list of all jobIDs currently residing in the target data store.
      * 
@@ -259,6 +438,100 @@ public class JobService
         return jobs;
     }
     
+    /**
+     * Retrieve the jobs that reached a final state (COMPLETE, ERROR or 
+     * INVALID_REQUEST) with an end time that falls after the 
+     * <code>after</code> parameter and no later than the <code>upTo</code>
+     * parameter.  Used to incrementally fold finished jobs into the 
+     * overall metrics.
+     * 
+     * @param after Exclusive lower bound on the job end time.
+     * @param upTo Inclusive upper bound on the job end time.
+     * @return The list of finished jobs (may be empty).
+     */
+    public List<Job> getFinishedJobs(long after, long upTo) {
+        
+        List<Job> jobs = null;
+        
+        if (this.em != null) {
+            
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Job> cq = cb.createQuery(Job.class);
+            Root<Job> root = cq.from(Job.class);
+            Path<Long> pathToEndTime = root.get("endTime");
+            cq.where(cb.and(
+                    root.get("state").in(FINISHED_STATES),
+                    cb.greaterThan(pathToEndTime, after),
+                    cb.lessThanOrEqualTo(pathToEndTime, upTo)));
+            TypedQuery<Job> query = em.createQuery(cq);
+            jobs = query.getResultList();
+            
+        }
+        else {
+            LOGGER.error("The container failed to inject the target Entity "
+                    + "Manager.  Unable to retrieve the list of finished "
+                    + "jobs.");
+        }
+        return jobs;
+    }
+    
+    /**
+     * Retrieve the complement of <code>getFinishedJobs(0, watermark)</code>.  
+     * That is, every job that is not in a final state, that has no end 
+     * time, or that finished after the watermark.
+     * 
+     * @param watermark The latest job end time already folded into the 
+     * overall metrics.
+     * @return The list of jobs not covered by the watermark (may be empty).
+     */
+    public List<Job> getUnfinishedJobs(long watermark) {
+        
+        List<Job> jobs = null;
+        
+        if (this.em != null) {
+            
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Job> cq = cb.createQuery(Job.class);
+            Root<Job> root = cq.from(Job.class);
+            Path<Long> pathToEndTime = root.get("endTime");
+            cq.where(cb.or(
+                    cb.not(root.get("state").in(FINISHED_STATES)),
+                    cb.lessThanOrEqualTo(pathToEndTime, 0L),
+                    cb.greaterThan(pathToEndTime, watermark)));
+            TypedQuery<Job> query = em.createQuery(cq);
+            jobs = query.getResultList();
+            
+        }
+        else {
+            LOGGER.error("The container failed to inject the target Entity "
+                    + "Manager.  Unable to retrieve the list of unfinished "
+                    + "jobs.");
+        }
+        return jobs;
+    }
+    
+    /**
+     * Count the number of jobs in the target data store.
+     * 
+     * @return The number of jobs (0 if the EntityManager is not available).
+     */
+    public long getNumJobs() {
+        
+        long count = 0L;
+        
+        if (this.em != null) {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+            cq.select(cb.count(cq.from(Job.class)));
+            count = em.createQuery(cq).getSingleResult();
+        }
+        else {
+            LOGGER.error("The container failed to inject the target Entity "
+                    + "Manager.  Unable to count the jobs.");
+        }
+        return count;
+    }
+    
     /**
      * Update the data in the back end database with the current contents 
      * of the Job.
@@ -287,6 +560,200 @@ public class JobService
         return managedJob;
     }
 
+    /**
+     * Update the data in the back end database with the current contents 
+     * of a single Archive (and its files).  Used by clients holding a 
+     * detached copy of the job.
+     * 
+     * @param archive The Archive object to update.
+     * @return The container managed Archive object.
+     */
+    public Archive update(Archive archive) {
+        Archive managedArchive = null;
+        if (em != null) {
+            if (archive != null) {
+                managedArchive = em.merge(archive);
+                em.flush();
+            }
+            else {
+                LOGGER.warn("Called with a null Archive object.  "
+                        + "Object will not be persisted.");
+            }
+        }
+        else {
+            LOGGER.error("The EntityManager is null.  Unable to persist the "
+                    + "input Archive object.");
+        }
+        return managedArchive;
+    }
+    
+    /**
+     * Persist an archive (and its files) that was added to a job after the 
+     * job was persisted, and add the archive totals to the job.  The 
+     * creation heartbeat of the job is refreshed so the RecoveryService 
+     * knows the server building the job is still alive.
+     * 
+     * @param archive The Archive object to persist.
+     */
+    public void persistArchive(Archive archive) {
+        if (em != null) {
+            if (archive != null) {
+                Job job = getJobForUpdate(archive.getJobID());
+                em.persist(archive);
+                if (job != null) {
+                    job.setNumArchives(job.getNumArchives() + 1);
+                    job.setNumFiles(job.getNumFiles() + archive.getNumFiles());
+                    job.setTotalSize(job.getTotalSize() + archive.getSize());
+                    job.setLastHeartbeat(System.currentTimeMillis());
+                }
+                else {
+                    LOGGER.error("Unable to find job ID [ "
+                            + archive.getJobID()
+                            + " ] for archive ID [ "
+                            + archive.getArchiveID()
+                            + " ].  The job totals will not be updated.");
+                }
+                em.flush();
+            }
+            else {
+                LOGGER.warn("Called with a null Archive object.  "
+                        + "Object will not be persisted.");
+            }
+        }
+        else {
+            LOGGER.error("The EntityManager is null.  Unable to persist the "
+                    + "input Archive object.");
+        }
+    }
+    
+    /**
+     * Record that no further archives will be added to a job that was built
+     * incrementally.  The final totals and (if creation failed) the state 
+     * are copied from the input job.  If every archive already finished 
+     * before this method was called the job is marked complete (or failed,
+     * if any archive failed) here, as the JobTrackerMDB will not receive 
+     * another message for it.  A job whose creation has already been 
+     * completed is left untouched.
+     * 
+     * @param job The job as built by the JobFactory.
+     */
+    public void completeCreation(Job job) {
+        if (em != null) {
+            if (job != null) {
+                Job managedJob = getJobForUpdate(job.getJobID());
+                if ((managedJob != null) && (!managedJob.isCreating())) {
+                    // Already completed (e.g. an abandoned job marked as 
+                    // failed by the RecoveryService).
+                    LOGGER.warn("Creation of job ID [ "
+                            + job.getJobID()
+                            + " ] has already been completed.  Job state [ "
+                            + managedJob.getState()
+                            + " ] will not be updated.");
+                }
+                else if (managedJob != null) {
+                    managedJob.setCreating(false);
+                    managedJob.setNumArchives(job.getNumArchives());
+                    managedJob.setNumFiles(job.getNumFiles());
+                    managedJob.setTotalSize(job.getTotalSize());
+                    if (job.getState() == JobStateType.ERROR) {
+                        managedJob.setState(JobStateType.ERROR);
+                        managedJob.setEndTime(job.getEndTime());
+                    }
+                    else {
+                        int numArchivesComplete = 0;
+                        int numArchivesFailed   = 0;
+                        for (Archive archive : managedJob.getArchives()) {
+                            if (archive.getArchiveState() == 
+                                    JobStateType.COMPLETE) {
+                                numArchivesComplete++;
+                            }
+                            else if (archive.getArchiveState() == 
+                                    JobStateType.ERROR) {
+                                numArchivesFailed++;
+                            }
+                        }
+                        if ((numArchivesComplete + numArchivesFailed) == 
+                                managedJob.getNumArchives()) {
+                            managedJob.setNumArchivesComplete(
+                                    numArchivesComplete);
+                            managedJob.setState(numArchivesFailed > 0 ? 
+                                    JobStateType.ERROR : 
+                                    JobStateType.COMPLETE);
+                            managedJob.setEndTime(System.currentTimeMillis());
+                        }
+                    }
+                    em.flush();
+                }
+                else {
+                    LOGGER.error("Unable to find job ID [ "
+                            + job.getJobID()
+                            + " ].  Job creation cannot be completed.");
+                }
+            }
+            else {
+                LOGGER.warn("Called with a null Job object.  "
+                        + "Object will not be updated.");
+            }
+        }
+        else {
+            LOGGER.error("The EntityManager is null.  Unable to update the "
+                    + "input Job object.");
+        }
+    }
+    
+    /**
+     * Mark a job whose creation was abandoned (i.e. the server building it 
+     * failed) as failed.  The job row is locked and re-read first, and the
+     * job is left untouched if its creation has since been completed or if
+     * its creation heartbeat has moved on from the value observed by the 
+     * caller (i.e. the server building the job is still alive).
+     * 
+     * @param jobID The job ID of the abandoned job.
+     * @param heartbeat The creation heartbeat observed by the caller.
+     * @return True if the job was marked as failed.
+     */
+    public boolean failAbandonedJob(String jobID, long heartbeat) {
+        boolean failed = false;
+        if (em != null) {
+            Job managedJob = null;
+            if ((jobID != null) && (!jobID.isEmpty())) {
+                managedJob = em.find(Job.class, jobID);
+            }
+            if (managedJob != null) {
+                em.refresh(managedJob, LockModeType.PESSIMISTIC_WRITE);
+                if ((managedJob.isCreating()) && 
+                        (managedJob.getLastHeartbeat() == heartbeat)) {
+                    managedJob.setCreating(false);
+                    managedJob.setNumArchives(
+                            managedJob.getArchives().size());
+                    managedJob.setState(JobStateType.ERROR);
+                    managedJob.setEndTime(System.currentTimeMillis());
+                    em.flush();
+                    failed = true;
+                }
+                else {
+                    LOGGER.info("Job ID [ "
+                            + jobID
+                            + " ] is no longer abandoned.  Job state [ "
+                            + managedJob.getState()
+                            + " ] will not be updated.");
+                }
+            }
+            else {
+                LOGGER.error("Unable to find job ID [ "
+                        + jobID
+                        + " ].  Job cannot be marked as failed.");
+            }
+        }
+        else {
+            LOGGER.error("The EntityManager is null.  Unable to update job "
+                    + "ID [ "
+                    + jobID
+                    + " ].");
+        }
+        return failed;
+    }
+    
     /**
      * Persist the input Job object into the back-end data store.
      * 
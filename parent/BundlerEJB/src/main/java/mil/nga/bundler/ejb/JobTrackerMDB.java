@@ -2,6 +2,7 @@ package mil.nga.bundler.ejb;
 
 import java.util.List;
 
+import javax.annotation.Resource;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.EJB;
 import javax.ejb.MessageDriven;
@@ -9,7 +10,9 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.jms.ObjectMessage;
+import javax.transaction.TransactionSynchronizationRegistry;
 
+import mil.nga.bundler.JobTrackerCache;
 import mil.nga.bundler.messages.ArchiveMessage;
 import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.FileEntry;
@@ -63,6 +66,13 @@ public class JobTrackerMDB implements MessageListener {
     @EJB
     JobService jobService;
     
+    /**
+     * Container-injected registry used to defer the status cache 
+     * invalidation until the MDB transaction completes.
+     */
+    @Resource
+    TransactionSynchronizationRegistry registry;
+    
     /**
      * Default constructor. 
      */
@@ -116,6 +126,25 @@ public class JobTrackerMDB implements MessageListener {
         return archivesComplete;
     }
     
+    /**
+     * Calculate the number of archives that failed by looping through the 
+     * archives and counting how many are in the ERROR state.
+     * 
+     * @param job The target job.
+     * @return The number of archives that failed.
+     */
+    private int getNumArchivesFailed(Job job) {
+        int archivesFailed = 0;
+        if ((job != null) && (job.getArchives() != null)) {
+            for (Archive archive : job.getArchives()) {
+                if (archive.getArchiveState() == JobStateType.ERROR) {
+                    archivesFailed++;
+                }
+            }
+        }
+        return archivesFailed;
+    }
+    
     /**
      * Calculate the size completed by the archive by looping through the 
      * FileEntry objects and summing the individual size of each archive.
@@ -175,12 +204,14 @@ public class JobTrackerMDB implements MessageListener {
      * database has not been updated prior to the handling the archive 
      * complete message.  One case was a situation where it took over 
      * 25 seconds for the transactions associated with completing the 
-     * the archive to commit on one of the nodes.   
+     * the archive to commit on one of the nodes.  Archives that failed 
+     * (ERROR) are left alone.
      * 
      * @param archive The archive that has complete.  
      */
     private void checkArchive(Archive archive) { 
-        if (archive.getArchiveState() != JobStateType.COMPLETE) {
+        if ((archive.getArchiveState() != JobStateType.COMPLETE) && 
+                (archive.getArchiveState() != JobStateType.ERROR)) {
             LOGGER.warn("Archive complete message received for Job ID [ "
                     + archive.getJobID()
                     + " ], archive ID [ " 
@@ -207,6 +238,7 @@ public class JobTrackerMDB implements MessageListener {
         long sizeComplete          = getSizeComplete(archive.getFiles());
         long totalSizeComplete     = job.getTotalSizeComplete() + sizeComplete;
         int  numArchivesComplete   = getNumArchivesComplete(job);
+        int  numArchivesFailed     = getNumArchivesFailed(job);
     
         if (totalNumFilesComplete > job.getNumFiles()) {
             LOGGER.warn( "Inconsistency detected in the number of "
@@ -239,13 +271,32 @@ public class JobTrackerMDB implements MessageListener {
         job.setTotalSizeComplete(totalSizeComplete);
         job.setNumArchivesComplete(numArchivesComplete);
         
-        if (job.getNumArchives() == numArchivesComplete) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Marking job ID [ "
+        // A job that is still having archives added to it cannot complete
+        // yet (the JobService completes it if it has finished by the time
+        // the last archive is added).  Failed archives count as finished,
+        // but the job is then marked as failed.
+        if ((!job.isCreating()) && 
+                (job.getState() != JobStateType.ERROR) && 
+                (job.getNumArchives() == 
+                        (numArchivesComplete + numArchivesFailed))) {
+            if (numArchivesFailed > 0) {
+                LOGGER.warn("Marking job ID [ "
                         + job.getJobID() 
-                        + " ] complete.");
+                        + " ] as failed.  [ "
+                        + numArchivesFailed
+                        + " ] of [ "
+                        + job.getNumArchives()
+                        + " ] archives failed.");
+                job.setState(JobStateType.ERROR);
+            }
+            else {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Marking job ID [ "
+                            + job.getJobID() 
+                            + " ] complete.");
+                }
+                job.setState(JobStateType.COMPLETE);
             }
-            job.setState(JobStateType.COMPLETE);
             job.setEndTime(System.currentTimeMillis());
         }
         else { 
@@ -283,7 +334,11 @@ public class JobTrackerMDB implements MessageListener {
 
                  if (getJobService() != null) {
                      
-                     Job job = getJobService().getJob(archiveMsg.getJobId());
+                     // Lock the job so concurrent archive completions 
+                     // (and the addition of archives to jobs that are 
+                     // built incrementally) are applied one at a time.
+                     Job job = getJobService().getJobForUpdate(
+                             archiveMsg.getJobId());
                      
                      if (job != null) {
                          Archive archive = job.getArchive(archiveMsg.getArchiveId());
@@ -291,6 +346,10 @@ public class JobTrackerMDB implements MessageListener {
                              checkArchive(archive);
                              updateJobState(job, archive);
                              getJobService().update(job);
+                             JobTrackerCache.getInstance()
+                                     .invalidateAfterCompletion(
+                                             registry, 
+                                             job.getJobID());
                          }
                          else {
                               LOGGER.error("Unable to retrieve Archive "
@@ -4,6 +4,13 @@ import javax.ejb.EJB;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 
+import java.util.List;
+
+import mil.nga.bundler.JobTrackerCache;
+import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
+import mil.nga.bundler.ejb.jdbc.JDBCFileService;
+import mil.nga.bundler.ejb.jdbc.JDBCFileService.FileCounts;
+import mil.nga.bundler.ejb.jdbc.JDBCJobService;
 import mil.nga.bundler.messages.JobTrackerMessage;
 import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.FileEntry;
@@ -21,6 +28,17 @@ import org.slf4j.LoggerFactory;
  * via the web tier through the getState() call.  This method differs from 
  * previous versions of the bundler because it calculates the state from the 
  * Job object rather than reading information from a separate table.
+ * 
+ * Clients poll getState() frequently so the state is built from a 
+ * lightweight projection of the job: the JOBS row, the ARCHIVE_JOBS rows,
+ * and a database-side count/sum of the completed FILE_ENTRY rows.  The 
+ * (potentially very large) list of files is never loaded.  If the JDBC 
+ * services are not available the state is calculated from the fully 
+ * materialized Job as before.
+ * 
+ * The calculated state is held in the <code>JobTrackerCache</code> for a
+ * short period.  The MDBs invalidate the cached entry whenever they change
+ * the state of a job so most polls are answered from memory.
  */
 @Stateless
 @LocalBean
@@ -38,6 +56,24 @@ public class JobTrackerService {
     @EJB
     JobService jobService;
     
+    /**
+     * Container-injected reference to the JDBCJobService EJB.
+     */
+    @EJB
+    JDBCJobService jdbcJobService;
+    
+    /**
+     * Container-injected reference to the JDBCArchiveService EJB.
+     */
+    @EJB
+    JDBCArchiveService jdbcArchiveService;
+    
+    /**
+     * Container-injected reference to the JDBCFileService EJB.
+     */
+    @EJB
+    JDBCFileService jdbcFileService;
+    
     /**
      * Default constructor. 
      */
@@ -60,6 +96,57 @@ public class JobTrackerService {
         return jobService;
     }
     
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * 
+     * @return Reference to the JDBCJobService EJB.
+     */
+    private JDBCJobService getJDBCJobService() {
+        if (jdbcJobService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to JDBCJobService.  Attempting to "
+                    + "look it up via JNDI.");
+            jdbcJobService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCJobService();
+        }
+        return jdbcJobService;
+    }
+    
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * 
+     * @return Reference to the JDBCArchiveService EJB.
+     */
+    private JDBCArchiveService getJDBCArchiveService() {
+        if (jdbcArchiveService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to JDBCArchiveService.  Attempting to "
+                    + "look it up via JNDI.");
+            jdbcArchiveService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCArchiveService();
+        }
+        return jdbcArchiveService;
+    }
+    
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * 
+     * @return Reference to the JDBCFileService EJB.
+     */
+    private JDBCFileService getJDBCFileService() {
+        if (jdbcFileService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to JDBCFileService.  Attempting to "
+                    + "look it up via JNDI.");
+            jdbcFileService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCFileService();
+        }
+        return jdbcFileService;
+    }
+    
     /**
      * Calculate the elapsed time associated with the job.
      * 
@@ -78,6 +165,61 @@ public class JobTrackerService {
         return elapsedTime;
     }
     
+    /**
+     * Construct the JobTrackerMessage from the lightweight projection of 
+     * the job.  The job summary, archives, and completed file counts are 
+     * retrieved separately so the individual FileEntry records are never 
+     * loaded.
+     * 
+     * @param job The job summary (i.e. without archives).
+     * @param archives The archives associated with the job (without files).
+     * @param counts The count/size of the completed files.
+     * @return Current state information associated with the job.
+     */
+    private JobTrackerMessage createJobTracker(
+            Job job, 
+            List<Archive> archives, 
+            FileCounts counts) {
+        
+        int  numArchivesComplete = 0;
+        long elapsedTime         = getElapsedTime(
+                                    job.getStartTime(), 
+                                    job.getEndTime());
+        
+        JobTrackerMessage message = new JobTrackerMessage(
+                job.getJobID(),
+                job.getUserName(),
+                job.getNumFiles(),
+                job.getTotalSize(),
+                job.getNumArchives());
+        
+        message.setState(job.getState());
+        
+        if ((archives != null) && (archives.size() > 0)) {
+            for (Archive archive : archives) {
+                if (archive.getArchiveState() == JobStateType.COMPLETE) {
+                    numArchivesComplete++;
+                    message.addArchive(archive);
+                }
+            }
+        }
+        else {
+            LOGGER.warn("Job ID [ "
+                    + job.getJobID() 
+                    + " ] does not contain any archives to process.");
+        }
+        message.setElapsedTime(elapsedTime);
+        message.setNumArchivesComplete(numArchivesComplete);
+        
+        // The number of hashes complete is maintained for backwards 
+        // compatibility.  It will always be the same as the number of 
+        // archives complete
+        message.setNumHashesComplete(numArchivesComplete);
+        message.setNumFilesComplete(counts.getNumFiles());
+        message.setSizeComplete(counts.getTotalSize());
+        return message;    
+    }
+    
     /**
      * Construct the JobTrackerMessage and populate it with the current
      * statistics associated with the input Job object.
@@ -156,12 +298,44 @@ public class JobTrackerService {
      */
     public JobTrackerMessage getJobTracker(String jobID) {
         
-        JobTrackerMessage message = null;
-        Job               job     = null;
+        JobTrackerMessage message    = null;
+        Job               job        = null;
+        long              generation = 0L;
         
         if ((jobID != null) && (!jobID.isEmpty())) {
-            if (getJobService() != null) {
-                job = getJobService().getJob(jobID);
+            message = JobTrackerCache.getInstance().get(jobID);
+            if (message != null) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("State of job ID [ "
+                            + jobID
+                            + " ] served from the job status cache.");
+                }
+                return message;
+            }
+            // Read before the job is loaded so state loaded across an 
+            // invalidation is not cached.
+            generation = JobTrackerCache.getInstance().getGeneration(jobID);
+            if ((getJDBCJobService() != null) && 
+                    (getJDBCArchiveService() != null) && 
+                    (getJDBCFileService() != null)) {
+                job = getJDBCJobService().getJob(jobID);
+                if (job != null) {
+                    message = createJobTracker(
+                            job, 
+                            getJDBCArchiveService().getArchives(jobID),
+                            getJDBCFileService().getFileCounts(
+                                    jobID, 
+                                    JobStateType.COMPLETE));
+                }
+                else {
+                    LOGGER.error("Unable to retrieve job ID [ "
+                            + jobID 
+                            + " ] from the data store.  Method will return "
+                            + "null.");
+                }
+            }
+            else if (getJobService() != null) {
+                job = getJobService().getMaterializedJob(jobID);
                 if (job != null) {
                     message = createJobTracker(job);
                 }
@@ -183,6 +357,7 @@ public class JobTrackerService {
             LOGGER.error("The input job ID is null, or not populated.  Unable "
                     + "to determine state.");
         }
+        JobTrackerCache.getInstance().put(message, generation);
         return message;
     }
 
@@ -1,16 +1,24 @@
 package mil.nga.bundler.ejb;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.BundlerDailyMetrics;
 import mil.nga.bundler.model.BundlerMetrics;
 
 import org.slf4j.Logger;
@@ -50,6 +58,28 @@ public class MetricsService implements BundlerConstantsI {
 
 
     public BundlerMetrics getMetrics() {
+        return getMetrics(LockModeType.NONE);
+    }
+    
+    /**
+     * Retrieve the BundlerMetrics object, locking the row until the current
+     * transaction completes.  Used to serialize the metrics timer across 
+     * the nodes of the cluster (the running totals and the daily rollups
+     * are read, incremented and written back).
+     * 
+     * @return The BundlerMetrics object.  Null if it has not been created.
+     */
+    public BundlerMetrics getMetricsForUpdate() {
+        return getMetrics(LockModeType.PESSIMISTIC_WRITE);
+    }
+    
+    /**
+     * Retrieve the BundlerMetrics object using the input lock mode.
+     * 
+     * @param lockMode The lock to take on the row.
+     * @return The BundlerMetrics object.  Null if it has not been created.
+     */
+    private BundlerMetrics getMetrics(LockModeType lockMode) {
         
         BundlerMetrics metrics = null;
         
@@ -61,6 +91,7 @@ public class MetricsService implements BundlerConstantsI {
                 Root<BundlerMetrics> root = cq.from(BundlerMetrics.class);
                 cq.select(root);
                 Query query = em.createQuery(cq);
+                query.setLockMode(lockMode);
                 metrics = (BundlerMetrics)query.getSingleResult();
                 
             }
@@ -106,4 +137,85 @@ public class MetricsService implements BundlerConstantsI {
         }
         return managedMetrics;
     }
+    
+    /**
+     * Retrieve the daily rollups for the days starting between the two 
+     * input times (inclusive), ordered by day.
+     * 
+     * @param startTime Start of the earliest day to retrieve.
+     * @param endTime Start of the latest day to retrieve.
+     * @return The daily rollups (may be empty).
+     */
+    public List<BundlerDailyMetrics> getDailyMetrics(
+            long startTime, 
+            long endTime) {
+        
+        List<BundlerDailyMetrics> days = new ArrayList<BundlerDailyMetrics>();
+        
+        if (em != null) {
+            
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<BundlerDailyMetrics> cq = 
+                    cb.createQuery(BundlerDailyMetrics.class);
+            Root<BundlerDailyMetrics> root = cq.from(BundlerDailyMetrics.class);
+            Path<Long> pathToDay = root.get("dayStart");
+            cq.where(cb.between(pathToDay, startTime, endTime));
+            cq.orderBy(cb.asc(pathToDay));
+            days = em.createQuery(cq).getResultList();
+            
+        }
+        else {
+            LOGGER.error("The container injected EntityManager object is "
+                    + "null.  Unable to retrieve the BundlerDailyMetrics "
+                    + "objects from the data store.");
+        }
+        return days;
+    }
+    
+    /**
+     * Persist the input daily rollups.
+     * 
+     * @param days The daily rollups to persist.
+     */
+    public void updateDailyMetrics(Collection<BundlerDailyMetrics> days) {
+        
+        if (em != null) {
+            if ((days != null) && (days.size() > 0)) {
+                for (BundlerDailyMetrics day : days) {
+                    em.merge(day);
+                }
+                em.flush();
+            }
+        }
+        else {
+            LOGGER.error("The container injected EntityManager object is "
+                    + "null.  Unable to persist the BundlerDailyMetrics "
+                    + "objects.");
+        }
+    }
+    
+    /**
+     * Remove all of the daily rollups.  Used when the running totals are 
+     * rebuilt from scratch.
+     */
+    public void deleteDailyMetrics() {
+        
+        if (em != null) {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaDelete<BundlerDailyMetrics> cd = 
+                    cb.createCriteriaDelete(BundlerDailyMetrics.class);
+            cd.from(BundlerDailyMetrics.class);
+            int count = em.createQuery(cd).executeUpdate();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Removed [ "
+                        + count
+                        + " ] daily rollups.");
+            }
+        }
+        else {
+            LOGGER.error("The container injected EntityManager object is "
+                    + "null.  Unable to remove the BundlerDailyMetrics "
+                    + "objects.");
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package mil.nga.bundler.ejb;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.EJB;
 import javax.ejb.Schedule;
@@ -9,6 +11,7 @@ import javax.ejb.Timer;
 
 import mil.nga.bundler.MetricsCalculator;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.BundlerDailyMetrics;
 import mil.nga.bundler.model.BundlerMetrics;
 import mil.nga.bundler.model.Job;
 import mil.nga.util.FileUtils;
@@ -22,9 +25,15 @@ import org.slf4j.LoggerFactory;
  * improve the responsiveness of the bundler statistics web pages.
  * 
  * This method needs to run only once on only one server in the overall 
- * cluster.  To ensure it runs only once we leverage a clustered semaphore
- * using an Oracle database table (see jboss-ejb3.xml file deployed in the
- * BundlerEJB.jar file).
+ * cluster.  The timer is mapped to a clustered timer store (see the 
+ * jboss-ejb3.xml file deployed in the BundlerEJB.jar file), but the 
+ * singleton and its automatic timer are still created on every node, so 
+ * the timer may fire on more than one node.  Because the running totals 
+ * and the daily rollups are incremented in place, each run holds a lock on
+ * the BundlerMetrics row for its whole transaction.  A node that fires 
+ * while another node is folding waits for the lock, then finds the 
+ * watermark already advanced and folds nothing, so no job is counted 
+ * twice.
  * 
  * @author L. Craig Carpenter
  */
@@ -50,6 +59,12 @@ public class MetricsTimerBean
     @EJB
     MetricsService metricsService;
     
+    /**
+     * Amount of time (in milliseconds) the metrics watermark trails the 
+     * current time.
+     */
+    private static final long METRICS_SETTLE_TIME = 15L * 60L * 1000L;
+    
     /**
      * Default Eclipse-generated constructor. 
      */
@@ -87,10 +102,50 @@ public class MetricsTimerBean
         return metricsService;
     }
     
+    /**
+     * Fold the input list of finished jobs into the daily rollups read by
+     * the statistics bar charts.  Only the rollups for the days touched by 
+     * the input jobs are retrieved and updated.
+     * 
+     * @param finished Jobs that finished since the last watermark.
+     */
+    private void foldDailyMetrics(List<Job> finished) {
+        
+        if ((finished != null) && (finished.size() > 0)) {
+            
+            long first = Long.MAX_VALUE;
+            long last  = Long.MIN_VALUE;
+            for (Job job : finished) {
+                first = Math.min(first, job.getStartTime());
+                last  = Math.max(last, job.getStartTime());
+            }
+            
+            Map<Long, BundlerDailyMetrics> days = 
+                    new HashMap<Long, BundlerDailyMetrics>();
+            for (BundlerDailyMetrics day : getMetricsService().getDailyMetrics(
+                    BundlerDailyMetrics.getDayStart(first), 
+                    BundlerDailyMetrics.getDayStart(last))) {
+                days.put(day.getDayStart(), day);
+            }
+            foldDaily(days, finished);
+            getMetricsService().updateDailyMetrics(days.values());
+        }
+    }
+    
     /**
      * Execute the timer method which will start the statistics generation algorithm 
      * every 60 minutes at 30 minutes past the hour..
      * 
+     * Rather than re-reading every job ever run, jobs that have reached a 
+     * final state are folded into running totals (persisted with the 
+     * BundlerMetrics) once, and a watermark (the latest end time folded) is
+     * advanced.  Each run only selects the jobs that finished since the last
+     * watermark, plus the (small) set of jobs that are still in progress.  
+     * The watermark trails the current time by 
+     * <code>METRICS_SETTLE_TIME</code> to allow for jobs whose end time was 
+     * set before the transaction committed.  The same jobs are folded into
+     * the per-day rollups (BUNDLER_DAILY_METRICS) used by the bar charts.
+     * 
      * @param t Container injected Timer object.
      */
     @Schedule(second="0", minute="30", hour="*", dayOfWeek="*",
@@ -104,50 +159,77 @@ public class MetricsTimerBean
         
         if (getJobService() != null) {
             
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Beginning selection of all Jobs from the data store.");
-            }
-            
-            List<Job> jobs = getJobService().getJobs();
-            
-            if ((jobs != null) && (jobs.size() > 0)) {
+            if (getMetricsService() != null) {
                 
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Selected [ "
-                            + jobs.size()
-                            + " ] jobs from the data store in [ "
-                            + (System.currentTimeMillis() - startTime)
-                            + " ] ms.");
+                // Lock the metrics row until this run commits (see class
+                // comments).
+                BundlerMetrics metrics = 
+                        getMetricsService().getMetricsForUpdate();
+                if (metrics == null) {
+                    LOGGER.warn("The BundlerMetrics object retrieved from "
+                            + "the data store is null.  This situation is "
+                            + "only valid the very first time this timer "
+                            + "invoked.");
+                    metrics = new BundlerMetrics();
                 }
                 
-                if (getMetricsService() != null) {
-                    BundlerMetrics metrics = getMetricsService().getMetrics();
-                    if (metrics == null) {
-                        LOGGER.warn("The BundlerMetrics object retrieved from "
-                                + "the data store is null.  This situation is "
-                                + "only valid the very first time this timer "
-                                + "invoked.");
-                        metrics = new BundlerMetrics();
-                    }
-                    getMetrics(metrics, jobs);
-                    getMetricsService().update(metrics);
-                    LOGGER.info(metrics.toString());
+                // Count first so jobs created while the timer is running 
+                // can only increase the number of jobs selected below.
+                long numJobs   = getJobService().getNumJobs();
+                long watermark = Math.max(
+                        metrics.getWatermark(), 
+                        startTime - METRICS_SETTLE_TIME);
+                
+                List<Job> finished = getJobService().getFinishedJobs(
+                        metrics.getWatermark(), 
+                        watermark);
+                fold(metrics, finished, watermark);
+                foldDailyMetrics(finished);
+                
+                List<Job> unfinished = getJobService().getUnfinishedJobs(
+                        watermark);
+                int numUnfinished = (unfinished == null ? 0 : unfinished.size());
+                
+                // A job whose end time was set behind the watermark (e.g. 
+                // by the RecoveryService) is never folded.  If any job is 
+                // unaccounted for, rebuild the running totals.
+                if ((metrics.getRunningNumJobs() + numUnfinished) < numJobs) {
+                    LOGGER.warn("The running metrics totals account for [ "
+                            + (metrics.getRunningNumJobs() + numUnfinished)
+                            + " ] jobs, but the data store contains [ "
+                            + numJobs
+                            + " ].  Rebuilding the running totals.");
+                    List<Job> all = getJobService().getFinishedJobs(
+                            0L, watermark);
+                    metrics.resetRunningTotals();
+                    fold(metrics, all, watermark);
+                    getMetricsService().deleteDailyMetrics();
+                    foldDailyMetrics(all);
                 }
-                else {
-                    LOGGER.error("Unable to obtain a reference to the "
-                            + "MetricsService EJB.");
+                
+                getIncrementalMetrics(metrics, unfinished);
+                getMetricsService().update(metrics);
+                
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Folded [ "
+                            + (finished == null ? 0 : finished.size())
+                            + " ] finished jobs and [ "
+                            + numUnfinished
+                            + " ] unfinished jobs in [ "
+                            + (System.currentTimeMillis() - startTime)
+                            + " ] ms.");
                 }
+                LOGGER.info(metrics.toString());
             }
             else {
-                LOGGER.error("The job list retrieved from the data source " 
-                        + "is null or contains no elements.  Unable to "
-                        + "calculate statistics.");
+                LOGGER.error("Unable to obtain a reference to the "
+                        + "MetricsService EJB.");
             }
-         }
+        }
         else {
             LOGGER.error("Unable to obtain a reference to the JobService "
                     + "EJB.  We will be unable to obtain a list of Jobs "
                     + "on which to calculate statistics.");
         }
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,9 @@
 package mil.nga.bundler.ejb;
 
 import javax.jms.JMSException;
-import javax.jms.ObjectMessage;
-import javax.jms.Queue;
-import javax.jms.QueueConnection;
-import javax.jms.QueueConnectionFactory;
-import javax.jms.QueueSender;
-import javax.jms.QueueSession;
-import javax.jms.Session;
-import javax.naming.Context;
-import javax.naming.InitialContext;
 import javax.naming.NamingException;
 
+import mil.nga.bundler.JMSPublisher;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
 import mil.nga.bundler.messages.ArchiveMessage;
 
@@ -20,7 +12,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Regular Java class containing a single method used by subclasses to send 
- * JMS messages to a target queue.
+ * JMS messages to a target queue.  Messages are sent through the shared 
+ * JMSPublisher, which caches the JNDI lookups and re-uses the JMS 
+ * connection and sessions, rather than opening a new connection for every
+ * message (the JobRunnerService sends one message per archive).
  * 
  * @author L. Craig Carpenter
  */
@@ -39,10 +34,6 @@ public class NotificationService implements BundlerConstantsI {
      */
     public void notify(String queue, ArchiveMessage archiveMsg) {
         
-        QueueConnection conn      = null;
-        QueueSession    session   = null;
-        QueueSender     publisher = null;
-        
         if (archiveMsg != null) {
             
             LOGGER.info("Placing message [ "
@@ -52,40 +43,7 @@ public class NotificationService implements BundlerConstantsI {
                     + " ].");
             
             try {
-                
-                Context ctx = new InitialContext();
-                Queue jmsQueue = (Queue)ctx.lookup(queue);
-                
-                if (jmsQueue != null) {
-                    QueueConnectionFactory factory = (QueueConnectionFactory)
-                            ctx.lookup(CONNECTION_FACTORY);
-                    if (factory != null) {
-                        
-                        conn = factory.createQueueConnection();
-                        session = conn.createQueueSession(
-                                false,
-                                Session.AUTO_ACKNOWLEDGE);
-                    
-                        publisher = session.createSender(jmsQueue);
-                        conn.start();
-                        
-                        ObjectMessage message = session.createObjectMessage(archiveMsg);
-                        publisher.send(message);
-                    }
-                    else {
-                        LOGGER.error("Unable to look up the JMS Queue "
-                                + "Connection factory JNDI.  Connection "
-                                + "factory is null.  Name [ "
-                                + CONNECTION_FACTORY
-                                + " ].");
-                    }
-                }
-                else {
-                    LOGGER.error("Unable to look up the JMS destination queue."
-                            + "Queue is null.  Name [ "
-                            + queue
-                            + " ].");
-                }
+                JMSPublisher.getInstance().send(queue, archiveMsg);
             }
             catch (NamingException ne) {
                  LOGGER.error("Unexpected NamingException encoutered while "
@@ -112,17 +70,6 @@ public class NotificationService implements BundlerConstantsI {
                         + archiveMsg.getArchiveId()
                         + " ] is complete.");
             }
-            finally {
-                if (session != null) {
-                    try { session.close(); } catch (Exception e) {}
-                }
-                if (publisher != null) {
-                    try { publisher.close(); } catch (Exception e) {}
-                }
-                if (conn != null) {
-                    try { conn.close(); } catch (Exception e) {}
-                }
-            }
         }
         else {
             LOGGER.error("Client submitted a null archive.  The archive will "
@@ -4,13 +4,17 @@ import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
+import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import mil.nga.bundler.JobTrackerCache;
 import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.Job;
 import mil.nga.bundler.types.JobStateType;
@@ -34,6 +38,15 @@ import mil.nga.util.FileUtils;
  * can safely assume that any Archive jobs that were running on this node 
  * and are incomplete can be restarted to complete the parent job.
  * 
+ * Large jobs are now built incrementally and remain flagged as still 
+ * being created until the last archive has been added.  If the node 
+ * building the job fails part way through, the flag is never cleared and
+ * the job can never finish.  Each job records the node building it and a 
+ * heartbeat that is refreshed as archives are added.  Such jobs are marked
+ * as failed when the node that was building them starts up again, or by 
+ * any node once the heartbeat is older than 
+ * <code>CREATION_TIME_THRESHOLD</code>.
+ * 
  * @author L. Craig Carpenter
  */
 @Startup
@@ -51,6 +64,15 @@ public class RecoveryService {
      */
     private static final long PROCESSING_TIME_THRESHOLD = (long)(45 * 1000);
     
+    /**
+     * The amount of time without a creation heartbeat after which a job 
+     * that is still flagged as being created is assumed to have been 
+     * abandoned by a failed node.  The heartbeat is refreshed each time an
+     * archive is added, and the validation of the files making up a single 
+     * archive takes a few minutes at most.
+     */
+    private static final long CREATION_TIME_THRESHOLD = (long)(60 * 60 * 1000);
+    
     /**
      * Container-injected reference to the JobService EJB.
      */
@@ -64,6 +86,13 @@ public class RecoveryService {
     @EJB
     JobRunnerService jobRunnerService;
     
+    /**
+     * Container-injected registry used to defer the status cache 
+     * invalidation until the updates have been committed.
+     */
+    @Resource
+    TransactionSynchronizationRegistry registry;
+    
     /**
      * Eclipse-generated constructor. 
      */
@@ -92,6 +121,77 @@ public class RecoveryService {
         checkForJobsToRetry();
         checkForJobsThatAreReallyComplete();    
         checkForInvalidJobs();
+        checkForAbandonedJobs(true);
+    }
+    
+    /**
+     * Jobs are built incrementally by a single node.  If the node fails 
+     * part way through, the job stays IN_PROGRESS with its creating flag 
+     * set and will never be completed.  This timer runs hourly on every 
+     * node, so it only marks a job as failed once the heartbeat of its 
+     * creation is older than <code>CREATION_TIME_THRESHOLD</code>.  The 
+     * archives that were already created keep running (or are retried by 
+     * <code>checkForJobsToRetry()</code>).
+     */
+    @Schedule(second="0", minute="15", hour="*", dayOfWeek="*",
+              dayOfMonth="*", month="*", year="*", info="RecoveryTimer", 
+              persistent=false)
+    public void checkForAbandonedJobs() {
+        checkForAbandonedJobs(false);
+    }
+    
+    /**
+     * Mark the jobs whose creation was abandoned as failed.  A job is 
+     * abandoned if the heartbeat of its creation is older than 
+     * <code>CREATION_TIME_THRESHOLD</code>.  At startup, any job still 
+     * being created by this node is also abandoned, since the node that 
+     * was building it has restarted.
+     * 
+     * @param startup True if called while this node is starting up.
+     */
+    private void checkForAbandonedJobs(boolean startup) {
+        if (getJobService() != null) {
+            String hostName = FileUtils.getHostName();
+            List<Job> jobsInProgress = getJobService().getIncompleteJobs();
+            if ((jobsInProgress != null) && (jobsInProgress.size() > 0)) {
+                for (Job job : jobsInProgress) {
+                    if ((!job.isCreating()) || 
+                            (job.getState() != JobStateType.IN_PROGRESS)) {
+                        continue;
+                    }
+                    long    sinceHeartbeat = System.currentTimeMillis() 
+                            - job.getLastHeartbeat();
+                    boolean restarted      = startup && 
+                            hostName.equals(job.getCreatorHostName());
+                    if ((restarted) || 
+                            (sinceHeartbeat > CREATION_TIME_THRESHOLD)) {
+                        if (getJobService().failAbandonedJob(
+                                job.getJobID(), 
+                                job.getLastHeartbeat())) {
+                            LOGGER.warn("RETRY: Creation of job ID [ "
+                                    + job.getJobID()
+                                    + " ] on host [ "
+                                    + job.getCreatorHostName()
+                                    + " ] last made progress [ "
+                                    + sinceHeartbeat
+                                    + " ] ms ago and was never completed.  "
+                                    + "Job marked as [ "
+                                    + JobStateType.ERROR
+                                    + " ].");
+                            JobTrackerCache.getInstance()
+                                    .invalidateAfterCompletion(
+                                            registry,
+                                            job.getJobID());
+                        }
+                    }
+                }
+            }
+        }
+        else {
+            LOGGER.error("RETRY: The container-injected reference to the "
+                    + "JobService EJB is null.  Unable to determine if "
+                    + "there are any abandoned jobs.");
+        }
     }
     
     /**
@@ -137,7 +237,8 @@ public class RecoveryService {
             List<Job> jobsInProgress = getJobService().getIncompleteJobs();
             if ((jobsInProgress != null) && (jobsInProgress.size() > 0)) {
                 for (Job job : jobsInProgress) {
-                    if (getElapsedTime(job) > PROCESSING_TIME_THRESHOLD) {
+                    if ((getElapsedTime(job) > PROCESSING_TIME_THRESHOLD) && 
+                            (!job.isCreating())) {
                         if ((job.getArchives() != null) && (job.getArchives().size() > 0)) {
                             
                             int archivesComplete = 0;
@@ -0,0 +1,54 @@
+package mil.nga.bundler.ejb;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.bundler.JMSPublisher;
+import mil.nga.bundler.SharedExecutors;
+
+/**
+ * Session Bean implementation class SharedResourceService
+ *
+ * The JMS connection used for the archive notifications and the thread
+ * pools shared by the compressors, file validation and directory expansion
+ * are held by static singletons in BundlerCommon.  They are not container
+ * managed, so nothing releases them when the application is undeployed.
+ * This bean closes them when the container destroys it.
+ *
+ * The ArchiveExecutionService depends on this bean, so it is destroyed
+ * (and its running archives, which use the compression pool, drained)
+ * before the shared resources are released.
+ */
+@Startup
+@Singleton
+public class SharedResourceService {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            SharedResourceService.class);
+
+    /**
+     * Close the shared JMS connection and shut down the shared thread
+     * pools.
+     */
+    @PreDestroy
+    public void shutdown() {
+        LOGGER.info("Releasing the shared JMS connection and thread pools.");
+        try {
+            JMSPublisher.getInstance().close();
+        }
+        catch (RuntimeException re) {
+            LOGGER.warn("Unexpected exception raised while closing the "
+                    + "shared JMS connection.  Error message [ "
+                    + re.getMessage()
+                    + " ].");
+        }
+        SharedExecutors.getInstance().shutdown();
+    }
+}
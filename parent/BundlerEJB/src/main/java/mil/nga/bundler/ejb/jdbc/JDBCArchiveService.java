@@ -727,8 +727,8 @@ public class JDBCArchiveService {
                     stmt = conn.prepareStatement(sql);
                     stmt.setString(1, archive.getArchiveFilename());
                     stmt.setLong(2, archive.getArchiveID());
-                    stmt.setString(3, archive.getArchiveState().getText());
-                    stmt.setString(4, archive.getArchiveType().getText());
+                    stmt.setString(3, archive.getArchiveState().name());
+                    stmt.setString(4, archive.getArchiveType().name());
                     stmt.setString(5, archive.getArchiveURL());
                     stmt.setLong(6, archive.getEndTime());
                     stmt.setString(7, archive.getHashFilename());
@@ -832,8 +832,8 @@ public class JDBCArchiveService {
                     stmt = conn.prepareStatement(sql);
                     stmt.setString(1, archive.getArchiveFilename());
                     stmt.setLong(2, archive.getArchiveID());
-                    stmt.setString(3, archive.getArchiveState().getText());
-                    stmt.setString(4, archive.getArchiveType().getText());
+                    stmt.setString(3, archive.getArchiveState().name());
+                    stmt.setString(4, archive.getArchiveType().name());
                     stmt.setString(5, archive.getArchiveURL());
                     stmt.setLong(6, archive.getEndTime());
                     stmt.setString(7, archive.getHashFilename());
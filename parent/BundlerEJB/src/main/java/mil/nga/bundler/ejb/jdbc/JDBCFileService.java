@@ -12,6 +12,7 @@ import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.sql.DataSource;
 
+import mil.nga.bundler.interfaces.BundlerConstantsI;
 import mil.nga.bundler.model.FileEntry;
 import mil.nga.bundler.types.JobStateType;
 
@@ -25,11 +26,14 @@ import org.slf4j.LoggerFactory;
  * that will allow the Job class to be materialized without the use of the 
  * complex joins that occur in JPA.  
  * 
+ * Note: FILE_STATE values are written using the enumeration name to match
+ * the <code>EnumType.STRING</code> mapping used by JPA.
+ * 
  * @author L. Craig Carpenter
  */
 @Stateless
 @LocalBean
-public class JDBCFileService {
+public class JDBCFileService implements BundlerConstantsI {
 
     /**
      * Set up the logging system for use throughout the class
@@ -196,8 +200,9 @@ public class JDBCFileService {
         ResultSet         rs     = null;
         long              start  = System.currentTimeMillis();
         String            sql    = "select ID, ARCHIVE_ID, "
-                + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, PATH, FILE_SIZE "
-                + "from FILE_ENTRY where ARCHIVE_ID = ? AND JOB_ID = ?";
+                + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, PATH, FILE_SIZE, "
+                + "LAST_MODIFIED from FILE_ENTRY where ARCHIVE_ID = ? AND "
+                + "JOB_ID = ?";
         
         if (datasource != null) {
             if (archiveID >= 0) {
@@ -223,6 +228,7 @@ public class JDBCFileService {
                             file.setJobID(rs.getString("JOB_ID"));
                             file.setFilePath(rs.getString("PATH"));
                             file.setSize(rs.getLong("FILE_SIZE"));
+                            file.setLastModified(rs.getLong("LAST_MODIFIED"));
                             files.add(file);
                             
                         }
@@ -277,6 +283,88 @@ public class JDBCFileService {
         return files;
     }
     
+    /**
+     * Calculate the number and total size of the files associated with the
+     * input job ID that are in the requested state.  The aggregation is 
+     * performed by the database so the individual file rows are never
+     * returned.
+     * 
+     * @param jobID The job ID requested (must not be null, or empty String)
+     * @param state The file state of interest.
+     * @return The file count and total size (both zero if the job does not
+     * exist or the query fails).
+     */
+    public FileCounts getFileCounts(String jobID, JobStateType state) {
+        
+        FileCounts        counts = new FileCounts();
+        Connection        conn   = null;
+        PreparedStatement stmt   = null;
+        ResultSet         rs     = null;
+        long              start  = System.currentTimeMillis();
+        String            sql    = "select count(*), sum(FILE_SIZE) "
+                + "from FILE_ENTRY where JOB_ID = ? and FILE_STATE = ?";
+        
+        if (datasource != null) {
+            if ((jobID != null) && (!jobID.isEmpty()) && (state != null)) {
+                
+                try { 
+                    
+                    conn = datasource.getConnection();
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, jobID);
+                    stmt.setString(2, state.name());
+                    rs   = stmt.executeQuery();
+                    if (rs.next()) {
+                        counts.numFiles  = rs.getLong(1);
+                        counts.totalSize = rs.getLong(2);
+                    }
+                    
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised while "
+                            + "attempting to count the FILE_ENTRY records "
+                            + "associated with job ID [ "
+                            + jobID
+                            + " ].  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (rs != null) { rs.close(); }
+                    } catch (Exception e) {}
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.warn("The input job ID or file state is null.  Unable "
+                        + "to count files.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Empty file counts will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + counts.getNumFiles()
+                    + " ] files in state [ "
+                    + state
+                    + " ] counted for job ID [ "
+                    + jobID
+                    + " ] in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return counts;
+    }
+    
     /**
      * Persist (update) the information associated with the input 
      * <code>FILE_ENTRY</code> object.
@@ -291,7 +379,8 @@ public class JDBCFileService {
         long              start  = System.currentTimeMillis();
         String            sql    = "update FILE_ENTRY set ARCHIVE_ID = ?, "
                 + "ARCHIVE_ENTRY_PATH = ?, FILE_STATE = ?, JOB_ID = ?, "
-                + "PATH = ? , FILE_SIZE = ? where ID = ?";
+                + "PATH = ? , FILE_SIZE = ?, LAST_MODIFIED = ? "
+                + "where ID = ?";
         
         if (datasource != null) {
             if (file != null) {
@@ -302,11 +391,12 @@ public class JDBCFileService {
                     stmt = conn.prepareStatement(sql);
                     stmt.setLong(1, file.getArchiveID());
                     stmt.setString(2, file.getEntryPath());
-                    stmt.setString(3, file.getFileState().getText());
+                    stmt.setString(3, file.getFileState().name());
                     stmt.setString(4, file.getJobID());
                     stmt.setString(5, file.getFilePath());
                     stmt.setLong(6,  file.getSize());
-                    stmt.setLong(7,  file.getID());
+                    stmt.setLong(7,  file.getLastModified());
+                    stmt.setLong(8,  file.getID());
                     stmt.executeUpdate();
                     
                 }
@@ -346,23 +436,296 @@ public class JDBCFileService {
 
     /**
      * Persist (update) the information associated with the input 
-     * list of <code>FILE_ENTRY</code> objects.
+     * list of <code>FILE_ENTRY</code> objects.  If the list contains every
+     * file in a single archive and all of the files are in the same state
+     * (i.e. the typical archive state transition) a single set-based 
+     * update is issued.  Otherwise the rows are updated using JDBC batches.
+     * 
+     * Note: The set-based update only updates the file state.  The 
+     * remaining columns are fixed when the job is created.
      * 
      * @param files List of <code>FILE_ENTRY</code> objects containing 
      * updated state information.
      */
     public void updateFiles(List<FileEntry> files) {
         if ((files != null) && (files.size() > 0)) {
-            for (FileEntry file : files) {
-                updateFile(file);
+            FileEntry first = files.get(0);
+            if (isSingleStateTransition(files) 
+                    && (countFiles(first.getArchiveID(), first.getJobID()) 
+                            == files.size())) {
+                updateFileState(
+                        first.getJobID(), 
+                        first.getArchiveID(), 
+                        first.getFileState());
+            }
+            else {
+                updateFiles(
+                        files, 
+                        JDBCSettings.getInstance().getBatchSize());
             }
         }
         else {
             LOGGER.warn("The input file list is null or contains no objects.  "
-                    + "insert operation not performed.");
+                    + "update operation not performed.");
         }
     }
     
+    /**
+     * Persist (update) the information associated with the input 
+     * list of <code>FILE_ENTRY</code> objects.  All of the rows are updated
+     * using a single connection and prepared statement, and are sent to the
+     * database in batches rather than one round trip per row.
+     * 
+     * @param files List of <code>FILE_ENTRY</code> objects containing 
+     * updated state information.
+     * @param batchSize The maximum number of rows sent to the database in 
+     * a single batch.
+     */
+    public void updateFiles(List<FileEntry> files, int batchSize) {
+        
+        Connection        conn   = null;
+        PreparedStatement stmt   = null;
+        long              start  = System.currentTimeMillis();
+        int               count  = 0;
+        String            sql    = "update FILE_ENTRY set ARCHIVE_ID = ?, "
+                + "ARCHIVE_ENTRY_PATH = ?, FILE_STATE = ?, JOB_ID = ?, "
+                + "PATH = ? , FILE_SIZE = ?, LAST_MODIFIED = ? "
+                + "where ID = ?";
+        
+        if ((files == null) || (files.size() == 0)) {
+            LOGGER.warn("The input file list is null or contains no objects.  "
+                    + "update operation not performed.");
+            return;
+        }
+        if (batchSize < 1) {
+            batchSize = 1;
+        }
+        
+        if (datasource != null) {
+            
+            try { 
+                
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                
+                int pending = 0;
+                for (FileEntry file : files) {
+                    if (file != null) {
+                        stmt.setLong(1, file.getArchiveID());
+                        stmt.setString(2, file.getEntryPath());
+                        stmt.setString(3, file.getFileState().name());
+                        stmt.setString(4, file.getJobID());
+                        stmt.setString(5, file.getFilePath());
+                        stmt.setLong(6,  file.getSize());
+                        stmt.setLong(7,  file.getLastModified());
+                        stmt.setLong(8,  file.getID());
+                        stmt.addBatch();
+                        count++;
+                        if (++pending >= batchSize) {
+                            stmt.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to update a batch of FILE_ENTRY "
+                        + "objects.  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "FILE_ENTRY records will not be updated.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Batch update of [ "
+                    + count
+                    + " ] FILE_ENTRY records (batch size [ "
+                    + batchSize
+                    + " ]) completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+    }
+    
+    /**
+     * Set the state of every file associated with the input job ID and 
+     * archive ID using a single set-based update.
+     * 
+     * @param jobID The job ID (must not be null, or empty String)
+     * @param archiveID The archive ID (must be greater than or equal to 
+     * zero)
+     * @param state The new file state.
+     * @return The number of rows updated (-1 if the update failed).
+     */
+    public int updateFileState(
+            String       jobID, 
+            long         archiveID, 
+            JobStateType state) {
+        
+        Connection        conn   = null;
+        PreparedStatement stmt   = null;
+        int               count  = -1;
+        long              start  = System.currentTimeMillis();
+        String            sql    = "update FILE_ENTRY set FILE_STATE = ? "
+                + "where JOB_ID = ? and ARCHIVE_ID = ?";
+        
+        if (datasource != null) {
+            if ((jobID != null) && (!jobID.isEmpty()) && (state != null)) {
+                
+                try { 
+                    
+                    conn = datasource.getConnection();
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, state.name());
+                    stmt.setString(2, jobID);
+                    stmt.setLong(3, archiveID);
+                    count = stmt.executeUpdate();
+                    
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to update the state of the "
+                            + "FILE_ENTRY records associated with job ID [ "
+                            + jobID
+                            + " ] and archive ID [ "
+                            + archiveID
+                            + " ].  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.warn("The input job ID or file state is null.  "
+                        + "Update operation not performed.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "FILE_ENTRY records will not be updated.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("State of [ "
+                    + count
+                    + " ] FILE_ENTRY records for job ID [ "
+                    + jobID
+                    + " ] and archive ID [ "
+                    + archiveID
+                    + " ] set to [ "
+                    + state
+                    + " ] in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return count;
+    }
+    
+    /**
+     * Count the files associated with the input job ID and archive ID.
+     * 
+     * @param archiveID The archive ID requested.
+     * @param jobID The job ID requested.
+     * @return The number of files (-1 if the count could not be obtained).
+     */
+    private long countFiles(long archiveID, String jobID) {
+        
+        Connection        conn   = null;
+        PreparedStatement stmt   = null;
+        ResultSet         rs     = null;
+        long              count  = -1;
+        String            sql    = "select count(*) from FILE_ENTRY "
+                + "where ARCHIVE_ID = ? AND JOB_ID = ?";
+        
+        if ((datasource != null) && (jobID != null)) {
+            try { 
+                
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setLong(1, archiveID);
+                stmt.setString(2, jobID);
+                rs   = stmt.executeQuery();
+                if (rs.next()) {
+                    count = rs.getLong(1);
+                }
+                
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to count the FILE_ENTRY records "
+                        + "associated with job ID [ "
+                        + jobID
+                        + " ] and archive ID [ "
+                        + archiveID
+                        + " ].  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); }
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Determine whether every file in the input list belongs to the same 
+     * job and archive, and is in the same state.
+     * 
+     * @param files List of <code>FILE_ENTRY</code> objects.
+     * @return True if the files can be updated with a single set-based 
+     * update.
+     */
+    private static boolean isSingleStateTransition(List<FileEntry> files) {
+        FileEntry first = files.get(0);
+        if ((first == null) 
+                || (first.getJobID() == null) 
+                || (first.getFileState() == null)) {
+            return false;
+        }
+        for (FileEntry file : files) {
+            if ((file == null)
+                    || (file.getArchiveID() != first.getArchiveID())
+                    || (!first.getJobID().equals(file.getJobID()))
+                    || (file.getFileState() != first.getFileState())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Persist (insert) the information associated with the input 
      * <code>FILE_ENTRY</code> object.
@@ -377,7 +740,8 @@ public class JDBCFileService {
         long              start  = System.currentTimeMillis();
         String            sql    = "insert into FILE_ENTRY (ARCHIVE_ID, "
                 + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, "
-                + "PATH, FILE_SIZE) values (?, ?, ?, ?, ?, ?)";
+                + "PATH, FILE_SIZE, LAST_MODIFIED) "
+                + "values (?, ?, ?, ?, ?, ?, ?)";
         
         if (datasource != null) {
             if (file != null) {
@@ -388,10 +752,11 @@ public class JDBCFileService {
                     stmt = conn.prepareStatement(sql);
                     stmt.setLong(1, file.getArchiveID());
                     stmt.setString(2, file.getEntryPath());
-                    stmt.setString(3, file.getFileState().getText());
+                    stmt.setString(3, file.getFileState().name());
                     stmt.setString(4, file.getJobID());
                     stmt.setString(5, file.getFilePath());
                     stmt.setLong(6,  file.getSize());
+                    stmt.setLong(7,  file.getLastModified());
                     stmt.executeUpdate();
                     
                 }
@@ -428,19 +793,130 @@ public class JDBCFileService {
     
     /**
      * Persist (insert) the information associated with the input 
-     * list of <code>FILE_ENTRY</code> objects.
+     * list of <code>FILE_ENTRY</code> objects.  The rows are sent to the 
+     * database in batches, the size of which is set by the 
+     * <code>bundler.jdbc.batch_size</code> property.
      * 
      * @param files List of <code>FILE_ENTRY</code> objects to persist.
      */
     public void insertFiles(List<FileEntry> files) {
-        if ((files != null) && (files.size() > 0)) {
-            for (FileEntry file : files) {
-                insertFile(file);
+        insertFiles(
+                files, 
+                JDBCSettings.getInstance().getBatchSize());
+    }
+    
+    /**
+     * Persist (insert) the information associated with the input 
+     * list of <code>FILE_ENTRY</code> objects.  All of the rows are inserted
+     * using a single connection and prepared statement, and are sent to the
+     * database in batches rather than one round trip per row.
+     * 
+     * @param files List of <code>FILE_ENTRY</code> objects to persist.
+     * @param batchSize The maximum number of rows sent to the database in 
+     * a single batch.
+     */
+    public void insertFiles(List<FileEntry> files, int batchSize) {
+        
+        Connection        conn   = null;
+        PreparedStatement stmt   = null;
+        long              start  = System.currentTimeMillis();
+        int               count  = 0;
+        String            sql    = "insert into FILE_ENTRY (ARCHIVE_ID, "
+                + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, "
+                + "PATH, FILE_SIZE, LAST_MODIFIED) "
+                + "values (?, ?, ?, ?, ?, ?, ?)";
+        
+        if ((files == null) || (files.size() == 0)) {
+            LOGGER.warn("The input file list is null or contains no objects.  "
+                    + "insert operation not performed.");
+            return;
+        }
+        if (batchSize < 1) {
+            batchSize = 1;
+        }
+        
+        if (datasource != null) {
+            
+            try { 
+                
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                
+                int pending = 0;
+                for (FileEntry file : files) {
+                    if (file != null) {
+                        stmt.setLong(1, file.getArchiveID());
+                        stmt.setString(2, file.getEntryPath());
+                        stmt.setString(3, file.getFileState().name());
+                        stmt.setString(4, file.getJobID());
+                        stmt.setString(5, file.getFilePath());
+                        stmt.setLong(6,  file.getSize());
+                        stmt.setLong(7,  file.getLastModified());
+                        stmt.addBatch();
+                        count++;
+                        if (++pending >= batchSize) {
+                            stmt.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to insert a batch of FILE_ENTRY "
+                        + "objects.  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
             }
         }
         else {
-            LOGGER.warn("The input file list is null or contains no objects.  "
-                    + "insert operation not performed.");
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "FILE_ENTRY records will not be inserted.");
+        }
+        
+        LOGGER.info("Batch insert of [ "
+                + count
+                + " ] FILE_ENTRY records (batch size [ "
+                + batchSize
+                + " ]) completed in [ "
+                + (System.currentTimeMillis() - start) 
+                + " ] ms.");
+    }
+    
+    /**
+     * Simple holder for the results of the file count aggregation.
+     */
+    public static class FileCounts {
+        
+        private long numFiles  = 0L;
+        private long totalSize = 0L;
+        
+        /**
+         * Getter method for the number of files.
+         * @return The number of files.
+         */
+        public long getNumFiles() {
+            return numFiles;
+        }
+        
+        /**
+         * Getter method for the total size of the files.
+         * @return The total size of the files (in bytes).
+         */
+        public long getTotalSize() {
+            return totalSize;
         }
     }
 }
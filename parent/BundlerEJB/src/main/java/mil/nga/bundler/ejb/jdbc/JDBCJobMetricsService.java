@@ -16,12 +16,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mil.nga.bundler.model.BundlerJobMetrics;
+import mil.nga.bundler.model.BundlerMetrics;
 import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.types.JobStateType;
 
 /**
  * Session bean providing methods for interfacing with the table containing
  * the bundler job metrics information.
+ * 
+ * Also provides the aggregation queries used by the statistics pages.  The
+ * sums, counts and compression ratios are calculated by the database so the
+ * pages render in constant memory regardless of the amount of history 
+ * retained.
  */
 @Stateless
 @LocalBean
@@ -135,7 +141,7 @@ public class JDBCJobMetricsService {
                 + "START_TIME, TOTAL_COMPRESSED_SIZE, TOTAL_SIZE, USER_NAME "
                 + " from " 
                 + TABLE_NAME
-                + "where START_TIME > ? "
+                + " where START_TIME > ? "
                 + "and START_TIME < ? order by START_TIME desc";
         
         
@@ -221,4 +227,155 @@ public class JDBCJobMetricsService {
         
         return metrics;
     }
+    
+    /**
+     * Calculate the bundler metrics for the jobs with a start time that 
+     * falls between the two input times (inclusive).  The statistics are 
+     * identical to those calculated by 
+     * <code>mil.nga.bundler.MetricsCalculator</code> but the aggregation is
+     * performed by the database (one row is returned regardless of the 
+     * number of jobs).
+     * 
+     * Note: The aggregation runs against the JOBS and ARCHIVE_JOBS tables 
+     * because those tables hold the per-job data the statistics pages have 
+     * always been based on.  
+     * 
+     * @param startTime The "from" parameter 
+     * @param endTime The "to" parameter
+     * @return The calculated metrics, or null if no jobs fall between the 
+     * two times (or the query fails).
+     */
+    public BundlerMetrics getMetricsByDate(long startTime, long endTime) {
+        
+        BundlerMetrics    metrics = null;
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        ResultSet         rs      = null;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "select count(*) NUM_JOBS, "
+                + "sum(case when j.JOB_STATE <> ? then 1 else 0 end) "
+                + "NUM_JOBS_INCOMPLETE, "
+                + "sum(j.NUM_FILES) NUM_FILES, "
+                + "sum(j.NUM_ARCHIVES) NUM_ARCHIVES, "
+                + "sum(j.TOTAL_SIZE) TOTAL_SIZE, "
+                + "sum(coalesce(a.COMPRESSED_SIZE, 0)) COMPRESSED_SIZE, "
+                + "sum(coalesce(a.ARCHIVE_COUNT, 0)) ARCHIVE_COUNT, "
+                + "sum(case when j.JOB_STATE = ? and j.END_TIME > 0 "
+                + "and j.END_TIME > j.START_TIME "
+                + "then j.END_TIME - j.START_TIME else 0 end) ELAPSED_TIME, "
+                + "sum(case when a.COMPRESSED_SIZE > 0 and j.TOTAL_SIZE > 0 "
+                + "and a.COMPRESSED_SIZE < j.TOTAL_SIZE "
+                + "then (j.TOTAL_SIZE - a.COMPRESSED_SIZE) * 1.0 / j.TOTAL_SIZE "
+                + "else 0 end) COMPRESSION_RATIO, "
+                + "min(case when j.START_TIME <> 0 then j.START_TIME end) "
+                + "START_TIME, "
+                + "max(j.END_TIME) END_TIME "
+                + "from JOBS j left outer join ("
+                + "select JOB_ID, count(*) ARCHIVE_COUNT, "
+                + "sum(case when ARCHIVE_STATE = ? then ARCHIVE_SIZE else 0 end) "
+                + "COMPRESSED_SIZE from ARCHIVE_JOBS group by JOB_ID) a "
+                + "on a.JOB_ID = j.JOB_ID "
+                + "where j.START_TIME between ? and ?";
+        
+        // Ensure the startTime is earlier than the endTime before submitting
+        // the query to the database.
+        if (startTime > endTime) {
+                LOGGER.warn("The caller supplied a start time that falls "
+                        + "after the end time.  Swapping start and end "
+                        + "times.");
+                long temp = startTime;
+                startTime = endTime;
+                endTime = temp;
+        }
+        
+        if (datasource != null) {
+            try {
+                
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, JobStateType.COMPLETE.name());
+                stmt.setString(2, JobStateType.COMPLETE.name());
+                stmt.setString(3, JobStateType.COMPLETE.name());
+                stmt.setLong(4, startTime);
+                stmt.setLong(5, endTime);
+                rs   = stmt.executeQuery();
+                
+                if (rs.next()) {
+                    long numJobs = rs.getLong("NUM_JOBS");
+                    if (numJobs > 0) {
+                        metrics = new BundlerMetrics();
+                        metrics.setTotalNumJobs(numJobs);
+                        metrics.setNumJobsIncomplete(
+                                rs.getLong("NUM_JOBS_INCOMPLETE"));
+                        metrics.setTotalNumFiles(rs.getLong("NUM_FILES"));
+                        metrics.setTotalNumArchives(rs.getLong("NUM_ARCHIVES"));
+                        metrics.setTotalSize(rs.getLong("TOTAL_SIZE"));
+                        metrics.setTotalCompressedSize(
+                                rs.getLong("COMPRESSED_SIZE"));
+                        metrics.setAverageCompression(
+                                rs.getDouble("COMPRESSION_RATIO") / numJobs);
+                        metrics.setAbsoluteCompression(getCompressionRatio(
+                                metrics.getTotalSize(), 
+                                metrics.getTotalCompressedSize()));
+                        metrics.setAverageSizePerJob(
+                                metrics.getTotalSize() / numJobs);
+                        metrics.setAverageNumFilesPerJob(
+                                metrics.getTotalNumFiles() / numJobs);
+                        metrics.setAverageTimePerJob(
+                                rs.getLong("ELAPSED_TIME") / numJobs);
+                        metrics.setAverageNumArchivesPerJob(
+                                rs.getLong("ARCHIVE_COUNT") / numJobs);
+                        long earliest = rs.getLong("START_TIME");
+                        metrics.setStartTime(earliest == 0 ? 
+                                System.currentTimeMillis() : earliest);
+                        metrics.setEndTime(rs.getLong("END_TIME"));
+                    }
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to calculate the job metrics from the "
+                        + "target data source.  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null BundlerMetrics will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Job metrics aggregated in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return metrics;
+    }
+    
+    /**
+     * Calculate the overall compression ratio.
+     * 
+     * @param size Total uncompressed size.
+     * @param compressedSize Total compressed size.
+     * @return The fraction by which the input data was compressed.
+     */
+    private double getCompressionRatio(long size, long compressedSize) {
+        double ratio = 0.0;
+        if ((compressedSize > 0) && (size > 0) && (compressedSize < size)) {
+            ratio = ((double)(size - compressedSize) / (double)size);
+        }
+        return ratio;
+    }
 }
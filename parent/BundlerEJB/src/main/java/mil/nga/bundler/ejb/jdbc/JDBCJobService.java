@@ -209,6 +209,99 @@ public class JDBCJobService {
         return jobs;
     }
     
+    /**
+     * Load the summary information (i.e. the JOBS row only) associated with 
+     * the input job ID.  The returned Job object will not contain the 
+     * child Archive or FileEntry lists.  
+     * 
+     * @param jobID The ID of the job to retrieve.
+     * @return The job summary, or null if the job does not exist.
+     */
+    public Job getJob(String jobID) {
+        
+        Connection        conn   = null;
+        Job               job    = null;
+        PreparedStatement stmt   = null;
+        ResultSet         rs     = null;
+        long              start  = System.currentTimeMillis();
+        String            sql    = "select JOB_ID, ARCHIVE_SIZE, "
+                + "ARCHIVE_TYPE, END_TIME, NUM_ARCHIVES, "
+                + "NUM_ARCHIVES_COMPLETE, NUM_FILES, NUM_FILES_COMPLETE, "
+                + "START_TIME, JOB_STATE, TOTAL_SIZE, TOTAL_SIZE_COMPLETE, "
+                + "USER_NAME from JOBS where JOB_ID = ?";
+        
+        if (datasource != null) {
+            if ((jobID != null) && (!jobID.isEmpty())) {
+                try {
+                    
+                    conn = datasource.getConnection();
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, jobID);
+                    rs   = stmt.executeQuery();
+                    if (rs.next()) {
+                        
+                        job = new Job();
+                        job.setJobID(rs.getString("JOB_ID"));
+                        job.setArchiveSize(rs.getLong("ARCHIVE_SIZE"));
+                        job.setArchiveType(ArchiveType.valueOf(
+                                rs.getString("ARCHIVE_TYPE")));
+                        job.setEndTime(rs.getLong("END_TIME"));
+                        job.setNumArchives(rs.getInt("NUM_ARCHIVES"));
+                        job.setNumArchivesComplete(
+                                rs.getInt("NUM_ARCHIVES_COMPLETE"));
+                        job.setNumFiles(rs.getLong("NUM_FILES"));
+                        job.setNumFilesComplete(rs.getLong("NUM_FILES_COMPLETE"));
+                        job.setStartTime(rs.getLong("START_TIME"));
+                        job.setState(JobStateType.valueOf(
+                                rs.getString("JOB_STATE")));
+                        job.setTotalSize(rs.getLong("TOTAL_SIZE"));
+                        job.setTotalSizeComplete(rs.getLong("TOTAL_SIZE_COMPLETE"));
+                        job.setUserName(rs.getString("USER_NAME"));
+                        
+                    }
+                    
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised while "
+                            + "attempting to retrieve job ID [ "
+                            + jobID
+                            + " ] from the target data source.  Error "
+                            + "message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (rs != null) { rs.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.warn("The input job ID is null or empty.  Unable to "
+                        + "retrieve the job.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null Job will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Job summary for job ID [ "
+                    + jobID 
+                    + " ] selected in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return job;
+    }
+    
     /**
      * Load the fully materialized Job from the data store.  The returned
      * Job object will contain fully populated child Archive and 
@@ -0,0 +1,134 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import java.util.Properties;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Singleton class holding the settings of the JDBC services (currently
+ * just the number of rows sent to the database in each batch).  Settings
+ * are read from the bundler properties file, but may be overridden on an
+ * individual host by supplying a JVM system property with the same name.
+ */
+public class JDBCSettings
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            JDBCSettings.class);
+
+    /**
+     * Number of rows sent to the database in each JDBC batch.
+     */
+    private int batchSize = DEFAULT_JDBC_BATCH_SIZE;
+
+    /**
+     * Hidden constructor enforcing the Singleton design pattern.
+     */
+    private JDBCSettings() {
+        super(PROPERTY_FILE_NAME);
+        Properties props = null;
+        try {
+            props = getProperties();
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("Unable to load the bundler properties.  JDBC "
+                    + "settings will be taken from JVM system properties "
+                    + "or the defaults.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+        batchSize = Math.max(1, getIntSetting(
+                props,
+                JDBC_BATCH_SIZE_PROPERTY,
+                DEFAULT_JDBC_BATCH_SIZE));
+    }
+
+    /**
+     * Accessor method for the Singleton instance of the JDBCSettings
+     * object.
+     *
+     * @return The Singleton instance.
+     */
+    public static JDBCSettings getInstance() {
+        return JDBCSettingsHolder.getSingleton();
+    }
+
+    /**
+     * Look up an integer setting.  JVM system properties take precedence
+     * over the values in the bundler properties file.
+     *
+     * @param props Properties loaded from the bundler properties file (may
+     * be null).
+     * @param key The property name.
+     * @param defaultValue Value to use if the property is not defined or
+     * cannot be parsed.
+     * @return The integer setting.
+     */
+    private static int getIntSetting(
+            Properties props,
+            String key,
+            int defaultValue) {
+        int    result = defaultValue;
+        String value  = System.getProperty(key);
+        if ((value == null) && (props != null)) {
+            value = props.getProperty(key);
+        }
+        if ((value != null) && (!value.trim().isEmpty())) {
+            try {
+                result = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException nfe) {
+                LOGGER.warn("Invalid integer value for property [ "
+                        + key
+                        + " ].  Value [ "
+                        + value
+                        + " ].  Using default value [ "
+                        + defaultValue
+                        + " ].");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Getter method for the number of rows sent to the database in each
+     * JDBC batch.
+     *
+     * @return The JDBC batch size.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Static inner class used to construct the Singleton object.  This class
+     * exploits the fact that classes are not loaded until they are referenced
+     * therefore enforcing thread safety without the performance hit imposed
+     * by the <code>synchronized</code> keyword.
+     */
+    public static class JDBCSettingsHolder {
+
+        /**
+         * Reference to the Singleton instance of the JDBCSettings.
+         */
+        private static JDBCSettings _instance = new JDBCSettings();
+
+        /**
+         * Accessor method for the singleton instance of the JDBCSettings.
+         *
+         * @return The Singleton instance of the JDBCSettings.
+         */
+        public static JDBCSettings getSingleton() {
+            return _instance;
+        }
+    }
+}
@@ -603,17 +603,16 @@ public class Bundler extends PropertyLoader implements BundlerConstantsI {
             
             try {
                 
-                // Create a Job object from the input request.
-                Job job = (new JobFactory()).createJob(request);
+                // Create, persist and start the job.  The job is built 
+                // incrementally so the first archives are started while 
+                // the rest of a large request is still being validated.
+                Job job = getJobFactoryService().createJob(request);
                 
                 // If enabled, save a copy of the client-supplied bundle 
                 // request. 
                 getRequestArchiveService().archiveRequest(
                         request, 
                         job.getJobID());
-                    
-                // Start the job
-                getJobRunnerService().run(job);
 
                 // Generate the return message
                 message = getJobTrackerService()
@@ -4,7 +4,9 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.EJB;
 
@@ -13,7 +15,9 @@ import org.slf4j.LoggerFactory;
 
 import mil.nga.bundler.ejb.EJBClientUtilities;
 import mil.nga.bundler.ejb.JobService;
+import mil.nga.bundler.ejb.MetricsService;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.BundlerDailyMetrics;
 import mil.nga.bundler.model.Job;
 
 /**
@@ -43,6 +47,16 @@ public class ChartModel implements BundlerConstantsI {
     @EJB
     protected JobService jobService;
     
+    /**
+     * Inject the EJB used to look up the daily metrics rollups.
+     * 
+     * Note:  JBoss EAP 6.x does not support injection into the application
+     * web tier.  When deployed to JBoss EAP 6.x this internal member 
+     * variable will always be null.
+     */
+    @EJB
+    protected MetricsService metricsService;
+    
     /**
      * Simple static method to convert a into a printable date.
      * @param time time in milliseconds from the epoch
@@ -71,6 +85,65 @@ public class ChartModel implements BundlerConstantsI {
         return jobService;
     }
     
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * @return Reference to the MetricsService EJB.
+     */
+    protected MetricsService getMetricsService() {
+        if (metricsService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to MetricsService.  Attempting to "
+                    + "look it up via JNDI.");
+            metricsService = EJBClientUtilities
+                    .getInstance()
+                    .getMetricsService();
+        }
+        return metricsService;
+    }
+    
+    /**
+     * Retrieve the daily rollups for the last <code>X</code> days 
+     * (including today), where clients pass in <code>X</code> through the 
+     * days parameter.  The rollups are maintained by the MetricsTimerBean 
+     * so the raw job records are not touched when rendering the charts.  
+     * Days with no jobs have no rollup.
+     * 
+     * @param days How many days from today in the past to retrieve.
+     * @return Map of the start of each day to the associated rollup.
+     */
+    protected Map<Long, BundlerDailyMetrics> getDailyMetrics(int days) {
+        
+        Map<Long, BundlerDailyMetrics> map = 
+                new HashMap<Long, BundlerDailyMetrics>();
+        
+        if (getMetricsService() != null) {
+            
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.DATE, -(days - 1));
+            long startTime = BundlerDailyMetrics.getDayStart(
+                    cal.getTimeInMillis());
+            long endTime = BundlerDailyMetrics.getDayStart(
+                    System.currentTimeMillis());
+            
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Selecting daily rollups between start time [ "
+                        + toDateString(startTime)
+                        + " ] and end time [ "
+                        + toDateString(endTime)
+                        + " ].");
+            }
+            for (BundlerDailyMetrics day : 
+                    getMetricsService().getDailyMetrics(startTime, endTime)) {
+                map.put(day.getDayStart(), day);
+            }
+        }
+        else { 
+            LOGGER.error("Unable to obtain a reference to the MetricsService "
+                    + "EJB.  Bar chart will not be populated.");
+        }
+        return map;
+    }
+    
     /**
      * Construct a List of Job objects that were submitted in the last 30 days.
      * @return A list of Job object submitted the last 30 days.
@@ -9,7 +9,7 @@ import java.util.Map;
 import javax.annotation.PostConstruct;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.RequestScoped;
-import mil.nga.bundler.model.Job;
+import mil.nga.bundler.model.BundlerDailyMetrics;
 
 import org.primefaces.model.chart.Axis;
 import org.primefaces.model.chart.AxisType;
@@ -53,9 +53,9 @@ public class ViewDataTransferredChartModel
      */
     @PostConstruct
     public void initialize() {
-        List<Job> jobs = getJobList();
-        if ((jobs != null) && (jobs.size() > 0)) {
-            buildBarModel(jobs);
+        Map<Long, BundlerDailyMetrics> days = getDailyMetrics(30);
+        if ((days != null) && (days.size() > 0)) {
+            buildBarModel(days);
         }
         else {
             LOGGER.error("Unable to find any jobs submitted in the "
@@ -90,7 +90,13 @@ public class ViewDataTransferredChartModel
         return max;
     }
     
-    private void buildBarModel(List<Job> jobs) {
+    /**
+     * Construct the bar chart showing the amount of data requested on each
+     * of the past 30 days from the daily rollups.
+     * 
+     * @param days Map of the start of each day to the associated rollup.
+     */
+    private void buildBarModel(Map<Long, BundlerDailyMetrics> days) {
         
         DateModelFactory factory = DateModelFactory.getInstance();
         List<DayModel>   dayModel = factory.getModel(new Date(), 30);
@@ -98,13 +104,11 @@ public class ViewDataTransferredChartModel
         
         for(DayModel day : dayModel) {
             
-            String key   = day.getDayString();
-            long   value = 0;
-            for (Job job : jobs) {
-                if ((job.getStartTime() > day.getStartTime()) &&
-                        (job.getStartTime() < day.getEndTime())) {
-                    value += job.getTotalSize();
-                }
+            String              key    = day.getDayString();
+            long                value  = 0;
+            BundlerDailyMetrics rollup = days.get(day.getStartTime());
+            if (rollup != null) {
+                value = rollup.getTotalSize();
             }
             map.put(key, new Long(value / (1024 * 1024) ));
         }
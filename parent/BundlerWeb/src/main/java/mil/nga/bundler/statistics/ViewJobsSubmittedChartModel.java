@@ -1,8 +1,6 @@
 package mil.nga.bundler.statistics;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -12,7 +10,7 @@ import javax.annotation.PostConstruct;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.RequestScoped;
 
-import mil.nga.bundler.model.Job;
+import mil.nga.bundler.model.BundlerDailyMetrics;
 
 import org.primefaces.model.chart.Axis;
 import org.primefaces.model.chart.AxisType;
@@ -55,9 +53,9 @@ public class ViewJobsSubmittedChartModel
      */
     @PostConstruct
     public void initialize() {
-        List<Job> jobs = getJobList();
-        if ((jobs != null) && (jobs.size() > 0)) {
-            buildBarModel(jobs);
+        Map<Long, BundlerDailyMetrics> days = getDailyMetrics(30);
+        if ((days != null) && (days.size() > 0)) {
+            buildBarModel(days);
         }
         else {
             LOGGER.error("Unable to find any jobs submitted in the "
@@ -104,27 +102,25 @@ public class ViewJobsSubmittedChartModel
      * It creates the Chart, labels, axis, etc. then populates the chart. 
      * 
      * This method will create a model documenting the start and end times 
-     * for each day for the past 30 days.  We then utilize the list of input 
-     * jobs to determine how many jobs were submitted on each day.
+     * for each day for the past 30 days.  We then utilize the daily rollups
+     * to determine how many jobs were submitted on each day.
      *  
-     * @param jobs List of jobs that were submitted during the last 30 days.
+     * @param days Map of the start of each day to the associated rollup.
      */
-    private void buildBarModel(List<Job> jobs) {
+    private void buildBarModel(Map<Long, BundlerDailyMetrics> days) {
         
         DateModelFactory     factory  = DateModelFactory.getInstance();
         List<DayModel>       dayModel = factory.getModel(new Date(), 30);
         Map<String, Integer> map  = new LinkedHashMap<String, Integer>();
         
-        if ((jobs != null) && (jobs.size() > 0)) {
+        if ((days != null) && (days.size() > 0)) {
             for(DayModel day : dayModel) {
                 
-                String key   = day.getDayString();
-                int    value = 0;
-                for (Job job : jobs) {
-                    if ((job.getStartTime() > day.getStartTime()) &&
-                            (job.getStartTime() < day.getEndTime())) {
-                        value++;
-                    }
+                String              key    = day.getDayString();
+                int                 value  = 0;
+                BundlerDailyMetrics rollup = days.get(day.getStartTime());
+                if (rollup != null) {
+                    value = (int)rollup.getNumJobs();
                 }
                 map.put(key, new Integer(value));
             }
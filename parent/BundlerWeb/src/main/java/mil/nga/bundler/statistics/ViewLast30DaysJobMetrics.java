@@ -4,18 +4,15 @@ import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ViewScoped;
 
-import mil.nga.bundler.MetricsCalculator;
 import mil.nga.bundler.ejb.EJBClientUtilities;
-import mil.nga.bundler.ejb.JobService;
+import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
 import mil.nga.bundler.model.BundlerMetrics;
-import mil.nga.bundler.model.Job;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,10 +38,10 @@ public class ViewLast30DaysJobMetrics
     static Logger LOGGER = LoggerFactory.getLogger(ViewLast30DaysJobMetrics.class);
     
     /**
-     * Container-injected reference to the JobService EJB.
+     * Container-injected reference to the JDBCJobMetricsService EJB.
      */
     @EJB
-    JobService jobService;
+    JDBCJobMetricsService jdbcJobMetricsService;
     
     /**
      * Handle to the object containing the calculated job metrics.  This 
@@ -59,18 +56,18 @@ public class ViewLast30DaysJobMetrics
     
     /**
      * Private method used to obtain a reference to the target EJB.  
-     * @return Reference to the JobService EJB.
+     * @return Reference to the JDBCJobMetricsService EJB.
      */
-    private JobService getJobService() {
-        if (jobService == null) {
+    private JDBCJobMetricsService getJDBCJobMetricsService() {
+        if (jdbcJobMetricsService == null) {
             LOGGER.warn("Application container failed to inject the "
-                    + "reference to JobService.  Attempting to "
+                    + "reference to JDBCJobMetricsService.  Attempting to "
                     + "look it up via JNDI.");
-            jobService = EJBClientUtilities
+            jdbcJobMetricsService = EJBClientUtilities
                     .getInstance()
-                    .getJobService();
+                    .getJDBCJobMetricsService();
         }
-        return jobService;
+        return jdbcJobMetricsService;
     }
     
     /**
@@ -86,16 +83,16 @@ public class ViewLast30DaysJobMetrics
     }
     
     /**
-     * Obtain a list of jobs on which to calculate metrics.  This method will 
-     * create a <code>List</code> of <code>Job</code> objects that have 
-     * been submitted in the last 30 days.
+     * Calculate the metrics associated with the jobs that have been 
+     * submitted in the last 30 days.  The aggregation is performed by the 
+     * database.
      * 
-     * @return A list of jobs.  Null if there are any problems obtaining the 
-     * list.
+     * @return The calculated metrics.  Null if no jobs were submitted or
+     * there are any problems calculating the metrics.
      */
-    private List<Job> getJobList() {
+    private BundlerMetrics calculateMetrics() {
         
-        List<Job> jobList = null;
+        BundlerMetrics result = null;
         long endTime = System.currentTimeMillis();
         
         // Calculate a date 30 days in the past
@@ -113,33 +110,30 @@ public class ViewLast30DaysJobMetrics
                     + " ].");
         }
         
-        if (getJobService() != null) {
-            jobList = getJobService().getJobsByDate(startTime, endTime);
+        if (getJDBCJobMetricsService() != null) {
+            result = getJDBCJobMetricsService().getMetricsByDate(
+                    startTime, 
+                    endTime);
         }
         else {
             LOGGER.error("Unable to obtain a reference to the "
-                    + "JobService EJB.");
+                    + "JDBCJobMetricsService EJB.");
         }
-        return jobList;
+        return result;
     }
     
     /**
      * The initialize method is called immediately after the Bean is 
      * instantiated.  It's responsibility is to retrieve the metrics data that
-     * will be displayed.   In this case, it retrieves a list of all jobs 
-     * submitted in the last 30 days.
+     * will be displayed.   In this case, it calculates the metrics for all 
+     * jobs submitted in the last 30 days.
      */
     @PostConstruct
     public void initialize() {
         
-        List<Job> jobs = getJobList();
+        metrics = calculateMetrics();
         
-        if ((jobs != null) && (jobs.size() > 0)) {
-            metrics = new BundlerMetrics();
-            MetricsCalculator calc = new MetricsCalculator();
-            calc.getMetrics(metrics, jobs);
-        }
-        else {
+        if (metrics == null) {
             LOGGER.warn("No jobs have been submitted/processed 30 days.  "
                     + "This is almost certainly an error.  Please review "
                     + "previous log entries.");
@@ -1,19 +1,16 @@
 package mil.nga.bundler.statistics;
 
 import java.io.Serializable;
-import java.util.List;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ViewScoped;
 
-import mil.nga.bundler.MetricsCalculator;
 import mil.nga.bundler.ejb.EJBClientUtilities;
-import mil.nga.bundler.ejb.JobService;
+import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
 import mil.nga.bundler.ejb.MetricsTimerBean;
 import mil.nga.bundler.model.BundlerMetrics;
-import mil.nga.bundler.model.Job;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,10 +38,10 @@ public class ViewTodaysJobMetrics
     Logger LOGGER = LoggerFactory.getLogger(MetricsTimerBean.class);
     
     /**
-     * Container-injected reference to the JobService EJB.
+     * Container-injected reference to the JDBCJobMetricsService EJB.
      */
     @EJB
-    JobService jobService;
+    JDBCJobMetricsService jdbcJobMetricsService;
     
     /**
      * Handle to the object containing the calculated job metrics.  This 
@@ -59,43 +56,42 @@ public class ViewTodaysJobMetrics
     
     /**
      * Private method used to obtain a reference to the target EJB.  
-     * @return Reference to the JobService EJB.
+     * @return Reference to the JDBCJobMetricsService EJB.
      */
-    private JobService getJobService() {
-        if (jobService == null) {
+    private JDBCJobMetricsService getJDBCJobMetricsService() {
+        if (jdbcJobMetricsService == null) {
             LOGGER.warn("Application container failed to inject the "
-                    + "reference to JobService.  Attempting to "
+                    + "reference to JDBCJobMetricsService.  Attempting to "
                     + "look it up via JNDI.");
-            jobService = EJBClientUtilities
+            jdbcJobMetricsService = EJBClientUtilities
                     .getInstance()
-                    .getJobService();
+                    .getJDBCJobMetricsService();
         }
-        return jobService;
+        return jdbcJobMetricsService;
     }
     
     /**
-     * Obtain a list of jobs on which to calculate metrics.  This method will 
-     * create a <code>List</code> of <code>Job</code> objects that have 
-     * been submitted today.
+     * Calculate the metrics associated with the jobs that have been 
+     * submitted today.  The aggregation is performed by the database.
      * 
-     * @return A list of jobs.  Null if there are any problems obtaining the 
-     * list.
+     * @return The calculated metrics.  Null if no jobs were submitted or
+     * there are any problems calculating the metrics.
      */
-    private List<Job> getJobList() {
+    private BundlerMetrics calculateMetrics() {
         
-        List<Job> jobList = null;
-        DayModel today = new DayModel();
+        BundlerMetrics result = null;
+        DayModel       today  = new DayModel();
         
-        if (getJobService() != null) {
-            jobList = getJobService().getJobsByDate(
+        if (getJDBCJobMetricsService() != null) {
+            result = getJDBCJobMetricsService().getMetricsByDate(
                     today.getStartTime(), 
                     today.getEndTime());
         }
         else {
             LOGGER.error("Unable to obtain a reference to the "
-                    + "JobService EJB.");
+                    + "JDBCJobMetricsService EJB.");
         }
-        return jobList;
+        return result;
     }
     /**
      * The initialize method is called immediately after the Bean is 
@@ -105,13 +101,8 @@ public class ViewTodaysJobMetrics
      */
     @PostConstruct
     public void initialize() {
-        List<Job> jobs = getJobList();
-        if ((jobs != null) && (jobs.size() > 0)) {
-            metrics = new BundlerMetrics();
-            MetricsCalculator calc = new MetricsCalculator();
-            calc.getMetrics(metrics, jobs);
-        }
-        else {
+        metrics = calculateMetrics();
+        if (metrics == null) {
             LOGGER.info("No jobs have been submitted/processed today.");
         }
     }